@@ -210,7 +210,7 @@ public class AIFResponseCodes {
 		protected short		sc;										// subcode
 		protected String	rcText;									// response code error text
 		protected String	scText;									// subcode 		 error text
-		protected String	fullText;								// combined		 error text
+		private	  String	fullText;								// combined		 error text, formatted on first use
 		
 		/**
 		 * Constructor taking response code and meaning.
@@ -223,10 +223,41 @@ public class AIFResponseCodes {
 			
 			this.rc 	= rc;
 			this.rcText	= text;
-			this.fullText	= String.format("JASAIF%04d%04d : rc = %04d : sc = %04d : %s", 
-											 this.rc, this.sc, this.rc, this.sc, this.rcText);
+		}
+		
+		/**
+		 * Get combined error text, e.g. JASAIF00020000 : rc = 0002 : sc = 0000 : No space left.
+		 * 
+		 * @return	Error text.
+		 */
+		protected String getFullText() {
+			
+			String t = fullText;
+			if (t == null) {
+				StringBuilder sb = new StringBuilder(48 + rcText.length()).append("JASAIF");
+				ResponseCatalog.pad(sb, rc, 4);
+				ResponseCatalog.pad(sb, sc, 4).append(" : rc = ");
+				ResponseCatalog.pad(sb, rc, 4).append(" : sc = ");
+				ResponseCatalog.pad(sb, sc, 4).append(" : ");
+				t = fullText = sb.append(rcText).toString();
+			}
+			return t;
 		}
 	}
+	
+	private static final RC[]				rcValues	= RC.values();			// response codes in declaration order
+	private static final ResponseCatalog	rcCatalog	= newCatalog();			// response codes by rc
+	
+	/**
+	 * Index the response code enumeration.
+	 */
+	private static ResponseCatalog newCatalog() {
+		
+		int[] rcs = new int[rcValues.length];
+		for (int i = 0; i < rcValues.length; i++)
+			rcs[i] = rcValues[i].rc;
+		return new ResponseCatalog(rcs, null);
+	}
 
 	/**
 	 * Get response code text from enumeration using only rc.
@@ -240,13 +271,9 @@ public class AIFResponseCodes {
 	 */
 	public static String getRCText(int rc) {
 		
-		for (RC responseCode:RC.values()) {							// loop thru enumeration values
-			if (responseCode.rc == rc) {							// rc value match?
-				return responseCode.fullText;						// return associated text
-			}
-		}
+		int i = rcCatalog.first(rc);								// 1st definition with rc
 		
-		return "Unknown";											// not found
+		return i == ResponseCatalog.NOT_FOUND ? "Unknown" : rcValues[i].getFullText();
 	}
 	
 	/**
@@ -261,13 +288,9 @@ public class AIFResponseCodes {
 	 */
 	public static String getRCShortText(int rc) {
 		
-		for (RC responseCode:RC.values()) {							// loop thru enumeration values
-			if (responseCode.rc == rc) {							// rc value match?
-				return responseCode.rcText;							// return associated short text
-			}
-		}
+		int i = rcCatalog.first(rc);								// 1st definition with rc
 		
-		return "Unknown";											// not found
+		return i == ResponseCatalog.NOT_FOUND ? "Unknown" : rcValues[i].rcText;
 	}
 	
 	/**
@@ -278,10 +301,10 @@ public class AIFResponseCodes {
 	
 	public static void printAllRCTexts() {
 
-		for (RC responseCode : RC.values()) {						// loop thru enum values
-			System.out.println(responseCode.fullText);				// print full response & subcode text
+		for (RC responseCode : rcValues) {							// loop thru enum values
+			System.out.println(responseCode.getFullText());			// print full response & subcode text
 		}
-		System.out.println(String.format("Total number of ResponseCodes = %d", RC.values().length));
+		System.out.println(String.format("Total number of ResponseCodes = %d", rcValues.length));
 	}
 	
 }
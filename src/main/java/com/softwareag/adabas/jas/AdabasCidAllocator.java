@@ -0,0 +1,278 @@
+package com.softwareag.adabas.jas;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Command ID (CID) allocator of one Adabas session.
+ *
+ * Hands out unique binary 4 byte CIDs without locking. A CID that may still have
+ * an open sequence at the nucleus (read sequence, saved ISN list) goes to a
+ * pending queue when closed; {@link #releaseIdle(AdabasDirectCallX)} releases all
+ * pending CIDs with RC, packed into MC calls, and makes them available again.
+ * CIDs whose sequence ended (e.g. rc 3) are reused without RC:
+ *
+ * <pre>
+ * try (AdabasCidAllocator.Cid cid = adcx.getCidAllocator().acquire()) {
+ *     cid.apply(acbx);
+ *     ... L3 calls until rc 3
+ *     cid.setFinished();
+ * }
+ * if (adcx.getCidAllocator().getPending() &gt;= 16)
+ *     adcx.getCidAllocator().releaseIdle(adcx);
+ * </pre>
+ *
+ * The number of CIDs in use and pending is limited (like the nucleus NQCID), so
+ * leaked CIDs fail here before the nucleus returns rc 46.
+ *
+ * @author usadva
+ */
+
+/*
+ * Copyright (c) 1998-2021 Software AG, Darmstadt, Germany and/or Software AG USA Inc., Reston, VA, USA,
+ * and/or its subsidiaries and/or its affiliates and/or their licensors. Use, reproduction, transfer,
+ * publication or disclosure is prohibited except as specifically provided for in your License Agreement
+ * with Software AG.
+ */
+
+public class AdabasCidAllocator {
+
+	public static final int		DEFAULT_MAX_CIDS	= 1000;						// CIDs in use and pending per session
+	public static final int		MAX_RC_PER_MC		= 100;						// RC subcommands per MC call
+
+	private static final int	FREE				= 0;						// CID states
+	private static final int	IN_USE				= 1;
+	private static final int	PENDING				= 2;
+
+	private final AtomicInteger					next	= new AtomicInteger(0);		// last new CID value
+	private final AtomicInteger					used	= new AtomicInteger(0);		// CIDs in use or pending
+	private final ConcurrentLinkedQueue<Cid>	free	= new ConcurrentLinkedQueue<Cid>();	// CIDs without sequence
+	private final ConcurrentLinkedQueue<Cid>	pending	= new ConcurrentLinkedQueue<Cid>();	// CIDs waiting for RC
+	private volatile int						maxCids	= DEFAULT_MAX_CIDS;		// limit of CIDs in use and pending
+
+	final static Logger logger = AdabasTrace.getLogger("com.softwareag.adabas.jas.AdabasCidAllocator");
+
+	/**
+	 * One allocated command ID.
+	 */
+	public final class Cid implements AutoCloseable {
+
+		private final byte[]		cid;										// 4 byte command ID
+		private final AtomicInteger	state		= new AtomicInteger(FREE);		// FREE, IN_USE or PENDING
+		private volatile boolean	finished;									// sequence ended at nucleus
+
+		Cid(int value) {
+			cid = new byte[] { (byte) (value >>> 24), (byte) (value >>> 16), (byte) (value >>> 8), (byte) value };
+		}
+
+		/**
+		 * Set the command ID in a control block.
+		 *
+		 * @param acbx	Control block.
+		 * @return		this CID.
+		 * @throws AdabasException	CID not in use.
+		 */
+		public Cid apply(AdabasControlBlockX acbx) throws AdabasException {
+			if (state.get() != IN_USE) {
+				throw new AdabasException(acbx.getAcbDBID(), "CID " + this + " not in use");
+			}
+			acbx.setAcbCID(cid);
+			return this;
+		}
+
+		/**
+		 * Mark the sequence of the CID ended at the nucleus (e.g. after rc 3), so
+		 * close() makes it available without RC.
+		 */
+		public void setFinished() {
+			finished = true;
+		}
+
+		/**
+		 * Get command ID bytes.
+		 *
+		 * @return	copy of the 4 bytes.
+		 */
+		public byte[] getBytes() {
+			return cid.clone();
+		}
+
+		/**
+		 * Return the CID to the allocator; pending RC unless finished. Repeated
+		 * calls have no effect.
+		 */
+		@Override
+		public void close() {
+			if (finished) {
+				if (state.compareAndSet(IN_USE, FREE)) {
+					used.decrementAndGet();
+					free.offer(this);
+				}
+			}
+			else if (state.compareAndSet(IN_USE, PENDING)) {
+				pending.offer(this);
+			}
+		}
+
+		@Override
+		public String toString() {
+			return String.format("%02X%02X%02X%02X", cid[0], cid[1], cid[2], cid[3]);
+		}
+	}
+
+	/**
+	 * Get a CID not in use on the session.
+	 *
+	 * @return	CID; close it when the sequence is done.
+	 *
+	 * @throws AdabasException	Limit of CIDs in use and pending reached.
+	 */
+	public Cid acquire() throws AdabasException {
+
+		int n;
+		do {
+			n = used.get();
+			if (n >= maxCids) {
+				throw new AdabasException(String.format("CID limit %d reached: %d pending RC (rc 46)", maxCids, pending.size()));
+			}
+		} while (!used.compareAndSet(n, n + 1));
+
+		Cid cid = free.poll();
+		if (cid == null)
+			cid = new Cid(nextValue());
+		cid.finished = false;
+		cid.state.set(IN_USE);
+		return cid;
+	}
+
+	/**
+	 * Release all pending CIDs with RC on the session of the direct call, up to
+	 * {@link #MAX_RC_PER_MC} per MC call.
+	 *
+	 * @param adcx	Direct call of the session the CIDs were used on.
+	 * @return		number of CIDs released.
+	 *
+	 * @throws Exception	MC call failed.
+	 */
+	public int releaseIdle(AdabasDirectCallX adcx) throws Exception {
+
+		final String method = "releaseIdle(): ";
+
+		List<Cid> batch = new ArrayList<Cid>();
+		for (Cid cid = pending.poll(); cid != null; cid = pending.poll())
+			batch.add(cid);
+		if (batch.isEmpty())
+			return 0;
+
+		int				done	= 0;
+		AdabasMultiCall	mc		= new AdabasMultiCall(adcx);						// buffers reused per batch
+		try {
+			while (done < batch.size()) {
+				int to = Math.min(batch.size(), done + MAX_RC_PER_MC);
+				mc.clear();
+				for (int i = done; i < to; i++)
+					mc.add(rc(adcx, batch.get(i)), null, null, null, null, null);
+				int executed = mc.call();
+				if (executed == 0)
+					throw mc.getException(0);
+				if (mc.hasErrors() && logger.isDebugEnabled())
+					logger.debug(method + "RC CID " + batch.get(done + executed - 1) + " rc = " + mc.getResponse(executed - 1));
+				for (int i = done; i < done + executed; i++)					// failed RC: CID not open, free anyway
+					makeFree(batch.get(i));
+				done += executed;
+			}
+		}
+		finally {
+			for (int i = done; i < batch.size(); i++)							// not released: keep pending
+				pending.offer(batch.get(i));
+		}
+		if (logger.isDebugEnabled())	logger.debug(method + done + " CIDs released");
+		return done;
+	}
+
+	/**
+	 * Get number of CIDs waiting for RC.
+	 *
+	 * @return	pending CIDs.
+	 */
+	public int getPending() {
+
+		return pending.size();
+	}
+
+	/**
+	 * Get number of CIDs in use or pending.
+	 *
+	 * @return	CIDs held.
+	 */
+	public int getUsed() {
+
+		return used.get();
+	}
+
+	/**
+	 * Get limit of CIDs in use and pending.
+	 *
+	 * @return	limit.
+	 */
+	public int getMaxCids() {
+
+		return maxCids;
+	}
+
+	/**
+	 * Set limit of CIDs in use and pending, e.g. to the nucleus NQCID.
+	 *
+	 * @param maxCids	limit.
+	 */
+	public void setMaxCids(int maxCids) {
+
+		this.maxCids = maxCids;
+	}
+
+	/**
+	 * Control block for RC of a CID.
+	 */
+	private static AdabasControlBlockX rc(AdabasDirectCallX adcx, Cid cid) throws AdabasException {
+
+		AdabasControlBlockX acbx = new AdabasControlBlockX(adcx.isXtsEBCDIC());
+		acbx.setAcbDBID(adcx.getAcbX().getAcbDBID());
+		acbx.setAcbCMD("RC");
+		acbx.setAcbCID(cid.cid);
+		return acbx;
+	}
+
+	/**
+	 * Make a released CID available.
+	 */
+	private void makeFree(Cid cid) {
+
+		if (cid.state.compareAndSet(PENDING, FREE)) {
+			used.decrementAndGet();
+			free.offer(cid);
+		}
+	}
+
+	/**
+	 * Next new CID value, skipping values Adabas treats as no CID (binary zeros,
+	 * ASCII or EBCDIC blanks, X'FF's).
+	 */
+	private int nextValue() {
+
+		int v;
+		do {
+			v = next.incrementAndGet();
+		} while (v == 0 || v == 0x20202020 || v == 0x40404040 || v == 0xFFFFFFFF);
+		return v;
+	}
+
+	@Override
+	public String toString() {
+
+		return "AdabasCidAllocator used = " + used.get() + ": pending = " + pending.size() + ": max = " + maxCids;
+	}
+}
@@ -146,6 +146,16 @@ public class AdabasControlBlockX {
 		return acbxBytes;											// return ACBX byte array			
 	}
 	
+	/**
+	 * Get encoding flag.
+	 * 
+	 * @return	true if text fields are EBCDIC.
+	 */
+	public boolean isEBCDIC() {
+		
+		return ebcdic;
+	}
+	
 	/**
 	 * Set whole ACBX byte array.
 	 * 
@@ -1,6 +1,8 @@
 package com.softwareag.adabas.jas;
 
 import java.nio.ByteBuffer;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 
 import org.apache.logging.log4j.Logger;
 
@@ -42,7 +44,9 @@ public class AdabasDirectCall extends XtsDefinitions {
 	protected AdabasDirectCallXts	adcXts;								// direct call via XTS class instance
 	protected long					xtsSendTimeout 		= SEND_TIMEOUT;	// XTS send timeout
 	protected int					xtsConnectTimeout	= 0;			// XTS connect timeout
+	protected long					xtsLockTimeout		= LOCK_TIMEOUT;	// XTS context lock timeout
 	protected boolean				xtsEBCDIC			= false;		// XTS encoding flag
+	protected Executor				asyncExecutor		= null;			// executor for callAdabasAsync() (null = default)
 	
 	final static Logger logger = AdabasTrace.getLogger("com.softwareag.adabas.jas.AdabasDirectCall");
 
@@ -100,13 +104,8 @@ public class AdabasDirectCall extends XtsDefinitions {
 		}
 		
 		logger.trace(method + "> entered");
-		logger.debug(method + this.acb.toString());
-		logger.trace(method + AdabasTrace.dumpBuffer("Adabas Control Block = ", this.acb.getACBArray()));		
-		if (this.FBba != null)	logger.trace(method + AdabasTrace.dumpBuffer("Format Buffer = ", this.FBba));
-		if (this.RBba != null)	logger.trace(method + AdabasTrace.dumpBuffer("Record Buffer = ", this.RBba));
-		if (this.SBba != null)	logger.trace(method + AdabasTrace.dumpBuffer("Search Buffer = ", this.SBba));
-		if (this.VBba != null)	logger.trace(method + AdabasTrace.dumpBuffer("Value  Buffer = ", this.VBba));
-		if (this.IBba != null)	logger.trace(method + AdabasTrace.dumpBuffer("ISN    Buffer = ", this.IBba));
+		if (logger.isDebugEnabled())	logger.debug(method + this.acb.toString());
+		if (logger.isTraceEnabled())	traceBuffers(method, "");
 		
 		// TODO add local / remote logic
 		
@@ -119,25 +118,70 @@ public class AdabasDirectCall extends XtsDefinitions {
 			ByteBuffer	bbSC 	= ByteBuffer.wrap(baSC);
 			short		sc		= bbSC.getShort();
 			logger.error(method + "DBID = " + acb.getAcbDBID() + ": rc = " + rc + "; sc = " + sc);
-			logger.trace(AdabasTrace.dumpBuffer(method + "acb = ", acb.acbBytes));
+			if (logger.isTraceEnabled())	logger.trace(AdabasTrace.dumpBuffer(method + "acb = ", acb.acbBytes));
 			
 			throw new AdabasException(acb.getAcbDBID(), rc, sc);
 		}
 		
-		if (rc == 0)
-			logger.info(method + acb.getAcbCMD() + " call succeeded");
-		else
-			logger.info(method + acb.getAcbCMD() + " call rc = " + acb.getAcbRSP());
-		logger.trace(method + AdabasTrace.dumpBuffer("result Adabas Control Block = ", this.acb.getACBArray()));			
-		if (this.FBba != null)	logger.trace(method + AdabasTrace.dumpBuffer("result Format Buffer = ", this.FBba));
-		if (this.RBba != null)	logger.trace(method + AdabasTrace.dumpBuffer("result Record Buffer = ", this.RBba));
-		if (this.SBba != null)	logger.trace(method + AdabasTrace.dumpBuffer("result Search Buffer = ", this.SBba));
-		if (this.VBba != null)	logger.trace(method + AdabasTrace.dumpBuffer("result Value  Buffer = ", this.VBba));
-		if (this.IBba != null)	logger.trace(method + AdabasTrace.dumpBuffer("result ISN    Buffer = ", this.IBba));
+		if (logger.isInfoEnabled()) {
+			if (rc == 0)
+				logger.info(method + acb.getAcbCMD() + " call succeeded");
+			else
+				logger.info(method + acb.getAcbCMD() + " call rc = " + rc);
+		}
+		if (logger.isTraceEnabled())	traceBuffers(method, "result ");
 		logger.trace(method + "< exited");
 		
 	}
 
+	/**
+	 * Trace dump control block and buffers; only called with trace enabled.
+	 * 
+	 * @param method	Log prefix of caller.
+	 * @param title		Dump title prefix.
+	 */
+	private void traceBuffers(String method, String title) {
+		
+		logger.trace(method + AdabasTrace.dumpBuffer(title + "Adabas Control Block = ", this.acb.getACBArray()));
+		if (this.FBba != null)	logger.trace(method + AdabasTrace.dumpBuffer(title + "Format Buffer = ", this.FBba));
+		if (this.RBba != null)	logger.trace(method + AdabasTrace.dumpBuffer(title + "Record Buffer = ", this.RBba));
+		if (this.SBba != null)	logger.trace(method + AdabasTrace.dumpBuffer(title + "Search Buffer = ", this.SBba));
+		if (this.VBba != null)	logger.trace(method + AdabasTrace.dumpBuffer(title + "Value  Buffer = ", this.VBba));
+		if (this.IBba != null)	logger.trace(method + AdabasTrace.dumpBuffer(title + "ISN    Buffer = ", this.IBba));
+	}
+
+	/**
+	 * Send a direct call to Adabas asynchronously. The call runs {@link #callAdabas()} on the
+	 * executor set by {@link #setAsyncExecutor(Executor)} or {@link AdabasExecutor#getDefault()}.
+	 * 
+	 * The future completes with the updated ACB, or exceptionally with the exception 
+	 * {@link #callAdabas()} would have thrown (e.g. {@link AdabasException} for rc &gt; 3).
+	 * Do not change the control block or buffers until the future completes.
+	 * 
+	 * @return future completed with the updated ACB.
+	 */
+	public CompletableFuture<AdabasControlBlock> callAdabasAsync() {
+		
+		final CompletableFuture<AdabasControlBlock> future = new CompletableFuture<AdabasControlBlock>();
+		Executor executor = (asyncExecutor != null) ? asyncExecutor : AdabasExecutor.getDefault();
+		
+		try {
+			executor.execute(() -> {
+				try {
+					callAdabas();
+					future.complete(acb);
+				}
+				catch (Throwable e) {
+					future.completeExceptionally(e);							// keep original exception as cause
+				}
+			});
+		}
+		catch (Throwable e) {													// e.g. RejectedExecutionException
+			future.completeExceptionally(e);
+		}
+		return future;
+	}
+	
 	/**
 	 * Get Adabas control block.
 	 * 
@@ -421,6 +465,45 @@ public class AdabasDirectCall extends XtsDefinitions {
 		this.xtsConnectTimeout = xtsConnectTimeout;
 	}
 
+	/**
+	 * Get XTS context lock timeout.
+	 * 
+	 * @return xtsLockTimeout.
+	 */
+	public long getXtsLockTimeout() {
+		
+		return xtsLockTimeout;
+	}
+
+	/**
+	 * Set XTS context lock timeout. Maximum time in milliseconds a call waits 
+	 * for another thread using the same XTS context.
+	 * 
+	 * @param xtsLockTimeout xtsLockTimeout to set.
+	 */
+	public void setXtsLockTimeout(long xtsLockTimeout) {
+		
+		this.xtsLockTimeout = xtsLockTimeout;
+	}
+
+	/**
+	 * Get executor for asynchronous calls.
+	 * 
+	 * @return	executor or null if the default is used.
+	 */
+	public Executor getAsyncExecutor() {
+		return asyncExecutor;
+	}
+
+	/**
+	 * Set executor for asynchronous calls.
+	 * 
+	 * @param asyncExecutor	executor or null to use {@link AdabasExecutor#getDefault()}.
+	 */
+	public void setAsyncExecutor(Executor asyncExecutor) {
+		this.asyncExecutor = asyncExecutor;
+	}
+
 	/**
 	 * Get XTS encoding flag.
 	 * 
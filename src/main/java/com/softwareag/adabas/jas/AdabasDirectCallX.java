@@ -1,9 +1,14 @@
 package com.softwareag.adabas.jas;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
 import org.apache.logging.log4j.Logger;
 
 import com.softwareag.adabas.jas.xts.AdabasDirectCallXts;
+import com.softwareag.adabas.jas.xts.XtsContextPool;
 import com.softwareag.adabas.jas.xts.XtsDefinitions;
+import com.softwareag.adabas.xts.XTSException;
 
 /**
  * Main class for sending extended ACBX direct calls to Adabas.
@@ -31,11 +36,17 @@ public class AdabasDirectCallX extends XtsDefinitions {
 	protected AdabasBufferX			SB;										// search buffer
 	protected AdabasBufferX			VB;										// value  buffer
 	protected AdabasBufferX			IB;										// ISN    buffer
+	protected AdabasBufferX			MB;										// multifetch buffer
 
 	protected AdabasDirectCallXts	adcXts;									// direct call via XTS class instance
+	protected XtsContextPool		xtsContextPool		= null;				// XTS context pool (null = private context)
 	protected long					xtsSendTimeout 		= SEND_TIMEOUT;		// XTS send timeout
 	protected int					xtsConnectTimeout	= 0;				// XTS connect timeout
+	protected long					xtsLockTimeout		= LOCK_TIMEOUT;		// XTS context lock timeout
 	protected boolean				xtsEBCDIC			= false;			// XTS encoding flag
+	protected Executor				asyncExecutor		= null;				// executor for callAdabasAsync() (null = default)
+	protected final AdabasCidAllocator	cidAllocator	= new AdabasCidAllocator();	// command IDs of this session
+	protected final AdabasResult	result				= new AdabasResult();	// outcome of tryCallAdabas()
 
 	protected byte					callSource			= 0x00;				// A2 msg call source (e.g. AMN user)
 	
@@ -87,21 +98,146 @@ public class AdabasDirectCallX extends XtsDefinitions {
 	 */
 	public void callAdabas() throws Exception {
 		
+		callAdabas(true);
+	}
+	
+	/**
+	 * Send a direct call to Adabas without throwing for response codes above 3.
+	 * The outcome is returned in the result object of this direct call, which
+	 * is overwritten by the next call. Use for commands where rc 113, 145 etc.
+	 * are routine, so no exception is built or logged for them.
+	 * 
+	 * @return result of the call.
+	 * 
+	 * @throws Exception	Transport or other failure, not the response code.
+	 */
+	public AdabasResult tryCallAdabas() throws Exception {
+		
+		return tryCallAdabas(result);
+	}
+	
+	/**
+	 * Send a direct call to Adabas without throwing for response codes above 3,
+	 * see {@link #tryCallAdabas()}.
+	 * 
+	 * @param result	Result object to fill.
+	 * @return 			result.
+	 * 
+	 * @throws Exception	Transport or other failure, not the response code.
+	 */
+	public AdabasResult tryCallAdabas(AdabasResult result) throws Exception {
+		
+		callAdabas(false);
+		return result.set(acbx);
+	}
+	
+	/**
+	 * Send a command on the session of this direct call with its own control block
+	 * and buffers. The control block and buffers of this direct call are restored
+	 * afterwards.
+	 * 
+	 * @param acbx		Control block of the command.
+	 * @param buffers	FB, RB, SB, VB, IB and MB in this order; missing ones are null.
+	 * 
+	 * @throws Exception	General exception.
+	 */
+	void callWith(AdabasControlBlockX acbx, AdabasBufferX... buffers) throws Exception {
+		
+		callWith(true, acbx, buffers);
+	}
+	
+	/**
+	 * Send a command with its own control block and buffers without throwing for
+	 * response codes above 3, see {@link #callWith(AdabasControlBlockX, AdabasBufferX...)}.
+	 * 
+	 * @param result	Result object to fill.
+	 * @param acbx		Control block of the command.
+	 * @param buffers	FB, RB, SB, VB, IB and MB in this order; missing ones are null.
+	 * @return 			result.
+	 * 
+	 * @throws Exception	Transport or other failure, not the response code.
+	 */
+	AdabasResult tryCallWith(AdabasResult result, AdabasControlBlockX acbx, AdabasBufferX... buffers) throws Exception {
+		
+		callWith(false, acbx, buffers);
+		return result.set(acbx);
+	}
+	
+	/**
+	 * Swap in control block and buffers, send and restore.
+	 */
+	private void callWith(boolean raise, AdabasControlBlockX acbx, AdabasBufferX[] buffers) throws Exception {
+		
+		AdabasControlBlockX	sAcbx	= this.acbx;								// save session call settings
+		AdabasBufferX		sFB		= FB;
+		AdabasBufferX		sRB		= RB;
+		AdabasBufferX		sSB		= SB;
+		AdabasBufferX		sVB		= VB;
+		AdabasBufferX		sIB		= IB;
+		AdabasBufferX		sMB		= MB;
+		this.acbx	= acbx;
+		FB			= buffers.length > 0 ? buffers[0] : null;
+		RB			= buffers.length > 1 ? buffers[1] : null;
+		SB			= buffers.length > 2 ? buffers[2] : null;
+		VB			= buffers.length > 3 ? buffers[3] : null;
+		IB			= buffers.length > 4 ? buffers[4] : null;
+		MB			= buffers.length > 5 ? buffers[5] : null;
+		try {
+			callAdabas(raise);
+		}
+		finally {
+			this.acbx	= sAcbx;
+			FB			= sFB;
+			RB			= sRB;
+			SB			= sSB;
+			VB			= sVB;
+			IB			= sIB;
+			MB			= sMB;
+		}
+	}
+	
+	/**
+	 * Send a direct call to Adabas.
+	 * 
+	 * @param raise	Throw AdabasException for response codes above 3.
+	 * 
+	 * @throws Exception	General exception.
+	 */
+	private void callAdabas(boolean raise) throws Exception {
+		
 		final String method = "callAdabas(): ";
 
 		logger.trace(method + "> entered");
-		logger.debug(method + this.acbx.toString());
-		logger.trace(method + AdabasTrace.dumpBuffer("Adabas Control Block = ", this.acbx.getACBArray()));		
-		if (this.FB != null)	logger.trace(method + AdabasTrace.dumpBuffer("Format Buffer = ", this.FB.getDataBytes()));
-		if (this.RB != null)	logger.trace(method + AdabasTrace.dumpBuffer("Record Buffer = ", this.RB.getDataBytes()));
-		if (this.SB != null)	logger.trace(method + AdabasTrace.dumpBuffer("Search Buffer = ", this.SB.getDataBytes()));
-		if (this.VB != null)	logger.trace(method + AdabasTrace.dumpBuffer("Value  Buffer = ", this.VB.getDataBytes()));
-		if (this.IB != null)	logger.trace(method + AdabasTrace.dumpBuffer("ISN    Buffer = ", this.IB.getDataBytes()));
+		if (logger.isDebugEnabled())	logger.debug(method + this.acbx.toString());
+		if (logger.isTraceEnabled())	traceBuffers(method, "");
 		
 		
 		// TODO add local / remote logic
 		
-		adcXts.callAdabasXtsA2(this);											// call it
+		if (adcXts == null) {													// no context yet
+			if (xtsContextPool != null)											// borrow established one from pool
+				adcXts = xtsContextPool.borrowContext(acbx.getAcbDBID(), acbx.getHostName(), xtsSendTimeout, xtsConnectTimeout, xtsEBCDIC, xtsLockTimeout);
+			else
+				adcXts = new AdabasDirectCallXts();
+		}
+		try {
+			adcXts.callAdabasXtsA2(this);										// call it
+		}
+		catch (Exception e) {
+			if (e instanceof AdabasException || e instanceof XTSException)
+				adcXts.getFlightRecorder().log(e);								// last calls for post-mortem
+			releaseXtsContext();												// destroy pooled context
+			throw e;
+		}
+		AdabasFlightRecorder recorder = adcXts.getFlightRecorder();			// kept if context goes back to pool
+		if (xtsContextPool != null) {
+			if (!adcXts.isConnectedXts())										// context dropped by XTS
+				releaseXtsContext();
+			else if (acbx.getAcbRSP() == 0 && acbx.getAcbCMD().compareTo("CL") == 0) {	// session ended
+				xtsContextPool.returnContext(adcXts);							// only clean context back to pool
+				adcXts = null;
+			}
+		}
 		
 		short rc = acbx.getAcbRSP();
 		if (rc > 3) {
@@ -111,25 +247,103 @@ public class AdabasDirectCallX extends XtsDefinitions {
 			short	ssc	= acbx.getAcbSUBS();
 			String	cmd	= acbx.getAcbCMD();
 
-			logger.debug(method + "DBID = " + dbid + ": cmd = " + cmd + ": rc = " + rc + ": subcode = " + sc + ": subrc = " + src + ": subsc = " + ssc);
-			logger.trace(AdabasTrace.dumpBuffer(method + "acbx = ", acbx.acbxBytes));
+			if (logger.isDebugEnabled())	logger.debug(method + "DBID = " + dbid + ": cmd = " + cmd + ": rc = " + rc + ": subcode = " + sc + ": subrc = " + src + ": subsc = " + ssc);
+			if (logger.isTraceEnabled())	logger.trace(AdabasTrace.dumpBuffer(method + "acbx = ", acbx.acbxBytes));
 			
-			throw new AdabasException(dbid, cmd, rc, sc, src, ssc);
+			if (raise) {
+				AdabasException ae = new AdabasException(dbid, cmd, rc, sc, src, ssc);
+				if (recorder.isDumpCode(rc))
+					recorder.log(ae);											// last calls for post-mortem
+				throw ae;
+			}
 		}
-		
-		if (rc == 0)
-			logger.info(method + acbx.getAcbCMD() + " call succeeded");
-		else
-			logger.info(method + acbx.getAcbCMD() + " call rc = " + acbx.getAcbRSP());
-		logger.trace(method + AdabasTrace.dumpBuffer("result Adabas Control Block = ", this.acbx.getACBArray()));		
-		if (this.FB != null)	logger.trace(method + AdabasTrace.dumpBuffer("result Format Buffer = ", this.FB.getDataBytes()));
-		if (this.RB != null)	logger.trace(method + AdabasTrace.dumpBuffer("result Record Buffer = ", this.RB.getDataBytes()));
-		if (this.SB != null)	logger.trace(method + AdabasTrace.dumpBuffer("result Search Buffer = ", this.SB.getDataBytes()));
-		if (this.VB != null)	logger.trace(method + AdabasTrace.dumpBuffer("result Value  Buffer = ", this.VB.getDataBytes()));
-		if (this.IB != null)	logger.trace(method + AdabasTrace.dumpBuffer("result ISN    Buffer = ", this.IB.getDataBytes()));
+		else if (logger.isInfoEnabled()) {
+			if (rc == 0)
+				logger.info(method + acbx.getAcbCMD() + " call succeeded");
+			else
+				logger.info(method + acbx.getAcbCMD() + " call rc = " + rc);
+		}
+		if (logger.isTraceEnabled())	traceBuffers(method, "result ");
 		logger.trace(method + "< exited");		
 	}
 	
+	/**
+	 * Trace dump control block and buffers; only called with trace enabled.
+	 * 
+	 * @param method	Log prefix of caller.
+	 * @param title		Dump title prefix.
+	 */
+	private void traceBuffers(String method, String title) {
+		
+		logger.trace(method + AdabasTrace.dumpBuffer(title + "Adabas Control Block = ", this.acbx.getACBArray()));
+		if (this.FB != null)	logger.trace(method + AdabasTrace.dumpBuffer(title + "Format Buffer = ", this.FB.getDataBytes()));
+		if (this.RB != null)	logger.trace(method + AdabasTrace.dumpBuffer(title + "Record Buffer = ", this.RB.getDataBytes()));
+		if (this.SB != null)	logger.trace(method + AdabasTrace.dumpBuffer(title + "Search Buffer = ", this.SB.getDataBytes()));
+		if (this.VB != null)	logger.trace(method + AdabasTrace.dumpBuffer(title + "Value  Buffer = ", this.VB.getDataBytes()));
+		if (this.IB != null)	logger.trace(method + AdabasTrace.dumpBuffer(title + "ISN    Buffer = ", this.IB.getDataBytes()));
+		if (this.MB != null)	logger.trace(method + AdabasTrace.dumpBuffer(title + "Multi  Buffer = ", this.MB.getDataBytes()));
+	}
+	
+	/**
+	 * Send a direct call to Adabas asynchronously. The call runs {@link #callAdabas()} on the
+	 * executor set by {@link #setAsyncExecutor(Executor)} or {@link AdabasExecutor#getDefault()}.
+	 * 
+	 * The future completes with the updated ACBX, or exceptionally with the exception 
+	 * {@link #callAdabas()} would have thrown (e.g. {@link AdabasException} for rc &gt; 3).
+	 * Do not change the control block or buffers until the future completes.
+	 * 
+	 * @return future completed with the updated ACBX.
+	 */
+	public CompletableFuture<AdabasControlBlockX> callAdabasAsync() {
+		
+		final CompletableFuture<AdabasControlBlockX> future = new CompletableFuture<AdabasControlBlockX>();
+		Executor executor = (asyncExecutor != null) ? asyncExecutor : AdabasExecutor.getDefault();
+		
+		try {
+			executor.execute(() -> {
+				try {
+					callAdabas();
+					future.complete(acbx);
+				}
+				catch (Throwable e) {
+					future.completeExceptionally(e);							// keep original exception as cause
+				}
+			});
+		}
+		catch (Throwable e) {													// e.g. RejectedExecutionException
+			future.completeExceptionally(e);
+		}
+		return future;
+	}
+	
+	/**
+	 * Read records for a list of ISNs of the file in the control block with multifetch
+	 * L1 calls of {@link AdabasIsnFetch#DEFAULT_CHUNK} ISNs in ascending ISN order.
+	 * ISNs not found (rc 113) are reported to the sink per ISN. The control block
+	 * and buffers are restored afterwards.
+	 *
+	 * @param isns			ISNs in any order.
+	 * @param formatBuffer	Format buffer with explicit lengths and formats, e.g. "AA,8,A,AE,20,A.".
+	 * @param sink			Consumer of records and missing ISNs.
+	 * @return				number of records read.
+	 *
+	 * @throws Exception	General exception.
+	 */
+	public int fetchAll(long[] isns, String formatBuffer, AdabasFetchSink sink) throws Exception {
+
+		return new AdabasIsnFetch(this, AdabasFormatLayout.compile(formatBuffer), AdabasIsnFetch.DEFAULT_CHUNK).fetch(isns, sink);
+	}
+
+	/**
+	 * Get command ID allocator of the session.
+	 * 
+	 * @return CID allocator.
+	 */
+	public AdabasCidAllocator getCidAllocator() {
+		
+		return cidAllocator;
+	}
+	
 	/**
 	 * Get Adabas control block (extended).
 	 * 
@@ -249,6 +463,26 @@ public class AdabasDirectCallX extends XtsDefinitions {
 		
 		this.IB = ib;
 	}
+	
+	/**
+	 * Get multifetch buffer (extended).
+	 * 
+	 * @return multifetch buffer (extended).
+	 */
+	public AdabasBufferX getMB() {
+		
+		return MB;
+	}
+	
+	/**
+	 * Set multifetch buffer (extended). Used with ACBX COP1 = 'M'; see {@link AdabasMultifetch}.
+	 * 
+	 * @param mb multifetch buffer (extended) to set.
+	 */
+	public void setMB(AdabasBufferX mb) {
+		
+		this.MB = mb;
+	}
 
 	/**
 	 * Get XTS send timeout.
@@ -287,7 +521,94 @@ public class AdabasDirectCallX extends XtsDefinitions {
 		
 		this.xtsConnectTimeout = xtsConnectTimeout;
 	}
+
+	/**
+	 * Get XTS context lock timeout.
+	 * 
+	 * @return xtsLockTimeout.
+	 */
+	public long getXtsLockTimeout() {
+		
+		return xtsLockTimeout;
+	}
+
+	/**
+	 * Set XTS context lock timeout. Maximum time in milliseconds a call waits 
+	 * for another thread using the same XTS context.
+	 * 
+	 * @param xtsLockTimeout xtsLockTimeout to set.
+	 */
+	public void setXtsLockTimeout(long xtsLockTimeout) {
+		
+		this.xtsLockTimeout = xtsLockTimeout;
+	}
 	
+	/**
+	 * Get flight recorder of the last calls on the XTS context in use.
+	 * 
+	 * @return	flight recorder or null if no XTS context is held.
+	 */
+	public AdabasFlightRecorder getFlightRecorder() {
+		
+		AdabasDirectCallXts xts = adcXts;
+		return xts == null ? null : xts.getFlightRecorder();
+	}
+	
+	/**
+	 * Get XTS context pool.
+	 * 
+	 * @return	XTS context pool or null if a private context is used.
+	 */
+	public XtsContextPool getXtsContextPool() {
+		return xtsContextPool;
+	}
+
+	/**
+	 * Set XTS context pool. Calls then borrow an established context from the pool;
+	 * it is kept for the Adabas session and returned after a successful CL. On error
+	 * or by {@link #releaseXtsContext()} it is destroyed instead.
+	 * 
+	 * @param xtsContextPool	XTS context pool or null to use a private context.
+	 */
+	public void setXtsContextPool(XtsContextPool xtsContextPool) {
+		
+		releaseXtsContext();													// give back context of previous pool
+		if (adcXts != null && !adcXts.isConnectedXts())							// drop unused private context
+			adcXts = null;
+		this.xtsContextPool = xtsContextPool;
+	}
+
+	/**
+	 * Give up borrowed XTS context without CL. No-op without a pool.
+	 * The context is destroyed, not pooled, as its Adabas session may still
+	 * be open; destroying it ends the session on the database.
+	 */
+	public void releaseXtsContext() {
+		
+		if (xtsContextPool != null && adcXts != null) {
+			xtsContextPool.invalidateContext(adcXts);
+			adcXts = null;
+		}
+	}
+
+	/**
+	 * Get executor for asynchronous calls.
+	 * 
+	 * @return	executor or null if the default is used.
+	 */
+	public Executor getAsyncExecutor() {
+		return asyncExecutor;
+	}
+
+	/**
+	 * Set executor for asynchronous calls.
+	 * 
+	 * @param asyncExecutor	executor or null to use {@link AdabasExecutor#getDefault()}.
+	 */
+	public void setAsyncExecutor(Executor asyncExecutor) {
+		this.asyncExecutor = asyncExecutor;
+	}
+
 	/**
 	 * Get XTS encoding flag.
 	 * 
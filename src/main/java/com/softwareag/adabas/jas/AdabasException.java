@@ -1,5 +1,7 @@
 package com.softwareag.adabas.jas;
 
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
 import org.apache.logging.log4j.Logger;
 import com.softwareag.adabas.jas.xts.XtsDefinitions;
 
@@ -247,6 +249,8 @@ public class AdabasException extends Exception {
 	public static final String	XTS_NODIRENTRY		= "No XTS Directory Server entry for target DBID found.";
 	
 	final static Logger logger = AdabasTrace.getLogger("com.softwareag.adabas.jas.AdabasException");
+	
+	private static final AtomicReferenceArray<AdabasException> stackless = new AtomicReferenceArray<AdabasException>(256);	// by rc
 
 	/**
 	 * Constructor with no arguments is invalid.
@@ -542,6 +546,45 @@ public class AdabasException extends Exception {
 
 		logger.error("AdabasA1Exception(): " + adabasMessage + " " + adabasShortMessage);
 	}
+	
+	/**
+	 * Constructor for the shared exceptions of {@link #getStackless(short)}:
+	 * no stack trace, no suppressed exceptions, not logged.
+	 * 
+	 * @param rc   Response code.
+	 */
+	private AdabasException(short rc, boolean writableStackTrace) {
+		
+		super(null, null, false, writableStackTrace);
+		adabasResponseCode 			= rc;
+		adabasCommand				= "";
+		adabasMessage				= getRCText(rc);
+		adabasShortMessage			= getRCShortText(rc);
+		adabasSubCompMessage		= "";
+		adabasSubCompShortMessage	= "";
+	}
+	
+	/**
+	 * Get an exception for a response code without stack trace, e.g. to throw
+	 * from an {@link AdabasResult} where the caller only tests the response code.
+	 * Exceptions for rc 0-255 are created once and shared, so they carry no DBID,
+	 * command or subcode and must not be changed. Nothing is logged.
+	 * 
+	 * @param rc   Response code.
+	 * @return     shared exception.
+	 */
+	public static AdabasException getStackless(short rc) {
+		
+		if (rc < 0 || rc >= stackless.length())
+			return new AdabasException(rc, false);
+		AdabasException e = stackless.get(rc);
+		if (e == null) {
+			stackless.compareAndSet(rc, null, new AdabasException(rc, false));
+			e = stackless.get(rc);
+		}
+		return e;
+	}
+	
 	@Override
 	/**
 	 * Get message.
@@ -2021,8 +2064,8 @@ public class AdabasException extends Exception {
 		protected short		sc;									// subcode
 		protected String	rcText;								// response code  error text
 		protected String	scText;								// subcode 		  error text
-		protected String	fullText;							// combined		  error text
-		protected String	shortText;							// combined short error text
+		private	  String	fullText;							// combined		  error text, formatted on first use
+		private	  String	shortText;							// combined short error text, formatted on first use
 		
 		/**
 		 * Constructor taking response code and meaning.
@@ -2034,8 +2077,6 @@ public class AdabasException extends Exception {
 		private RC(short rc, String text) {
 			this.rc 		= rc;
 			this.rcText 	= text;
-			this.fullText	= String.format("JASADA%03d%04d : rc = %03d : sc = %04d : %s", 
-											this.rc, this.sc, this.rc, this.sc, this.rcText);
 			this.shortText	= this.rcText;
 		}
 
@@ -2052,10 +2093,63 @@ public class AdabasException extends Exception {
 			this.rcText 	= rcText;
 			this.sc 		= sc;
 			this.scText = 	scText;
-			this.fullText	= String.format("JASADA%03d%04d : rc = %03d : sc = %04d : %s %s", 
-											this.rc, this.sc, this.rc, this.sc, this.rcText, this.scText);
-			this.shortText	= String.format("%s %s", this.rcText, this.scText);
 		}
+		
+		/**
+		 * Get combined error text, e.g. JASADA0090001 : rc = 009 : sc = 0001 : Transaction aborted. Hold queue problem.
+		 * 
+		 * @return	Error text.
+		 */
+		protected String getFullText() {
+			String t = fullText;
+			if (t == null) {
+				t = fullText = formatText(rc, sc, sc, scText == null ? rcText : rcText + " " + scText);
+			}
+			return t;
+		}
+		
+		/**
+		 * Get combined short error text.
+		 * 
+		 * @return	Error text.
+		 */
+		protected String getShortText() {
+			String t = shortText;
+			if (t == null) {
+				t = shortText = rcText + " " + scText;
+			}
+			return t;
+		}
+	}
+	
+	private static final RC[]				rcValues	= RC.values();			// response codes in declaration order
+	private static final ResponseCatalog	rcCatalog	= newCatalog();			// response codes by rc and rc/sc
+	
+	/**
+	 * Index the response code enumeration.
+	 */
+	private static ResponseCatalog newCatalog() {
+		
+		int[] rcs = new int[rcValues.length];
+		int[] scs = new int[rcValues.length];
+		for (int i = 0; i < rcValues.length; i++) {
+			rcs[i] = rcValues[i].rc;
+			scs[i] = rcValues[i].sc;
+		}
+		return new ResponseCatalog(rcs, scs);
+	}
+	
+	/**
+	 * Format response code text: JASADA + rc + id subcode, then rc and sc.
+	 */
+	private static String formatText(int rc, int idSc, int sc, String text) {
+		
+		StringBuilder sb = new StringBuilder(40 + text.length()).append("JASADA");
+		ResponseCatalog.pad(sb, rc, 3);
+		ResponseCatalog.pad(sb, idSc, 4).append(" : rc = ");
+		ResponseCatalog.pad(sb, rc, 3).append(" : sc = ");
+		ResponseCatalog.pad(sb, sc, 4).append(" : ");
+		return sb.append(text).toString();
 	}
 	
 	/**
@@ -2070,13 +2164,9 @@ public class AdabasException extends Exception {
 	 */
 	public static String getRCText(int rc) {
 		
-		for (RC responseCode:RC.values()) {							// loop thru enumeration values
-			if (responseCode.rc == rc) {							// rc value match?
-				return responseCode.fullText;						// return associated text
-			}
-		}
+		int i = rcCatalog.first(rc);									// 1st definition with rc
 		
-		return "Unknown";											// not found
+		return i == ResponseCatalog.NOT_FOUND ? "Unknown" : rcValues[i].getFullText();
 	}
 	
 	/**
@@ -2091,13 +2181,9 @@ public class AdabasException extends Exception {
 	 */
 	public static String getRCShortText(int rc) {
 		
-		for (RC responseCode:RC.values()) {							// loop thru enumeration values
-			if (responseCode.rc == rc) {							// rc value match?
-				return responseCode.rcText;							// return associated short text
-			}
-		}
+		int i = rcCatalog.first(rc);									// 1st definition with rc
 		
-		return "Unknown";											// not found
+		return i == ResponseCatalog.NOT_FOUND ? "Unknown" : rcValues[i].rcText;
 	}
 	
 	/**
@@ -2114,21 +2200,15 @@ public class AdabasException extends Exception {
 	 */
 	public static String getRCText(int rc, int sc) {
 		
-		String rcText = null;													// subcode zero match text
+		int i = rcCatalog.exact(rc, sc);												// rc & sc value match?
+		if (i != ResponseCatalog.NOT_FOUND)
+			return rcValues[i].getFullText();
 		
-		for (RC responseCode:RC.values()) {										// loop thru enumeration values
-			if (responseCode.rc == rc && responseCode.sc == 0) {				// rc and sc zero match?
-				rcText = responseCode.rcText;									// save rc text
-			}
-			if (responseCode.rc == rc && responseCode.sc == sc) {				// rc & sc value match?
-				return responseCode.fullText;									// return associated text
-			}
-		}
-		if (rcText != null)														// no exact rc/sc match found but rc match
-			return String.format("JASADA%03d%04d : rc = %03d : sc = %04d : %s", // return subcode zero text w real subcode value
-								 rc, 0, rc, sc, rcText);
+		i = rcCatalog.zero(rc);															// rc and sc zero match?
+		if (i != ResponseCatalog.NOT_FOUND)												// no exact rc/sc match found but rc match
+			return formatText(rc, 0, sc, rcValues[i].rcText);							// return subcode zero text w real subcode value
 		else
-			return "Unknown";													// not found
+			return "Unknown";															// not found
 	}
 	
 	/**
@@ -2145,20 +2225,15 @@ public class AdabasException extends Exception {
 	 */
 	public static String getRCShortText(int rc, int sc) {
 		
-		String rcText = null;													// subcode zero match text
+		int i = rcCatalog.exact(rc, sc);												// rc & sc value match?
+		if (i != ResponseCatalog.NOT_FOUND)
+			return rcValues[i].getShortText();
 		
-		for (RC responseCode:RC.values()) {										// loop thru enumeration values
-			if (responseCode.rc == rc && responseCode.sc == 0) {				// rc and sc zero match?
-				rcText = responseCode.rcText;									// save rc text
-			}
-			if (responseCode.rc == rc && responseCode.sc == sc) {				// rc & sc value match?
-				return responseCode.shortText;									// return associated short text
-			}
-		}
-		if (rcText != null)														// no exact rc/sc match found but rc match
-			return rcText;														// return subcode zero text
+		i = rcCatalog.zero(rc);															// rc and sc zero match?
+		if (i != ResponseCatalog.NOT_FOUND)												// no exact rc/sc match found but rc match
+			return rcValues[i].rcText;													// return subcode zero text
 		else
-			return "Unknown";													// not found
+			return "Unknown";															// not found
 	}
 	
 	/**
@@ -2169,10 +2244,10 @@ public class AdabasException extends Exception {
 	
 	public static void printAllRCTexts() {
 
-		for (RC responseCode : RC.values()) {						// loop thru enum values
-			System.out.println(responseCode.fullText);				// print full response & subcode text
+		for (RC responseCode : rcValues) {							// loop thru enum values
+			System.out.println(responseCode.getFullText());			// print full response & subcode text
 		}
-		System.out.println(String.format("Total number of ResponseCodes = %d", RC.values().length));
+		System.out.println(String.format("Total number of ResponseCodes = %d", rcValues.length));
 	}
 	
 }
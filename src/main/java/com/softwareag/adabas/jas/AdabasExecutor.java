@@ -0,0 +1,92 @@
+package com.softwareag.adabas.jas;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Executor used to run asynchronous direct calls ({@code callAdabasAsync()}).
+ *
+ * Direct calls block in XTS until the reply arrives, so the default executor is
+ * an unbounded pool of daemon threads rather than the common fork join pool.
+ * The Java 21 layer of the multi-release jar (META-INF/versions/21) replaces this
+ * class and uses one virtual thread per call instead.
+ *
+ * @author usadva
+ */
+
+/*
+ * Copyright (c) 1998-2021 Software AG, Darmstadt, Germany and/or Software AG USA Inc., Reston, VA, USA,
+ * and/or its subsidiaries and/or its affiliates and/or their licensors. Use, reproduction, transfer,
+ * publication or disclosure is prohibited except as specifically provided for in your License Agreement
+ * with Software AG.
+ */
+
+public class AdabasExecutor {
+
+	private static volatile Executor	defaultExecutor	= null;					// executor for async calls
+
+	/**
+	 * Get default executor for asynchronous direct calls. Created on first use.
+	 *
+	 * @return default executor.
+	 */
+	public static Executor getDefault() {
+
+		if (defaultExecutor == null) {
+			synchronized (AdabasExecutor.class) {
+				if (defaultExecutor == null) {
+					defaultExecutor = newPlatformExecutor();
+				}
+			}
+		}
+		return defaultExecutor;
+	}
+
+	/**
+	 * Set default executor for asynchronous direct calls.
+	 *
+	 * @param executor	Executor or null to restore the built in default.
+	 */
+	public static void setDefault(Executor executor) {
+
+		defaultExecutor = executor;
+	}
+
+	/**
+	 * Create cached pool of daemon platform threads named "jas-async-n".
+	 *
+	 * @return new executor service.
+	 */
+	public static ExecutorService newPlatformExecutor() {
+
+		final AtomicInteger count = new AtomicInteger(0);
+		return Executors.newCachedThreadPool(r -> {
+			Thread t = new Thread(r, "jas-async-" + count.incrementAndGet());
+			t.setDaemon(true);
+			return t;
+		});
+	}
+
+	/**
+	 * Create executor running each task on its own virtual thread. Virtual threads
+	 * require Java 21; on older runtimes this returns {@link #newPlatformExecutor()}.
+	 *
+	 * @return new executor service.
+	 */
+	public static ExecutorService newVirtualThreadExecutor() {
+
+		return newPlatformExecutor();
+	}
+
+	/**
+	 * Check whether {@link #newVirtualThreadExecutor()} uses virtual threads.
+	 *
+	 * @return true on the Java 21 layer.
+	 */
+	public static boolean isVirtualThreadCapable() {
+
+		return false;
+	}
+}
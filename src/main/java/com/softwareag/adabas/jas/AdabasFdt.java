@@ -0,0 +1,244 @@
+package com.softwareag.adabas.jas;
+
+import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Field definition table (FDT) of one file decoded from an LF command record buffer.
+ *
+ * LF (command option 2 blank) returns a 2 byte field count followed by one 8 byte
+ * element per field:
+ *
+ * <pre>
+ * element 0x00		1	field options (see OPT_ constants)
+ * element 0x01		2	field name
+ * element 0x03		1	standard length
+ * element 0x04		1	standard format
+ * element 0x05		1	level number (0 for special descriptors)
+ * element 0x06		2	reserved
+ * </pre>
+ *
+ * The FDT supplies standard lengths and formats as {@link AdabasFormatLayout.FieldDefaults}
+ * and generates format buffers. Use {@link AdabasFdtCache} to read and keep FDTs.
+ *
+ * @author usadva
+ */
+
+/*
+ * Copyright (c) 1998-2021 Software AG, Darmstadt, Germany and/or Software AG USA Inc., Reston, VA, USA,
+ * and/or its subsidiaries and/or its affiliates and/or their licensors. Use, reproduction, transfer,
+ * publication or disclosure is prohibited except as specifically provided for in your License Agreement
+ * with Software AG.
+ */
+
+public final class AdabasFdt implements AdabasFormatLayout.FieldDefaults {
+
+	public static final int		LF_HDR_LENGTH		= 2;					// field count length
+	public static final int		LF_ELEMENT_LENGTH	= 8;					// field element length
+
+	public static final byte	OPT_DE				= (byte) 0x80;			// descriptor
+	public static final byte	OPT_FI				= (byte) 0x40;			// fixed storage
+	public static final byte	OPT_MU				= (byte) 0x20;			// multiple value field
+	public static final byte	OPT_NU				= (byte) 0x10;			// null suppression
+	public static final byte	OPT_PE				= (byte) 0x08;			// periodic group
+	public static final byte	OPT_UQ				= (byte) 0x04;			// unique descriptor
+
+	private final int					dbid;									// database ID
+	private final int					fnr;									// file number
+	private final Map<String, Field>	fields;									// fields by name in FDT order
+
+	/**
+	 * One FDT field.
+	 */
+	public static final class Field {
+
+		private final String	name;											// field name
+		private final int		level;											// level number
+		private final int		length;											// standard length (0 = variable)
+		private final char		format;											// standard format
+		private final byte		options;										// field options
+
+		Field(String name, int level, int length, char format, byte options) {
+			this.name		= name;
+			this.level		= level;
+			this.length		= length;
+			this.format		= format;
+			this.options	= options;
+		}
+
+		/** @return field name */
+		public String getName()				{ return name; }
+		/** @return level number (0 for special descriptors) */
+		public int getLevel()				{ return level; }
+		/** @return standard length (0 = variable) */
+		public int getLength()				{ return length; }
+		/** @return standard format or blank for groups */
+		public char getFormat()				{ return format; }
+		/** @return field options */
+		public byte getOptions()			{ return options; }
+		/** @return true if descriptor */
+		public boolean isDescriptor()		{ return (options & OPT_DE) != 0; }
+		/** @return true if unique descriptor */
+		public boolean isUnique()			{ return (options & OPT_UQ) != 0; }
+		/** @return true if multiple value field */
+		public boolean isMultiple()			{ return (options & OPT_MU) != 0; }
+		/** @return true if periodic group */
+		public boolean isPeriodic()			{ return (options & OPT_PE) != 0; }
+		/** @return true if group (no format) */
+		public boolean isGroup()			{ return format == ' ' || format == 0; }
+
+		@Override
+		public String toString() {
+			return String.format("%d,%s,%d,%c,0x%02X", level, name, length, isGroup() ? ' ' : format, options);
+		}
+	}
+
+	/**
+	 * Constructor.
+	 */
+	private AdabasFdt(int dbid, int fnr, Map<String, Field> fields) {
+
+		this.dbid	= dbid;
+		this.fnr	= fnr;
+		this.fields	= Collections.unmodifiableMap(fields);
+	}
+
+	/**
+	 * Decode an LF record buffer.
+	 *
+	 * @param dbid	Database ID.
+	 * @param fnr	File number.
+	 * @param rb	LF record buffer with RECV set.
+	 * @return		decoded FDT.
+	 *
+	 * @throws AdabasException	Record buffer too short for the field count.
+	 */
+	public static AdabasFdt decode(int dbid, int fnr, AdabasBufferX rb) throws AdabasException {
+
+		int			recv	= rb.getAbdRECV();
+		ByteBuffer	bb		= rb.getDataBuffer();
+		if (recv < LF_HDR_LENGTH) {
+			throw new AdabasException(dbid, String.format("LF record buffer length %d too short", recv));
+		}
+		int count = bb.getShort(0) & 0xFFFF;
+		if (LF_HDR_LENGTH + (long) count * LF_ELEMENT_LENGTH > recv) {
+			throw new AdabasException(dbid, String.format("LF field count %d exceeds record buffer length %d", count, recv));
+		}
+
+		Map<String, Field>	map		= new LinkedHashMap<String, Field>();
+		byte[]				ba		= rb.getDataBytes();
+		String				cs		= rb.isEbcdic() ? "cp037" : "ISO-8859-1";
+		for (int i = 0; i < count; i++) {
+			int e = LF_HDR_LENGTH + i * LF_ELEMENT_LENGTH;
+			try {
+				String	name	= new String(ba, e + 0x01, 2, cs);
+				char	format	= new String(ba, e + 0x04, 1, cs).charAt(0);
+				map.put(name, new Field(name, ba[e + 0x05] & 0xFF, ba[e + 0x03] & 0xFF, format, ba[e]));
+			}
+			catch (UnsupportedEncodingException x) {
+				throw new AdabasException(dbid, "LF decode: " + x.getMessage());
+			}
+		}
+		return new AdabasFdt(dbid, fnr, map);
+	}
+
+	/**
+	 * Get database ID.
+	 *
+	 * @return	DBID.
+	 */
+	public int getDbid() {
+
+		return dbid;
+	}
+
+	/**
+	 * Get file number.
+	 *
+	 * @return	FNR.
+	 */
+	public int getFnr() {
+
+		return fnr;
+	}
+
+	/**
+	 * Get all fields in FDT order.
+	 *
+	 * @return	unmodifiable map of fields by name.
+	 */
+	public Map<String, Field> getFields() {
+
+		return fields;
+	}
+
+	/**
+	 * Get a field.
+	 *
+	 * @param name	Field name.
+	 * @return		field or null if not in the FDT.
+	 */
+	public Field getField(String name) {
+
+		return fields.get(name);
+	}
+
+	@Override
+	public int getLength(String name) {
+
+		Field f = fields.get(name);
+		return (f == null || f.isGroup()) ? -1 : f.length;
+	}
+
+	@Override
+	public char getFormat(String name) {
+
+		Field f = fields.get(name);
+		return (f == null || f.isGroup()) ? 0 : f.format;
+	}
+
+	/**
+	 * Generate a format buffer with standard length and format for fields.
+	 *
+	 * @param names	Field names.
+	 * @return		FB text e.g. "AA,8,A,AE,20,A.".
+	 *
+	 * @throws AdabasException	Field unknown, a group or variable length.
+	 */
+	public String formatBuffer(String... names) throws AdabasException {
+
+		StringBuilder sb = new StringBuilder();
+		for (String name : names) {
+			Field f = fields.get(name);
+			if (f == null || f.isGroup() || f.length == 0) {
+				throw new AdabasException(dbid, String.format("FNR %d field %s %s", fnr, name, (f == null) ? "not in FDT" : "has no standard length"));
+			}
+			if (sb.length() > 0)
+				sb.append(',');
+			sb.append(name).append(',').append(f.length).append(',').append(f.format);
+		}
+		return sb.append('.').toString();
+	}
+
+	/**
+	 * Compile a record layout for fields with their standard length and format.
+	 *
+	 * @param names	Field names.
+	 * @return		cached compiled layout.
+	 *
+	 * @throws AdabasException	Field unknown, a group or variable length.
+	 */
+	public AdabasFormatLayout layout(String... names) throws AdabasException {
+
+		return AdabasFormatLayout.compile(formatBuffer(names));
+	}
+
+	@Override
+	public String toString() {
+
+		return "AdabasFdt DBID = " + dbid + ": FNR = " + fnr + ": " + fields.values();
+	}
+}
@@ -0,0 +1,173 @@
+package com.softwareag.adabas.jas;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Cache of decoded FDTs per (DBID, FNR).
+ *
+ * {@link #get(AdabasDirectCallX, int)} returns the cached FDT or reads it with an
+ * LF command on the session of the direct call. Entries stay until invalidated,
+ * e.g. after a file was changed by utilities. Concurrent first reads of the same
+ * file may each issue LF; the first decoded FDT is kept.
+ *
+ * @author usadva
+ */
+
+/*
+ * Copyright (c) 1998-2021 Software AG, Darmstadt, Germany and/or Software AG USA Inc., Reston, VA, USA,
+ * and/or its subsidiaries and/or its affiliates and/or their licensors. Use, reproduction, transfer,
+ * publication or disclosure is prohibited except as specifically provided for in your License Agreement
+ * with Software AG.
+ */
+
+public class AdabasFdtCache {
+
+	public static final int		DEFAULT_LF_RB_SIZE	= 0x8000;				// LF record buffer size
+
+	private final ConcurrentHashMap<Long, AdabasFdt>	fdts	= new ConcurrentHashMap<Long, AdabasFdt>();	// FDTs by DBID/FNR
+	private volatile int								lfRBSize	= DEFAULT_LF_RB_SIZE;	// LF record buffer size
+
+	final static Logger logger = AdabasTrace.getLogger("com.softwareag.adabas.jas.AdabasFdtCache");
+
+	/**
+	 * Get shared FDT cache.
+	 *
+	 * @return shared FDT cache instance.
+	 */
+	public static AdabasFdtCache getInstance() {
+
+		return Holder.instance;													// created once on first use, thread safe
+	}
+
+	/**
+	 * Lazy holder for the shared instance.
+	 */
+	private static class Holder {
+
+		private static final AdabasFdtCache	instance	= new AdabasFdtCache();
+	}
+
+	/**
+	 * Get FDT, reading it with LF on the session of the direct call if not cached.
+	 *
+	 * @param adcx	Direct call of a session on the database (DBID set).
+	 * @param fnr	File number.
+	 * @return		FDT.
+	 *
+	 * @throws Exception	LF failed.
+	 */
+	public AdabasFdt get(AdabasDirectCallX adcx, int fnr) throws Exception {
+
+		int			dbid	= adcx.getAcbX().getAcbDBID();
+		AdabasFdt	fdt		= fdts.get(key(dbid, fnr));
+		if (fdt != null)
+			return fdt;
+
+		fdt = read(adcx, fnr);
+		AdabasFdt prev = fdts.putIfAbsent(key(dbid, fnr), fdt);
+		return (prev != null) ? prev : fdt;
+	}
+
+	/**
+	 * Get cached FDT without reading it.
+	 *
+	 * @param dbid	Database ID.
+	 * @param fnr	File number.
+	 * @return		FDT or null if not cached.
+	 */
+	public AdabasFdt getCached(int dbid, int fnr) {
+
+		return fdts.get(key(dbid, fnr));
+	}
+
+	/**
+	 * Add an FDT, e.g. decoded elsewhere or preloaded at startup.
+	 *
+	 * @param fdt	FDT.
+	 */
+	public void put(AdabasFdt fdt) {
+
+		fdts.put(key(fdt.getDbid(), fdt.getFnr()), fdt);
+	}
+
+	/**
+	 * Drop the FDT of one file.
+	 *
+	 * @param dbid	Database ID.
+	 * @param fnr	File number.
+	 */
+	public void invalidate(int dbid, int fnr) {
+
+		fdts.remove(key(dbid, fnr));
+	}
+
+	/**
+	 * Drop the FDTs of all files of a database.
+	 *
+	 * @param dbid	Database ID.
+	 */
+	public void invalidate(int dbid) {
+
+		fdts.keySet().removeIf(k -> (int) (k >>> 32) == dbid);
+	}
+
+	/**
+	 * Drop all FDTs.
+	 */
+	public void clear() {
+
+		fdts.clear();
+	}
+
+	/**
+	 * Get LF record buffer size.
+	 *
+	 * @return	size.
+	 */
+	public int getLfRBSize() {
+
+		return lfRBSize;
+	}
+
+	/**
+	 * Set LF record buffer size for files with large FDTs.
+	 *
+	 * @param lfRBSize	size.
+	 */
+	public void setLfRBSize(int lfRBSize) {
+
+		this.lfRBSize = lfRBSize;
+	}
+
+	/**
+	 * Issue LF on the session of the direct call and decode the result.
+	 */
+	private AdabasFdt read(AdabasDirectCallX adcx, int fnr) throws Exception {
+
+		final String method = "read(): ";
+
+		int					dbid	= adcx.getAcbX().getAcbDBID();
+		AdabasControlBlockX	lfAcbx	= new AdabasControlBlockX(adcx.isXtsEBCDIC());
+		AdabasBufferX		rb		= new AdabasBufferX(lfRBSize, AdabasBufferX.RB, adcx.isXtsEBCDIC());
+		lfAcbx.setAcbDBID(dbid);
+		lfAcbx.setHostName(adcx.getAcbX().getHostName());
+		lfAcbx.setAcbCMD("LF");
+		lfAcbx.setAcbFNR(fnr);
+
+		adcx.callWith(lfAcbx, null, rb);
+
+		AdabasFdt fdt = AdabasFdt.decode(dbid, fnr, rb);
+		if (logger.isDebugEnabled())	logger.debug(method + fdt);
+		return fdt;
+	}
+
+	/**
+	 * Cache key of DBID and FNR.
+	 */
+	private static Long key(int dbid, int fnr) {
+
+		return ((long) dbid << 32) | (fnr & 0xFFFFFFFFL);
+	}
+}
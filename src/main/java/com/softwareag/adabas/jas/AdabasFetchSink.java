@@ -0,0 +1,38 @@
+package com.softwareag.adabas.jas;
+
+/**
+ * Consumer of records read by ISN, see {@link AdabasDirectCallX#fetchAll(long[], String, AdabasFetchSink)}.
+ *
+ * Records arrive in ascending ISN order. The record view is reused and only
+ * valid during the call.
+ *
+ * @author usadva
+ */
+
+/*
+ * Copyright (c) 1998-2021 Software AG, Darmstadt, Germany and/or Software AG USA Inc., Reston, VA, USA,
+ * and/or its subsidiaries and/or its affiliates and/or their licensors. Use, reproduction, transfer,
+ * publication or disclosure is prohibited except as specifically provided for in your License Agreement
+ * with Software AG.
+ */
+
+public interface AdabasFetchSink {
+
+	/**
+	 * Accept a record.
+	 *
+	 * @param isn			ISN.
+	 * @param record		View positioned on the record in the RB.
+	 * @throws Exception	Sink specific error; ends the fetch.
+	 */
+	void record(long isn, AdabasRecordView record) throws Exception;
+
+	/**
+	 * Accept an ISN without record, e.g. rc 113 (ISN not found).
+	 *
+	 * @param isn			ISN.
+	 * @param response		Response code for the ISN.
+	 * @throws Exception	Sink specific error; ends the fetch.
+	 */
+	void missing(long isn, int response) throws Exception;
+}
@@ -0,0 +1,315 @@
+package com.softwareag.adabas.jas;
+
+import java.nio.charset.Charset;
+import java.text.SimpleDateFormat;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Ring of the last calls of an XTS context in binary form.
+ *
+ * Each call keeps the ACBX as sent and as returned, the ABD headers, the first
+ * bytes of each buffer as sent, start time and elapsed time. Recording copies
+ * bytes into preallocated arrays and does not allocate or lock, so it is always
+ * on. Text is only built by {@link #dump(StringBuilder)}, on demand or through
+ * {@link #log(Throwable)} when a call failed in transport or returned one of the
+ * non-routine response codes set by {@link #setDumpCodes(int...)}.
+ *
+ * Calls are recorded by the thread holding the call lock of the context. Each
+ * slot carries a version that is bumped when a write starts and again when it
+ * ends, so it is odd while the slot is written; a dump from another thread skips
+ * slots whose version changes while being copied. Ordering only uses
+ * AtomicLongArray (Java 8).
+ *
+ * @author usadva
+ */
+
+/*
+ * Copyright (c) 1998-2021 Software AG, Darmstadt, Germany and/or Software AG USA Inc., Reston, VA, USA,
+ * and/or its subsidiaries and/or its affiliates and/or their licensors. Use, reproduction, transfer,
+ * publication or disclosure is prohibited except as specifically provided for in your License Agreement
+ * with Software AG.
+ */
+
+public class AdabasFlightRecorder {
+
+	public static final int		DEFAULT_CALLS	= 16;							// default calls kept
+	public static final int		DEFAULT_BYTES	= 32;							// default bytes kept per buffer
+
+	private static final Charset	ASCII		= Charset.forName("ISO-8859-1");
+	private static final Charset	EBCDIC		= Charset.forName("cp037");
+
+	private static final int	BUFFERS			= 6;							// FB, RB, SB, VB, IB, MB
+	private static final int	ACBX_IN			= 0;							// slot offset of ACBX as sent
+	private static final int	ACBX_OUT		= AdabasControlBlockX.ACBX_LENGTH;	// slot offset of ACBX as returned
+	private static final int	ABDS			= 2 * AdabasControlBlockX.ACBX_LENGTH;	// slot offset of 1st ABD
+	private static final String	BUFFER_NAMES	= "FBRBSBVBIBMB";
+
+	private static volatile int[] defaultDumpCodes = sorted(9, 148, 149, 151, 154, 224, 225);	// non-routine response codes dumped
+
+	private final int			calls;											// number of slots
+	private final int			bytes;											// buffer bytes kept per buffer
+	private final int			slotSize;										// bytes per slot
+	private final byte[]		data;											// slots: ACBX in, ACBX out, ABD + bytes per buffer
+	private final int[]			sizes;											// buffer sizes per slot, -1 if absent
+	private final long[]		started;										// start time per slot (ms)
+	private final long[]		startNanos;										// start time per slot (ns)
+	private final long[]		elapsed;										// elapsed per slot (ns), -1 if no reply
+	private final boolean[]		ebcdic;											// ACBX encoding per slot
+	private final long[]		call;											// call number per slot
+	private final AtomicLongArray seq;											// slot version, odd while written
+	private volatile int[]		dumpCodes		= defaultDumpCodes;				// response codes logged with dump
+	private volatile long		count;											// calls recorded
+
+	final static Logger logger = AdabasTrace.getLogger("com.softwareag.adabas.jas.AdabasFlightRecorder");
+
+	/**
+	 * Constructor.
+	 *
+	 * @param calls		Number of last calls kept (at least 1).
+	 * @param bytes		Bytes kept from the start of each buffer.
+	 */
+	public AdabasFlightRecorder(int calls, int bytes) {
+
+		this.calls		= Math.max(1, calls);
+		this.bytes		= Math.max(0, bytes);
+		this.slotSize	= ABDS + BUFFERS * (AdabasBufferX.ABD_LENGTH + this.bytes);
+		this.data		= new byte[this.calls * slotSize];
+		this.sizes		= new int[this.calls * BUFFERS];
+		this.started	= new long[this.calls];
+		this.startNanos	= new long[this.calls];
+		this.elapsed	= new long[this.calls];
+		this.ebcdic		= new boolean[this.calls];
+		this.call		= new long[this.calls];
+		this.seq		= new AtomicLongArray(this.calls);
+	}
+
+	/**
+	 * Record the start of a call: ACBX, ABD headers and first bytes of the buffers
+	 * as they are sent.
+	 *
+	 * @param adcx	Direct call about to be sent.
+	 */
+	public void begin(AdabasDirectCallX adcx) {
+
+		long	n		= count;
+		int		slot	= (int) (n % calls);
+		int		base	= slot * slotSize;
+
+		long	version	= open(slot);
+		call[slot] = n;
+		AdabasControlBlockX acbx = adcx.getAcbX();
+		System.arraycopy(acbx.getACBArray(), 0, data, base + ACBX_IN, AdabasControlBlockX.ACBX_LENGTH);
+		Arrays.fill(data, base + ACBX_OUT, base + ABDS, (byte) 0);
+		put(slot, 0, adcx.getFB());
+		put(slot, 1, adcx.getRB());
+		put(slot, 2, adcx.getSB());
+		put(slot, 3, adcx.getVB());
+		put(slot, 4, adcx.getIB());
+		put(slot, 5, adcx.getMB());
+		ebcdic[slot]		= acbx.isEBCDIC();
+		started[slot]		= System.currentTimeMillis();
+		startNanos[slot]	= System.nanoTime();
+		elapsed[slot]		= -1;
+		close(slot, version);
+		count = n + 1;
+	}
+
+	/**
+	 * Record the reply of the call last begun.
+	 *
+	 * @param acbx	ACBX bytes as returned.
+	 */
+	public void end(byte[] acbx) {
+
+		long	n		= count - 1;
+		if (n < 0)
+			return;
+		int		slot	= (int) (n % calls);
+
+		long	version	= open(slot);
+		System.arraycopy(acbx, 0, data, slot * slotSize + ACBX_OUT, AdabasControlBlockX.ACBX_LENGTH);
+		elapsed[slot] = System.nanoTime() - startNanos[slot];
+		close(slot, version);
+	}
+
+	/**
+	 * @return number of calls recorded so far.
+	 */
+	public long getCount() {
+
+		return count;
+	}
+
+	/**
+	 * Dump the recorded calls, oldest first, with {@link AdabasTrace}.
+	 *
+	 * @param sb	Dump is appended here.
+	 * @return		sb.
+	 */
+	public StringBuilder dump(StringBuilder sb) {
+
+		long	n		= count;
+		long	first	= Math.max(0, n - calls);
+		byte[]	copy	= new byte[slotSize];
+		byte[]	part	= new byte[Math.max(AdabasControlBlockX.ACBX_LENGTH, bytes)];	// section dumped from offset 0
+		int[]	bufSize	= new int[BUFFERS];
+		SimpleDateFormat time = new SimpleDateFormat("HH:mm:ss.SSS");
+
+		sb.append("flight recorder: last ").append(n - first).append(" of ").append(n).append(" calls");
+		for (long c = first; c < n; c++) {
+			int		slot	= (int) (c % calls);
+			long	s		= seq.get(slot);
+			if ((s & 1) != 0 || call[slot] != c)								// being written or overwritten
+				continue;
+			System.arraycopy(data, slot * slotSize, copy, 0, slotSize);
+			System.arraycopy(sizes, slot * BUFFERS, bufSize, 0, BUFFERS);
+			long	start	= started[slot];
+			long	nanos	= elapsed[slot];
+			boolean	e		= ebcdic[slot];
+			if (!seq.compareAndSet(slot, s, s))									// read-modify-write: copy reads stay before the check
+				continue;
+
+			sb.append("\ncall #").append(c + 1).append(": cmd = ").append(command(copy, e))
+			  .append(": started ").append(time.format(new Date(start)));
+			if (nanos < 0)
+				sb.append(": no reply");
+			else
+				sb.append(": rc = ").append((short) (((copy[ACBX_OUT + 0x0A] & 0xFF) << 8) | (copy[ACBX_OUT + 0x0B] & 0xFF)))
+				  .append(": elapsed ").append(nanos / 1000).append(" us");
+			section(sb, "\nACBX sent =", copy, ACBX_IN, part, AdabasControlBlockX.ACBX_LENGTH, AdabasControlBlockX.ACBX_LENGTH);
+			if (nanos >= 0)
+				section(sb, "\nACBX returned =", copy, ACBX_OUT, part, AdabasControlBlockX.ACBX_LENGTH, AdabasControlBlockX.ACBX_LENGTH);
+			for (int i = 0; i < BUFFERS; i++) {
+				if (bufSize[i] < 0)
+					continue;
+				String	name	= BUFFER_NAMES.substring(2 * i, 2 * i + 2);
+				int		abd		= ABDS + i * (AdabasBufferX.ABD_LENGTH + bytes);
+				section(sb, "\n" + name + " ABD =", copy, abd, part, AdabasBufferX.ABD_LENGTH, AdabasBufferX.ABD_LENGTH);
+				section(sb, "\n" + name + " sent =", copy, abd + AdabasBufferX.ABD_LENGTH, part, bufSize[i], bytes);
+			}
+		}
+		return sb;
+	}
+
+	/**
+	 * Dump the recorded calls.
+	 *
+	 * @return	dump text.
+	 */
+	public String dump() {
+
+		return dump(new StringBuilder()).toString();
+	}
+
+	/**
+	 * Log the recorded calls at error level after a call failed.
+	 *
+	 * @param cause		Exception raised by the call.
+	 */
+	public void log(Throwable cause) {
+
+		final String method = "log(): ";
+
+		if (logger.isErrorEnabled())
+			logger.error(dump(new StringBuilder(method).append(cause.getMessage()).append('\n')).toString());
+	}
+
+	/**
+	 * Check whether a failed call's response code is logged with a dump. Routine
+	 * response codes such as 3 or 113 are not.
+	 *
+	 * @param rc		Response code of the call.
+	 * @return	true if the recorded calls are logged for this response code.
+	 */
+	public boolean isDumpCode(int rc) {
+
+		return Arrays.binarySearch(dumpCodes, rc) >= 0;
+	}
+
+	/**
+	 * Set the response codes logged with a dump by this recorder.
+	 *
+	 * @param codes		Response codes, none to log transport failures only.
+	 */
+	public void setDumpCodes(int... codes) {
+
+		dumpCodes = sorted(codes);
+	}
+
+	/**
+	 * Set the response codes logged with a dump by recorders created afterwards.
+	 * Defaults to 9, 148, 149, 151, 154, 224 and 225.
+	 *
+	 * @param codes		Response codes, none to log transport failures only.
+	 */
+	public static void setDefaultDumpCodes(int... codes) {
+
+		defaultDumpCodes = sorted(codes);
+	}
+
+	/**
+	 * Sorted copy of response codes.
+	 */
+	private static int[] sorted(int... codes) {
+
+		int[] s = codes.clone();
+		Arrays.sort(s);
+		return s;
+	}
+
+	/**
+	 * Copy ABD and first bytes of a buffer into a slot.
+	 */
+	private void put(int slot, int index, AdabasBufferX abx) {
+
+		int pos = slot * slotSize + ABDS + index * (AdabasBufferX.ABD_LENGTH + bytes);
+		if (abx == null) {
+			sizes[slot * BUFFERS + index] = -1;
+			return;
+		}
+		byte[] d = abx.getDataBytes();
+		System.arraycopy(abx.getABDBytes(), 0, data, pos, AdabasBufferX.ABD_LENGTH);
+		System.arraycopy(d, 0, data, pos + AdabasBufferX.ABD_LENGTH, Math.min(bytes, d.length));
+		sizes[slot * BUFFERS + index] = d.length;
+	}
+
+	/**
+	 * Mark a slot as being written.
+	 *
+	 * @return	slot version before the write.
+	 */
+	private long open(int slot) {
+
+		return seq.getAndIncrement(slot);										// read-modify-write: slot writes stay after the mark
+	}
+
+	/**
+	 * Mark a slot as complete with a version no earlier write used.
+	 */
+	private void close(int slot, long version) {
+
+		seq.lazySet(slot, version + 2);											// publish slot writes
+	}
+
+	/**
+	 * Dump a section of a slot copy with addresses starting at 0.
+	 */
+	private static void section(StringBuilder sb, String header, byte[] copy, int offset, byte[] part, int length, int kept) {
+
+		int shown = Math.min(length, kept);
+		System.arraycopy(copy, offset, part, 0, shown);
+		AdabasTrace.dumpBuffer(sb, header, part, 0, length, shown);
+	}
+
+	/**
+	 * Decode command code of ACBX as sent.
+	 */
+	private static String command(byte[] slot, boolean ebcdic) {
+
+		return new String(slot, ACBX_IN + 0x06, 2, ebcdic ? EBCDIC : ASCII);
+	}
+}
@@ -0,0 +1,345 @@
+package com.softwareag.adabas.jas;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Compiled format buffer (FB) layout.
+ *
+ * The FB text is parsed once into an immutable plan listing each record buffer
+ * element with name, format, length and offset. Plans compiled from text alone
+ * are cached, so {@link #compile(String)} returns the same instance for the same
+ * FB. Supported FB elements:
+ *
+ * <pre>
+ * AA,8,A			field with length and format
+ * AA,8	/ AA		length and/or format from {@link FieldDefaults}
+ * AAC,1,B			MU/PE count (default 1,B)
+ * AA1-3,8,A		MU/PE occurrences 1 to 3 (one element each, named AA1, AA2, AA3)
+ * 5X				5 filler bytes
+ * </pre>
+ *
+ * Fields with length 0 (variable length) are not supported as their offsets are
+ * only known per record. Use {@link AdabasRecordView} to read records laid out
+ * by the plan.
+ *
+ * @author usadva
+ */
+
+/*
+ * Copyright (c) 1998-2021 Software AG, Darmstadt, Germany and/or Software AG USA Inc., Reston, VA, USA,
+ * and/or its subsidiaries and/or its affiliates and/or their licensors. Use, reproduction, transfer,
+ * publication or disclosure is prohibited except as specifically provided for in your License Agreement
+ * with Software AG.
+ */
+
+public final class AdabasFormatLayout {
+
+	public static final char	FILLER			= 'X';						// format of nX filler element
+	public static final int		MAX_CACHED		= 1024;						// maximum plans kept in cache
+
+	private static final String	FORMATS			= "ABFGPUW";				// supported field formats
+
+	private static final ConcurrentHashMap<String, AdabasFormatLayout>	cache	= new ConcurrentHashMap<String, AdabasFormatLayout>();
+
+	private final String				fb;										// FB text compiled
+	private final Field[]				fields;									// elements in RB order
+	private final Map<String, Integer>	index;									// element name to index
+	private final int					recordLength;							// total RB length
+
+	final static Logger logger = AdabasTrace.getLogger("com.softwareag.adabas.jas.AdabasFormatLayout");
+
+	/**
+	 * Default length and format of fields not given in the FB, e.g. from the FDT.
+	 */
+	public interface FieldDefaults {
+
+		/**
+		 * Get standard length of a field.
+		 *
+		 * @param name	Field name (2 characters).
+		 * @return		length or -1 if unknown.
+		 */
+		int getLength(String name);
+
+		/**
+		 * Get standard format of a field.
+		 *
+		 * @param name	Field name (2 characters).
+		 * @return		format character or 0 if unknown.
+		 */
+		char getFormat(String name);
+	}
+
+	/**
+	 * Compiled FB element.
+	 */
+	public static final class Field {
+
+		private final String	name;											// element name e.g. AA, AAC, AA2
+		private final String	fieldName;										// 2 character field name
+		private final char		format;											// format or FILLER
+		private final int		length;											// length in RB
+		private final int		offset;											// offset in RB
+		private final int		occurrence;										// MU/PE occurrence or 0
+		private final boolean	count;											// MU/PE count element
+
+		Field(String name, String fieldName, char format, int length, int offset, int occurrence, boolean count) {
+			this.name		= name;
+			this.fieldName	= fieldName;
+			this.format		= format;
+			this.length		= length;
+			this.offset		= offset;
+			this.occurrence	= occurrence;
+			this.count		= count;
+		}
+
+		/** @return element name e.g. AA, AAC, AA2 */
+		public String getName()			{ return name; }
+		/** @return 2 character field name */
+		public String getFieldName()	{ return fieldName; }
+		/** @return format character or {@link AdabasFormatLayout#FILLER} */
+		public char getFormat()			{ return format; }
+		/** @return length in RB */
+		public int getLength()			{ return length; }
+		/** @return offset in RB */
+		public int getOffset()			{ return offset; }
+		/** @return MU/PE occurrence or 0 */
+		public int getOccurrence()		{ return occurrence; }
+		/** @return true if MU/PE count element */
+		public boolean isCount()		{ return count; }
+
+		@Override
+		public String toString() {
+			return String.format("%s,%d,%c@%d", name, length, format, offset);
+		}
+	}
+
+	/**
+	 * Constructor. Use {@link #compile(String)}.
+	 */
+	private AdabasFormatLayout(String fb, List<Field> fields) {
+
+		this.fb		= fb;
+		this.fields	= fields.toArray(new Field[fields.size()]);
+		Map<String, Integer> map = new HashMap<String, Integer>();
+		int length = 0;
+		for (int i = 0; i < this.fields.length; i++) {
+			if (this.fields[i].format != FILLER)
+				map.put(this.fields[i].name, i);
+			length = this.fields[i].offset + this.fields[i].length;
+		}
+		this.index			= Collections.unmodifiableMap(map);
+		this.recordLength	= length;
+	}
+
+	/**
+	 * Get compiled layout of an FB giving length and format for all fields.
+	 * The plan is cached by FB text.
+	 *
+	 * @param fb	Format buffer text e.g. "AA,8,A,AE,20,A.".
+	 * @return		compiled layout.
+	 *
+	 * @throws AdabasException	FB syntax error or length/format missing.
+	 */
+	public static AdabasFormatLayout compile(String fb) throws AdabasException {
+
+		AdabasFormatLayout layout = cache.get(fb);
+		if (layout == null) {
+			layout = compile(fb, null);
+			if (cache.size() >= MAX_CACHED) {									// keep cache bounded
+				cache.clear();
+			}
+			AdabasFormatLayout prev = cache.putIfAbsent(fb, layout);
+			if (prev != null)
+				layout = prev;
+		}
+		return layout;
+	}
+
+	/**
+	 * Compile an FB. Lengths and formats not in the FB are taken from defaults.
+	 * Not cached; cache the result together with the source of the defaults.
+	 *
+	 * @param fb		Format buffer text.
+	 * @param defaults	Field defaults or null.
+	 * @return			compiled layout.
+	 *
+	 * @throws AdabasException	FB syntax error or length/format missing.
+	 */
+	public static AdabasFormatLayout compile(String fb, FieldDefaults defaults) throws AdabasException {
+
+		if (fb == null) {
+			throw new AdabasException("No format buffer provided");
+		}
+		String text = fb.trim();
+		if (!text.endsWith(".")) {
+			throw new AdabasException(String.format("FB '%s' not terminated by '.'", fb));
+		}
+		String[]	tokens	= text.substring(0, text.length() - 1).split(",");
+		List<Field>	fields	= new ArrayList<Field>();
+		int			offset	= 0;
+
+		for (int t = 0; t < tokens.length; t++) {
+			String token = tokens[t].trim();
+			if (token.isEmpty()) {
+				throw new AdabasException(String.format("FB '%s' empty element at position %d", fb, t));
+			}
+
+			if (Character.isDigit(token.charAt(0))) {							// nX filler
+				if (token.length() < 2 || token.charAt(token.length() - 1) != FILLER || !isNumber(token.substring(0, token.length() - 1))) {
+					throw new AdabasException(String.format("FB '%s' invalid element '%s'", fb, token));
+				}
+				int n = Integer.parseInt(token.substring(0, token.length() - 1));
+				fields.add(new Field(token, "", FILLER, n, offset, 0, false));
+				offset += n;
+				continue;
+			}
+
+			if (token.length() < 2 || !Character.isLetter(token.charAt(0)) || !Character.isLetterOrDigit(token.charAt(1))) {
+				throw new AdabasException(String.format("FB '%s' invalid field name '%s'", fb, token));
+			}
+			String	fieldName	= token.substring(0, 2);
+			String	suffix		= token.substring(2);
+			boolean	count		= false;
+			int		first		= 0;
+			int		last		= 0;
+			if (suffix.equals("C")) {											// MU/PE count
+				count = true;
+			}
+			else if (!suffix.isEmpty()) {										// occurrence or range
+				int dash = suffix.indexOf('-');
+				String from	= (dash < 0) ? suffix : suffix.substring(0, dash);
+				String to	= (dash < 0) ? suffix : suffix.substring(dash + 1);
+				if (!isNumber(from) || !isNumber(to)) {
+					throw new AdabasException(String.format("FB '%s' unsupported element '%s'", fb, token));
+				}
+				first	= Integer.parseInt(from);
+				last	= Integer.parseInt(to);
+				if (first < 1 || last < first) {
+					throw new AdabasException(String.format("FB '%s' invalid occurrence range '%s'", fb, token));
+				}
+			}
+
+			int		length	= -1;												// optional length and format
+			char	format	= 0;
+			if (t + 1 < tokens.length && isNumber(tokens[t + 1].trim())) {
+				length = Integer.parseInt(tokens[++t].trim());
+			}
+			if (t + 1 < tokens.length && tokens[t + 1].trim().length() == 1 && FORMATS.indexOf(tokens[t + 1].trim().charAt(0)) >= 0) {
+				format = tokens[++t].trim().charAt(0);
+			}
+			if (count) {
+				if (length < 0)	length = 1;
+				if (format == 0) format = 'B';
+			}
+			if (length < 0 && defaults != null)		length = defaults.getLength(fieldName);
+			if (format == 0 && defaults != null)	format = defaults.getFormat(fieldName);
+			if (length < 0 || format == 0) {
+				throw new AdabasException(String.format("FB '%s' field %s: length and format required", fb, token));
+			}
+			if (length == 0) {
+				throw new AdabasException(String.format("FB '%s' field %s: variable length not supported", fb, token));
+			}
+
+			if (first == 0) {
+				fields.add(new Field(fieldName + (count ? "C" : ""), fieldName, format, length, offset, 0, count));
+				offset += length;
+			}
+			else {
+				for (int occ = first; occ <= last; occ++) {
+					fields.add(new Field(fieldName + occ, fieldName, format, length, offset, occ, false));
+					offset += length;
+				}
+			}
+		}
+
+		AdabasFormatLayout layout = new AdabasFormatLayout(fb, fields);
+		if (logger.isDebugEnabled())	logger.debug("compile(): " + layout);
+		return layout;
+	}
+
+	/**
+	 * Check for an unsigned decimal number.
+	 */
+	private static boolean isNumber(String s) {
+
+		if (s.isEmpty())
+			return false;
+		for (int i = 0; i < s.length(); i++) {
+			if (!Character.isDigit(s.charAt(i)))
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Get FB text compiled.
+	 *
+	 * @return	FB text.
+	 */
+	public String getFormatBuffer() {
+
+		return fb;
+	}
+
+	/**
+	 * Get number of elements including fillers.
+	 *
+	 * @return	element count.
+	 */
+	public int size() {
+
+		return fields.length;
+	}
+
+	/**
+	 * Get element by index.
+	 *
+	 * @param i	Element index.
+	 * @return	element.
+	 */
+	public Field getField(int i) {
+
+		return fields[i];
+	}
+
+	/**
+	 * Get element index by name (e.g. AA, AAC, AA2). Look up once and use the
+	 * index for per record access.
+	 *
+	 * @param name	Element name.
+	 * @return		index or -1 if not in the layout.
+	 */
+	public int indexOf(String name) {
+
+		Integer i = index.get(name);
+		return (i == null) ? -1 : i;
+	}
+
+	/**
+	 * Get record buffer length needed for one record.
+	 *
+	 * @return	record length.
+	 */
+	public int getRecordLength() {
+
+		return recordLength;
+	}
+
+	@Override
+	public String toString() {
+
+		StringBuilder sb = new StringBuilder("AdabasFormatLayout [").append(fb).append("] length = ").append(recordLength);
+		for (Field f : fields) {
+			sb.append(' ').append(f);
+		}
+		return sb.toString();
+	}
+}
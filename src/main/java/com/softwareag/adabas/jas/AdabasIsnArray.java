@@ -0,0 +1,200 @@
+package com.softwareag.adabas.jas;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Fixed capacity array of 4 or 8 byte ISNs held as a primitive view of a byte buffer.
+ *
+ * Small arrays live on the heap. Arrays above the spill threshold are backed by a
+ * memory mapped temporary file, so millions of ISNs do not occupy heap. The file
+ * is opened with DELETE_ON_CLOSE and goes away once mapped; the mapping lives
+ * until the array is collected.
+ *
+ * @author usadva
+ */
+
+/*
+ * Copyright (c) 1998-2021 Software AG, Darmstadt, Germany and/or Software AG USA Inc., Reston, VA, USA,
+ * and/or its subsidiaries and/or its affiliates and/or their licensors. Use, reproduction, transfer,
+ * publication or disclosure is prohibited except as specifically provided for in your License Agreement
+ * with Software AG.
+ */
+
+public final class AdabasIsnArray implements AutoCloseable {
+
+	public static final long	DEFAULT_SPILL_BYTES	= 64L * 1024 * 1024;		// spill arrays above 64 MB to a file
+
+	private final int			isnSize;										// 4 or 8
+	private final int			capacity;										// maximum ISNs
+	private final IntBuffer		ints;											// view for 4 byte ISNs
+	private final LongBuffer	longs;											// view for 8 byte ISNs
+	private final boolean		mapped;											// backed by a spill file
+	private int					size;											// ISNs added
+
+	final static Logger logger = AdabasTrace.getLogger("com.softwareag.adabas.jas.AdabasIsnArray");
+
+	/**
+	 * Constructor.
+	 *
+	 * @param capacity		Maximum number of ISNs.
+	 * @param isnSize		ISN length 4 or 8.
+	 * @param spillBytes	Spill to a memory mapped file above this many bytes.
+	 *
+	 * @throws AdabasException	Invalid settings or spill file could not be mapped.
+	 */
+	public AdabasIsnArray(int capacity, int isnSize, long spillBytes) throws AdabasException {
+
+		final String method = "AdabasIsnArray(): ";
+
+		if (capacity < 0 || (isnSize != 4 && isnSize != 8) || (long) capacity * isnSize > Integer.MAX_VALUE) {
+			throw new AdabasException(String.format("Invalid ISN array settings: capacity = %d; isnSize = %d", capacity, isnSize));
+		}
+		this.isnSize	= isnSize;
+		this.capacity	= capacity;
+
+		int			bytes	= capacity * isnSize;
+		ByteBuffer	bb;
+		if (bytes > spillBytes) {
+			Path file = null;
+			try {
+				file = Files.createTempFile("jasisn", ".tmp");
+				try (FileChannel fc = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.DELETE_ON_CLOSE)) {
+					bb = fc.map(FileChannel.MapMode.READ_WRITE, 0, bytes);		// mapping stays valid after close
+				}
+			}
+			catch (IOException e) {
+				deleteQuietly(file);
+				throw new AdabasException("ISN array spill file: " + e.getMessage());
+			}
+			if (logger.isDebugEnabled())	logger.debug(method + capacity + " ISNs mapped from " + file);
+			mapped	= true;
+		}
+		else {
+			mapped	= false;
+			bb		= ByteBuffer.allocate(bytes);
+		}
+		ints	= (isnSize == 4) ? bb.asIntBuffer() : null;
+		longs	= (isnSize == 8) ? bb.asLongBuffer() : null;
+	}
+
+	/**
+	 * Append ISNs from the data of an ISN buffer.
+	 *
+	 * @param ib		ISN buffer.
+	 * @param count		Number of ISNs at the start of the buffer.
+	 *
+	 * @throws AdabasException	Capacity exceeded.
+	 */
+	public void add(AdabasBufferX ib, int count) throws AdabasException {
+
+		if (size + count > capacity) {
+			throw new AdabasException(String.format("ISN array capacity %d exceeded", capacity));
+		}
+		ByteBuffer bb = ib.getDataBuffer();
+		for (int i = 0; i < count; i++, size++) {
+			if (isnSize == 4)
+				ints.put(size, bb.getInt(i * 4));
+			else
+				longs.put(size, bb.getLong(i * 8));
+		}
+	}
+
+	/**
+	 * Append one ISN.
+	 *
+	 * @param isn	ISN.
+	 *
+	 * @throws AdabasException	Capacity exceeded.
+	 */
+	public void add(long isn) throws AdabasException {
+
+		if (size >= capacity) {
+			throw new AdabasException(String.format("ISN array capacity %d exceeded", capacity));
+		}
+		if (isnSize == 4)
+			ints.put(size++, (int) isn);
+		else
+			longs.put(size++, isn);
+	}
+
+	/**
+	 * Get ISN.
+	 *
+	 * @param i	Index.
+	 * @return	ISN (4 byte ISNs unsigned).
+	 */
+	public long get(int i) {
+
+		if (i >= size)
+			throw new IndexOutOfBoundsException("ISN index " + i + " size " + size);
+		return (isnSize == 4) ? ints.get(i) & 0xFFFFFFFFL : longs.get(i);
+	}
+
+	/**
+	 * Get number of ISNs added.
+	 *
+	 * @return	size.
+	 */
+	public int size() {
+
+		return size;
+	}
+
+	/**
+	 * Get ISN length.
+	 *
+	 * @return	4 or 8.
+	 */
+	public int getIsnSize() {
+
+		return isnSize;
+	}
+
+	/**
+	 * Check if the array is backed by a memory mapped file.
+	 *
+	 * @return	true if spilled.
+	 */
+	public boolean isMapped() {
+
+		return mapped;
+	}
+
+	/**
+	 * Close the array. Nothing is left to release: a spill file is already deleted
+	 * and the mapping is released when the array is collected.
+	 */
+	@Override
+	public void close() {
+	}
+
+	/**
+	 * Delete a spill file that could not be mapped.
+	 */
+	private static void deleteQuietly(Path file) {
+
+		if (file == null)
+			return;
+		try {
+			Files.deleteIfExists(file);
+		}
+		catch (IOException e) {
+			if (logger.isDebugEnabled())	logger.debug("deleteQuietly(): spill file " + file + " not deleted: " + e.getMessage());
+		}
+	}
+
+	@Override
+	public String toString() {
+
+		return "AdabasIsnArray size = " + size + ": capacity = " + capacity + ": isnSize = " + isnSize + (mapped ? ": mapped" : "");
+	}
+}
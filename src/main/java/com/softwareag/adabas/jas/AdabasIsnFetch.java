@@ -0,0 +1,218 @@
+package com.softwareag.adabas.jas;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Read records for a list of ISNs with multifetch L1 calls.
+ *
+ * ISNs are sorted for locality and sent in chunks in the ISN buffer of an L1
+ * call with COP1 = 'M' (IB in per SP4, MB out per SP6 of the legal command table). Each
+ * call returns up to one chunk of records in the RB with one MB entry per ISN,
+ * see {@link AdabasMultifetch}. Records are passed to a {@link AdabasFetchSink}
+ * through one reused {@link AdabasRecordView}; ISNs with a non-zero entry
+ * response (rc 113 ISN not found) are reported as missing without ending the
+ * fetch. If a chunk fails as a whole with rc 113, its ISNs are read one by one.
+ *
+ * The calls run on the session of the direct call with their own control block
+ * and buffers. The sink must not use the direct call.
+ *
+ * @author usadva
+ */
+
+/*
+ * Copyright (c) 1998-2021 Software AG, Darmstadt, Germany and/or Software AG USA Inc., Reston, VA, USA,
+ * and/or its subsidiaries and/or its affiliates and/or their licensors. Use, reproduction, transfer,
+ * publication or disclosure is prohibited except as specifically provided for in your License Agreement
+ * with Software AG.
+ */
+
+public class AdabasIsnFetch {
+
+	public static final int		DEFAULT_CHUNK	= 100;							// ISNs per L1 call
+	public static final int		NOT_RETURNED	= -1;							// response of ISN without MB entry
+	public static final long	MAX_ISN			= 0xFFFFFFFFL;					// 4 byte ISNs in IB and MB
+
+	private final AdabasDirectCallX		adcx;									// session direct call
+	private final AdabasControlBlockX	l1Acbx;									// L1 control block
+	private final AdabasFormatLayout	layout;									// record layout
+	private final AdabasRecordView		view;									// reused record view
+	private final AdabasBufferX			fb;										// format buffer
+	private final AdabasBufferX			ib;										// ISN buffer
+	private final int					chunk;									// ISNs per call
+	private final AdabasResult			result	= new AdabasResult();			// outcome of the last L1
+	private AdabasMultifetch			mf;										// RB and MB, created on first call
+	private int							calls;									// L1 calls issued
+
+	final static Logger logger = AdabasTrace.getLogger("com.softwareag.adabas.jas.AdabasIsnFetch");
+
+	/**
+	 * Constructor.
+	 *
+	 * @param adcx		Direct call of a session; DBID and FNR are taken from its control block.
+	 * @param layout	Record layout of the format buffer.
+	 * @param chunk		ISNs per L1 call.
+	 *
+	 * @throws AdabasException	Invalid chunk or buffer allocation failed.
+	 */
+	public AdabasIsnFetch(AdabasDirectCallX adcx, AdabasFormatLayout layout, int chunk) throws AdabasException {
+
+		if (chunk < 1 || chunk > (Integer.MAX_VALUE - AdabasMultifetch.MB_HDR_LENGTH) / AdabasMultifetch.MB_ENTRY_LENGTH) {
+			throw new AdabasException(String.format("Invalid ISN fetch chunk %d", chunk));
+		}
+		AdabasControlBlockX acbx = adcx.getAcbX();
+		this.adcx	= adcx;
+		this.layout	= layout;
+		this.chunk	= chunk;
+		this.view	= new AdabasRecordView(layout);
+		this.fb		= new AdabasBufferX(layout.getFormatBuffer(), AdabasBufferX.FB, adcx.isXtsEBCDIC());
+		this.ib		= new AdabasBufferX(chunk * 4, AdabasBufferX.IB, adcx.isXtsEBCDIC());
+		this.l1Acbx	= new AdabasControlBlockX(adcx.isXtsEBCDIC());
+		l1Acbx.setAcbDBID(acbx.getAcbDBID());
+		l1Acbx.setHostName(acbx.getHostName());
+		l1Acbx.setAcbFNR(acbx.getAcbFNR());
+		l1Acbx.setAcbCMD("L1");
+	}
+
+	/**
+	 * Read records for ISNs. Duplicate ISNs are read once.
+	 *
+	 * @param isns	ISNs in any order (not changed).
+	 * @param sink	Consumer of records and missing ISNs.
+	 * @return		number of records read.
+	 *
+	 * @throws Exception	L1 failed other than rc 113, or sink error.
+	 */
+	public int fetch(long[] isns, AdabasFetchSink sink) throws Exception {
+
+		long[] sorted = isns.clone();
+		Arrays.sort(sorted);
+		int n = 0;
+		for (int i = 0; i < sorted.length; i++) {								// drop duplicates
+			if (n == 0 || sorted[i] != sorted[n - 1])
+				sorted[n++] = sorted[i];
+		}
+		return fetch(sorted, n, sink);
+	}
+
+	/**
+	 * Read records for the ISNs of a set in ascending order.
+	 *
+	 * @param isns	ISN set.
+	 * @param sink	Consumer of records and missing ISNs.
+	 * @return		number of records read.
+	 *
+	 * @throws Exception	L1 failed other than rc 113, or sink error.
+	 */
+	public int fetch(AdabasIsnSet isns, AdabasFetchSink sink) throws Exception {
+
+		long						n	= isns.cardinality();
+		AdabasIsnSet.IsnIterator	it	= isns.iterator();
+		if (n > Integer.MAX_VALUE) {
+			throw new AdabasException(l1Acbx.getAcbDBID(), String.format("ISN set cardinality %d too large", n));
+		}
+		long[] sorted = new long[(int) n];
+		for (int i = 0; it.hasNext(); i++)
+			sorted[i] = it.next();
+		return fetch(sorted, sorted.length, sink);
+	}
+
+	/**
+	 * Get number of L1 calls issued.
+	 *
+	 * @return	calls.
+	 */
+	public int getCalls() {
+
+		return calls;
+	}
+
+	/**
+	 * Read ascending unique ISNs chunk by chunk on the session.
+	 */
+	private int fetch(long[] isns, int n, AdabasFetchSink sink) throws Exception {
+
+		final String method = "fetch(): ";
+
+		if (n > 0 && (isns[0] < 1 || isns[n - 1] > MAX_ISN)) {
+			throw new AdabasException(l1Acbx.getAcbDBID(), String.format("ISN %d out of range", isns[0] < 1 ? isns[0] : isns[n - 1]));
+		}
+
+		int found = 0;
+		if (mf == null)
+			mf = new AdabasMultifetch(l1Acbx, adcx.isXtsEBCDIC(), chunk, layout.getRecordLength());
+		for (int from = 0; from < n; from += chunk) {
+			found += fetchChunk(isns, from, Math.min(n, from + chunk), sink);
+		}
+		if (logger.isDebugEnabled())	logger.debug(method + "ISNs = " + n + ": found = " + found + ": calls = " + calls);
+		return found;
+	}
+
+	/**
+	 * Issue one multifetch L1 for ISNs from..to-1 and pass the results to the sink.
+	 */
+	private int fetchChunk(long[] isns, int from, int to, AdabasFetchSink sink) throws Exception {
+
+		ByteBuffer ibb = ib.getDataBuffer();
+		for (int i = from; i < to; i++)
+			ibb.putInt((i - from) * 4, (int) isns[i]);
+		ib.setAbdSEND((to - from) * 4);
+		l1Acbx.setAcbCOP1(AdabasMultifetch.COP1_MULTIFETCH);
+		l1Acbx.setAcbISN(0);
+		l1Acbx.setAcbISL(to - from);
+		calls++;
+		AdabasResult res = adcx.tryCallWith(result, l1Acbx, fb, mf.getRB(), null, null, ib, mf.getMB());
+		if (res.getResponseCode() == AdabasException.ADA_113)
+			return fetchSingle(isns, from, to, sink);							// chunk rejected as a whole
+		if (res.isError())
+			throw res.getException();
+
+		int found	= 0;
+		int i		= from;
+		for (AdabasMultifetch.Record r : mf) {
+			while (i < to && isns[i] < r.getIsn())								// ISNs without MB entry
+				sink.missing(isns[i++], NOT_RETURNED);
+			if (i < to && isns[i] == r.getIsn())
+				i++;
+			if (r.getResponse() != 0) {
+				sink.missing(r.getIsn(), r.getResponse());
+			}
+			else {
+				view.wrap(r.getBuffer(), r.getOffset(), adcx.isXtsEBCDIC());
+				sink.record(r.getIsn(), view);
+				found++;
+			}
+		}
+		while (i < to)
+			sink.missing(isns[i++], NOT_RETURNED);
+		return found;
+	}
+
+	/**
+	 * Read ISNs from..to-1 with single L1 calls.
+	 */
+	private int fetchSingle(long[] isns, int from, int to, AdabasFetchSink sink) throws Exception {
+
+		AdabasBufferX rb = mf.getRB();
+		l1Acbx.setAcbCOP1((byte) ' ');
+		l1Acbx.setAcbISL(0);
+
+		int found = 0;
+		for (int i = from; i < to; i++) {
+			l1Acbx.setAcbISN(isns[i]);
+			calls++;
+			AdabasResult res = adcx.tryCallWith(result, l1Acbx, fb, rb);
+			if (res.getResponseCode() == AdabasException.ADA_113) {				// ISN not found
+				sink.missing(isns[i], res.getResponseCode());
+				continue;
+			}
+			if (res.isError())
+				throw res.getException();
+			sink.record(isns[i], view.wrap(rb));
+			found++;
+		}
+		return found;
+	}
+}
@@ -0,0 +1,290 @@
+package com.softwareag.adabas.jas;
+
+import java.nio.ByteBuffer;
+
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Iterator over the ISN list of an S1/S2 search, paging it into the ISN buffer
+ * in chunks.
+ *
+ * The direct call must be prepared for the search (S1/S2, FNR, SB, VB) with a
+ * non-blank command ID, so Adabas saves ISNs that do not fit the ISN buffer. The
+ * first chunk is returned by the search itself and ISQ gives the total. Further
+ * chunks are read with the same command and command ID; for S1 the ISN lower
+ * limit is set to the last ISN returned, S2 continues in sort order. ISNs are
+ * decoded directly from the ISN buffer, no ISN objects are created:
+ *
+ * <pre>
+ * try (AdabasIsnList isns = new AdabasIsnList(adcx, 1000, 4)) {
+ *     while (isns.hasNext()) {
+ *         long isn = isns.nextIsn();
+ *         ...
+ *     }
+ * }
+ * </pre>
+ *
+ * {@link #readAll(long)} collects the whole list into an {@link AdabasIsnArray},
+ * which spills to a memory mapped file for very large lists. The direct call's
+ * ISN buffer is replaced while paging and restored on close.
+ *
+ * @author usadva
+ */
+
+/*
+ * Copyright (c) 1998-2021 Software AG, Darmstadt, Germany and/or Software AG USA Inc., Reston, VA, USA,
+ * and/or its subsidiaries and/or its affiliates and/or their licensors. Use, reproduction, transfer,
+ * publication or disclosure is prohibited except as specifically provided for in your License Agreement
+ * with Software AG.
+ */
+
+public class AdabasIsnList implements AutoCloseable {
+
+	public static final int		DEFAULT_CHUNK	= 1000;							// ISNs per call
+
+	private final AdabasDirectCallX	adcx;										// direct call prepared for search
+	private final AdabasBufferX		ib;											// chunk ISN buffer
+	private final AdabasBufferX		savedIB;									// caller ISN buffer
+	private final ByteBuffer		ibData;										// ISN buffer data
+	private final int				isnSize;									// 4 or 8
+	private final boolean			sorted;										// S2 list
+	private long					quantity	= -1;							// ISQ of the search (-1 = not issued)
+	private long					received;									// ISNs returned so far
+	private long					lastIsn;									// last ISN returned
+	private int						count;										// ISNs in current chunk
+	private int						index;										// next ISN in current chunk
+	private int						calls;										// Adabas calls issued
+	private boolean					closed;										// list closed
+
+	final static Logger logger = AdabasTrace.getLogger("com.softwareag.adabas.jas.AdabasIsnList");
+
+	/**
+	 * Constructor.
+	 *
+	 * @param adcx		Direct call prepared for S1/S2 with non-blank CID.
+	 * @param chunk		ISNs per call.
+	 * @param isnSize	ISN length 4 or 8.
+	 *
+	 * @throws AdabasException	Invalid settings.
+	 */
+	public AdabasIsnList(AdabasDirectCallX adcx, int chunk, int isnSize) throws AdabasException {
+
+		String cmd = adcx.getAcbX().getAcbCMD();
+		if (chunk <= 0 || (isnSize != 4 && isnSize != 8) || (long) chunk * isnSize > Integer.MAX_VALUE) {
+			throw new AdabasException(String.format("Invalid ISN list settings: chunk = %d; isnSize = %d", chunk, isnSize));
+		}
+		if (!cmd.equals("S1") && !cmd.equals("S2")) {
+			throw new AdabasException(String.format("ISN list command %s not S1 or S2", cmd));
+		}
+		if (isBlankCid(adcx.getAcbX().getAcbCID(), adcx.isXtsEBCDIC())) {
+			throw new AdabasException("ISN list requires a command ID");
+		}
+		this.adcx		= adcx;
+		this.isnSize	= isnSize;
+		this.sorted		= cmd.equals("S2");
+		this.ib			= new AdabasBufferX(chunk * isnSize, AdabasBufferX.IB, adcx.isXtsEBCDIC());
+		this.ibData		= ib.getDataBuffer();
+		this.savedIB	= adcx.getIB();
+	}
+
+	/**
+	 * Constructor for 4 byte ISNs in chunks of {@link #DEFAULT_CHUNK}.
+	 *
+	 * @param adcx	Direct call prepared for S1/S2 with non-blank CID.
+	 *
+	 * @throws AdabasException	Invalid settings.
+	 */
+	public AdabasIsnList(AdabasDirectCallX adcx) throws AdabasException {
+
+		this(adcx, DEFAULT_CHUNK, 4);
+	}
+
+	/**
+	 * Check for more ISNs, reading the next chunk if the current one is used up.
+	 *
+	 * @return	true if {@link #nextIsn()} returns an ISN.
+	 *
+	 * @throws Exception	Search or follow-up call failed.
+	 */
+	public boolean hasNext() throws Exception {
+
+		while (index >= count) {
+			if (closed || (quantity >= 0 && received >= quantity))
+				return false;
+			if (!readChunk())
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Get next ISN.
+	 *
+	 * @return	ISN (4 byte ISNs unsigned).
+	 *
+	 * @throws Exception	Search or follow-up call failed, or no more ISNs.
+	 */
+	public long nextIsn() throws Exception {
+
+		if (!hasNext()) {
+			throw new AdabasException(adcx.getAcbX().getAcbDBID(), "ISN list exhausted");
+		}
+		int i = index++;
+		return (isnSize == 4) ? ibData.getInt(i * 4) & 0xFFFFFFFFL : ibData.getLong(i * 8);
+	}
+
+	/**
+	 * Read the remaining ISNs into an array.
+	 *
+	 * @param spillBytes	Spill the array to a memory mapped file above this many bytes.
+	 * @return				ISN array; close it to delete a spill file.
+	 *
+	 * @throws Exception	Search or follow-up call failed.
+	 */
+	public AdabasIsnArray readAll(long spillBytes) throws Exception {
+
+		if (!hasNext())
+			return new AdabasIsnArray(0, isnSize, spillBytes);
+
+		long remaining = quantity - received + (count - index);
+		if (remaining > Integer.MAX_VALUE) {
+			throw new AdabasException(adcx.getAcbX().getAcbDBID(), String.format("ISN quantity %d too large for ISN array", quantity));
+		}
+		AdabasIsnArray array = new AdabasIsnArray((int) remaining, isnSize, spillBytes);
+		try {
+			while (hasNext()) {
+				if (index == 0) {
+					array.add(ib, count);											// whole chunk
+					index = count;
+				}
+				else {
+					array.add(nextIsn());
+				}
+			}
+		}
+		catch (Exception e) {
+			array.close();
+			throw e;
+		}
+		return array;
+	}
+
+	/**
+	 * Get ISN quantity of the search.
+	 *
+	 * @return	ISQ or -1 if the search was not yet issued.
+	 */
+	public long getQuantity() {
+
+		return quantity;
+	}
+
+	/**
+	 * Get number of Adabas calls issued.
+	 *
+	 * @return	calls.
+	 */
+	public int getCalls() {
+
+		return calls;
+	}
+
+	/**
+	 * Restore the direct call's ISN buffer and release the saved ISN list with RC
+	 * if it was not read to the end.
+	 *
+	 * @throws Exception	RC failed.
+	 */
+	@Override
+	public void close() throws Exception {
+
+		if (closed)
+			return;
+		closed = true;
+		restore();
+		if (quantity >= 0 && received < quantity) {
+			release();
+		}
+	}
+
+	/**
+	 * Issue the search or a follow-up call for the next chunk.
+	 */
+	private boolean readChunk() throws Exception {
+
+		final String method = "readChunk(): ";
+
+		AdabasControlBlockX acbx = adcx.getAcbX();
+		adcx.setIB(ib);
+		ib.setAbdRECV(0);
+		acbx.setAcbISL((quantity >= 0 && !sorted) ? lastIsn : 0);
+		try {
+			calls++;
+			adcx.callAdabas();
+		}
+		catch (Exception e) {
+			closed = true;
+			restore();
+			throw e;
+		}
+		if (quantity < 0)
+			quantity = acbx.getAcbISQ();
+
+		count	= (int) Math.min(ib.getAbdRECV() / isnSize, quantity - received);
+		index	= 0;
+		if (logger.isDebugEnabled())	logger.debug(method + "ISQ = " + quantity + ": received = " + received + ": chunk = " + count);
+		if (count <= 0) {
+			quantity = received;												// nothing more returned
+			restore();
+			return false;
+		}
+		received	+= count;
+		lastIsn		 = (isnSize == 4) ? ibData.getInt((count - 1) * 4) & 0xFFFFFFFFL : ibData.getLong((count - 1) * 8);
+		if (received >= quantity)
+			restore();
+		return true;
+	}
+
+	/**
+	 * Put back the caller's ISN buffer and ISN lower limit.
+	 */
+	private void restore() throws AdabasException {
+
+		adcx.setIB(savedIB);
+		adcx.getAcbX().setAcbISL(0);
+	}
+
+	/**
+	 * Release the saved ISN list with RC on the command ID.
+	 */
+	private void release() throws Exception {
+
+		AdabasControlBlockX	acbx	= adcx.getAcbX();
+		AdabasControlBlockX	rcAcbx	= new AdabasControlBlockX(adcx.isXtsEBCDIC());
+		rcAcbx.setAcbDBID(acbx.getAcbDBID());
+		rcAcbx.setHostName(acbx.getHostName());
+		rcAcbx.setAcbCMD("RC");
+		rcAcbx.setAcbCID(acbx.getAcbCID());
+
+		adcx.callWith(rcAcbx);
+	}
+
+	/**
+	 * Check for a blank or binary zero command ID.
+	 */
+	private static boolean isBlankCid(byte[] cid, boolean ebcdic) {
+
+		byte blank = ebcdic ? (byte) 0x40 : (byte) 0x20;
+		for (byte b : cid) {
+			if (b != 0 && b != blank)
+				return false;
+		}
+		return true;
+	}
+
+	@Override
+	public String toString() {
+
+		return "AdabasIsnList ISQ = " + quantity + ": received = " + received + ": calls = " + calls;
+	}
+}
@@ -0,0 +1,553 @@
+package com.softwareag.adabas.jas;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Compressed set of ISNs for combining search results on the client.
+ *
+ * ISNs are split into a 48 bit key and a 16 bit low part. Each key holds one
+ * container of low parts: a sorted char array for up to {@link #ARRAY_MAX}
+ * ISNs, else a 65536 bit bitmap. Sparse and dense ISN ranges both stay small
+ * and no ISN objects are created. Sets decode directly from ISN buffers:
+ *
+ * <pre>
+ * AdabasIsnSet smith	= AdabasIsnSet.fromIB(ib1, 4);
+ * AdabasIsnSet nyc		= AdabasIsnSet.fromIB(ib2, 4);
+ * AdabasIsnSet.IsnIterator it = smith.and(nyc).iterator();
+ * while (it.hasNext())
+ *     read(it.next());													// ascending ISN order
+ * </pre>
+ *
+ * and(), or() and andNot() return new sets and leave their operands unchanged.
+ * A set is not thread safe while ISNs are added.
+ *
+ * @author usadva
+ */
+
+/*
+ * Copyright (c) 1998-2021 Software AG, Darmstadt, Germany and/or Software AG USA Inc., Reston, VA, USA,
+ * and/or its subsidiaries and/or its affiliates and/or their licensors. Use, reproduction, transfer,
+ * publication or disclosure is prohibited except as specifically provided for in your License Agreement
+ * with Software AG.
+ */
+
+public final class AdabasIsnSet {
+
+	public static final int		ARRAY_MAX		= 4096;							// array container limit
+	private static final int	BITMAP_WORDS	= 1024;							// 65536 bits
+
+	private long[]		keys		= new long[4];								// container keys ascending (ISN >>> 16)
+	private Container[]	containers	= new Container[4];							// containers by key index
+	private int			size;													// containers used
+
+	/**
+	 * Container of the low 16 bits of ISNs with one key.
+	 */
+	private abstract static class Container {
+
+		abstract int cardinality();
+		abstract boolean contains(int low);
+		abstract Container add(int low);
+		abstract Container copy();
+	}
+
+	/**
+	 * Sorted array of low parts.
+	 */
+	private static final class ArrayContainer extends Container {
+
+		char[]	values;															// sorted low parts
+		int		n;																// values used
+
+		ArrayContainer(int capacity) {
+			values = new char[capacity];
+		}
+
+		@Override
+		int cardinality() {
+			return n;
+		}
+
+		@Override
+		boolean contains(int low) {
+			return Arrays.binarySearch(values, 0, n, (char) low) >= 0;
+		}
+
+		@Override
+		Container add(int low) {
+			int i;
+			if (n == 0 || values[n - 1] < low)									// ascending input: append
+				i = -(n + 1);
+			else
+				i = Arrays.binarySearch(values, 0, n, (char) low);
+			if (i >= 0)
+				return this;
+			if (n == ARRAY_MAX)
+				return toBitmap().add(low);
+			i = -(i + 1);
+			if (n == values.length)
+				values = Arrays.copyOf(values, Math.min(ARRAY_MAX, Math.max(8, n * 2)));
+			System.arraycopy(values, i, values, i + 1, n - i);
+			values[i] = (char) low;
+			n++;
+			return this;
+		}
+
+		@Override
+		Container copy() {
+			ArrayContainer c = new ArrayContainer(n);
+			System.arraycopy(values, 0, c.values, 0, n);
+			c.n = n;
+			return c;
+		}
+
+		BitmapContainer toBitmap() {
+			BitmapContainer b = new BitmapContainer();
+			for (int i = 0; i < n; i++)
+				b.words[values[i] >>> 6] |= 1L << values[i];
+			b.card = n;
+			return b;
+		}
+	}
+
+	/**
+	 * Bitmap of low parts.
+	 */
+	private static final class BitmapContainer extends Container {
+
+		final long[]	words	= new long[BITMAP_WORDS];						// 65536 bits
+		int				card;													// bits set
+
+		@Override
+		int cardinality() {
+			return card;
+		}
+
+		@Override
+		boolean contains(int low) {
+			return (words[low >>> 6] & (1L << low)) != 0;
+		}
+
+		@Override
+		Container add(int low) {
+			long w = words[low >>> 6];
+			if ((w & (1L << low)) == 0) {
+				words[low >>> 6] = w | (1L << low);
+				card++;
+			}
+			return this;
+		}
+
+		@Override
+		Container copy() {
+			BitmapContainer b = new BitmapContainer();
+			System.arraycopy(words, 0, b.words, 0, BITMAP_WORDS);
+			b.card = card;
+			return b;
+		}
+
+		/**
+		 * Recount bits and switch to an array when sparse.
+		 */
+		Container normalize() {
+			card = 0;
+			for (long w : words)
+				card += Long.bitCount(w);
+			if (card > ARRAY_MAX)
+				return this;
+			ArrayContainer a = new ArrayContainer(card);
+			for (int i = 0; i < BITMAP_WORDS; i++) {
+				for (long w = words[i]; w != 0; w &= w - 1)
+					a.values[a.n++] = (char) ((i << 6) + Long.numberOfTrailingZeros(w));
+			}
+			return a;
+		}
+	}
+
+	/**
+	 * Ascending ISN iterator.
+	 */
+	public final class IsnIterator {
+
+		private int		ci;														// container index
+		private int		vi;														// array index or bit index
+		private long	next	= -1;											// next ISN or -1
+
+		IsnIterator() {
+			advance();
+		}
+
+		/**
+		 * @return true if {@link #next()} returns an ISN.
+		 */
+		public boolean hasNext() {
+			return next >= 0;
+		}
+
+		/**
+		 * @return next ISN in ascending order.
+		 */
+		public long next() {
+			if (next < 0)
+				throw new java.util.NoSuchElementException("ISN set exhausted");
+			long isn = next;
+			advance();
+			return isn;
+		}
+
+		private void advance() {
+			for (; ci < size; ci++, vi = 0) {
+				Container c = containers[ci];
+				if (c instanceof ArrayContainer) {
+					ArrayContainer a = (ArrayContainer) c;
+					if (vi < a.n) {
+						next = (keys[ci] << 16) | a.values[vi++];
+						return;
+					}
+				}
+				else {
+					long[] words = ((BitmapContainer) c).words;
+					for (int wi = vi >>> 6; wi < BITMAP_WORDS; wi++) {
+						long w = words[wi] & (-1L << (wi == vi >>> 6 ? vi : 0));	// bits from vi on
+						if (w != 0) {
+							int bit = (wi << 6) + Long.numberOfTrailingZeros(w);
+							next	= (keys[ci] << 16) | bit;
+							vi		= bit + 1;
+							return;
+						}
+					}
+				}
+			}
+			next = -1;
+		}
+	}
+
+	/**
+	 * Constructor of an empty set.
+	 */
+	public AdabasIsnSet() {
+	}
+
+	/**
+	 * Decode the ISNs returned in an ISN buffer.
+	 *
+	 * @param ib		ISN buffer with RECV set.
+	 * @param isnSize	ISN length 4 or 8.
+	 * @return			set of the ISNs.
+	 *
+	 * @throws AdabasException	Invalid ISN length.
+	 */
+	public static AdabasIsnSet fromIB(AdabasBufferX ib, int isnSize) throws AdabasException {
+
+		if (isnSize != 4 && isnSize != 8) {
+			throw new AdabasException(String.format("Invalid ISN length %d", isnSize));
+		}
+		AdabasIsnSet	set		= new AdabasIsnSet();
+		ByteBuffer		bb		= ib.getDataBuffer();
+		int				count	= ib.getAbdRECV() / isnSize;
+		for (int i = 0; i < count; i++)
+			set.add((isnSize == 4) ? bb.getInt(i * 4) & 0xFFFFFFFFL : bb.getLong(i * 8));
+		return set;
+	}
+
+	/**
+	 * Read all remaining ISNs of an ISN list.
+	 *
+	 * @param isns	ISN list.
+	 * @return		set of the ISNs.
+	 *
+	 * @throws Exception	Search or follow-up call failed.
+	 */
+	public static AdabasIsnSet fromList(AdabasIsnList isns) throws Exception {
+
+		AdabasIsnSet set = new AdabasIsnSet();
+		while (isns.hasNext())
+			set.add(isns.nextIsn());
+		return set;
+	}
+
+	/**
+	 * Add an ISN.
+	 *
+	 * @param isn	ISN (not negative).
+	 */
+	public void add(long isn) {
+
+		if (isn < 0)
+			throw new IllegalArgumentException("Negative ISN " + isn);
+		long	key	= isn >>> 16;
+		int		i	= (size > 0 && keys[size - 1] == key) ? size - 1 : find(key);	// ascending input: last container
+		if (i < 0) {
+			i = -(i + 1);
+			insert(i, key, new ArrayContainer(8));
+		}
+		containers[i] = containers[i].add((int) (isn & 0xFFFF));
+	}
+
+	/**
+	 * Check for an ISN.
+	 *
+	 * @param isn	ISN.
+	 * @return		true if in the set.
+	 */
+	public boolean contains(long isn) {
+
+		int i = find(isn >>> 16);
+		return i >= 0 && containers[i].contains((int) (isn & 0xFFFF));
+	}
+
+	/**
+	 * Get number of ISNs.
+	 *
+	 * @return	cardinality.
+	 */
+	public long cardinality() {
+
+		long n = 0;
+		for (int i = 0; i < size; i++)
+			n += containers[i].cardinality();
+		return n;
+	}
+
+	/**
+	 * Check for no ISNs.
+	 *
+	 * @return	true if empty.
+	 */
+	public boolean isEmpty() {
+
+		return size == 0;
+	}
+
+	/**
+	 * Get an iterator in ascending ISN order.
+	 *
+	 * @return	iterator.
+	 */
+	public IsnIterator iterator() {
+
+		return new IsnIterator();
+	}
+
+	/**
+	 * Intersection.
+	 *
+	 * @param other	Other set.
+	 * @return		new set of ISNs in both sets.
+	 */
+	public AdabasIsnSet and(AdabasIsnSet other) {
+
+		AdabasIsnSet r = new AdabasIsnSet();
+		for (int i = 0, j = 0; i < size && j < other.size; ) {
+			if (keys[i] < other.keys[j])
+				i++;
+			else if (keys[i] > other.keys[j])
+				j++;
+			else {
+				Container c = and(containers[i++], other.containers[j++]);
+				if (c.cardinality() > 0)
+					r.insert(r.size, keys[i - 1], c);
+			}
+		}
+		return r;
+	}
+
+	/**
+	 * Union.
+	 *
+	 * @param other	Other set.
+	 * @return		new set of ISNs in either set.
+	 */
+	public AdabasIsnSet or(AdabasIsnSet other) {
+
+		AdabasIsnSet r = new AdabasIsnSet();
+		int i = 0, j = 0;
+		while (i < size || j < other.size) {
+			if (j >= other.size || (i < size && keys[i] < other.keys[j])) {
+				r.insert(r.size, keys[i], containers[i].copy());
+				i++;
+			}
+			else if (i >= size || keys[i] > other.keys[j]) {
+				r.insert(r.size, other.keys[j], other.containers[j].copy());
+				j++;
+			}
+			else {
+				r.insert(r.size, keys[i], or(containers[i++], other.containers[j++]));
+			}
+		}
+		return r;
+	}
+
+	/**
+	 * Difference.
+	 *
+	 * @param other	Other set.
+	 * @return		new set of ISNs in this set but not in the other.
+	 */
+	public AdabasIsnSet andNot(AdabasIsnSet other) {
+
+		AdabasIsnSet r = new AdabasIsnSet();
+		for (int i = 0, j = 0; i < size; i++) {
+			while (j < other.size && other.keys[j] < keys[i])
+				j++;
+			Container c = (j < other.size && other.keys[j] == keys[i]) ? andNot(containers[i], other.containers[j]) : containers[i].copy();
+			if (c.cardinality() > 0)
+				r.insert(r.size, keys[i], c);
+		}
+		return r;
+	}
+
+	/**
+	 * Intersect two containers.
+	 */
+	private static Container and(Container a, Container b) {
+
+		if (a instanceof BitmapContainer && b instanceof BitmapContainer) {
+			BitmapContainer r = new BitmapContainer();
+			long[] wa = ((BitmapContainer) a).words, wb = ((BitmapContainer) b).words;
+			for (int k = 0; k < BITMAP_WORDS; k++)
+				r.words[k] = wa[k] & wb[k];
+			return r.normalize();
+		}
+		if (a instanceof BitmapContainer) {										// filter the array
+			Container t = a;
+			a = b;
+			b = t;
+		}
+		ArrayContainer	x = (ArrayContainer) a;
+		ArrayContainer	r = new ArrayContainer(x.n);
+		if (b instanceof ArrayContainer) {										// merge two sorted arrays
+			ArrayContainer y = (ArrayContainer) b;
+			for (int i = 0, j = 0; i < x.n && j < y.n; ) {
+				if (x.values[i] < y.values[j])
+					i++;
+				else if (x.values[i] > y.values[j])
+					j++;
+				else {
+					r.values[r.n++] = x.values[i++];
+					j++;
+				}
+			}
+		}
+		else {
+			for (int i = 0; i < x.n; i++) {
+				if (b.contains(x.values[i]))
+					r.values[r.n++] = x.values[i];
+			}
+		}
+		return r;
+	}
+
+	/**
+	 * Unite two containers.
+	 */
+	private static Container or(Container a, Container b) {
+
+		if (a instanceof ArrayContainer && b instanceof ArrayContainer && a.cardinality() + b.cardinality() <= ARRAY_MAX) {
+			ArrayContainer	x = (ArrayContainer) a, y = (ArrayContainer) b;
+			ArrayContainer	r = new ArrayContainer(x.n + y.n);
+			int i = 0, j = 0;
+			while (i < x.n || j < y.n) {
+				if (j >= y.n || (i < x.n && x.values[i] < y.values[j]))
+					r.values[r.n++] = x.values[i++];
+				else if (i >= x.n || x.values[i] > y.values[j])
+					r.values[r.n++] = y.values[j++];
+				else {
+					r.values[r.n++] = x.values[i++];
+					j++;
+				}
+			}
+			return r;
+		}
+		BitmapContainer r = bitmap(a);
+		if (b instanceof BitmapContainer) {
+			long[] wb = ((BitmapContainer) b).words;
+			for (int k = 0; k < BITMAP_WORDS; k++)
+				r.words[k] |= wb[k];
+		}
+		else {
+			ArrayContainer y = (ArrayContainer) b;
+			for (int j = 0; j < y.n; j++)
+				r.words[y.values[j] >>> 6] |= 1L << y.values[j];
+		}
+		return r.normalize();
+	}
+
+	/**
+	 * Subtract a container.
+	 */
+	private static Container andNot(Container a, Container b) {
+
+		if (a instanceof ArrayContainer) {
+			ArrayContainer	x = (ArrayContainer) a;
+			ArrayContainer	r = new ArrayContainer(x.n);
+			for (int i = 0; i < x.n; i++) {
+				if (!b.contains(x.values[i]))
+					r.values[r.n++] = x.values[i];
+			}
+			return r;
+		}
+		BitmapContainer r = (BitmapContainer) a.copy();
+		if (b instanceof BitmapContainer) {
+			long[] wb = ((BitmapContainer) b).words;
+			for (int k = 0; k < BITMAP_WORDS; k++)
+				r.words[k] &= ~wb[k];
+		}
+		else {
+			ArrayContainer y = (ArrayContainer) b;
+			for (int j = 0; j < y.n; j++)
+				r.words[y.values[j] >>> 6] &= ~(1L << y.values[j]);
+		}
+		return r.normalize();
+	}
+
+	/**
+	 * Copy of a container as bitmap.
+	 */
+	private static BitmapContainer bitmap(Container c) {
+
+		return (c instanceof BitmapContainer) ? (BitmapContainer) c.copy() : ((ArrayContainer) c).toBitmap();
+	}
+
+	/**
+	 * Binary search for a container key.
+	 */
+	private int find(long key) {
+
+		int lo = 0, hi = size - 1;
+		while (lo <= hi) {
+			int		mid	= (lo + hi) >>> 1;
+			long	k	= keys[mid];
+			if (k < key)
+				lo = mid + 1;
+			else if (k > key)
+				hi = mid - 1;
+			else
+				return mid;
+		}
+		return -(lo + 1);
+	}
+
+	/**
+	 * Insert a container at an index.
+	 */
+	private void insert(int i, long key, Container c) {
+
+		if (size == keys.length) {
+			keys		= Arrays.copyOf(keys, size * 2);
+			containers	= Arrays.copyOf(containers, size * 2);
+		}
+		System.arraycopy(keys, i, keys, i + 1, size - i);
+		System.arraycopy(containers, i, containers, i + 1, size - i);
+		keys[i]			= key;
+		containers[i]	= c;
+		size++;
+	}
+
+	@Override
+	public String toString() {
+
+		return "AdabasIsnSet cardinality = " + cardinality() + ": containers = " + size;
+	}
+}
@@ -0,0 +1,336 @@
+package com.softwareag.adabas.jas;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Multi-call (MC) batch: several ACBX commands sent to Adabas in one round trip.
+ *
+ * Subcommands are added with their control block and buffers and packed into the
+ * record buffer of one MC command issued on the session of a direct call. The MC
+ * ACBX ISN quantity is set to the number of subcommands. Each subcommand is one
+ * entry in the MC record buffer:
+ *
+ * <pre>
+ * entry 0x00		4	entry length including this header
+ * entry 0x04		4	reserved
+ * entry 0x08		192	ACBX
+ * entry 0xC8		...	ABD (48) and buffer data (ABD SIZE) for each of FB, RB, SB, VB, IB given
+ * </pre>
+ *
+ * The reply has the same layout with the ACBX response and the ABD RECV lengths
+ * of each subcommand. After {@link #call()} the ACBX and buffers added are updated
+ * in place. When a subcommand fails Adabas stops and returns response code 16 for
+ * the MC call; {@link #call()} then returns normally and the failure is reported
+ * per subcommand by {@link #getResponse(int)} and {@link #getException(int)}.
+ *
+ * The MC control block and record buffer are kept by the instance and only grow
+ * when a batch needs a larger record buffer, so repeated calls do not allocate.
+ *
+ * @author usadva
+ */
+
+/*
+ * Copyright (c) 1998-2021 Software AG, Darmstadt, Germany and/or Software AG USA Inc., Reston, VA, USA,
+ * and/or its subsidiaries and/or its affiliates and/or their licensors. Use, reproduction, transfer,
+ * publication or disclosure is prohibited except as specifically provided for in your License Agreement
+ * with Software AG.
+ */
+
+public class AdabasMultiCall {
+
+	public static final int		ENTRY_HDR_LENGTH	= 8;					// entry length and reserved
+	public static final short	NOT_EXECUTED		= -1;					// subcommand response if not executed
+
+	private final AdabasDirectCallX			adcx;								// session issuing the MC call
+	private final List<SubCommand>			subs	= new ArrayList<SubCommand>();	// subcommands in order
+	private final AdabasResult				result	= new AdabasResult();		// outcome of MC call
+	private AdabasControlBlockX				mcAcbx	= null;						// MC control block
+	private AdabasBufferX					mcRb	= null;						// MC record buffer, grown as needed
+	private int								executed	= 0;					// subcommands returned by last call
+
+	final static Logger logger = AdabasTrace.getLogger("com.softwareag.adabas.jas.AdabasMultiCall");
+
+	/**
+	 * Constructor.
+	 *
+	 * @param adcx	Direct call of the session (DBID set) the MC call is issued on.
+	 *
+	 * @throws AdabasException	No direct call provided.
+	 */
+	public AdabasMultiCall(AdabasDirectCallX adcx) throws AdabasException {
+
+		if (adcx == null) {
+			throw new AdabasException("No direct call provided");
+		}
+		this.adcx = adcx;
+	}
+
+	/**
+	 * Add a subcommand. Buffers not used by the command may be null.
+	 *
+	 * @param acbx	Control block with command, DBID of the session and FNR set.
+	 * @param fb	Format buffer.
+	 * @param rb	Record buffer.
+	 * @param sb	Search buffer.
+	 * @param vb	Value  buffer.
+	 * @param ib	ISN    buffer.
+	 *
+	 * @return	subcommand index starting at 0.
+	 *
+	 * @throws AdabasException	No control block or DBID differs from the session.
+	 */
+	public int add(AdabasControlBlockX acbx, AdabasBufferX fb, AdabasBufferX rb, AdabasBufferX sb, AdabasBufferX vb, AdabasBufferX ib) throws AdabasException {
+
+		if (acbx == null) {
+			throw new AdabasException("No Adabas control block provided");
+		}
+		int dbid = adcx.getAcbX().getAcbDBID();
+		if (acbx.getAcbDBID() != dbid) {
+			throw new AdabasException(dbid, String.format("MC subcommand %d DBID %d differs from session DBID", subs.size(), acbx.getAcbDBID()));
+		}
+		subs.add(new SubCommand(acbx, new AdabasBufferX[] { fb, rb, sb, vb, ib }));
+		return subs.size() - 1;
+	}
+
+	/**
+	 * Add the control block and buffers of a direct call as a subcommand.
+	 *
+	 * @param sub	Direct call with control block and buffers set.
+	 *
+	 * @return	subcommand index starting at 0.
+	 *
+	 * @throws AdabasException	No control block or DBID differs from the session.
+	 */
+	public int add(AdabasDirectCallX sub) throws AdabasException {
+
+		return add(sub.getAcbX(), sub.getFB(), sub.getRB(), sub.getSB(), sub.getVB(), sub.getIB());
+	}
+
+	/**
+	 * Get number of subcommands.
+	 *
+	 * @return	number of subcommands.
+	 */
+	public int size() {
+
+		return subs.size();
+	}
+
+	/**
+	 * Remove all subcommands.
+	 */
+	public void clear() {
+
+		subs.clear();
+		executed = 0;
+	}
+
+	/**
+	 * Send all subcommands in one MC call and update their control blocks and buffers.
+	 *
+	 * @return	number of subcommands executed.
+	 *
+	 * @throws Exception	MC call failed other than with response code 16 or reply invalid.
+	 */
+	public int call() throws Exception {
+
+		final String method = "call(): ";
+
+		if (subs.isEmpty()) {
+			throw new AdabasException(adcx.getAcbX().getAcbDBID(), "No MC subcommands added");
+		}
+
+		long length = 0;
+		for (SubCommand sub : subs) {
+			length += sub.length();
+		}
+		int dbid = adcx.getAcbX().getAcbDBID();
+		if (length > Integer.MAX_VALUE) {
+			throw new AdabasException(dbid, String.format("MC record buffer length %d too large", length));
+		}
+
+		boolean ebcdic = adcx.isXtsEBCDIC();
+		if (mcRb == null || mcRb.getAbdSIZE() < length || mcRb.isEbcdic() != ebcdic) {	// grow only when needed
+			mcRb = new AdabasBufferX((int) length, AdabasBufferX.RB, ebcdic);
+		}
+		AdabasBufferX rb = mcRb;
+		rb.setAbdSEND((int) length);
+		rb.setAbdRECV((int) length);											// as for a new buffer of length
+		ByteBuffer bb = rb.getDataBuffer();
+		bb.position(0);
+		for (SubCommand sub : subs) {
+			sub.put(bb);
+		}
+
+		if (mcAcbx == null || mcAcbx.isEBCDIC() != ebcdic) {
+			mcAcbx = new AdabasControlBlockX(ebcdic);
+		}
+		else {
+			mcAcbx.resetACBX();
+		}
+		mcAcbx.setAcbDBID(dbid);
+		mcAcbx.setHostName(adcx.getAcbX().getHostName());
+		mcAcbx.setAcbCMD("MC");
+		mcAcbx.setAcbISQ(subs.size());											// number of subcommands
+
+		adcx.tryCallWith(result, mcAcbx, null, rb);								// rc 16 is no exception
+
+		if (result.isError()) {
+			if (result.getResponseCode() != AdabasException.ADA_016) {
+				AdabasException		e	= result.getException();
+				AdabasFlightRecorder fr	= adcx.getFlightRecorder();
+				if (fr != null)
+					fr.log(e);													// last calls for post-mortem
+				throw e;
+			}
+			if (logger.isDebugEnabled())	logger.debug(method + "MC subcommand failed");
+		}
+
+		executed = 0;
+		int recv = rb.getAbdRECV();
+		bb.position(0);
+		for (SubCommand sub : subs) {
+			if (bb.position() + ENTRY_HDR_LENGTH > recv) {						// not returned
+				sub.response = NOT_EXECUTED;
+				continue;
+			}
+			sub.get(bb, recv, dbid);
+			executed++;
+		}
+		if (logger.isDebugEnabled())	logger.debug(method + "MC rc = " + mcAcbx.getAcbRSP() + ": subcommands executed = " + executed + " of " + subs.size());
+		return executed;
+	}
+
+	/**
+	 * Get number of subcommands executed by the last call.
+	 *
+	 * @return	subcommands executed.
+	 */
+	public int getExecuted() {
+
+		return executed;
+	}
+
+	/**
+	 * Get response code of a subcommand.
+	 *
+	 * @param index	Subcommand index.
+	 *
+	 * @return	response code or {@link #NOT_EXECUTED}.
+	 */
+	public short getResponse(int index) {
+
+		return subs.get(index).response;
+	}
+
+	/**
+	 * Check if any subcommand failed (response code &gt; 3) or was not executed.
+	 *
+	 * @return	true if a subcommand failed.
+	 */
+	public boolean hasErrors() {
+
+		for (SubCommand sub : subs) {
+			if (sub.response == NOT_EXECUTED || sub.response > 3)
+				return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Get exception describing a failed subcommand.
+	 *
+	 * @param index	Subcommand index.
+	 *
+	 * @return	exception or null if the subcommand succeeded.
+	 */
+	public AdabasException getException(int index) {
+
+		SubCommand			sub		= subs.get(index);
+		AdabasControlBlockX	acbx	= sub.acbx;
+		if (sub.response == NOT_EXECUTED) {
+			return new AdabasException(acbx.getAcbDBID(), String.format("MC subcommand %d %s not executed", index, acbx.getAcbCMD()));
+		}
+		if (sub.response <= 3) {
+			return null;
+		}
+		return new AdabasException(acbx.getAcbDBID(), acbx.getAcbCMD(), sub.response, acbx.getAcbERRC(), acbx.getAcbSUBR(), acbx.getAcbSUBS());
+	}
+
+	/**
+	 * One subcommand: control block, buffers and result.
+	 */
+	private static final class SubCommand {
+
+		final AdabasControlBlockX	acbx;										// subcommand control block
+		final AdabasBufferX[]		buffers;									// FB, RB, SB, VB, IB (null if unused)
+		short						response	= NOT_EXECUTED;					// response code of last call
+
+		SubCommand(AdabasControlBlockX acbx, AdabasBufferX[] buffers) {
+			this.acbx		= acbx;
+			this.buffers	= buffers;
+		}
+
+		/**
+		 * Entry length in the MC record buffer.
+		 */
+		long length() {
+
+			long length = ENTRY_HDR_LENGTH + AdabasControlBlockX.ACBX_LENGTH;
+			for (AdabasBufferX abx : buffers) {
+				if (abx != null)
+					length += AdabasBufferX.ABD_LENGTH + abx.getAbdSIZE();
+			}
+			return length;
+		}
+
+		/**
+		 * Pack entry into the MC record buffer.
+		 */
+		void put(ByteBuffer bb) {
+
+			bb.putInt((int) length());
+			bb.putInt(0);
+			bb.put(acbx.getACBArray());
+			for (AdabasBufferX abx : buffers) {
+				if (abx != null) {
+					bb.put(abx.getABDBytes());
+					bb.put(abx.getDataBytes(), 0, abx.getAbdSIZE());
+				}
+			}
+		}
+
+		/**
+		 * Unpack entry from the MC reply record buffer.
+		 */
+		void get(ByteBuffer bb, int recv, int dbid) throws AdabasException {
+
+			int start	= bb.position();
+			int length	= bb.getInt();
+			if (length != length() || start + length > recv) {
+				throw new AdabasException(dbid, String.format("MC reply entry length %d at offset %d invalid; expected %d within RECV %d", length, start, length(), recv));
+			}
+			bb.getInt();
+			bb.get(acbx.getACBArray());
+			response = acbx.getAcbRSP();
+			for (AdabasBufferX abx : buffers) {
+				if (abx != null) {
+					int abd		= bb.position();
+					int size	= abx.getAbdSIZE();
+					int rcv		= (int) bb.getLong(abd + 0x20);					// ABD RECV
+					if (rcv < 0 || rcv > size) {
+						throw new AdabasException(dbid, String.format("MC reply ABD RECV length %d exceeds buffer size %d", rcv, size));
+					}
+					bb.position(abd + AdabasBufferX.ABD_LENGTH);
+					bb.get(abx.getDataBytes(), 0, rcv);
+					abx.setAbdRECV(rcv);
+					bb.position(bb.position() + size - rcv);
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,310 @@
+package com.softwareag.adabas.jas;
+
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Multifetch support for ACBX read commands (L1 to L9, S1) with COP1 = 'M'.
+ *
+ * Sets up the record buffer (RB) and multifetch buffer (MB) pair on a direct call
+ * so one round trip returns up to a limit of records. After the call the MB holds
+ * a count followed by one 16 byte header per record:
+ *
+ * <pre>
+ * MB offset 0x00	4	number of records returned
+ * entry 0x00		4	record length in RB
+ * entry 0x04		4	response code for record
+ * entry 0x08		4	ISN
+ * entry 0x0C		4	ISN quantity (L9/S1)
+ * </pre>
+ *
+ * The records lie back to back in the RB. The iterator returns one reused
+ * {@link Record} positioned on each record in place; no record is copied.
+ *
+ * @author usadva
+ */
+
+/*
+ * Copyright (c) 1998-2021 Software AG, Darmstadt, Germany and/or Software AG USA Inc., Reston, VA, USA,
+ * and/or its subsidiaries and/or its affiliates and/or their licensors. Use, reproduction, transfer,
+ * publication or disclosure is prohibited except as specifically provided for in your License Agreement
+ * with Software AG.
+ */
+
+public class AdabasMultifetch implements Iterable<AdabasMultifetch.Record> {
+
+	public static final int		MB_HDR_LENGTH	= 4;						// MB record count length
+	public static final int		MB_ENTRY_LENGTH	= 16;						// MB entry length per record
+	public static final byte	COP1_MULTIFETCH	= 'M';						// ACBX COP1 multifetch option
+
+	private final AdabasDirectCallX	adcx;									// direct call using the buffers, null if detached
+	private final AdabasControlBlockX	acbx;									// control block of detached calls
+	private final AdabasBufferX		rb;										// record     buffer
+	private final AdabasBufferX		mb;										// multifetch buffer
+	private final int				limit;									// maximum records per call
+
+	final static Logger logger = AdabasTrace.getLogger("com.softwareag.adabas.jas.AdabasMultifetch");
+
+	/**
+	 * Constructor. Allocates the RB and MB for limit records of at most recordLength
+	 * bytes, sets them on the direct call and sets COP1 = 'M' and ISL = limit.
+	 *
+	 * @param adcx			Direct call with FB and command set.
+	 * @param limit			Maximum records per call.
+	 * @param recordLength	Maximum record length per FB.
+	 *
+	 * @throws AdabasException	Invalid limit or record length.
+	 */
+	public AdabasMultifetch(AdabasDirectCallX adcx, int limit, int recordLength) throws AdabasException {
+
+		if (adcx == null) {
+			throw new AdabasException("No direct call provided");
+		}
+		if (limit < 1 || recordLength < 1 || (long) limit * recordLength > Integer.MAX_VALUE) {
+			throw new AdabasException(String.format("Invalid multifetch settings: limit = %d; recordLength = %d", limit, recordLength));
+		}
+		this.adcx	= adcx;
+		this.acbx	= null;
+		this.limit	= limit;
+		this.rb		= new AdabasBufferX(limit * recordLength, AdabasBufferX.RB, adcx.isXtsEBCDIC());
+		this.mb		= new AdabasBufferX(MB_HDR_LENGTH + limit * MB_ENTRY_LENGTH, AdabasBufferX.MB, adcx.isXtsEBCDIC());
+
+		adcx.setRB(rb);
+		adcx.setMB(mb);
+		adcx.getAcbX().setAcbCOP1(COP1_MULTIFETCH);
+		adcx.getAcbX().setAcbISL(limit);										// limit records per call
+	}
+
+	/**
+	 * Constructor for calls sent with their own control block, see
+	 * {@link AdabasDirectCallX#tryCallWith(AdabasResult, AdabasControlBlockX, AdabasBufferX...)}.
+	 * Allocates the RB and MB and sets COP1 = 'M' and ISL = limit in the control block.
+	 *
+	 * @param acbx			Control block of the calls.
+	 * @param ebcdic		Buffer encoding flag.
+	 * @param limit			Maximum records per call.
+	 * @param recordLength	Maximum record length per FB.
+	 *
+	 * @throws AdabasException	Invalid limit or record length.
+	 */
+	AdabasMultifetch(AdabasControlBlockX acbx, boolean ebcdic, int limit, int recordLength) throws AdabasException {
+
+		if (limit < 1 || recordLength < 1 || (long) limit * recordLength > Integer.MAX_VALUE) {
+			throw new AdabasException(String.format("Invalid multifetch settings: limit = %d; recordLength = %d", limit, recordLength));
+		}
+		this.adcx	= null;
+		this.acbx	= acbx;
+		this.limit	= limit;
+		this.rb		= new AdabasBufferX(limit * recordLength, AdabasBufferX.RB, ebcdic);
+		this.mb		= new AdabasBufferX(MB_HDR_LENGTH + limit * MB_ENTRY_LENGTH, AdabasBufferX.MB, ebcdic);
+
+		acbx.setAcbCOP1(COP1_MULTIFETCH);
+		acbx.setAcbISL(limit);													// limit records per call
+	}
+
+	/**
+	 * Remove the multifetch buffer from the direct call and reset COP1.
+	 */
+	public void detach() {
+
+		if (adcx == null) {
+			acbx.setAcbCOP1((byte) ' ');
+			return;
+		}
+		if (adcx.getMB() == mb) {
+			adcx.setMB(null);
+		}
+		adcx.getAcbX().setAcbCOP1((byte) ' ');
+	}
+
+	/**
+	 * Get maximum records per call.
+	 *
+	 * @return	record limit.
+	 */
+	public int getLimit() {
+
+		return limit;
+	}
+
+	/**
+	 * Get record buffer.
+	 *
+	 * @return	record buffer.
+	 */
+	public AdabasBufferX getRB() {
+
+		return rb;
+	}
+
+	/**
+	 * Get multifetch buffer.
+	 *
+	 * @return	multifetch buffer.
+	 */
+	public AdabasBufferX getMB() {
+
+		return mb;
+	}
+
+	/**
+	 * Get number of records returned by the last call. 0 if the command failed
+	 * or the MB was not returned.
+	 *
+	 * @return	number of records.
+	 */
+	public int getCount() {
+
+		AdabasControlBlockX cb = adcx == null ? acbx : adcx.getAcbX();
+		if (cb.getAcbRSP() != 0 || mb.getAbdRECV() < MB_HDR_LENGTH) {
+			return 0;
+		}
+		int count	= mb.getDataBuffer().getInt(0);
+		int max		= (mb.getAbdRECV() - MB_HDR_LENGTH) / MB_ENTRY_LENGTH;	// entries actually received
+		if (count < 0 || count > max) {
+			logger.warn(String.format("getCount(): MB count %d exceeds entries received %d", count, max));
+			count = Math.max(0, Math.min(count, max));
+		}
+		return count;
+	}
+
+	/**
+	 * Get iterator over the records of the last call. The same {@link Record} is
+	 * returned by every next() call, positioned on the next record.
+	 *
+	 * @return	record iterator.
+	 */
+	@Override
+	public Iterator<Record> iterator() {
+
+		final int		count	= getCount();
+		final Record	record	= new Record();
+
+		return new Iterator<Record>() {
+
+			private int	index	= 0;											// next MB entry
+			private int	offset	= 0;											// next record offset in RB
+
+			@Override
+			public boolean hasNext() {
+
+				return index < count;
+			}
+
+			@Override
+			public Record next() {
+
+				if (index >= count) {
+					throw new NoSuchElementException();
+				}
+				ByteBuffer	mbb		= mb.getDataBuffer();
+				int			entry	= MB_HDR_LENGTH + index * MB_ENTRY_LENGTH;
+				record.index	= index;
+				record.offset	= offset;
+				record.length	= mbb.getInt(entry);
+				record.response	= mbb.getInt(entry + 0x04);
+				record.isn		= mbb.getInt(entry + 0x08) & 0xFFFFFFFFL;
+				record.isq		= mbb.getInt(entry + 0x0C) & 0xFFFFFFFFL;
+				if (record.length < 0 || offset + record.length > rb.getAbdRECV()) {
+					throw new IllegalStateException(String.format("multifetch record %d length %d at offset %d exceeds RB received length %d",
+																  index, record.length, offset, rb.getAbdRECV()));
+				}
+				offset += record.length;
+				index++;
+				return record;
+			}
+		};
+	}
+
+	/**
+	 * One multifetch record: MB entry fields plus the record location in the RB.
+	 */
+	public final class Record {
+
+		private int		index;													// record index in MB
+		private int		offset;													// record offset in RB
+		private int		length;													// record length
+		private int		response;												// record response code
+		private long	isn;													// record ISN
+		private long	isq;													// ISN quantity
+
+		/**
+		 * Get record index within the last call.
+		 *
+		 * @return	index starting at 0.
+		 */
+		public int getIndex() {
+			return index;
+		}
+
+		/**
+		 * Get record offset in the RB.
+		 *
+		 * @return	offset.
+		 */
+		public int getOffset() {
+			return offset;
+		}
+
+		/**
+		 * Get record length.
+		 *
+		 * @return	length.
+		 */
+		public int getLength() {
+			return length;
+		}
+
+		/**
+		 * Get record response code.
+		 *
+		 * @return	response code.
+		 */
+		public int getResponse() {
+			return response;
+		}
+
+		/**
+		 * Get record ISN.
+		 *
+		 * @return	ISN.
+		 */
+		public long getIsn() {
+			return isn;
+		}
+
+		/**
+		 * Get ISN quantity (L9/S1).
+		 *
+		 * @return	ISN quantity.
+		 */
+		public long getIsq() {
+			return isq;
+		}
+
+		/**
+		 * Get RB data buffer holding the record at {@link #getOffset()}.
+		 *
+		 * @return	RB data buffer (shared, not a copy).
+		 */
+		public ByteBuffer getBuffer() {
+			return rb.getDataBuffer();
+		}
+
+		/**
+		 * Copy record bytes into an array.
+		 *
+		 * @param dst		Destination array.
+		 * @param dstOffset	Offset in destination.
+		 * @return			number of bytes copied.
+		 */
+		public int copyTo(byte[] dst, int dstOffset) {
+
+			System.arraycopy(rb.getDataBytes(), offset, dst, dstOffset, length);
+			return length;
+		}
+	}
+}
@@ -0,0 +1,304 @@
+package com.softwareag.adabas.jas;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Read-ahead cursor for sequential reads (L2, L3 and other commands repeated with
+ * the same CID).
+ *
+ * A background task repeats the command on the direct call while the application
+ * processes the current record. Each call gets its own record buffer from a ring of
+ * depth + 1 buffers, so up to depth records are read ahead (depth 1 is double
+ * buffering). Response code 3 ends the cursor; any other error is thrown by
+ * {@link #next()} for the record where it occurred.
+ *
+ * The direct call is owned by the cursor until {@link #close()} returned normally;
+ * calls are issued by one task at a time, in order, using its executor
+ * ({@link AdabasDirectCallX#getAsyncExecutor()} or {@link AdabasExecutor#getDefault()}).
+ * Closing releases the CID with RC unless the sequence ended with rc 3, and restores
+ * the command and record buffer of the direct call. Hold commands (L4, L5, L6) are
+ * not supported as records read ahead would stay held.
+ *
+ * <pre>
+ * try (AdabasReadCursor cursor = new AdabasReadCursor(adcx, 2, 48)) {
+ *     while (cursor.next()) {
+ *         process(cursor.getRB(), cursor.getIsn());
+ *     }
+ * }
+ * </pre>
+ *
+ * @author usadva
+ */
+
+/*
+ * Copyright (c) 1998-2021 Software AG, Darmstadt, Germany and/or Software AG USA Inc., Reston, VA, USA,
+ * and/or its subsidiaries and/or its affiliates and/or their licensors. Use, reproduction, transfer,
+ * publication or disclosure is prohibited except as specifically provided for in your License Agreement
+ * with Software AG.
+ */
+
+public class AdabasReadCursor implements AutoCloseable {
+
+	public static final int		DEFAULT_DEPTH	= 1;						// default read ahead depth (double buffering)
+	public static final short	RSP_EOF			= 3;						// end of file response code
+
+	private final AdabasDirectCallX				adcx;						// direct call issuing the reads
+	private final String						cmd;						// command of direct call
+	private final AdabasBufferX					rb;							// record buffer of direct call
+	private final ArrayBlockingQueue<Slot>		free;						// record buffers ready for a call
+	private final ArrayBlockingQueue<Slot>		ready;						// record buffers read, in order, and end
+	private final CountDownLatch				done	= new CountDownLatch(1);	// reader task ended
+	private final AtomicBoolean					restored = new AtomicBoolean(false);	// direct call given back
+	private volatile boolean					closed	= false;			// cursor closed flag
+	private volatile boolean					abandoned = false;			// close() timed out, reader restores
+	private volatile boolean					ended	= false;			// sequence ended with rc 3
+	private boolean								eof		= false;			// EOF or error returned flag
+	private Slot								current	= null;				// record given to application
+
+	final static Logger logger = AdabasTrace.getLogger("com.softwareag.adabas.jas.AdabasReadCursor");
+
+	/**
+	 * Constructor. Starts reading ahead at once.
+	 *
+	 * @param adcx			Direct call with command, CID, FNR and FB (plus SB/VB for L3) set.
+	 * @param depth			Number of records read ahead (1 or more).
+	 * @param recordLength	Record buffer length per FB.
+	 *
+	 * @throws AdabasException	Invalid settings or hold command.
+	 */
+	public AdabasReadCursor(AdabasDirectCallX adcx, int depth, int recordLength) throws AdabasException {
+
+		if (adcx == null) {
+			throw new AdabasException("No direct call provided");
+		}
+		if (depth < 1 || recordLength < 1) {
+			throw new AdabasException(String.format("Invalid read cursor settings: depth = %d; recordLength = %d", depth, recordLength));
+		}
+		String cmd = adcx.getAcbX().getAcbCMD();
+		if (cmd.equals("L4") || cmd.equals("L5") || cmd.equals("L6")) {
+			throw new AdabasException(adcx.getAcbX().getAcbDBID(), "Read cursor does not support hold command " + cmd);
+		}
+		this.adcx	= adcx;
+		this.cmd	= cmd;
+		this.rb		= adcx.getRB();
+		this.free	= new ArrayBlockingQueue<Slot>(depth + 1);
+		this.ready	= new ArrayBlockingQueue<Slot>(depth + 2);						// room for end slot
+		for (int i = 0; i <= depth; i++) {
+			free.add(new Slot(new AdabasBufferX(recordLength, AdabasBufferX.RB, adcx.isXtsEBCDIC())));
+		}
+
+		Executor executor = (adcx.getAsyncExecutor() != null) ? adcx.getAsyncExecutor() : AdabasExecutor.getDefault();
+		try {
+			executor.execute(this::readAhead);
+		}
+		catch (RuntimeException e) {											// e.g. RejectedExecutionException
+			done.countDown();
+			throw new AdabasException(adcx.getAcbX().getAcbDBID(), "Read cursor not started: " + e.getMessage());
+		}
+	}
+
+	/**
+	 * Advance to next record. The record buffer of the previous record is reused.
+	 *
+	 * @return	true if positioned on a record, false at EOF (rc 3) or after close.
+	 *
+	 * @throws Exception	Exception thrown by the read for this record.
+	 */
+	public boolean next() throws Exception {
+
+		if (current != null) {
+			free.put(current);													// give buffer back for read ahead
+			current = null;
+		}
+		if (eof || closed) {
+			return false;
+		}
+		Slot slot = ready.take();												// wait for next record
+		if (slot.error != null) {
+			eof = true;
+			Exception e = slot.error;
+			slot.error = null;
+			if (slot.rb != null)												// not the end slot
+				free.put(slot);
+			throw e;
+		}
+		if (slot.rsp == RSP_EOF) {
+			eof = true;
+			free.put(slot);
+			return false;
+		}
+		current = slot;
+		return true;
+	}
+
+	/**
+	 * Get record buffer of current record.
+	 *
+	 * @return	record buffer or null if not positioned on a record.
+	 */
+	public AdabasBufferX getRB() {
+
+		return (current == null) ? null : current.rb;
+	}
+
+	/**
+	 * Get ISN of current record.
+	 *
+	 * @return	ISN or 0 if not positioned on a record.
+	 */
+	public long getIsn() {
+
+		return (current == null) ? 0 : current.isn;
+	}
+
+	/**
+	 * Stop reading ahead, wait for a read in progress to end, release the CID with RC
+	 * unless the sequence ended with rc 3 and restore command and record buffer of the
+	 * direct call. The direct call may be used again once close() returned normally.
+	 *
+	 * If the read in progress does not end within lock plus send timeout, the direct
+	 * call is still in use: an AdabasException is thrown and the reader task releases
+	 * the CID and restores the direct call when its read ends. The direct call must
+	 * not be used until then.
+	 *
+	 * @throws AdabasException		Read in progress did not end in time.
+	 * @throws Exception			RC failed or interrupted while waiting for the read in progress.
+	 */
+	@Override
+	public void close() throws Exception {
+
+		long timeout = adcx.getXtsLockTimeout() + adcx.getXtsSendTimeout();
+
+		closed = true;
+		if (current != null) {
+			free.offer(current);
+			current = null;
+		}
+		free.offer(new Slot(null));												// wake reader waiting for a buffer
+		if (!done.await(timeout, TimeUnit.MILLISECONDS)) {
+			abandoned = true;
+			if (done.getCount() != 0) {											// reader restores when its read ends
+				throw new AdabasException(adcx.getAcbX().getAcbDBID(),
+					String.format("Read cursor not closed within %d ms: direct call still in use", timeout));
+			}
+		}
+		restore();
+	}
+
+	/**
+	 * Read ahead task: repeat the command into free buffers until EOF, error or close.
+	 */
+	private void readAhead() {
+
+		final String method = "readAhead(): ";
+
+		boolean	last	= false;												// EOF or error slot posted
+		try {
+			while (!closed) {
+				Slot slot = free.take();
+				if (closed || slot.rb == null)
+					break;
+				try {
+					adcx.setRB(slot.rb);
+					adcx.callAdabas();
+					slot.rsp	= adcx.getAcbX().getAcbRSP();
+					slot.isn	= adcx.getAcbX().getAcbISN();
+				}
+				catch (Exception e) {
+					if (logger.isDebugEnabled())	logger.debug(method + "read failed: " + e.getMessage());
+					slot.error = e;
+				}
+				ended	= (slot.rsp == RSP_EOF);
+				last	= (slot.error != null || ended);
+				ready.put(slot);
+				if (last)
+					break;
+			}
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		finally {
+			if (!last && !closed) {												// reader ended abnormally: end next()
+				Slot end	= new Slot(null);
+				end.error	= new AdabasException(adcx.getAcbX().getAcbDBID(), "Read cursor reader ended unexpectedly");
+				ready.offer(end);
+			}
+			done.countDown();
+			if (abandoned) {													// close() gave up waiting
+				try {
+					restore();
+				}
+				catch (Exception e) {
+					logger.error(method + "RC after close failed: " + e.getMessage());
+				}
+			}
+		}
+	}
+
+	/**
+	 * Give the direct call back once the reader ended: RC the CID unless the sequence
+	 * ended with rc 3, then restore command and record buffer. Done once, by close()
+	 * or by the reader if close() timed out.
+	 *
+	 * @throws Exception	RC failed.
+	 */
+	private void restore() throws Exception {
+
+		final String method = "restore(): ";
+
+		if (!restored.compareAndSet(false, true))
+			return;
+		AdabasControlBlockX acbx = adcx.getAcbX();
+		adcx.setRB(rb);
+		if (ended)
+			return;
+		AdabasBufferX	fb	= adcx.getFB();										// RC sends no buffers
+		AdabasBufferX	sb	= adcx.getSB();
+		AdabasBufferX	vb	= adcx.getVB();
+		AdabasBufferX	ib	= adcx.getIB();
+		AdabasBufferX	mb	= adcx.getMB();
+		try {
+			adcx.setFB(null);
+			adcx.setRB(null);
+			adcx.setSB(null);
+			adcx.setVB(null);
+			adcx.setIB(null);
+			adcx.setMB(null);
+			acbx.setAcbCMD("RC");												// release CID of open sequence
+			AdabasResult result = adcx.tryCallAdabas(new AdabasResult());
+			if (!result.isSuccess() && logger.isDebugEnabled())
+				logger.debug(method + "RC CID " + acbx.getAcbCID() + " rc = " + result.getResponseCode());
+		}
+		finally {
+			acbx.setAcbCMD(cmd);
+			adcx.setFB(fb);
+			adcx.setRB(rb);
+			adcx.setSB(sb);
+			adcx.setVB(vb);
+			adcx.setIB(ib);
+			adcx.setMB(mb);
+		}
+	}
+
+	/**
+	 * Record buffer with result of the call that filled it.
+	 */
+	private static final class Slot {
+
+		final AdabasBufferX	rb;													// record buffer
+		short				rsp;												// response code
+		long				isn;												// ISN read
+		Exception			error;												// exception thrown by call
+
+		Slot(AdabasBufferX rb) {
+			this.rb = rb;
+		}
+	}
+}
@@ -0,0 +1,385 @@
+package com.softwareag.adabas.jas;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+/**
+ * Reusable encoder writing one N1/A1 record laid out by an {@link AdabasFormatLayout}.
+ *
+ * Values are written by element index straight into the record buffer; no
+ * intermediate Strings or byte arrays are created. Every value is checked
+ * against its field length and format before it is written, so values Adabas
+ * would reject with response code 52 or 55 fail here with an
+ * {@link AdabasException} instead of after a round trip. Alpha fields are blank
+ * padded, packed and unpacked fields right aligned with leading zeros. Binary
+ * and fixed point fields are written in the byte order of the buffer.
+ *
+ * <pre>
+ * AdabasRecordEncoder enc = new AdabasRecordEncoder(AdabasFormatLayout.compile("AA,8,A,AE,20,A,AN,4,P."));
+ * enc.wrap(rb).putString(aa, "50005800").putString(ae, name).putLong(an, 1200);
+ * enc.finish();
+ * </pre>
+ *
+ * @author usadva
+ */
+
+/*
+ * Copyright (c) 1998-2021 Software AG, Darmstadt, Germany and/or Software AG USA Inc., Reston, VA, USA,
+ * and/or its subsidiaries and/or its affiliates and/or their licensors. Use, reproduction, transfer,
+ * publication or disclosure is prohibited except as specifically provided for in your License Agreement
+ * with Software AG.
+ */
+
+public final class AdabasRecordEncoder {
+
+	private static final byte[]	EBCDIC	= new byte[256];					// ISO-8859-1 to cp037 table
+	private static final long[]	POW10	= new long[19];						// 10^0 to 10^18
+
+	static {
+		POW10[0] = 1;
+		for (int i = 1; i < POW10.length; i++)
+			POW10[i] = POW10[i - 1] * 10;
+		byte[] latin1 = new byte[256];
+		for (int i = 0; i < 256; i++)
+			latin1[i] = (byte) i;
+		byte[] cp037 = new String(latin1, Charset.forName("ISO-8859-1")).getBytes(Charset.forName("cp037"));
+		System.arraycopy(cp037, 0, EBCDIC, 0, 256);
+	}
+
+	private final AdabasFormatLayout	layout;									// record layout
+	private final boolean[]				written;								// elements written for current record
+	private AdabasBufferX				rb;										// record buffer wrapped or null
+	private ByteBuffer					bb;										// record buffer data
+	private int							base;									// record offset in buffer
+	private boolean						ebcdic;									// EBCDIC encoding flag
+
+	/**
+	 * Constructor.
+	 *
+	 * @param layout	Compiled FB layout.
+	 */
+	public AdabasRecordEncoder(AdabasFormatLayout layout) {
+
+		this.layout		= layout;
+		this.written	= new boolean[layout.size()];
+	}
+
+	/**
+	 * Get layout.
+	 *
+	 * @return	layout.
+	 */
+	public AdabasFormatLayout getLayout() {
+
+		return layout;
+	}
+
+	/**
+	 * Start a record at the start of a record buffer. {@link #finish()} sets the
+	 * buffer's send length to the record length.
+	 *
+	 * @param rb	Record buffer.
+	 * @return		this encoder.
+	 *
+	 * @throws AdabasException	Record buffer smaller than the layout record length (rc 53).
+	 */
+	public AdabasRecordEncoder wrap(AdabasBufferX rb) throws AdabasException {
+
+		if (rb.getAbdSIZE() < layout.getRecordLength()) {
+			throw new AdabasException(String.format("RB size %d less than FB record length %d (rc 53)", rb.getAbdSIZE(), layout.getRecordLength()));
+		}
+		wrap(rb.getDataBuffer(), 0, rb.isEbcdic());
+		this.rb = rb;
+		return this;
+	}
+
+	/**
+	 * Start a record at an offset in a buffer.
+	 *
+	 * @param bb		Buffer to write the record to.
+	 * @param offset	Record offset in buffer.
+	 * @param ebcdic	EBCDIC encoding flag.
+	 * @return			this encoder.
+	 */
+	public AdabasRecordEncoder wrap(ByteBuffer bb, int offset, boolean ebcdic) {
+
+		if (offset < 0 || offset + layout.getRecordLength() > bb.capacity()) {
+			throw new IndexOutOfBoundsException(String.format("record at offset %d length %d exceeds buffer capacity %d", offset, layout.getRecordLength(), bb.capacity()));
+		}
+		this.rb		= null;
+		this.bb		= bb;
+		this.base	= offset;
+		this.ebcdic	= ebcdic;
+		Arrays.fill(written, false);
+		for (int i = 0; i < layout.size(); i++) {								// fillers are zero
+			AdabasFormatLayout.Field f = layout.getField(i);
+			if (f.getFormat() == AdabasFormatLayout.FILLER) {
+				fill(base + f.getOffset(), f.getLength(), (byte) 0);
+				written[i] = true;
+			}
+		}
+		return this;
+	}
+
+	/**
+	 * Write alpha (A) or wide (W, UTF-8) field, blank padded.
+	 *
+	 * @param field	Element index.
+	 * @param value	Value.
+	 * @return		this encoder.
+	 *
+	 * @throws AdabasException	Value longer than field or not representable (rc 55).
+	 */
+	public AdabasRecordEncoder putString(int field, CharSequence value) throws AdabasException {
+
+		AdabasFormatLayout.Field	f	= field(field, "AW");
+		int							pos	= base + f.getOffset();
+		int							len	= f.getLength();
+		int							n	= 0;
+		if (f.getFormat() == 'A') {
+			if (value.length() > len)
+				throw tooLong(f, value.length());
+			for (int i = 0; i < value.length(); i++) {							// check all before writing any
+				char c = value.charAt(i);
+				if (c > 0xFF)
+					throw new AdabasException(String.format("FB field %s: character U+%04X not in %s (rc 55)", f.getName(), (int) c, ebcdic ? "cp037" : "ISO-8859-1"));
+			}
+			for (int i = 0; i < value.length(); i++) {
+				char c = value.charAt(i);
+				bb.put(pos + i, ebcdic ? EBCDIC[c] : (byte) c);
+			}
+			n = value.length();
+		}
+		else {
+			if (utf8Length(value) > len)
+				throw tooLong(f, utf8Length(value));
+			for (int i = 0; i < value.length(); i++) {
+				int c = Character.codePointAt(value, i);
+				if (Character.isSupplementaryCodePoint(c))
+					i++;
+				if (c < 0x80) {
+					bb.put(pos + n++, (byte) c);
+				}
+				else if (c < 0x800) {
+					bb.put(pos + n++, (byte) (0xC0 | (c >> 6)));
+					bb.put(pos + n++, (byte) (0x80 | (c & 0x3F)));
+				}
+				else if (c < 0x10000) {
+					bb.put(pos + n++, (byte) (0xE0 | (c >> 12)));
+					bb.put(pos + n++, (byte) (0x80 | ((c >> 6) & 0x3F)));
+					bb.put(pos + n++, (byte) (0x80 | (c & 0x3F)));
+				}
+				else {
+					bb.put(pos + n++, (byte) (0xF0 | (c >> 18)));
+					bb.put(pos + n++, (byte) (0x80 | ((c >> 12) & 0x3F)));
+					bb.put(pos + n++, (byte) (0x80 | ((c >> 6) & 0x3F)));
+					bb.put(pos + n++, (byte) (0x80 | (c & 0x3F)));
+				}
+			}
+		}
+		fill(pos + n, len - n, (f.getFormat() == 'A' && ebcdic) ? (byte) 0x40 : (byte) 0x20);
+		written[field] = true;
+		return this;
+	}
+
+	/**
+	 * Write binary (B), fixed point (F), packed (P) or unpacked (U) field.
+	 *
+	 * @param field	Element index.
+	 * @param value	Value.
+	 * @return		this encoder.
+	 *
+	 * @throws AdabasException	Value does not fit the field (rc 55).
+	 */
+	public AdabasRecordEncoder putLong(int field, long value) throws AdabasException {
+
+		AdabasFormatLayout.Field	f	= field(field, "BFPU");
+		int							pos	= base + f.getOffset();
+		int							len	= f.getLength();
+		switch (f.getFormat()) {
+			case 'B':
+			case 'F':
+				if (len > 8)
+					throw new AdabasException(String.format("FB field %s: binary length %d GT 8 (rc 52)", f.getName(), len));
+				if (len < 8) {
+					long min = (f.getFormat() == 'F') ? -(1L << (len * 8 - 1)) : 0;
+					long max = (f.getFormat() == 'F') ? (1L << (len * 8 - 1)) - 1 : (1L << (len * 8)) - 1;
+					if (value < min || value > max)
+						throw outOfRange(f, value);
+				}
+				putBinary(pos, len, value);
+				break;
+			case 'P':
+				putDecimal(f, pos, len, value, true);
+				break;
+			default:
+				putDecimal(f, pos, len, value, false);
+				break;
+		}
+		written[field] = true;
+		return this;
+	}
+
+	/**
+	 * Write floating point (G) field of length 4 or 8.
+	 *
+	 * @param field	Element index.
+	 * @param value	Value.
+	 * @return		this encoder.
+	 *
+	 * @throws AdabasException	Invalid field length (rc 52).
+	 */
+	public AdabasRecordEncoder putDouble(int field, double value) throws AdabasException {
+
+		AdabasFormatLayout.Field	f	= field(field, "G");
+		int							pos	= base + f.getOffset();
+		if (f.getLength() == 8)
+			bb.putDouble(pos, value);
+		else if (f.getLength() == 4)
+			bb.putFloat(pos, (float) value);
+		else
+			throw new AdabasException(String.format("FB field %s: floating point length %d not 4 or 8 (rc 52)", f.getName(), f.getLength()));
+		written[field] = true;
+		return this;
+	}
+
+	/**
+	 * Write field bytes as is, zero padded.
+	 *
+	 * @param field		Element index.
+	 * @param src		Source array.
+	 * @param srcOffset	Offset in source.
+	 * @param length	Length to copy.
+	 * @return			this encoder.
+	 *
+	 * @throws AdabasException	Length greater than field length (rc 55).
+	 */
+	public AdabasRecordEncoder putBytes(int field, byte[] src, int srcOffset, int length) throws AdabasException {
+
+		AdabasFormatLayout.Field	f	= layout.getField(field);
+		int							pos	= base + f.getOffset();
+		if (length > f.getLength())
+			throw tooLong(f, length);
+		for (int i = 0; i < length; i++)
+			bb.put(pos + i, src[srcOffset + i]);
+		fill(pos + length, f.getLength() - length, (byte) 0);
+		written[field] = true;
+		return this;
+	}
+
+	/**
+	 * Complete the record: check all fields were written and set the RB send
+	 * length when a record buffer was wrapped.
+	 *
+	 * @return	record length.
+	 *
+	 * @throws AdabasException	Field not written.
+	 */
+	public int finish() throws AdabasException {
+
+		for (int i = 0; i < written.length; i++) {
+			if (!written[i])
+				throw new AdabasException(String.format("FB field %s: no value written", layout.getField(i).getName()));
+		}
+		if (rb != null)
+			rb.setAbdSEND(layout.getRecordLength());
+		return layout.getRecordLength();
+	}
+
+	/**
+	 * Get element checking its format.
+	 */
+	private AdabasFormatLayout.Field field(int field, String formats) throws AdabasException {
+
+		AdabasFormatLayout.Field f = layout.getField(field);
+		if (formats.indexOf(f.getFormat()) < 0)
+			throw new AdabasException(String.format("FB field %s: format %c not one of %s", f.getName(), f.getFormat(), formats));
+		return f;
+	}
+
+	/**
+	 * Write binary value in buffer byte order.
+	 */
+	private void putBinary(int pos, int len, long value) {
+
+		switch (len) {
+			case 1:	bb.put(pos, (byte) value);				return;
+			case 2:	bb.putShort(pos, (short) value);		return;
+			case 4:	bb.putInt(pos, (int) value);			return;
+			case 8:	bb.putLong(pos, value);					return;
+			default:
+				break;
+		}
+		boolean bigEndian = bb.order() == ByteOrder.BIG_ENDIAN;
+		for (int i = 0; i < len; i++)
+			bb.put(bigEndian ? pos + len - 1 - i : pos + i, (byte) (value >> (i * 8)));
+	}
+
+	/**
+	 * Write packed (sign C/D) or unpacked (sign zone D/7 as read by AdabasRecordView) decimal.
+	 */
+	private void putDecimal(AdabasFormatLayout.Field f, int pos, int len, long value, boolean packed) throws AdabasException {
+
+		int digits = packed ? len * 2 - 1 : len;
+		if (value == Long.MIN_VALUE || (digits < 19 && Math.abs(value) >= POW10[digits]))
+			throw outOfRange(f, value);
+		boolean	negative	= value < 0;
+		long	v			= Math.abs(value);
+		if (packed) {
+			int b = (int) (v % 10) << 4 | (negative ? 0x0D : 0x0C);
+			v /= 10;
+			bb.put(pos + len - 1, (byte) b);
+			for (int i = len - 2; i >= 0; i--) {
+				b = (int) (v % 10);
+				v /= 10;
+				b |= (int) (v % 10) << 4;
+				v /= 10;
+				bb.put(pos + i, (byte) b);
+			}
+		}
+		else {
+			int zone = ebcdic ? 0xF0 : 0x30;
+			for (int i = len - 1; i >= 0; i--) {
+				bb.put(pos + i, (byte) (zone | (int) (v % 10)));
+				v /= 10;
+			}
+			if (negative)
+				bb.put(pos + len - 1, (byte) ((ebcdic ? 0xD0 : 0x70) | (bb.get(pos + len - 1) & 0x0F)));
+		}
+	}
+
+	/**
+	 * Fill bytes.
+	 */
+	private void fill(int pos, int len, byte b) {
+
+		for (int i = 0; i < len; i++)
+			bb.put(pos + i, b);
+	}
+
+	/**
+	 * UTF-8 length of a value.
+	 */
+	private static int utf8Length(CharSequence value) {
+
+		int n = 0;
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			if (c < 0x80)							n += 1;
+			else if (c < 0x800)						n += 2;
+			else if (Character.isHighSurrogate(c))	{ n += 4; i++; }
+			else									n += 3;
+		}
+		return n;
+	}
+
+	private static AdabasException tooLong(AdabasFormatLayout.Field f, int length) {
+		return new AdabasException(String.format("FB field %s: value length %d GT field length %d (rc 55)", f.getName(), length, f.getLength()));
+	}
+
+	private static AdabasException outOfRange(AdabasFormatLayout.Field f, long value) {
+		return new AdabasException(String.format("FB field %s: value %d does not fit %d,%c (rc 55)", f.getName(), value, f.getLength(), f.getFormat()));
+	}
+}
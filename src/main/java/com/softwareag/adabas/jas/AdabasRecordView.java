@@ -0,0 +1,282 @@
+package com.softwareag.adabas.jas;
+
+import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Reusable flyweight view of one record laid out by an {@link AdabasFormatLayout}.
+ *
+ * The view is positioned on a record with {@link #wrap(ByteBuffer, int, boolean)}
+ * (e.g. once per multifetch record) and reads fields in place by element index.
+ * Numeric getters allocate nothing; only {@link #getString(int)} creates a String.
+ * Binary and fixed point fields are read in the byte order of the buffer.
+ *
+ * <pre>
+ * AdabasFormatLayout	layout	= AdabasFormatLayout.compile("AA,8,A,AE,20,A,AN,4,P.");
+ * AdabasRecordView	view	= new AdabasRecordView(layout);
+ * int					an		= layout.indexOf("AN");
+ * for (AdabasMultifetch.Record rec : mf) {
+ *     total += view.wrap(rec.getBuffer(), rec.getOffset(), false).getLong(an);
+ * }
+ * </pre>
+ *
+ * @author usadva
+ */
+
+/*
+ * Copyright (c) 1998-2021 Software AG, Darmstadt, Germany and/or Software AG USA Inc., Reston, VA, USA,
+ * and/or its subsidiaries and/or its affiliates and/or their licensors. Use, reproduction, transfer,
+ * publication or disclosure is prohibited except as specifically provided for in your License Agreement
+ * with Software AG.
+ */
+
+public final class AdabasRecordView {
+
+	private static final byte	ASCII_BLANK		= 0x20;						// alpha padding ISO-8859-1
+	private static final byte	EBCDIC_BLANK	= 0x40;						// alpha padding cp037
+
+	private final AdabasFormatLayout	layout;									// record layout
+	private ByteBuffer					bb;										// record buffer data
+	private int							base;									// record offset in buffer
+	private boolean						ebcdic;									// EBCDIC encoding flag
+
+	/**
+	 * Constructor.
+	 *
+	 * @param layout	Compiled FB layout.
+	 */
+	public AdabasRecordView(AdabasFormatLayout layout) {
+
+		this.layout = layout;
+	}
+
+	/**
+	 * Get layout.
+	 *
+	 * @return	layout.
+	 */
+	public AdabasFormatLayout getLayout() {
+
+		return layout;
+	}
+
+	/**
+	 * Position the view on the record at the start of a record buffer.
+	 *
+	 * @param rb	Record buffer.
+	 * @return		this view.
+	 *
+	 * @throws AdabasException	Fewer bytes received than the layout record length.
+	 */
+	public AdabasRecordView wrap(AdabasBufferX rb) throws AdabasException {
+
+		if (rb.getAbdRECV() < layout.getRecordLength()) {
+			throw new AdabasException(String.format("RB RECV length %d less than FB record length %d", rb.getAbdRECV(), layout.getRecordLength()));
+		}
+		return wrap(rb.getDataBuffer(), 0, rb.isEbcdic());
+	}
+
+	/**
+	 * Position the view on a record.
+	 *
+	 * @param bb		Buffer holding the record.
+	 * @param offset	Record offset in buffer.
+	 * @param ebcdic	EBCDIC encoding flag.
+	 * @return			this view.
+	 */
+	public AdabasRecordView wrap(ByteBuffer bb, int offset, boolean ebcdic) {
+
+		if (offset < 0 || offset + layout.getRecordLength() > bb.capacity()) {
+			throw new IndexOutOfBoundsException(String.format("record at offset %d length %d exceeds buffer capacity %d", offset, layout.getRecordLength(), bb.capacity()));
+		}
+		this.bb		= bb;
+		this.base	= offset;
+		this.ebcdic	= ebcdic;
+		return this;
+	}
+
+	/**
+	 * Get binary (B), fixed point (F), packed (P) or unpacked (U) field as long.
+	 * Binary fields of 1 to 7 bytes are unsigned, fixed point and 8 byte binary signed.
+	 *
+	 * @param field	Element index.
+	 * @return		value.
+	 */
+	public long getLong(int field) {
+
+		AdabasFormatLayout.Field	f	= layout.getField(field);
+		int							pos	= base + f.getOffset();
+		int							len	= f.getLength();
+		switch (f.getFormat()) {
+			case 'B':
+			case 'F':
+				return getBinary(pos, len, f.getFormat() == 'F');
+			case 'P':
+				return getPacked(pos, len);
+			case 'U':
+				return getUnpacked(pos, len);
+			default:
+				throw new IllegalArgumentException(String.format("field %s format %c not numeric", f.getName(), f.getFormat()));
+		}
+	}
+
+	/**
+	 * Get numeric field as int. See {@link #getLong(int)}.
+	 *
+	 * @param field	Element index.
+	 * @return		value.
+	 */
+	public int getInt(int field) {
+
+		return (int) getLong(field);
+	}
+
+	/**
+	 * Get floating point (G) field of length 4 or 8.
+	 *
+	 * @param field	Element index.
+	 * @return		value.
+	 */
+	public double getDouble(int field) {
+
+		AdabasFormatLayout.Field	f	= layout.getField(field);
+		int							pos	= base + f.getOffset();
+		if (f.getFormat() == 'G' && f.getLength() == 8)
+			return bb.getDouble(pos);
+		if (f.getFormat() == 'G' && f.getLength() == 4)
+			return bb.getFloat(pos);
+		return getLong(field);
+	}
+
+	/**
+	 * Get alpha field length without trailing blanks.
+	 *
+	 * @param field	Element index.
+	 * @return		length.
+	 */
+	public int getTrimmedLength(int field) {
+
+		AdabasFormatLayout.Field	f		= layout.getField(field);
+		int							pos		= base + f.getOffset();
+		byte						blank	= ebcdic ? EBCDIC_BLANK : ASCII_BLANK;
+		int							len		= f.getLength();
+		while (len > 0 && bb.get(pos + len - 1) == blank)
+			len--;
+		return len;
+	}
+
+	/**
+	 * Copy field bytes.
+	 *
+	 * @param field		Element index.
+	 * @param dst		Destination array.
+	 * @param dstOffset	Offset in destination.
+	 * @return			number of bytes copied.
+	 */
+	public int copyTo(int field, byte[] dst, int dstOffset) {
+
+		AdabasFormatLayout.Field	f	= layout.getField(field);
+		int							pos	= base + f.getOffset();
+		for (int i = 0; i < f.getLength(); i++)
+			dst[dstOffset + i] = bb.get(pos + i);
+		return f.getLength();
+	}
+
+	/**
+	 * Compare alpha field without trailing blanks to a value, without creating a String.
+	 *
+	 * @param field	Element index.
+	 * @param value	Encoded value bytes.
+	 * @return		true if equal.
+	 */
+	public boolean equalsBytes(int field, byte[] value) {
+
+		int len = getTrimmedLength(field);
+		if (len != value.length)
+			return false;
+		int pos = base + layout.getField(field).getOffset();
+		for (int i = 0; i < len; i++) {
+			if (bb.get(pos + i) != value[i])
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Get alpha field as String without trailing blanks. Numeric fields are
+	 * returned as their decimal value.
+	 *
+	 * @param field	Element index.
+	 * @return		value.
+	 */
+	public String getString(int field) {
+
+		AdabasFormatLayout.Field f = layout.getField(field);
+		if (f.getFormat() != 'A' && f.getFormat() != 'W')
+			return (f.getFormat() == 'G') ? Double.toString(getDouble(field)) : Long.toString(getLong(field));
+		int		pos	= base + f.getOffset();
+		int		len	= getTrimmedLength(field);
+		byte[]	ba	= new byte[len];
+		for (int i = 0; i < len; i++)
+			ba[i] = bb.get(pos + i);
+		try {
+			return new String(ba, (f.getFormat() == 'W') ? "UTF-8" : (ebcdic ? "cp037" : "ISO-8859-1"));
+		}
+		catch (UnsupportedEncodingException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * Read binary value in buffer byte order.
+	 */
+	private long getBinary(int pos, int len, boolean signed) {
+
+		switch (len) {
+			case 1:	return signed ? bb.get(pos) : bb.get(pos) & 0xFFL;
+			case 2:	return signed ? bb.getShort(pos) : bb.getShort(pos) & 0xFFFFL;
+			case 4:	return signed ? bb.getInt(pos) : bb.getInt(pos) & 0xFFFFFFFFL;
+			case 8:	return bb.getLong(pos);
+			default:
+				break;
+		}
+		if (len > 8)
+			throw new IllegalArgumentException(String.format("binary length %d GT 8", len));
+		long	v			= 0;
+		boolean	bigEndian	= bb.order() == ByteOrder.BIG_ENDIAN;
+		for (int i = 0; i < len; i++)
+			v = (v << 8) | (bb.get(bigEndian ? pos + i : pos + len - 1 - i) & 0xFF);
+		if (signed && len < 8)
+			v = (v << (64 - len * 8)) >> (64 - len * 8);					// sign extend
+		return v;
+	}
+
+	/**
+	 * Read packed decimal value; sign nibble D or B is negative.
+	 */
+	private long getPacked(int pos, int len) {
+
+		long v = 0;
+		for (int i = 0; i < len - 1; i++) {
+			int b = bb.get(pos + i) & 0xFF;
+			v = v * 100 + (b >> 4) * 10 + (b & 0x0F);
+		}
+		int last = bb.get(pos + len - 1) & 0xFF;
+		v = v * 10 + (last >> 4);
+		int sign = last & 0x0F;
+		return (sign == 0x0D || sign == 0x0B) ? -v : v;
+	}
+
+	/**
+	 * Read unpacked decimal value; zone of last byte D (EBCDIC) or 7 (ASCII) is negative.
+	 */
+	private long getUnpacked(int pos, int len) {
+
+		long v = 0;
+		for (int i = 0; i < len; i++)
+			v = v * 10 + (bb.get(pos + i) & 0x0F);
+		int zone = (bb.get(pos + len - 1) & 0xF0) >> 4;
+		return (zone == 0x0D || zone == 0x07) ? -v : v;
+	}
+}
@@ -0,0 +1,173 @@
+package com.softwareag.adabas.jas;
+
+import java.nio.charset.Charset;
+
+/**
+ * Outcome of a direct call sent with {@link AdabasDirectCallX#tryCallAdabas()}.
+ *
+ * Holds the response code, subcode, subcomponent codes and error fields of the
+ * ACBX after the call. Unlike {@link AdabasDirectCallX#callAdabas()}, response
+ * codes above 3 (e.g. 113 ISN not found, 145 record held) are returned here and
+ * not thrown, so no exception is built, formatted or logged for them:
+ *
+ * <pre>
+ * AdabasResult r = adcx.tryCallAdabas();
+ * if (r.getResponseCode() == AdabasException.ADA_145)
+ *     ... retry later
+ * else if (r.isError())
+ *     throw r.getException();
+ * </pre>
+ *
+ * The object is reused and overwritten by the next call. Texts (command, ERRB,
+ * message) are only decoded when asked for.
+ *
+ * @author usadva
+ */
+
+/*
+ * Copyright (c) 1998-2021 Software AG, Darmstadt, Germany and/or Software AG USA Inc., Reston, VA, USA,
+ * and/or its subsidiaries and/or its affiliates and/or their licensors. Use, reproduction, transfer,
+ * publication or disclosure is prohibited except as specifically provided for in your License Agreement
+ * with Software AG.
+ */
+
+public class AdabasResult {
+
+	private static final Charset	ASCII	= Charset.forName("ISO-8859-1");
+	private static final Charset	EBCDIC	= Charset.forName("cp037");
+
+	private int			dbid;													// database ID
+	private short		rc;														// response code
+	private short		sc;														// subcode				ACBX ERRC
+	private short		subrc;													// subcomponent rc		ACBX SUBR
+	private short		subsc;													// subcomponent sc		ACBX SUBS
+	private long		errorOffset;											// offset in buffer		ACBX ERRA
+	private final byte[] cmd	= new byte[2];									// command code			ACBX CMD
+	private final byte[] errb	= new byte[2];									// field short name		ACBX ERRB
+	private boolean		ebcdic;													// encoding of cmd and errb
+
+	/**
+	 * Copy the outcome from a control block after a call.
+	 *
+	 * @param acbx	Control block of the call.
+	 * @return		this result.
+	 */
+	public AdabasResult set(AdabasControlBlockX acbx) {
+
+		byte[] ba	= acbx.getACBArray();
+		dbid		= acbx.getAcbDBID();
+		rc			= acbx.getAcbRSP();
+		errorOffset	= acbx.getAcbERRA();
+		sc			= acbx.getAcbERRC();
+		subrc		= acbx.getAcbSUBR();
+		subsc		= acbx.getAcbSUBS();
+		cmd[0]		= ba[0x06];											// command code is	offset x06	length 2
+		cmd[1]		= ba[0x07];
+		errb[0]		= ba[0x70];											// error char is	offset x70	length 2
+		errb[1]		= ba[0x71];
+		ebcdic		= acbx.isEBCDIC();
+		return this;
+	}
+
+	/**
+	 * Check for rc 0.
+	 *
+	 * @return	true if the command succeeded.
+	 */
+	public boolean isSuccess() {
+
+		return rc == AdabasException.ADA_000;
+	}
+
+	/**
+	 * Check for rc 3.
+	 *
+	 * @return	true if end of file or sequence.
+	 */
+	public boolean isEndOfFile() {
+
+		return rc == AdabasException.ADA_003;
+	}
+
+	/**
+	 * Check for rc above 3, which {@link AdabasDirectCallX#callAdabas()} would throw.
+	 *
+	 * @return	true if the command failed.
+	 */
+	public boolean isError() {
+
+		return rc > 3;
+	}
+
+	/** @return response code. */
+	public short getResponseCode()		{ return rc; }
+	/** @return subcode (ACBX ERRC). */
+	public short getSubCode()			{ return sc; }
+	/** @return subcomponent response code (ACBX SUBR). */
+	public short getSubCompRC()			{ return subrc; }
+	/** @return subcomponent subcode (ACBX SUBS). */
+	public short getSubCompSC()			{ return subsc; }
+	/** @return error offset in buffer (ACBX ERRA). */
+	public long getErrorOffset()		{ return errorOffset; }
+	/** @return database ID. */
+	public int getDBID()				{ return dbid; }
+
+	/**
+	 * Get command code of the call.
+	 *
+	 * @return	command code.
+	 */
+	public String getCommand() {
+
+		return new String(cmd, ebcdic ? EBCDIC : ASCII);
+	}
+
+	/**
+	 * Get short name of the field being processed when the error occurred (ACBX ERRB).
+	 *
+	 * @return	field short name.
+	 */
+	public String getErrorField() {
+
+		return new String(errb, ebcdic ? EBCDIC : ASCII);
+	}
+
+	/**
+	 * Get short response code text, see {@link AdabasException#getRCShortText(int, int)}.
+	 *
+	 * @return	response code text.
+	 */
+	public String getText() {
+
+		return AdabasException.getRCShortText(rc, sc);
+	}
+
+	/**
+	 * Get a new exception for the result with message, DBID and command, as
+	 * {@link AdabasDirectCallX#callAdabas()} throws it. The exception is logged.
+	 *
+	 * @return	exception.
+	 */
+	public AdabasException getException() {
+
+		return new AdabasException(dbid, getCommand(), rc, sc, subrc, subsc);
+	}
+
+	/**
+	 * Get the shared exception for the response code without stack trace, see
+	 * {@link AdabasException#getStackless(short)}. Nothing is built or logged.
+	 *
+	 * @return	exception.
+	 */
+	public AdabasException getStacklessException() {
+
+		return AdabasException.getStackless(rc);
+	}
+
+	@Override
+	public String toString() {
+
+		return "AdabasResult DBID = " + dbid + ": cmd = " + getCommand() + ": rc = " + rc + ": subcode = " + sc
+			 + ": subrc = " + subrc + ": subsc = " + subsc + ": errb = " + getErrorField();
+	}
+}
@@ -0,0 +1,417 @@
+package com.softwareag.adabas.jas;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Compiled search query for S1/S2/S4/L9 calls.
+ *
+ * A predicate tree is compiled once into the search buffer (SB) text and a
+ * value buffer (VB) layout. Compiled queries are cached by tree shape (fields,
+ * lengths, formats, operators), so equal trees share one query. Values are not
+ * part of the shape; per execution they are written by value index straight
+ * into a pooled VB with an {@link AdabasRecordEncoder}. Executions are pooled
+ * per encoding and must match the encoding of the session they are applied to:
+ *
+ * <pre>
+ * AdabasSearchQuery q = AdabasSearchQuery.compile(
+ *     and(eq("AE", 20, 'A'), or(eq("AJ", 3, 'A'), eq("AJ", 3, 'A'))));	// AE,20,A,D,AJ,3,A,R,AJ,3,A.
+ * try (AdabasSearchQuery.Execution ex = q.acquire(adcx.isXtsEBCDIC())) {
+ *     ex.putString(0, "SMITH").putString(1, "NYC").putString(2, "BOS").apply(adcx);
+ *     adcx.callAdabas();
+ * }
+ * </pre>
+ *
+ * The SB has no parentheses; Adabas applies R (or on one field) before D (and)
+ * before O (or). Trees are therefore limited to a condition, an and of conditions
+ * and same-field ors, or an or of those.
+ *
+ * @author usadva
+ */
+
+/*
+ * Copyright (c) 1998-2021 Software AG, Darmstadt, Germany and/or Software AG USA Inc., Reston, VA, USA,
+ * and/or its subsidiaries and/or its affiliates and/or their licensors. Use, reproduction, transfer,
+ * publication or disclosure is prohibited except as specifically provided for in your License Agreement
+ * with Software AG.
+ */
+
+public final class AdabasSearchQuery {
+
+	public static final int		MAX_CACHED		= 1024;						// maximum queries kept in cache
+	public static final int		MAX_IDLE		= 16;						// idle executions kept per query
+
+	private static final ConcurrentHashMap<Node, AdabasSearchQuery>	cache	= new ConcurrentHashMap<Node, AdabasSearchQuery>();
+
+	private final String							sb;							// search buffer text
+	private final AdabasFormatLayout				vbLayout;					// value buffer layout
+	private final ConcurrentLinkedQueue<Execution>	idleAscii	= new ConcurrentLinkedQueue<Execution>();	// pooled ASCII executions
+	private final ConcurrentLinkedQueue<Execution>	idleEbcdic	= new ConcurrentLinkedQueue<Execution>();	// pooled EBCDIC executions
+
+	final static Logger logger = AdabasTrace.getLogger("com.softwareag.adabas.jas.AdabasSearchQuery");
+
+	/**
+	 * Predicate tree node. Nodes are immutable and compare by shape.
+	 */
+	public abstract static class Node {
+
+		Node() {
+		}
+	}
+
+	/**
+	 * Condition on one field: field,length,format and operator.
+	 */
+	public static final class Condition extends Node {
+
+		private final String	field;											// 2 character field name
+		private final int		length;											// value length
+		private final char		format;											// value format
+		private final String	op;												// EQ, NE, GT, GE, LT, LE or S (range)
+
+		Condition(String field, int length, char format, String op) {
+			this.field	= field;
+			this.length	= length;
+			this.format	= format;
+			this.op		= op;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (!(o instanceof Condition))
+				return false;
+			Condition c = (Condition) o;
+			return field.equals(c.field) && length == c.length && format == c.format && op.equals(c.op);
+		}
+
+		@Override
+		public int hashCode() {
+			return ((field.hashCode() * 31 + length) * 31 + format) * 31 + op.hashCode();
+		}
+	}
+
+	/**
+	 * And / or of nodes.
+	 */
+	public static final class Group extends Node {
+
+		private final boolean	and;											// and (true) or or (false)
+		private final Node[]	nodes;											// operands
+
+		Group(boolean and, Node[] nodes) {
+			this.and	= and;
+			this.nodes	= nodes.clone();
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (!(o instanceof Group))
+				return false;
+			Group g = (Group) o;
+			return and == g.and && Arrays.equals(nodes, g.nodes);
+		}
+
+		@Override
+		public int hashCode() {
+			return Arrays.hashCode(nodes) * 2 + (and ? 1 : 0);
+		}
+	}
+
+	/** @return field equal to value. */
+	public static Condition eq(String field, int length, char format)		{ return new Condition(field, length, format, "EQ"); }
+	/** @return field not equal to value. */
+	public static Condition ne(String field, int length, char format)		{ return new Condition(field, length, format, "NE"); }
+	/** @return field greater than value. */
+	public static Condition gt(String field, int length, char format)		{ return new Condition(field, length, format, "GT"); }
+	/** @return field greater than or equal to value. */
+	public static Condition ge(String field, int length, char format)		{ return new Condition(field, length, format, "GE"); }
+	/** @return field less than value. */
+	public static Condition lt(String field, int length, char format)		{ return new Condition(field, length, format, "LT"); }
+	/** @return field less than or equal to value. */
+	public static Condition le(String field, int length, char format)		{ return new Condition(field, length, format, "LE"); }
+	/** @return field from value to value (two values). */
+	public static Condition range(String field, int length, char format)	{ return new Condition(field, length, format, "S"); }
+	/** @return and of nodes. */
+	public static Group and(Node... nodes)									{ return new Group(true, nodes); }
+	/** @return or of nodes. */
+	public static Group or(Node... nodes)									{ return new Group(false, nodes); }
+
+	/**
+	 * Constructor. Use {@link #compile(Node)}.
+	 */
+	private AdabasSearchQuery(String sb, AdabasFormatLayout vbLayout) {
+
+		this.sb			= sb;
+		this.vbLayout	= vbLayout;
+	}
+
+	/**
+	 * Get compiled query for a predicate tree, from cache if the same shape was
+	 * compiled before.
+	 *
+	 * @param root	Predicate tree.
+	 * @return		compiled query.
+	 *
+	 * @throws AdabasException	Tree not expressible as SB.
+	 */
+	public static AdabasSearchQuery compile(Node root) throws AdabasException {
+
+		AdabasSearchQuery query = cache.get(root);
+		if (query != null)
+			return query;
+
+		StringBuilder	sbText	= new StringBuilder();
+		StringBuilder	vbText	= new StringBuilder();
+		if (root instanceof Group && !((Group) root).and) {						// or of ands
+			appendGroup(sbText, vbText, (Group) root, "O", true);
+		}
+		else if (root instanceof Group) {										// and of conditions / same field ors
+			appendGroup(sbText, vbText, (Group) root, "D", false);
+		}
+		else {
+			appendCondition(sbText, vbText, (Condition) root);
+		}
+		sbText.append('.');
+		vbText.append('.');
+
+		query = new AdabasSearchQuery(sbText.toString(), AdabasFormatLayout.compile(vbText.toString(), null));
+		if (cache.size() >= MAX_CACHED) {										// keep cache bounded
+			cache.clear();
+		}
+		AdabasSearchQuery prev = cache.putIfAbsent(root, query);
+		if (logger.isDebugEnabled())	logger.debug("compile(): SB = " + query.sb + " VB = " + vbText);
+		return (prev != null) ? prev : query;
+	}
+
+	/**
+	 * Append operands of a group joined by an SB operator.
+	 */
+	private static void appendGroup(StringBuilder sbText, StringBuilder vbText, Group g, String op, boolean top) throws AdabasException {
+
+		for (int i = 0; i < g.nodes.length; i++) {
+			if (i > 0)
+				sbText.append(',').append(op).append(',');
+			Node n = g.nodes[i];
+			if (n instanceof Condition) {
+				appendCondition(sbText, vbText, (Condition) n);
+			}
+			else if (((Group) n).and) {											// and within or / and
+				appendGroup(sbText, vbText, (Group) n, "D", false);
+			}
+			else if (sameField((Group) n)) {									// or on one field
+				appendGroup(sbText, vbText, (Group) n, "R", false);
+			}
+			else if (top) {														// or within or
+				appendGroup(sbText, vbText, (Group) n, "O", true);
+			}
+			else {
+				throw new AdabasException("Search query not expressible as SB: or of different fields within and");
+			}
+		}
+	}
+
+	/**
+	 * Check an or group holds only conditions on one field.
+	 */
+	private static boolean sameField(Group g) {
+
+		for (Node n : g.nodes) {
+			if (!(n instanceof Condition) || !((Condition) n).field.equals(((Condition) g.nodes[0]).field))
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Append a condition and its value(s).
+	 */
+	private static void appendCondition(StringBuilder sbText, StringBuilder vbText, Condition c) {
+
+		String spec = c.field + ',' + c.length + ',' + c.format;
+		sbText.append(spec);
+		int values = 1;
+		if (c.op.equals("S")) {
+			sbText.append(",S,").append(spec);
+			values = 2;
+		}
+		else if (!c.op.equals("EQ")) {
+			sbText.append(',').append(c.op);
+		}
+		for (int i = 0; i < values; i++) {
+			if (vbText.length() > 0)
+				vbText.append(',');
+			vbText.append(spec);
+		}
+	}
+
+	/**
+	 * Get search buffer text.
+	 *
+	 * @return	SB text.
+	 */
+	public String getSearchBuffer() {
+
+		return sb;
+	}
+
+	/**
+	 * Get value buffer layout; one element per value in SB order.
+	 *
+	 * @return	VB layout.
+	 */
+	public AdabasFormatLayout getValueLayout() {
+
+		return vbLayout;
+	}
+
+	/**
+	 * Get number of values to bind per execution.
+	 *
+	 * @return	value count.
+	 */
+	public int getValueCount() {
+
+		return vbLayout.size();
+	}
+
+	/**
+	 * Get an ASCII execution with its own SB and VB from the pool.
+	 *
+	 * @return	execution; close it to return it to the pool.
+	 *
+	 * @throws AdabasException	Buffer allocation failed.
+	 */
+	public Execution acquire() throws AdabasException {
+
+		return acquire(false);
+	}
+
+	/**
+	 * Get an execution with its own SB and VB from the pool.
+	 *
+	 * @param ebcdic	Buffer encoding flag, see {@link AdabasDirectCallX#isXtsEBCDIC()}.
+	 * @return			execution; close it to return it to the pool.
+	 *
+	 * @throws AdabasException	Buffer allocation failed.
+	 */
+	public Execution acquire(boolean ebcdic) throws AdabasException {
+
+		Execution ex = idle(ebcdic).poll();
+		if (ex == null)
+			ex = new Execution(ebcdic);
+		ex.encoder.wrap(ex.vb);
+		return ex;
+	}
+
+	/**
+	 * Get pool of idle executions for an encoding.
+	 */
+	private ConcurrentLinkedQueue<Execution> idle(boolean ebcdic) {
+
+		return ebcdic ? idleEbcdic : idleAscii;
+	}
+
+	/**
+	 * One execution of the query: SB and VB buffers plus VB encoder.
+	 * Not thread safe; use one execution per call in progress.
+	 */
+	public final class Execution implements AutoCloseable {
+
+		private final AdabasBufferX			sbBuffer;							// search buffer
+		private final AdabasBufferX			vb;									// value buffer
+		private final AdabasRecordEncoder	encoder;							// VB encoder
+		private final boolean				ebcdic;								// SB and VB encoding
+
+		Execution(boolean ebcdic) throws AdabasException {
+			this.ebcdic	= ebcdic;
+			sbBuffer	= new AdabasBufferX(sb, AdabasBufferX.SB, ebcdic);
+			vb			= new AdabasBufferX(vbLayout.getRecordLength(), AdabasBufferX.VB, ebcdic);
+			encoder		= new AdabasRecordEncoder(vbLayout);
+		}
+
+		/**
+		 * Bind alpha value.
+		 *
+		 * @param value	Value index.
+		 * @param s		Value.
+		 * @return		this execution.
+		 * @throws AdabasException	Value does not fit.
+		 */
+		public Execution putString(int value, CharSequence s) throws AdabasException {
+			encoder.putString(value, s);
+			return this;
+		}
+
+		/**
+		 * Bind numeric value.
+		 *
+		 * @param value	Value index.
+		 * @param v		Value.
+		 * @return		this execution.
+		 * @throws AdabasException	Value does not fit.
+		 */
+		public Execution putLong(int value, long v) throws AdabasException {
+			encoder.putLong(value, v);
+			return this;
+		}
+
+		/**
+		 * Check all values are bound and set SB and VB on a direct call.
+		 *
+		 * @param adcx	Direct call.
+		 * @return		this execution.
+		 * @throws AdabasException	Value not bound or encoding differs from the direct call's.
+		 */
+		public Execution apply(AdabasDirectCallX adcx) throws AdabasException {
+			if (adcx.isXtsEBCDIC() != ebcdic) {
+				throw new AdabasException(adcx.getAcbX().getAcbDBID(), String.format("Search query execution is %s, direct call is %s",
+																				   ebcdic ? "EBCDIC" : "ASCII", ebcdic ? "ASCII" : "EBCDIC"));
+			}
+			encoder.finish();
+			sbBuffer.setAbdSEND(sbBuffer.getAbdSIZE());
+			adcx.setSB(sbBuffer);
+			adcx.setVB(vb);
+			return this;
+		}
+
+		/**
+		 * Get search buffer.
+		 *
+		 * @return	SB.
+		 */
+		public AdabasBufferX getSB() {
+			return sbBuffer;
+		}
+
+		/**
+		 * Get value buffer.
+		 *
+		 * @return	VB.
+		 */
+		public AdabasBufferX getVB() {
+			return vb;
+		}
+
+		/**
+		 * Get SB and VB encoding.
+		 *
+		 * @return	true if EBCDIC.
+		 */
+		public boolean isEbcdic() {
+			return ebcdic;
+		}
+
+		/**
+		 * Return execution to the pool of its query and encoding.
+		 */
+		@Override
+		public void close() {
+			ConcurrentLinkedQueue<Execution> pool = idle(ebcdic);
+			if (pool.size() < MAX_IDLE)
+				pool.offer(this);
+		}
+	}
+}
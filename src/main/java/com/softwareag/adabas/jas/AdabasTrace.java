@@ -1,6 +1,7 @@
 package com.softwareag.adabas.jas;
 
-import java.io.UnsupportedEncodingException;
+import java.io.IOException;
+import java.nio.charset.Charset;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -67,213 +68,157 @@ public class AdabasTrace {
 	 */
 	public static String dumpBuffer(String header, byte[] buffer) {
 		
-		StringBuffer 	result		= new StringBuffer(header);			// copy header string to result
-		StringBuffer 	lastLine 	= new StringBuffer();				// working last line
-		StringBuffer 	thisLine 	= new StringBuffer();				// working current line
-		byte[]			baEBCDIC;
-		String 			sEBCDIC 	= null;								// EBCDIC character display
-		int				sameLines	= 0;								// number of identical lines
+		StringBuilder sb = new StringBuilder(header.length() + (buffer.length / 16 + 2) * LINE_LENGTH);
+		return dumpBuffer(sb, header, buffer, 0, buffer.length, Integer.MAX_VALUE).toString();
+	}
+	
+	/**
+	 * Dump part of a byte array in the format of {@link #dumpBuffer(String, byte[])},
+	 * appending to a string builder that may be reused. Addresses are offsets in
+	 * the byte array. Lines equal to the line above are folded into a count.
+	 * 
+	 * @param 	sb			Dump is appended here.
+	 * @param 	header 		Header line string, may be null.
+	 * @param 	buffer 		Byte array containing data to dump.
+	 * @param 	offset		Offset of first byte to dump.
+	 * @param 	length		Number of bytes to dump.
+	 * @param 	maxBytes	Dump at most this many bytes; the number not shown is appended.
+	 * 
+	 * @return	sb.
+	 */
+	public static StringBuilder dumpBuffer(StringBuilder sb, String header, byte[] buffer, int offset, int length, int maxBytes) {
 		
-		int		lines 	= buffer.length / 16;							// 16 bytes per line
-		int		missing	= 0;											// possibly missing bytes in last line
-		if (buffer.length % 16 > 0) {									// calculate missing bytes
-			lines++;													// need one extra line
-			missing = 16 - (buffer.length % 16);						// and number missing bytes
-		}
+		if (header != null)
+			sb.append(header);
 		
-		for (int i=0; i < lines; i++) {									// loop through lines
-			thisLine.append("\n");										// add line feed
-			thisLine.append(String.format("0x%08X", i*16));				// add address prefix
-			thisLine.append("  ");										// add spacing
-			
-			if ((i*16)+8 <= buffer.length) {							// if we have complete 1st 8 bytes
-				thisLine.append(String.format("%02X %02X %02X %02X %02X %02X %02X %02X ", 	// use one hex format for performance
-										  	  buffer[(i*16)+0],
-										  	  buffer[(i*16)+1],
-										  	  buffer[(i*16)+2],
-										  	  buffer[(i*16)+3],
-										  	  buffer[(i*16)+4],
-										  	  buffer[(i*16)+5],
-										  	  buffer[(i*16)+6],
-										  	  buffer[(i*16)+7]));
-			}
-			else {																// else      partial 1st 8 bytes
-				for (int j=0; j<8; j++) {										// loop thru partial 1st 8 bytes
-					if ((i*16)+j >= buffer.length) break;						// check for end
-					thisLine.append(String.format("%02X ", buffer[(i*16)+j]));	// add 1st 8 bytes in hex at this address
-				}
-			}
-			
-			thisLine.append("  ");										// add spacing between 1st and 2nd 8 bytes
-			
-			if ((i*16)+16 <= buffer.length){							// if we have complete 2nd 8 bytes
-				thisLine.append(String.format("%02X %02X %02X %02X %02X %02X %02X %02X ", 	// use one hex format for performance
-					  	  					  buffer[(i*16)+8],
-					  	  					  buffer[(i*16)+9],
-					  	  					  buffer[(i*16)+10],
-					  	  					  buffer[(i*16)+11],
-					  	  					  buffer[(i*16)+12],
-					  	  					  buffer[(i*16)+13],
-					  	  					  buffer[(i*16)+14],
-					  	  					  buffer[(i*16)+15]));
-			}
-			else {																// else      partial 2nd 8 bytes
-				for (int j=8; j<16; j++) {										// loop thru partial 2nd 8 bytes
-					if ((i*16)+j >= buffer.length) break;						// check for end
-					thisLine.append(String.format("%02X ", buffer[(i*16)+j]));	// add 2nd 8 bytes in hex at this address
-				}
-			}
-			
-			thisLine.append("  ");										// add spacing after 2nd 8 bytes
-			
-			if (missing > 0 && i == lines - 1) {						// oddball size / last line
-				for (int j=0; j < missing; j++) {						// loop thru missing bytes
-					thisLine.append("   ");								// substitute blanks
-				}
-			}
-			
-			// now do the same for character representation
-			
-			thisLine.append("{");										// enclose in braces
-			
-			if ((i*16)+8 <= buffer.length) {							// if we have complete 1st 8 bytes
-				thisLine.append(String.format("%c%c%c%c%c%c%c%c", 		// use one char format for performance
-											  tranAsciiByte(buffer[(i*16)+0]),
-											  tranAsciiByte(buffer[(i*16)+1]),
-											  tranAsciiByte(buffer[(i*16)+2]),
-											  tranAsciiByte(buffer[(i*16)+3]),
-											  tranAsciiByte(buffer[(i*16)+4]),
-											  tranAsciiByte(buffer[(i*16)+5]),
-											  tranAsciiByte(buffer[(i*16)+6]),
-											  tranAsciiByte(buffer[(i*16)+7])));
-			}
-			else {														// else      partial 1st 8 bytes
-				for (int j=0; j<8; j++) {								// loop thru partial 1st 8 bytes for char
-					if ((i*16)+j >= buffer.length) {
-						thisLine.append(" ");
-					}
-					else {
-						thisLine.append(String.format("%c", tranAsciiByte(buffer[(i*16)+j])));	// add 1st 8 bytes as char
-					}
-				}
-			}
-			
-			thisLine.append(" ");										// add spacing between 1st and 2nd 8 bytes
-			
-			if ((i*16)+16 <= buffer.length) {							// if we have complete 2nd 8 bytes
-				thisLine.append(String.format("%c%c%c%c%c%c%c%c", 		// use one char format for performance
-											  tranAsciiByte(buffer[(i*16)+8]),
-											  tranAsciiByte(buffer[(i*16)+9]),
-											  tranAsciiByte(buffer[(i*16)+10]),
-											  tranAsciiByte(buffer[(i*16)+11]),
-											  tranAsciiByte(buffer[(i*16)+12]),
-											  tranAsciiByte(buffer[(i*16)+13]),
-											  tranAsciiByte(buffer[(i*16)+14]),
-											  tranAsciiByte(buffer[(i*16)+15])));
-			}
-			else {														// else         partial 2nd 8 bytes
-				for (int j=8; j<16; j++) {								// loop through partial 2nd 8 bytes for char
-					if ((i*16)+j >= buffer.length) {
-						thisLine.append(" ");
-					}
-					else {
-						thisLine.append(String.format("%c", tranAsciiByte(buffer[(i*16)+j])));	// add 2nd 8 bytes as char
-					}
-				}
-			}
-			
-			thisLine.append("}");											// enclose in braces
-			
-			thisLine.append("    ");										// add spacing between ASCII and EBCDIC string
-			
-			// now do the same for EBCDIC character representation
-			
-			thisLine.append("{");											// enclose in braces
-			
-			if ((i*16)+8 <= buffer.length) {								// if we have complete 1st 8 bytes
-				baEBCDIC = tranEbcdicBytes(	buffer, 	i*16, 8);
-				try {sEBCDIC = new String(	baEBCDIC,	i*16, 8, "cp037");} catch (UnsupportedEncodingException e) {}
-				thisLine.append(sEBCDIC);
-			}
-			else {															// else      partial 1st 8 bytes
-				for (int j=0; j<8; j++) {									// loop thru partial 1st 8 bytes for char
-					if ((i*16)+j >= buffer.length) break;					// check for end
-					baEBCDIC = tranEbcdicBytes(	buffer, 	(i*16) + j, 1);
-					try {sEBCDIC = new String(	baEBCDIC,	(i*16) + j, 1, "cp037");} catch (UnsupportedEncodingException e) {}
-					thisLine.append(sEBCDIC);
-				}
-			}
-			
-			thisLine.append(" ");											// add spacing between 1st and 2nd 8 bytes
-			
-			if ((i*16)+16 <= buffer.length) {								// if we have complete 2nd 8 bytes
-				baEBCDIC = tranEbcdicBytes(	buffer, 	(i*16) + 8, 8);
-				try {sEBCDIC = new String(	baEBCDIC,	(i*16) + 8, 8, "cp037");} catch (UnsupportedEncodingException e) {}
-				thisLine.append(sEBCDIC);
-			}
-			else {															// else         partial 2nd 8 bytes
-				for (int j=8; j<16; j++) {									// loop through partial 2nd 8 bytes for char
-					if ((i*16)+j >= buffer.length) break;					// check for end
-					baEBCDIC = tranEbcdicBytes(	buffer, 	(i*16) + j, 1);
-					try {sEBCDIC = new String(	baEBCDIC, 	(i*16) + j, 1, "cp037");} catch (UnsupportedEncodingException e) {}
-					thisLine.append(sEBCDIC);
-				}
+		int	shown		= Math.max(0, Math.min(length, maxBytes));					// bytes dumped
+		int	end			= offset + shown;
+		int	sameLines	= 0;														// number of identical lines
+		
+		for (int p = offset; p < end; p += 16) {									// 16 bytes per line
+			int count = Math.min(16, end - p);
+			if (p > offset && count == 16 && sameBytes(buffer, p - 16, p)) {		// duplicate of line above ?
+				sameLines++;														// just bump counter
+				continue;
 			}
-			
-			thisLine.append("}");																		// enclose in braces
-			
-			if (lastLine.length() > 0 &&																// previous line and
-				thisLine.toString().substring(12).compareTo(lastLine.toString().substring(12)) == 0) {	// this one duplicate without addr ?
-				sameLines++;																			// just bump counter
-				thisLine = new StringBuffer();															// and get new current line
+			if (sameLines > 0) {													// any earlier repeated lines ?
+				appendSameLines(sb, sameLines);
+				sameLines = 0;
 			}
-			else {																						// else new line different content
-				if (sameLines > 0) {																	// any earlier repeated lines ?
-					result.append("\n            ");													// append empty addr prefix
-					result.append(sameLines + " lines same as above ..");								// append same lines message
-					sameLines = 0;																		// reset counter
-				}
-				result.append(thisLine.toString());														// append new line to result
-				lastLine = new StringBuffer(thisLine.toString());										// remember this line as last
-				thisLine = new StringBuffer();															// and get new current line
+			appendLine(sb, buffer, p, count);
+		}
+		if (sameLines > 0)
+			appendSameLines(sb, sameLines);
+		if (length > shown)
+			sb.append("\n            ").append(length - shown).append(" more bytes not shown ..");
+		
+		return sb;
+	}
+	
+	/**
+	 * Dump part of a byte array like {@link #dumpBuffer(StringBuilder, String, byte[], int, int, int)}
+	 * to any appendable, e.g. a Writer.
+	 * 
+	 * @param 	out			Dump is appended here.
+	 * @param 	header 		Header line string, may be null.
+	 * @param 	buffer 		Byte array containing data to dump.
+	 * @param 	offset		Offset of first byte to dump.
+	 * @param 	length		Number of bytes to dump.
+	 * @param 	maxBytes	Dump at most this many bytes; the number not shown is appended.
+	 * 
+	 * @return	out.
+	 * 
+	 * @throws	IOException	Appending failed.
+	 */
+	public static <A extends Appendable> A dumpBuffer(A out, String header, byte[] buffer, int offset, int length, int maxBytes) throws IOException {
+		
+		if (out instanceof StringBuilder) {
+			dumpBuffer((StringBuilder) out, header, buffer, offset, length, maxBytes);
+			return out;
+		}
+		StringBuilder sb = dumpBuilder.get();										// reused per thread
+		sb.setLength(0);
+		out.append(dumpBuffer(sb, header, buffer, offset, length, maxBytes));
+		if (sb.capacity() > MAX_KEPT_CAPACITY)										// do not keep large dumps
+			dumpBuilder.remove();
+		return out;
+	}
+	
+	private static final int		LINE_LENGTH			= 106;						// characters per dump line
+	private static final int		MAX_KEPT_CAPACITY	= 64 * 1024;				// largest reused builder
+	private static final char[]		HEX					= "0123456789ABCDEF".toCharArray();
+	private static final char[]		ASCII_CHAR			= new char[256];			// ASCII display by byte
+	private static final char[]		EBCDIC_CHAR			= new char[256];			// EBCDIC display by byte
+	
+	private static final ThreadLocal<StringBuilder> dumpBuilder = ThreadLocal.withInitial(() -> new StringBuilder(1024));
+	
+	static {
+		byte[]	b		= new byte[1];
+		Charset	cp037	= Charset.forName("cp037");
+		for (int i = 0; i < 256; i++) {
+			b[0]			= (byte) i;
+			ASCII_CHAR[i]	= (char) tranAsciiByte(b[0]);
+			EBCDIC_CHAR[i]	= new String(tranEbcdicBytes(b, 0, 1), cp037).charAt(0);
+		}
+	}
+	
+	/**
+	 * Append one dump line of count (1-16) bytes.
+	 */
+	private static void appendLine(StringBuilder sb, byte[] buffer, int p, int count) {
+		
+		sb.append('\n').append('0').append('x');									// address prefix
+		for (int shift = 28; shift >= 0; shift -= 4)
+			sb.append(HEX[(p >>> shift) & 0x0F]);
+		sb.append("  ");
+		
+		for (int j = 0; j < 16; j++) {												// hex display
+			if (j == 8)
+				sb.append("  ");													// spacing between 1st and 2nd 8 bytes
+			if (j < count) {
+				int v = buffer[p + j] & 0xFF;
+				sb.append(HEX[v >>> 4]).append(HEX[v & 0x0F]).append(' ');
 			}
-			
-//			possible alternate same lines algorithm shows no substantial performance gain - usadva 2013.01.08
-			
-//			if (i == 0) {																// if 1st line
-//				result.append(thisLine.toString());										// just append it
-//				thisLine = new StringBuffer();											// and get new current line
-//			}
-//			else {																		// else subsequent line
-//				boolean different = false;												// difference flag
-//				for (int k=0; k<16; k++) {												// loop through bytes in line
-//					if ((i*16)+k >= buffer.length) break;								// check for end of buffer
-//					if (buffer[(i*16)+k] != buffer[((i-1)*16)+k]) {						// check these bytes against previous line
-//						different = true;												// if any one different set flag
-//						if (sameLines > 0) {											// any earlier repeated lines?
-//							result.append("\n            ");							// append empty addr prefix
-//							result.append(sameLines + " lines same as above ..");		// append same lines message
-//							sameLines = 0;												// reset counter
-//						}
-//						result.append(thisLine.toString());								// append new line to result
-//						thisLine = new StringBuffer();									// and get new current line
-//						break;															// break out of loop
-//					}
-//				}
-//				if (different == false) {												// different line ?
-//					sameLines++;														// bump counter
-//					thisLine = new StringBuffer();										// and get new current line
-//				}
-//			}
 		}
-
-		if (sameLines > 0) {
-			result.append("\n            ");
-			result.append(sameLines + " lines same as above ..");
-			sameLines = 0;
+		sb.append("  ");
+		for (int j = count; j < 16; j++)											// substitute blanks for missing bytes
+			sb.append("   ");
+		
+		sb.append('{');																// ASCII display, padded
+		for (int j = 0; j < 16; j++) {
+			if (j == 8)
+				sb.append(' ');
+			sb.append(j < count ? ASCII_CHAR[buffer[p + j] & 0xFF] : ' ');
 		}
+		sb.append("}    {");
+		for (int j = 0; j < count; j++) {											// EBCDIC display, not padded
+			if (j == 8)
+				sb.append(' ');
+			sb.append(EBCDIC_CHAR[buffer[p + j] & 0xFF]);
+		}
+		if (count <= 8)
+			sb.append(' ');
+		sb.append('}');
+	}
+	
+	/**
+	 * Append the count of folded lines.
+	 */
+	private static void appendSameLines(StringBuilder sb, int sameLines) {
 		
-		return result.toString();											// final result
+		sb.append("\n            ").append(sameLines).append(" lines same as above ..");
+	}
+	
+	/**
+	 * Compare 16 bytes at two offsets.
+	 */
+	private static boolean sameBytes(byte[] buffer, int a, int b) {
+		
+		for (int j = 0; j < 16; j++) {
+			if (buffer[a + j] != buffer[b + j])
+				return false;
+		}
+		return true;
 	}
 
 	/**
@@ -0,0 +1,248 @@
+package com.softwareag.adabas.jas;
+
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Update session that groups commands into transactions and issues ET by policy.
+ *
+ * Commands are sent with {@link #call()} instead of {@link AdabasDirectCallX#callAdabas()}.
+ * Commands that put ISNs into hold (A1, E1, N1, N2, L4, L5, L6, S4) count as
+ * updates; the record buffer sent counts as update bytes. ET is issued after the
+ * call when the transaction reaches the update count, the byte volume or its
+ * age limit, on {@link #commitIfDue()}, {@link #commit()} and {@link #close()}.
+ *
+ * When a command fails with rc 47 (hold queue full) while the transaction holds
+ * updates, ET is issued and the command retried once; the update limit is then
+ * lowered to the number of updates the hold queue took. Rc 9 (transaction backed
+ * out) drops the uncommitted count. Commit latency is recorded per ET:
+ *
+ * <pre>
+ * try (AdabasTransaction tx = new AdabasTransaction(adcx)) {
+ *     tx.setMaxUpdates(500);
+ *     for (...) {
+ *         ... set N1 control block and buffers
+ *         tx.call();
+ *     }
+ * }																		// ET for the rest
+ * </pre>
+ *
+ * Not thread safe; one transaction per session.
+ *
+ * @author usadva
+ */
+
+/*
+ * Copyright (c) 1998-2021 Software AG, Darmstadt, Germany and/or Software AG USA Inc., Reston, VA, USA,
+ * and/or its subsidiaries and/or its affiliates and/or their licensors. Use, reproduction, transfer,
+ * publication or disclosure is prohibited except as specifically provided for in your License Agreement
+ * with Software AG.
+ */
+
+public class AdabasTransaction implements AutoCloseable {
+
+	public static final int		DEFAULT_MAX_UPDATES	= 100;						// updates per transaction
+	public static final long	DEFAULT_MAX_BYTES	= 1024 * 1024;				// update bytes per transaction
+	public static final long	DEFAULT_MAX_MILLIS	= 1000;						// transaction age in ms
+
+	private static final String	HOLD_COMMANDS		= "A1E1N1N2L4L5L6S4";		// commands putting ISNs into hold
+
+	private final AdabasDirectCallX		adcx;									// update session
+	private int							maxUpdates	= DEFAULT_MAX_UPDATES;		// ET after this many updates
+	private long						maxBytes	= DEFAULT_MAX_BYTES;		// ET after this many bytes
+	private long						maxMillis	= DEFAULT_MAX_MILLIS;		// ET after this age
+
+	private int							updates;								// uncommitted updates
+	private long						bytes;									// uncommitted update bytes
+	private long						started;								// nanoTime of first uncommitted update
+	private long						commits;								// ETs issued
+	private long						committed;								// updates committed
+	private long						holdQueueFull;							// rc 47 retries
+	private long						commitNanos;							// total ET latency
+	private long						maxCommitNanos;							// largest ET latency
+	private long						lastCommitNanos;						// last ET latency
+
+	final static Logger logger = AdabasTrace.getLogger("com.softwareag.adabas.jas.AdabasTransaction");
+
+	/**
+	 * Constructor.
+	 *
+	 * @param adcx	Direct call of an update session (OP done).
+	 *
+	 * @throws AdabasException	No direct call provided.
+	 */
+	public AdabasTransaction(AdabasDirectCallX adcx) throws AdabasException {
+
+		if (adcx == null) {
+			throw new AdabasException("No direct call provided");
+		}
+		this.adcx = adcx;
+	}
+
+	/**
+	 * Send the command set on the direct call and issue ET if the policy says so.
+	 *
+	 * @throws Exception	Command or ET failed.
+	 */
+	public void call() throws Exception {
+
+		final String method = "call(): ";
+
+		String	cmd		= adcx.getAcbX().getAcbCMD();
+		boolean	hold	= HOLD_COMMANDS.indexOf(cmd) % 2 == 0;
+		try {
+			adcx.callAdabas();
+		}
+		catch (AdabasException e) {
+			if (e.getResponseCode() == AdabasException.ADA_009) {			// backed out by the nucleus
+				reset();
+				throw e;
+			}
+			if (e.getResponseCode() != AdabasException.ADA_047 || updates == 0) {
+				throw e;
+			}
+			holdQueueFull++;
+			maxUpdates = Math.max(1, Math.min(maxUpdates, updates));			// what the hold queue takes
+			if (logger.isDebugEnabled())	logger.debug(method + "rc 47 after " + updates + " updates: ET and retry " + cmd);
+			commit();
+			adcx.callAdabas();
+		}
+
+		if (hold) {
+			if (updates++ == 0)
+				started = System.nanoTime();
+			if (adcx.getRB() != null)
+				bytes += adcx.getRB().getAbdSEND();
+		}
+		if (isDue(updates > 0 ? System.nanoTime() : 0))
+			commit();
+	}
+
+	/**
+	 * Issue ET if the transaction reached a limit, e.g. its age while no updates come.
+	 *
+	 * @return	true if ET was issued.
+	 *
+	 * @throws Exception	ET failed.
+	 */
+	public boolean commitIfDue() throws Exception {
+
+		if (updates == 0 || !isDue(System.nanoTime()))
+			return false;
+		commit();
+		return true;
+	}
+
+	/**
+	 * Issue ET for the uncommitted updates, if any.
+	 *
+	 * @throws Exception	ET failed.
+	 */
+	public void commit() throws Exception {
+
+		if (updates == 0)
+			return;
+		long start = System.nanoTime();
+		issue("ET");
+		long nanos = System.nanoTime() - start;
+
+		commits++;
+		committed		+= updates;
+		commitNanos		+= nanos;
+		lastCommitNanos	 = nanos;
+		maxCommitNanos	 = Math.max(maxCommitNanos, nanos);
+		if (logger.isDebugEnabled())	logger.debug("commit(): ET " + updates + " updates " + bytes + " bytes in " + nanos / 1000 + " us");
+		reset();
+	}
+
+	/**
+	 * Issue BT for the uncommitted updates, if any.
+	 *
+	 * @throws Exception	BT failed.
+	 */
+	public void rollback() throws Exception {
+
+		if (updates == 0)
+			return;
+		issue("BT");
+		reset();
+	}
+
+	/**
+	 * Commit the uncommitted updates.
+	 *
+	 * @throws Exception	ET failed.
+	 */
+	@Override
+	public void close() throws Exception {
+
+		commit();
+	}
+
+	/** @return ET after this many updates. */
+	public int getMaxUpdates()						{ return maxUpdates; }
+	/** @param maxUpdates ET after this many updates. */
+	public void setMaxUpdates(int maxUpdates)		{ this.maxUpdates = maxUpdates; }
+	/** @return ET after this many update bytes. */
+	public long getMaxBytes()						{ return maxBytes; }
+	/** @param maxBytes ET after this many update bytes. */
+	public void setMaxBytes(long maxBytes)			{ this.maxBytes = maxBytes; }
+	/** @return ET after this transaction age in ms. */
+	public long getMaxMillis()						{ return maxMillis; }
+	/** @param maxMillis ET after this transaction age in ms. */
+	public void setMaxMillis(long maxMillis)		{ this.maxMillis = maxMillis; }
+
+	/** @return uncommitted updates. */
+	public int getUncommitted()						{ return updates; }
+	/** @return ETs issued. */
+	public long getCommits()						{ return commits; }
+	/** @return updates committed. */
+	public long getCommitted()						{ return committed; }
+	/** @return commands retried after rc 47. */
+	public long getHoldQueueFull()					{ return holdQueueFull; }
+	/** @return total ET latency in ns. */
+	public long getCommitNanos()					{ return commitNanos; }
+	/** @return largest ET latency in ns. */
+	public long getMaxCommitNanos()					{ return maxCommitNanos; }
+	/** @return last ET latency in ns. */
+	public long getLastCommitNanos()				{ return lastCommitNanos; }
+	/** @return average ET latency in ns. */
+	public long getAverageCommitNanos()				{ return commits == 0 ? 0 : commitNanos / commits; }
+
+	/**
+	 * Check the commit policy.
+	 */
+	private boolean isDue(long now) {
+
+		return updates >= maxUpdates || bytes >= maxBytes || (updates > 0 && now - started >= maxMillis * 1000000L);
+	}
+
+	/**
+	 * Drop the uncommitted state.
+	 */
+	private void reset() {
+
+		updates	= 0;
+		bytes	= 0;
+	}
+
+	/**
+	 * Issue ET or BT on the session.
+	 */
+	private void issue(String cmd) throws Exception {
+
+		AdabasControlBlockX	acbx	= adcx.getAcbX();
+		AdabasControlBlockX	etAcbx	= new AdabasControlBlockX(adcx.isXtsEBCDIC());
+		etAcbx.setAcbDBID(acbx.getAcbDBID());
+		etAcbx.setHostName(acbx.getHostName());
+		etAcbx.setAcbCMD(cmd);
+
+		adcx.callWith(etAcbx);
+	}
+
+	@Override
+	public String toString() {
+
+		return "AdabasTransaction uncommitted = " + updates + ": commits = " + commits + ": committed = " + committed
+			 + ": avg ET us = " + getAverageCommitNanos() / 1000 + ": rc 47 = " + holdQueueFull;
+	}
+}
@@ -282,7 +282,7 @@ public class N1Exception extends Exception {
 
 		protected short		rc;									// decimal response code
 		protected String	rcText;									// response code  error text
-		protected String	fullText;								// combined		  error text
+		private	  String	fullText;								// combined		  error text, formatted on first use
 		protected String	shortText;								// combined short error text
 		
 		/**
@@ -295,12 +295,41 @@ public class N1Exception extends Exception {
 		private RC(short rc, String text) {
 			this.rc 	= rc;
 			this.rcText 	= text;
-			this.fullText	= String.format("JASN1%03d : rc = %03d : %s", 	this.rc, this.rc, this.rcText);
 			this.shortText	= this.rcText;
 		}
+		
+		/**
+		 * Get combined error text, e.g. JASN1-05 : rc = -05 : Invalid node
+		 * 
+		 * @return	Error text.
+		 */
+		protected String getFullText() {
+			String t = fullText;
+			if (t == null) {
+				StringBuilder sb = new StringBuilder(32 + rcText.length()).append("JASN1");
+				ResponseCatalog.pad(sb, rc, 3).append(" : rc = ");
+				ResponseCatalog.pad(sb, rc, 3).append(" : ");
+				t = fullText = sb.append(rcText).toString();
+			}
+			return t;
+		}
 
 	}
 	
+	private static final RC[]				rcValues	= RC.values();			// response codes in declaration order
+	private static final ResponseCatalog	rcCatalog	= newCatalog();			// response codes by rc
+	
+	/**
+	 * Index the response code enumeration.
+	 */
+	private static ResponseCatalog newCatalog() {
+		
+		int[] rcs = new int[rcValues.length];
+		for (int i = 0; i < rcValues.length; i++)
+			rcs[i] = rcValues[i].rc;
+		return new ResponseCatalog(rcs, null);
+	}
+	
 	/**
 	 * Get response code text from enumeration using only rc.
 	 * Returns 1st match on rc only.
@@ -313,13 +342,9 @@ public class N1Exception extends Exception {
 	 */
 	public static String getRCText(int rc) {
 		
-		for (RC responseCode:RC.values()) {							// loop thru enumeration values
-			if (responseCode.rc == rc) {							// rc value match?
-				return responseCode.fullText;						// return associated text
-			}
-		}
+		int i = rcCatalog.first(rc);								// 1st definition with rc
 		
-		return "Unknown";									// not found
+		return i == ResponseCatalog.NOT_FOUND ? "Unknown" : rcValues[i].getFullText();
 	}
 	
 	/**
@@ -334,13 +359,9 @@ public class N1Exception extends Exception {
 	 */
 	public static String getRCShortText(int rc) {
 		
-		for (RC responseCode:RC.values()) {							// loop thru enumeration values
-			if (responseCode.rc == rc) {							// rc value match?
-				return responseCode.rcText;						// return associated short text
-			}
-		}
+		int i = rcCatalog.first(rc);								// 1st definition with rc
 		
-		return "Unknown";									// not found
+		return i == ResponseCatalog.NOT_FOUND ? "Unknown" : rcValues[i].rcText;
 	}
 		
 	/**
@@ -351,10 +372,10 @@ public class N1Exception extends Exception {
 	
 	public static void printAllRCTexts() {
 
-		for (RC responseCode : RC.values()) {						// loop thru enum values
-			System.out.println(responseCode.fullText);				// print full response & subcode text
+		for (RC responseCode : rcValues) {							// loop thru enum values
+			System.out.println(responseCode.getFullText());			// print full response & subcode text
 		}
-		System.out.println(String.format("Total number of ResponseCodes = %d", RC.values().length));
+		System.out.println(String.format("Total number of ResponseCodes = %d", rcValues.length));
 	}
 	
 
@@ -733,6 +754,20 @@ public class N1Exception extends Exception {
 		}
 	}
 
+	private static final XTSRC[]			xtsValues	= XTSRC.values();		// XTS response codes in declaration order
+	private static final ResponseCatalog	xtsCatalog	= newXtsCatalog();		// XTS response codes by rc
+	
+	/**
+	 * Index the XTS response code enumeration.
+	 */
+	private static ResponseCatalog newXtsCatalog() {
+		
+		int[] rcs = new int[xtsValues.length];
+		for (int i = 0; i < xtsValues.length; i++)
+			rcs[i] = xtsValues[i].rc;
+		return new ResponseCatalog(rcs, null);
+	}
+
 	/**
 	 * Get response code text from enumeration using only rc.
 	 * Returns 1st match on rc only.
@@ -742,13 +777,9 @@ public class N1Exception extends Exception {
 	 */
 	public static String getXTSRCText(int rc) {
 		
-		for (XTSRC responseCode:XTSRC.values()) {				 			// loop thru enumeration values
-			if (responseCode.rc == -rc) {							// rc value match?
-				return responseCode.rcText;							// return associated text
-			}
-		}
+		int i = xtsCatalog.first(-rc);										// XTS codes are stored positive
 		
-		return "Unknown";											// not found
+		return i == ResponseCatalog.NOT_FOUND ? "Unknown" : xtsValues[i].rcText;
 	}
 
 
@@ -0,0 +1,147 @@
+package com.softwareag.adabas.jas;
+
+import java.util.Arrays;
+
+/**
+ * Index of response code definitions by rc and by rc/sc.
+ *
+ * Built once from the response code enumerations of {@link AdabasException},
+ * {@link N1Exception} and {@link AIFResponseCodes}, in declaration order. Lookups
+ * are hash probes returning the position of the definition in the enumeration
+ * values, replacing linear scans of values(); they do not allocate. The texts of
+ * the definitions are formatted on first use, see {@link #pad(StringBuilder, int, int)}.
+ *
+ * @author usadva
+ */
+
+/*
+ * Copyright (c) 1998-2021 Software AG, Darmstadt, Germany and/or Software AG USA Inc., Reston, VA, USA,
+ * and/or its subsidiaries and/or its affiliates and/or their licensors. Use, reproduction, transfer,
+ * publication or disclosure is prohibited except as specifically provided for in your License Agreement
+ * with Software AG.
+ */
+
+final class ResponseCatalog {
+
+	public static final int		NOT_FOUND	= -1;
+
+	private final long[]	keys;											// rc/sc keys, open addressing
+	private final boolean[]	used;											// key slot in use
+	private final int[]		exact;											// 1st definition with rc and sc
+	private final int[]		first;											// 1st definition with rc
+	private final int[]		zero;											// last definition with rc and sc 0
+	private final int		mask;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param rcs	Response codes of the definitions in declaration order.
+	 * @param scs	Subcodes of the definitions; null if there are no subcodes.
+	 */
+	ResponseCatalog(int[] rcs, int[] scs) {
+
+		int size = 16;
+		while (size < rcs.length * 4)											// rc and rc/sc keys, load <= 0.5
+			size <<= 1;
+		keys	= new long[size];
+		used	= new boolean[size];
+		exact	= new int[size];
+		first	= new int[size];
+		zero	= new int[size];
+		mask	= size - 1;
+		Arrays.fill(exact,	NOT_FOUND);
+		Arrays.fill(first,	NOT_FOUND);
+		Arrays.fill(zero,		NOT_FOUND);
+
+		for (int i = 0; i < rcs.length; i++) {
+			int sc = scs == null ? 0 : scs[i];
+			int e = slot(rcs[i], sc, true);
+			if (exact[e] == NOT_FOUND)
+				exact[e] = i;
+			int r = slot(rcs[i], Integer.MIN_VALUE, true);						// rc only key
+			if (first[r] == NOT_FOUND)
+				first[r] = i;
+			if (sc == 0)
+				zero[r] = i;
+		}
+	}
+
+	/**
+	 * Get 1st definition with rc and sc.
+	 *
+	 * @param rc	Response code.
+	 * @param sc	Subcode.
+	 * @return		Position in the enumeration values, NOT_FOUND if none.
+	 */
+	int exact(int rc, int sc) {
+
+		int s = slot(rc, sc, false);
+		return s < 0 ? NOT_FOUND : exact[s];
+	}
+
+	/**
+	 * Get 1st definition with rc.
+	 *
+	 * @param rc	Response code.
+	 * @return		Position in the enumeration values, NOT_FOUND if none.
+	 */
+	int first(int rc) {
+
+		int s = slot(rc, Integer.MIN_VALUE, false);
+		return s < 0 ? NOT_FOUND : first[s];
+	}
+
+	/**
+	 * Get last definition with rc and sc 0.
+	 *
+	 * @param rc	Response code.
+	 * @return		Position in the enumeration values, NOT_FOUND if none.
+	 */
+	int zero(int rc) {
+
+		int s = slot(rc, Integer.MIN_VALUE, false);
+		return s < 0 ? NOT_FOUND : zero[s];
+	}
+
+	/**
+	 * Append a number like %0<i>width</i>d.
+	 *
+	 * @param sb		Text to append to.
+	 * @param value		Number.
+	 * @param width		Minimum width including sign.
+	 * @return			sb.
+	 */
+	static StringBuilder pad(StringBuilder sb, int value, int width) {
+
+		long v = value;
+		if (v < 0) {
+			sb.append('-');
+			v = -v;
+			width--;
+		}
+		for (long p = 10; width > 1; width--, p *= 10) {
+			if (v >= p) continue;
+			sb.append('0');
+		}
+		return sb.append(v);
+	}
+
+	/**
+	 * Find the slot of a key; -1 if not present and not adding.
+	 */
+	private int slot(int rc, int sc, boolean add) {
+
+		long	key	= ((long) rc << 32) | (sc & 0xFFFFFFFFL);
+		int		s	= (int) ((key ^ (key >>> 29)) * 0x9E3779B97F4A7C15L >>> 40) & mask;
+		while (used[s]) {
+			if (keys[s] == key)
+				return s;
+			s = (s + 1) & mask;
+		}
+		if (!add)
+			return -1;
+		used[s] = true;
+		keys[s] = key;
+		return s;
+	}
+}
@@ -0,0 +1,148 @@
+package com.softwareag.adabas.jas.junit;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import com.softwareag.adabas.jas.AdabasBufferX;
+import com.softwareag.adabas.jas.AdabasCidAllocator;
+import com.softwareag.adabas.jas.AdabasControlBlockX;
+import com.softwareag.adabas.jas.AdabasDirectCallX;
+import com.softwareag.adabas.jas.AdabasException;
+import com.softwareag.adabas.jas.AdabasMultiCall;
+import com.softwareag.adabas.jas.xts.AdabasDirectCallXts;
+
+/**
+ * JUnit tests for AdabasCidAllocator
+ *
+ * @author usadva
+ */
+
+/*
+ * Copyright (c) 1998-2021 Software AG, Darmstadt, Germany and/or Software AG USA Inc., Reston, VA, USA,
+ * and/or its subsidiaries and/or its affiliates and/or their licensors. Use, reproduction, transfer,
+ * publication or disclosure is prohibited except as specifically provided for in your License Agreement
+ * with Software AG.
+ */
+
+public class AdabasCidAllocatorTest extends JUnitCommon {
+
+	/**
+	 * Test method for {@link com.softwareag.adabas.jas.AdabasCidAllocator#acquire()}.
+	 * @throws Exception
+	 *
+	 * Test CIDs held at the same time are unique across threads and the limit applies.
+	 */
+	@Test
+	public final void testAcquire() throws Exception {
+
+		final AdabasCidAllocator	alloc	= new AdabasCidAllocator();
+		final Set<String>			held	= ConcurrentHashMap.newKeySet();
+		final AtomicInteger			errors	= new AtomicInteger(0);
+
+		List<Thread> threads = new ArrayList<Thread>();
+		for (int t = 0; t < 8; t++) {
+			threads.add(new Thread(() -> {
+				try {
+					for (int i = 0; i < 10000; i++) {
+						AdabasCidAllocator.Cid cid = alloc.acquire();
+						if (!held.add(cid.toString()))
+							errors.incrementAndGet();							// CID handed out twice
+						held.remove(cid.toString());
+						cid.setFinished();
+						cid.close();
+					}
+				}
+				catch (AdabasException e) {
+					errors.incrementAndGet();
+				}
+			}));
+		}
+		for (Thread t : threads)
+			t.start();
+		for (Thread t : threads)
+			t.join();
+		assertEquals(0, errors.get());
+		assertEquals(0, alloc.getUsed());
+
+		AdabasControlBlockX acbx = new AdabasControlBlockX();
+		alloc.setMaxCids(2);
+		AdabasCidAllocator.Cid c1 = alloc.acquire().apply(acbx);
+		assertArrayEquals(c1.getBytes(), acbx.getAcbCID());
+		AdabasCidAllocator.Cid c2 = alloc.acquire();
+		assertNotEquals(c1.toString(), c2.toString());
+		try {
+			alloc.acquire();
+			fail("acquire() over limit did not generate AdabasException");
+		}
+		catch (AdabasException e) {
+			assertTrue(e.getMessage().contains("CID limit 2 reached"));
+		}
+		c1.close();																// sequence open: pending RC
+		c1.close();
+		assertEquals(1, alloc.getPending());
+		assertEquals(2, alloc.getUsed());
+		try {
+			c1.apply(acbx);
+			fail("apply() of closed CID did not generate AdabasException");
+		}
+		catch (AdabasException e) {
+			assertTrue(e.getMessage().contains("not in use"));
+		}
+	}
+
+	/**
+	 * Test method for {@link com.softwareag.adabas.jas.AdabasCidAllocator#releaseIdle(AdabasDirectCallX)}.
+	 * @throws Exception
+	 *
+	 * Test pending CIDs are released with RC subcommands in MC calls and reused.
+	 */
+	@Test
+	public final void testReleaseIdle() throws Exception {
+
+		final List<Long> mcs = new ArrayList<Long>();
+
+		setA2Transport(reply -> {
+			assertEquals("MC", reply.getCommand());
+			byte[] rb = reply.getSent(AdabasBufferX.RB);
+			assertEquals('R', rb[AdabasMultiCall.ENTRY_HDR_LENGTH + 0x06]);	// first entry RC
+			mcs.add(reply.getRequestACBX().getLong(0x28));						// ISQ = subcommands
+			reply.setRECV(AdabasBufferX.RB, rb);								// entries as sent: subcommands rc 0
+		});
+		try {
+			AdabasControlBlockX acbx = new AdabasControlBlockX();
+			acbx.setAcbDBID(1);
+			AdabasDirectCallX	adcx	= new AdabasDirectCallX(acbx);
+			AdabasCidAllocator	alloc	= adcx.getCidAllocator();
+
+			List<String> first = new ArrayList<String>();
+			for (int i = 0; i < AdabasCidAllocator.MAX_RC_PER_MC + 5; i++) {
+				AdabasCidAllocator.Cid cid = alloc.acquire();
+				first.add(cid.toString());
+				cid.close();
+			}
+			assertEquals(AdabasCidAllocator.MAX_RC_PER_MC + 5, alloc.getPending());
+
+			assertEquals(AdabasCidAllocator.MAX_RC_PER_MC + 5, alloc.releaseIdle(adcx));
+			assertEquals(2, mcs.size());
+			assertEquals(AdabasCidAllocator.MAX_RC_PER_MC, mcs.get(0).longValue());
+			assertEquals(5, mcs.get(1).longValue());
+			assertEquals(0, alloc.getPending());
+			assertEquals(0, alloc.getUsed());
+			assertSame(acbx, adcx.getAcbX());									// session call settings restored
+
+			assertTrue(first.contains(alloc.acquire().toString()));				// released CIDs reused
+			assertEquals(0, alloc.releaseIdle(adcx));
+			assertEquals(2, mcs.size());
+		}
+		finally {
+			AdabasDirectCallXts.setTransport(null);
+		}
+	}
+}
@@ -2,6 +2,8 @@ package com.softwareag.adabas.jas.junit;
 
 import static org.junit.Assert.fail;
 
+import java.util.concurrent.ExecutionException;
+
 import org.junit.Test;
 
 import com.softwareag.adabas.jas.AdabasBufferX;
@@ -312,4 +314,47 @@ public class AdabasDirectCallXTest extends JUnitCommon {
 		adcx.callAdabas();
 	}
 
+	/**
+	 * Test method for {@link com.softwareag.adabas.jas.AdabasDirectCallX#callAdabasAsync()}.
+	 * @throws Exception
+	 *  
+	 * Test asynchronous OP/CL and rc 148 delivered as AdabasException cause.
+	 * This test requires that a database 255 is defined and known to AAS and is inactive.
+	 */
+	@Test
+	public final void testCallAdabasXAsync() throws Exception {
+		
+		AdabasControlBlockX acbx = new AdabasControlBlockX();
+		AdabasDirectCallX	adcx = new AdabasDirectCallX(acbx);
+		acbx.setAcbDBID(dbid);										// default in JUnitCommon
+		acbx.setAcbCMD("OP");
+		adcx.setFB(new AdabasBufferX(".", AdabasBufferX.FB));
+		adcx.setRB(new AdabasBufferX("UPD=9.", AdabasBufferX.RB));
+
+		AdabasControlBlockX result = adcx.callAdabasAsync().get();
+		if (result != acbx || result.getAcbRSP() != 0)
+			fail("callAdabasAsync() OP did not complete with updated ACBX");
+
+		acbx.setAcbCMD("CL");
+		adcx.setFB(null);
+		adcx.setRB(null);
+		adcx.callAdabasAsync().get();
+		
+		AdabasControlBlockX acbx255 = new AdabasControlBlockX();
+		AdabasDirectCallX	adcx255 = new AdabasDirectCallX(acbx255);
+		acbx255.setAcbDBID(255);
+		acbx255.setAcbCMD("OP");
+		adcx255.setFB(new AdabasBufferX(".", AdabasBufferX.FB));
+		adcx255.setRB(new AdabasBufferX("UPD=9.", AdabasBufferX.RB));
+
+		try {
+			adcx255.callAdabasAsync().get();
+			fail("callAdabasAsync() DBID = 255 did not complete exceptionally");
+		}
+		catch (ExecutionException e) {
+			if (!(e.getCause() instanceof AdabasException && e.getCause().getMessage().contains("rc = 148")))
+				fail("callAdabasAsync() DBID = 255 did not generate AdabasException rc = 148");
+		}
+	}
+
 }
@@ -0,0 +1,138 @@
+package com.softwareag.adabas.jas.junit;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Test;
+
+import com.softwareag.adabas.jas.AdabasBufferX;
+import com.softwareag.adabas.jas.AdabasControlBlockX;
+import com.softwareag.adabas.jas.AdabasDirectCallX;
+import com.softwareag.adabas.jas.xts.AdabasDirectCallXts;
+
+/**
+ * Multi-threaded direct call tests. Each thread owns its own session (XTS context).
+ *
+ * @author usadva
+ */
+
+/*
+ * Copyright (c) 1998-2021 Software AG, Darmstadt, Germany and/or Software AG USA Inc., Reston, VA, USA,
+ * and/or its subsidiaries and/or its affiliates and/or their licensors. Use, reproduction, transfer,
+ * publication or disclosure is prohibited except as specifically provided for in your License Agreement
+ * with Software AG.
+ */
+
+public class AdabasDirectCallXThreadsTest extends JUnitCommon {
+
+	private static final int	SESSIONS			= 8;				// concurrent sessions
+	private static final int	CALLS_PER_THREAD	= 20;				// L2 calls per thread
+	private static final int	LATENCY				= 10;				// stand-in round trip time in ms
+
+	/**
+	 * Test method for {@link com.softwareag.adabas.jas.AdabasDirectCallX#callAdabas()}.
+	 * @throws Exception
+	 *
+	 * Test OP/L2/CL sequences on 8 sessions, each on its own thread and XTS context, through
+	 * a stand-in transport with a fixed round trip time. Independent sessions must not
+	 * serialize: all sessions take well below 8 times one session. No database needed.
+	 */
+	@Test
+	public final void testThroughputScaling() throws Exception {
+
+		setA2Transport(reply -> {												// rc 0
+			try {
+				Thread.sleep(LATENCY);
+			}
+			catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		});
+
+		try {
+			long	serial	= run(1);
+			long	elapsed	= run(SESSIONS);
+			System.out.println(String.format("sessions = %d: elapsed = %d ms (1 session %d ms)", SESSIONS, elapsed, serial));
+			assertTrue(String.format("%d sessions took %d ms, 1 session %d ms", SESSIONS, elapsed, serial), elapsed < SESSIONS * serial / 3);
+		}
+		finally {
+			AdabasDirectCallXts.setTransport(null);
+		}
+	}
+
+	/**
+	 * Run one OP/L2/CL sequence per thread and print throughput.
+	 *
+	 * @param threads	Number of threads, one session each.
+	 * @return			elapsed time in ms.
+	 * @throws Exception
+	 */
+	private long run(int threads) throws Exception {
+
+		final AtomicReference<Throwable>	error		= new AtomicReference<Throwable>();
+		ArrayList<Thread>					workers		= new ArrayList<Thread>();
+
+		for (int t = 0; t < threads; t++) {
+			final int cid = t;
+			workers.add(new Thread(new Runnable() {
+				public void run() {
+					try {
+						readEmployees(String.format("JT%02d", cid));
+					} catch (Throwable e) {
+						error.compareAndSet(null, e);
+					}
+				}
+			}));
+		}
+
+		long	startTime	= System.currentTimeMillis();
+		for (Thread w : workers)
+			w.start();
+		for (Thread w : workers)
+			w.join();
+		long	elapsedTime	= Math.max(1, System.currentTimeMillis() - startTime);
+
+		if (error.get() != null)
+			fail("thread failed: " + error.get().getMessage());
+
+		long	calls		= (long) threads * (CALLS_PER_THREAD + 2);
+		System.out.println(String.format("threads = %d: calls = %d: elapsed = %d ms: calls/sec = %d", threads, calls, elapsedTime, (calls * 1000) / elapsedTime));
+		return elapsedTime;
+	}
+
+	/**
+	 * Run one OP/L2/CL sequence on a private session.
+	 *
+	 * @param cid	Command ID for the L2 sequence.
+	 * @throws Exception
+	 */
+	private void readEmployees(String cid) throws Exception {
+
+		AdabasControlBlockX acbx = new AdabasControlBlockX();
+		AdabasDirectCallX	adcx = new AdabasDirectCallX(acbx);
+		acbx.setAcbDBID(dbid);										// default in JUnitCommon
+		acbx.setAcbCMD("OP");
+		adcx.setFB(new AdabasBufferX(".", AdabasBufferX.FB));
+		adcx.setRB(new AdabasBufferX("UPD=9.", AdabasBufferX.RB));
+		adcx.callAdabas();
+
+		acbx.setAcbCMD("L2");
+		acbx.setAcbCID(cid);
+		acbx.setAcbFNR(1);
+		adcx.setFB(new AdabasBufferX("AA,AC,AE.", AdabasBufferX.FB));
+		adcx.setRB(new AdabasBufferX(48, AdabasBufferX.RB));
+
+		for (int i = 0; i < CALLS_PER_THREAD; i++) {
+			adcx.callAdabas();
+			if (acbx.getAcbRSP() == 3)								// EOF - restart sequence
+				acbx.setAcbISN(0);
+		}
+
+		acbx.setAcbCMD("CL");
+		adcx.setFB(null);
+		adcx.setRB(null);
+		adcx.callAdabas();
+	}
+}
@@ -1,9 +1,12 @@
 package com.softwareag.adabas.jas.junit;
 
+import static org.junit.Assert.*;
+
 import org.junit.Test;
 
 import com.softwareag.adabas.jas.AIFResponseCodes;
 import com.softwareag.adabas.jas.AdabasException;
+import com.softwareag.adabas.jas.N1Exception;
 
 /**
  * @author usadva
@@ -166,4 +169,33 @@ public class AdabasExceptionTest {
 		throw ae;
 	}
 
+	/**
+	 * Test method for {@link com.softwareag.adabas.jas.AdabasException#getRCText(int, int)}.
+	 * @throws Exception
+	 *
+	 * Test response code texts by rc and rc/sc, subcode fallback and unknown codes, and repeated lookups return the same text.
+	 */
+	@Test
+	public final void testGetRCText() throws Exception {
+
+		assertEquals("JASADA0090001 : rc = 009 : sc = 0001 : Transaction backed out. Hold queue full.", AdabasException.getRCText(9, 1));
+		assertEquals("Transaction backed out. Hold queue full.", AdabasException.getRCShortText(9, 1));
+		assertEquals("JASADA1130000 : rc = 113 : sc = 0777 : Invalid ISN. See documentation.", AdabasException.getRCText(113, 777));
+		assertEquals("Invalid ISN. See documentation.", AdabasException.getRCShortText(113, 777));
+		assertEquals("JASADA0030000 : rc = 003 : sc = 0000 : End of file.", AdabasException.getRCText(3));
+		assertEquals("End of file.", AdabasException.getRCShortText(3));
+		assertSame(AdabasException.getRCText(9, 1), AdabasException.getRCText(9, 1));	// formatted once
+		assertEquals("Unknown", AdabasException.getRCText(5, 0));
+		assertEquals("Unknown", AdabasException.getRCShortText(-1));
+
+		assertEquals("JASN1-05 : rc = -05 : Invalid node", N1Exception.getRCText(N1Exception.N1_INVALID_NODE));
+		assertEquals("Invalid node", N1Exception.getRCShortText(N1Exception.N1_INVALID_NODE));
+		assertEquals("Message getMessage : Invalid message header received", N1Exception.getXTSRCText(-543));
+		assertEquals("Unknown", N1Exception.getXTSRCText(543));
+
+		assertEquals("JASAIF00020000 : rc = 0002 : sc = 0000 : No space left.", AIFResponseCodes.getRCText(2));
+		assertEquals("This return code indicates an internal error.", AIFResponseCodes.getRCShortText(9999));
+		assertEquals("Unknown", AIFResponseCodes.getRCText(3000));
+	}
+
 }
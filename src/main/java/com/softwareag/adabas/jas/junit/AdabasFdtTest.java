@@ -0,0 +1,154 @@
+package com.softwareag.adabas.jas.junit;
+
+import static org.junit.Assert.*;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import com.softwareag.adabas.jas.AdabasBufferX;
+import com.softwareag.adabas.jas.AdabasControlBlockX;
+import com.softwareag.adabas.jas.AdabasDirectCallX;
+import com.softwareag.adabas.jas.AdabasException;
+import com.softwareag.adabas.jas.AdabasFdt;
+import com.softwareag.adabas.jas.AdabasFdtCache;
+import com.softwareag.adabas.jas.AdabasFormatLayout;
+import com.softwareag.adabas.jas.xts.AdabasDirectCallXts;
+
+/**
+ * JUnit tests for AdabasFdt and AdabasFdtCache
+ *
+ * @author usadva
+ */
+
+/*
+ * Copyright (c) 1998-2021 Software AG, Darmstadt, Germany and/or Software AG USA Inc., Reston, VA, USA,
+ * and/or its subsidiaries and/or its affiliates and/or their licensors. Use, reproduction, transfer,
+ * publication or disclosure is prohibited except as specifically provided for in your License Agreement
+ * with Software AG.
+ */
+
+public class AdabasFdtTest extends JUnitCommon {
+
+	/**
+	 * Build an LF record buffer with fields AA,8,A (UQ DE), AB group, AC,20,A and AN,4,P (MU).
+	 */
+	private static void putFdt(ByteBuffer bb, int offset) {
+
+		bb.putShort(offset, (short) 4);
+		putField(bb, offset, 0, "AA", 8, 'A', 1, AdabasFdt.OPT_DE | AdabasFdt.OPT_UQ);
+		putField(bb, offset, 1, "AB", 0, ' ', 1, 0);
+		putField(bb, offset, 2, "AC", 20, 'A', 2, AdabasFdt.OPT_NU);
+		putField(bb, offset, 3, "AN", 4, 'P', 1, AdabasFdt.OPT_MU);
+	}
+
+	/**
+	 * Put one LF field element.
+	 */
+	private static void putField(ByteBuffer bb, int offset, int i, String name, int length, char format, int level, int options) {
+
+		int e = offset + AdabasFdt.LF_HDR_LENGTH + i * AdabasFdt.LF_ELEMENT_LENGTH;
+		bb.put(e, (byte) options);
+		bb.put(e + 1, (byte) name.charAt(0));
+		bb.put(e + 2, (byte) name.charAt(1));
+		bb.put(e + 3, (byte) length);
+		bb.put(e + 4, (byte) format);
+		bb.put(e + 5, (byte) level);
+	}
+
+	/**
+	 * Test method for {@link com.softwareag.adabas.jas.AdabasFdt#decode(int, int, AdabasBufferX)}.
+	 * @throws Exception
+	 *
+	 * Test field decode, defaults and generated format buffers.
+	 */
+	@Test
+	public final void testDecode() throws Exception {
+
+		AdabasBufferX rb = new AdabasBufferX(64, AdabasBufferX.RB);
+		putFdt(rb.getDataBuffer(), 0);
+		rb.setAbdRECV(AdabasFdt.LF_HDR_LENGTH + 4 * AdabasFdt.LF_ELEMENT_LENGTH);
+
+		AdabasFdt fdt = AdabasFdt.decode(1, 11, rb);
+		assertEquals(4, fdt.getFields().size());
+		assertTrue(fdt.getField("AA").isUnique());
+		assertTrue(fdt.getField("AA").isDescriptor());
+		assertTrue(fdt.getField("AB").isGroup());
+		assertEquals(2, fdt.getField("AC").getLevel());
+		assertTrue(fdt.getField("AN").isMultiple());
+		assertEquals(-1, fdt.getLength("AB"));
+
+		assertEquals("AA,8,A,AN,4,P.", fdt.formatBuffer("AA", "AN"));
+		assertEquals(12, fdt.layout("AA", "AN").getRecordLength());
+		assertEquals(32, AdabasFormatLayout.compile("AA,AC,AN.", fdt).getRecordLength());
+
+		try {
+			fdt.formatBuffer("AB");
+			fail("formatBuffer(AB) did not generate AdabasException");
+		}
+		catch (AdabasException e) {
+			assertTrue(e.getMessage().contains("has no standard length"));
+		}
+
+		rb.setAbdRECV(10);
+		try {
+			AdabasFdt.decode(1, 11, rb);
+			fail("decode() of short RB did not generate AdabasException");
+		}
+		catch (AdabasException e) {
+			assertTrue(e.getMessage().contains("exceeds record buffer length"));
+		}
+	}
+
+	/**
+	 * Test method for {@link com.softwareag.adabas.jas.AdabasFdtCache#get(AdabasDirectCallX, int)}.
+	 * @throws Exception
+	 *
+	 * Test LF is issued once per file until invalidated, using a stand-in transport.
+	 */
+	@Test
+	public final void testCache() throws Exception {
+
+		final AtomicInteger	calls	= new AtomicInteger(0);
+
+		setA2Transport(reply -> {
+			assertEquals("LF", reply.getCommand());
+			calls.incrementAndGet();
+			byte[] fdt = new byte[64];
+			putFdt(ByteBuffer.wrap(fdt), 0);
+			reply.setRECV(AdabasBufferX.RB, fdt);
+		});
+
+		try {
+			AdabasControlBlockX acbx = new AdabasControlBlockX();
+			acbx.setAcbDBID(1);
+			acbx.setAcbCMD("L1");
+			AdabasDirectCallX	adcx	= new AdabasDirectCallX(acbx);
+			AdabasBufferX		rb		= new AdabasBufferX(10, AdabasBufferX.RB);
+			adcx.setRB(rb);
+			AdabasFdtCache		cache	= new AdabasFdtCache();
+			cache.setLfRBSize(64);
+
+			AdabasFdt fdt = cache.get(adcx, 11);
+			assertEquals(11, fdt.getFnr());
+			assertSame(fdt, cache.get(adcx, 11));
+			assertEquals(1, calls.get());
+			assertSame(acbx, adcx.getAcbX());									// session call settings restored
+			assertSame(rb, adcx.getRB());
+
+			cache.get(adcx, 12);
+			assertEquals(2, calls.get());
+			cache.invalidate(1, 11);
+			assertNull(cache.getCached(1, 11));
+			assertNotNull(cache.getCached(1, 12));
+			cache.get(adcx, 11);
+			assertEquals(3, calls.get());
+			cache.invalidate(1);
+			assertNull(cache.getCached(1, 12));
+		}
+		finally {
+			AdabasDirectCallXts.setTransport(null);
+		}
+	}
+}
@@ -0,0 +1,187 @@
+package com.softwareag.adabas.jas.junit;
+
+import static org.junit.Assert.*;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import com.softwareag.adabas.jas.AdabasBufferX;
+import com.softwareag.adabas.jas.AdabasControlBlockX;
+import com.softwareag.adabas.jas.AdabasDirectCallX;
+import com.softwareag.adabas.jas.AdabasException;
+import com.softwareag.adabas.jas.AdabasFlightRecorder;
+import com.softwareag.adabas.jas.xts.AdabasDirectCallXts;
+
+/**
+ * JUnit tests for AdabasFlightRecorder
+ *
+ * @author usadva
+ */
+
+/*
+ * Copyright (c) 1998-2021 Software AG, Darmstadt, Germany and/or Software AG USA Inc., Reston, VA, USA,
+ * and/or its subsidiaries and/or its affiliates and/or their licensors. Use, reproduction, transfer,
+ * publication or disclosure is prohibited except as specifically provided for in your License Agreement
+ * with Software AG.
+ */
+
+public class AdabasFlightRecorderTest extends JUnitCommon {
+
+	/**
+	 * Direct call L3 on file 9 with a 100 byte format buffer "AA,AB." followed by blanks.
+	 */
+	private static AdabasDirectCallX newCall() throws Exception {
+
+		AdabasControlBlockX acbx = new AdabasControlBlockX();
+		acbx.setAcbDBID(1);
+		acbx.setAcbFNR(9);
+		acbx.setAcbCMD("L3");
+		AdabasDirectCallX	adcx	= new AdabasDirectCallX(acbx);
+		AdabasBufferX		fb		= new AdabasBufferX(100, AdabasBufferX.FB);
+		byte[]				d		= fb.getDataBytes();
+		Arrays.fill(d, (byte) ' ');
+		System.arraycopy("AA,AB.".getBytes("ISO-8859-1"), 0, d, 0, 6);
+		fb.setAbdSEND(100);
+		adcx.setFB(fb);
+		return adcx;
+	}
+
+	/**
+	 * Test method for {@link com.softwareag.adabas.jas.AdabasFlightRecorder#dump()}.
+	 * @throws Exception
+	 *
+	 * Test the ring keeps the last calls with command, rc, ACBX, ABD and first buffer bytes.
+	 */
+	@Test
+	public final void testDump() throws Exception {
+
+		AdabasDirectCallX adcx = newCall();
+		assertEquals("flight recorder: last 0 of 0 calls", adcx.getFlightRecorder().dump());
+
+		setA2Transport(reply -> {});												// rc 0
+		try {
+			for (int i = 0; i < AdabasFlightRecorder.DEFAULT_CALLS + 4; i++) {
+				adcx.getAcbX().setAcbRSP((short) 0);
+				adcx.callAdabas();
+			}
+			AdabasFlightRecorder	fr	= adcx.getFlightRecorder();
+			String					d	= fr.dump();
+			int						n	= AdabasFlightRecorder.DEFAULT_CALLS + 4;
+			assertEquals(n, fr.getCount());
+			assertTrue(d, d.startsWith("flight recorder: last " + AdabasFlightRecorder.DEFAULT_CALLS + " of " + n + " calls"));
+			assertFalse(d, d.contains("call #4:"));
+			assertTrue(d, d.contains("call #5: cmd = L3: started "));
+			assertTrue(d, d.contains("call #" + n + ": cmd = L3: started "));
+			assertTrue(d, d.contains(": rc = 0: elapsed "));
+			assertTrue(d, d.contains("\nACBX sent =\n0x00000000  "));
+			assertTrue(d, d.contains("\nACBX returned =\n0x00000000  "));
+			assertTrue(d, d.contains("\nFB ABD =\n0x00000000  "));
+			assertTrue(d, d.contains("\nFB sent =\n0x00000000  41 41 2C 41 42 2E 20 20"));
+			assertTrue(d, d.contains("\n            " + (100 - AdabasFlightRecorder.DEFAULT_BYTES) + " more bytes not shown .."));
+			assertFalse(d, d.contains("RB ABD"));
+		}
+		finally {
+			AdabasDirectCallXts.setTransport(null);
+		}
+	}
+
+	/**
+	 * Test method for {@link com.softwareag.adabas.jas.AdabasFlightRecorder#setDumpCodes(int...)}.
+	 * @throws Exception
+	 *
+	 * Test the response codes logged with a dump can be configured.
+	 */
+	@Test
+	public final void testDumpCodes() throws Exception {
+
+		AdabasFlightRecorder fr = new AdabasFlightRecorder(2, 0);
+		assertTrue(fr.isDumpCode(AdabasException.ADA_009));
+		assertFalse(fr.isDumpCode(AdabasException.ADA_003));
+
+		fr.setDumpCodes(AdabasException.ADA_113, AdabasException.ADA_017);
+		assertTrue(fr.isDumpCode(AdabasException.ADA_017));
+		assertTrue(fr.isDumpCode(AdabasException.ADA_113));
+		assertFalse(fr.isDumpCode(AdabasException.ADA_009));
+
+		fr.setDumpCodes();
+		assertFalse(fr.isDumpCode(AdabasException.ADA_113));
+	}
+
+	/**
+	 * Test method for {@link com.softwareag.adabas.jas.AdabasFlightRecorder#log(Throwable)}.
+	 * @throws Exception
+	 *
+	 * Test a failed call is recorded with its response code, and a call without reply as such.
+	 */
+	@Test
+	public final void testFailedCall() throws Exception {
+
+		AdabasDirectCallX adcx = newCall();
+
+		setA2Transport(reply -> reply.setRSP(AdabasException.ADA_113));
+		try {
+			try {
+				adcx.callAdabas();
+				fail("callAdabas() rc 113 did not generate AdabasException");
+			}
+			catch (AdabasException e) {
+				assertEquals(AdabasException.ADA_113, e.getResponseCode());
+			}
+			assertFalse(adcx.getFlightRecorder().isDumpCode(AdabasException.ADA_113));	// routine, recorded but not logged
+			assertTrue(adcx.getFlightRecorder().isDumpCode(AdabasException.ADA_224));
+			String d = adcx.getFlightRecorder().dump();
+			assertTrue(d, d.contains("call #1: cmd = L3: started "));
+			assertTrue(d, d.contains(": rc = 113: elapsed "));
+
+			setA2Transport(reply -> {
+				throw new IllegalStateException("connection lost");
+			});
+			try {
+				adcx.callAdabas();
+				fail("callAdabas() transport failure did not generate exception");
+			}
+			catch (IllegalStateException e) {
+			}
+			d = adcx.getFlightRecorder().dump();
+			assertTrue(d, d.contains("call #2: cmd = L3: started "));
+			assertTrue(d, d.endsWith("\nFB sent =\n0x00000000  41 41 2C 41 42 2E 20 20   20 20 20 20 20 20 20 20   {AA,AB.           }    {........ ........}"
+								   + "\n0x00000010  20 20 20 20 20 20 20 20   20 20 20 20 20 20 20 20   {                 }    {........ ........}"
+								   + "\n            " + (100 - AdabasFlightRecorder.DEFAULT_BYTES) + " more bytes not shown .."));
+			assertTrue(d, d.substring(d.indexOf("call #2:")).contains(": no reply\n"));
+		}
+		finally {
+			AdabasDirectCallXts.setTransport(null);
+		}
+	}
+
+	/**
+	 * Test method for {@link com.softwareag.adabas.jas.AdabasFlightRecorder#begin(AdabasDirectCallX)}.
+	 * @throws Exception
+	 *
+	 * Test recording calls does not allocate: less than a byte per call.
+	 */
+	@Test
+	public final void testBeginEnd() throws Exception {
+
+		AdabasDirectCallX		adcx	= newCall();
+		AdabasFlightRecorder	fr		= new AdabasFlightRecorder(AdabasFlightRecorder.DEFAULT_CALLS, AdabasFlightRecorder.DEFAULT_BYTES);
+		byte[]					acbx	= adcx.getAcbX().getACBArray();
+
+		com.sun.management.ThreadMXBean tmx = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+		long	id		= Thread.currentThread().getId();
+		for (int i = 0; i < 20000; i++) {										// warm up
+			fr.begin(adcx);
+			fr.end(acbx);
+		}
+		long	before	= tmx.getThreadAllocatedBytes(id);
+		for (int i = 0; i < 100000; i++) {
+			fr.begin(adcx);
+			fr.end(acbx);
+		}
+		long	after	= tmx.getThreadAllocatedBytes(id);
+		assertEquals(120000, fr.getCount());
+		assertTrue(String.format("%d bytes allocated by 100000 recorded calls", after - before), after - before < 100000);
+	}
+}
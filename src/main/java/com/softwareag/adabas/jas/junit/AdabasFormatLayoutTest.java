@@ -0,0 +1,147 @@
+package com.softwareag.adabas.jas.junit;
+
+import static org.junit.Assert.*;
+
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+
+import org.junit.Test;
+
+import com.softwareag.adabas.jas.AdabasBufferX;
+import com.softwareag.adabas.jas.AdabasException;
+import com.softwareag.adabas.jas.AdabasFormatLayout;
+import com.softwareag.adabas.jas.AdabasRecordView;
+
+/**
+ * JUnit tests for AdabasFormatLayout and AdabasRecordView
+ *
+ * @author usadva
+ */
+
+/*
+ * Copyright (c) 1998-2021 Software AG, Darmstadt, Germany and/or Software AG USA Inc., Reston, VA, USA,
+ * and/or its subsidiaries and/or its affiliates and/or their licensors. Use, reproduction, transfer,
+ * publication or disclosure is prohibited except as specifically provided for in your License Agreement
+ * with Software AG.
+ */
+
+public class AdabasFormatLayoutTest {
+
+	/**
+	 * Test method for {@link com.softwareag.adabas.jas.AdabasFormatLayout#compile(String)}.
+	 * @throws Exception
+	 *
+	 * Test offsets, fillers, MU count and occurrences, and plan caching.
+	 */
+	@Test
+	public final void testCompile() throws Exception {
+
+		AdabasFormatLayout layout = AdabasFormatLayout.compile("AA,8,A,2X,AZC,AZ1-3,3,A,AN,4,P.");
+
+		assertEquals(8 + 2 + 1 + 9 + 4, layout.getRecordLength());
+		assertEquals(7, layout.size());
+		assertEquals(0, layout.getField(layout.indexOf("AA")).getOffset());
+		assertEquals(10, layout.getField(layout.indexOf("AZC")).getOffset());
+		assertEquals('B', layout.getField(layout.indexOf("AZC")).getFormat());
+		assertTrue(layout.getField(layout.indexOf("AZC")).isCount());
+		assertEquals(14, layout.getField(layout.indexOf("AZ2")).getOffset());
+		assertEquals(2, layout.getField(layout.indexOf("AZ2")).getOccurrence());
+		assertEquals(20, layout.getField(layout.indexOf("AN")).getOffset());
+		assertEquals(-1, layout.indexOf("AB"));
+
+		assertSame(layout, AdabasFormatLayout.compile("AA,8,A,2X,AZC,AZ1-3,3,A,AN,4,P."));
+	}
+
+	/**
+	 * Test method for {@link com.softwareag.adabas.jas.AdabasFormatLayout#compile(String, AdabasFormatLayout.FieldDefaults)}.
+	 * @throws Exception
+	 *
+	 * Test field defaults and FB errors.
+	 */
+	@Test
+	public final void testCompileDefaults() throws Exception {
+
+		AdabasFormatLayout.FieldDefaults defaults = new AdabasFormatLayout.FieldDefaults() {
+			@Override
+			public int getLength(String name)	{ return name.equals("AA") ? 8 : -1; }
+			@Override
+			public char getFormat(String name)	{ return name.equals("AA") ? 'A' : 0; }
+		};
+		AdabasFormatLayout layout = AdabasFormatLayout.compile("AA,AE,20,A.", defaults);
+		assertEquals(28, layout.getRecordLength());
+		assertEquals(8, layout.getField(1).getOffset());
+
+		String[] bad = { "AA,8,A", "AA.", "AA,0,A.", "AA,,B.", "AA1-x,2,A.", "5Y." };
+		for (String fb : bad) {
+			try {
+				AdabasFormatLayout.compile(fb);
+				fail("compile(" + fb + ") did not generate AdabasException");
+			}
+			catch (AdabasException e) {
+				assertTrue(e.getMessage().contains("FB"));
+			}
+		}
+	}
+
+	/**
+	 * Test method for {@link com.softwareag.adabas.jas.AdabasRecordView#getLong(int)}.
+	 * @throws Exception
+	 *
+	 * Test typed getters on two records in one buffer and that numeric getters
+	 * do not allocate.
+	 */
+	@Test
+	public final void testRecordView() throws Exception {
+
+		AdabasFormatLayout	layout	= AdabasFormatLayout.compile("AA,8,A,AB,2,B,AC,4,F,AD,3,P,AE,3,U,AF,8,G.");
+		int					len		= layout.getRecordLength();
+		AdabasBufferX		rb		= new AdabasBufferX(2 * len, AdabasBufferX.RB);
+		ByteBuffer			bb		= rb.getDataBuffer();
+		for (int r = 0; r < 2; r++) {
+			int base = r * len;
+			bb.position(base);
+			bb.put(("SMITH" + r + "  ").getBytes("ISO-8859-1"));
+			bb.putShort((short) 0xFFFE);
+			bb.putInt(-5 - r);
+			bb.put(new byte[] { 0x12, 0x34, (byte) 0x5D });						// -12345
+			bb.put(new byte[] { 0x30, 0x34, 0x32 });							// 042
+			bb.putDouble(1.5 * r);
+		}
+
+		AdabasRecordView	view	= new AdabasRecordView(layout);
+		int					ab		= layout.indexOf("AB");
+		int					ac		= layout.indexOf("AC");
+		int					ad		= layout.indexOf("AD");
+		int					ae		= layout.indexOf("AE");
+		int					af		= layout.indexOf("AF");
+
+		view.wrap(rb);
+		assertEquals("SMITH0", view.getString(0));
+		assertEquals(6, view.getTrimmedLength(0));
+		assertTrue(view.equalsBytes(0, "SMITH0".getBytes("ISO-8859-1")));
+		assertEquals(0xFFFE, view.getInt(ab));
+		assertEquals(-5, view.getInt(ac));
+		assertEquals(-12345, view.getLong(ad));
+		assertEquals(42, view.getLong(ae));
+		assertEquals(0.0, view.getDouble(af), 0.0);
+
+		view.wrap(bb, len, false);
+		assertEquals("SMITH1", view.getString(0));
+		assertEquals(-6, view.getInt(ac));
+		assertEquals(1.5, view.getDouble(af), 0.0);
+
+		com.sun.management.ThreadMXBean tmx = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+		long	id		= Thread.currentThread().getId();
+		long	sum		= 0;
+		for (int i = 0; i < 20000; i++) {										// warm up
+			sum += view.wrap(bb, (i & 1) * len, false).getLong(ad) + view.getInt(ab) + view.getLong(ae);
+		}
+		long	before	= tmx.getThreadAllocatedBytes(id);
+		for (int i = 0; i < 100000; i++) {
+			sum += view.wrap(bb, (i & 1) * len, false).getLong(ad) + view.getInt(ab) + view.getLong(ae);
+		}
+		long	after	= tmx.getThreadAllocatedBytes(id);
+		assertTrue(sum != 0);
+		assertTrue(String.format("%d bytes allocated by 100000 record reads", after - before), after - before < 1024);
+	}
+}
@@ -0,0 +1,202 @@
+package com.softwareag.adabas.jas.junit;
+
+import static org.junit.Assert.*;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.softwareag.adabas.jas.AdabasBufferX;
+import com.softwareag.adabas.jas.AdabasControlBlockX;
+import com.softwareag.adabas.jas.AdabasDirectCallX;
+import com.softwareag.adabas.jas.AdabasException;
+import com.softwareag.adabas.jas.AdabasFetchSink;
+import com.softwareag.adabas.jas.AdabasFormatLayout;
+import com.softwareag.adabas.jas.AdabasIsnFetch;
+import com.softwareag.adabas.jas.AdabasIsnSet;
+import com.softwareag.adabas.jas.AdabasMultifetch;
+import com.softwareag.adabas.jas.AdabasRecordView;
+import com.softwareag.adabas.jas.xts.AdabasDirectCallXts;
+
+/**
+ * JUnit tests for AdabasIsnFetch
+ *
+ * @author usadva
+ */
+
+/*
+ * Copyright (c) 1998-2021 Software AG, Darmstadt, Germany and/or Software AG USA Inc., Reston, VA, USA,
+ * and/or its subsidiaries and/or its affiliates and/or their licensors. Use, reproduction, transfer,
+ * publication or disclosure is prohibited except as specifically provided for in your License Agreement
+ * with Software AG.
+ */
+
+public class AdabasIsnFetchTest extends JUnitCommon {
+
+	private static final String	FB			= "AA,8,A,AN,4,B.";				// 12 byte records
+	private static final int	REC_LENGTH	= 12;
+	private static final long	BAD_ISN		= 999;							// fails a multifetch chunk as a whole
+
+	/**
+	 * Set a stand-in transport answering L1 for ISNs from the ISN buffer (multifetch)
+	 * or the ACBX (single). ISNs divisible by 7 are not found. The ISNs of each call
+	 * are recorded.
+	 */
+	private static void setFetchTransport(final List<long[]> calls) {
+
+		setA2Transport(reply -> {
+			ByteBuffer	acbx	= reply.getRequestACBX();
+			boolean		multi	= acbx.get(0x30) == 'M';						// command option 1
+			assertEquals("L1", reply.getCommand());
+
+			long[] isns;
+			if (multi) {
+				ByteBuffer ib	= ByteBuffer.wrap(reply.getSent(AdabasBufferX.IB));
+				isns			= new long[ib.capacity() / 4];
+				for (int i = 0; i < isns.length; i++)
+					isns[i] = ib.getInt(i * 4) & 0xFFFFFFFFL;
+				assertEquals(isns.length, acbx.getLong(0x20));					// ISL = ISNs in chunk
+			}
+			else {
+				isns = new long[] { acbx.getLong(0x18) };
+			}
+			calls.add(isns);
+
+			boolean bad = false;
+			for (long isn : isns)
+				bad |= (isn == BAD_ISN || (!multi && isn % 7 == 0));
+			if (bad) {
+				reply.setRSP(AdabasException.ADA_113);
+				return;
+			}
+
+			ByteBuffer rb = ByteBuffer.allocate(isns.length * REC_LENGTH);
+			for (long isn : isns) {
+				if (isn % 7 == 0)
+					continue;
+				rb.put(String.format("ISN%05d", isn).getBytes());
+				rb.putInt((int) isn * 10);
+			}
+			reply.setRECV(AdabasBufferX.RB, Arrays.copyOf(rb.array(), rb.position()));
+			if (multi) {
+				ByteBuffer mb = ByteBuffer.allocate(4 + isns.length * AdabasMultifetch.MB_ENTRY_LENGTH);
+				mb.putInt(isns.length);
+				for (int i = 0; i < isns.length; i++) {
+					int e = 4 + i * AdabasMultifetch.MB_ENTRY_LENGTH;
+					mb.putInt(e, isns[i] % 7 == 0 ? 0 : REC_LENGTH);
+					mb.putInt(e + 0x04, isns[i] % 7 == 0 ? AdabasException.ADA_113 : 0);
+					mb.putInt(e + 0x08, (int) isns[i]);
+				}
+				reply.setRECV(AdabasBufferX.MB, mb.array());
+			}
+		});
+	}
+
+	/**
+	 * Sink collecting ISNs found and missing.
+	 */
+	private static final class Collector implements AdabasFetchSink {
+
+		final List<Long>	found	= new ArrayList<Long>();
+		final List<Long>	missing	= new ArrayList<Long>();
+
+		@Override
+		public void record(long isn, AdabasRecordView record) throws Exception {
+			assertEquals(String.format("ISN%05d", isn), record.getString(0));
+			assertEquals(isn * 10, record.getLong(1));
+			found.add(isn);
+		}
+
+		@Override
+		public void missing(long isn, int response) throws Exception {
+			assertEquals(AdabasException.ADA_113, response);
+			missing.add(isn);
+		}
+	}
+
+	/**
+	 * Direct call for file 9.
+	 */
+	private static AdabasDirectCallX newSession() throws AdabasException {
+
+		AdabasControlBlockX acbx = new AdabasControlBlockX();
+		acbx.setAcbDBID(1);
+		acbx.setAcbFNR(9);
+		acbx.setAcbCMD("L3");
+		return new AdabasDirectCallX(acbx);
+	}
+
+	/**
+	 * Test method for {@link com.softwareag.adabas.jas.AdabasIsnFetch#fetch(long[], AdabasFetchSink)}.
+	 * @throws Exception
+	 *
+	 * Test ISNs are sorted, chunked into multifetch L1 calls and rc 113 reported per ISN.
+	 */
+	@Test
+	public final void testFetch() throws Exception {
+
+		List<long[]> calls = new ArrayList<long[]>();
+		setFetchTransport(calls);
+		try {
+			AdabasDirectCallX	adcx	= newSession();
+			AdabasBufferX		rb		= new AdabasBufferX(10, AdabasBufferX.RB);
+			adcx.setRB(rb);
+
+			Collector		sink	= new Collector();
+			AdabasIsnFetch	fetch	= new AdabasIsnFetch(adcx, AdabasFormatLayout.compile(FB), 3);
+			assertEquals(5, fetch.fetch(new long[] { 9, 1, 14, 7, 3, 2, 3, 12 }, sink));
+			assertEquals(3, fetch.getCalls());
+			assertArrayEquals(new long[] { 1, 2, 3 }, calls.get(0));
+			assertArrayEquals(new long[] { 7, 9, 12 }, calls.get(1));
+			assertArrayEquals(new long[] { 14 }, calls.get(2));
+			assertEquals("[1, 2, 3, 9, 12]", sink.found.toString());
+			assertEquals("[7, 14]", sink.missing.toString());
+			assertEquals("L3", adcx.getAcbX().getAcbCMD());					// session call settings restored
+			assertSame(rb, adcx.getRB());
+			assertNull(adcx.getMB());
+
+			calls.clear();
+			sink = new Collector();
+			AdabasIsnSet set = new AdabasIsnSet();
+			set.add(BAD_ISN);
+			set.add(5);
+			set.add(21);
+			assertEquals(1, fetch.fetch(set, sink));
+			assertEquals(4, calls.size());										// chunk rejected, then single L1s
+			assertEquals("[5]", sink.found.toString());
+			assertEquals("[21, 999]", sink.missing.toString());
+		}
+		finally {
+			AdabasDirectCallXts.setTransport(null);
+		}
+	}
+
+	/**
+	 * Test method for {@link com.softwareag.adabas.jas.AdabasDirectCallX#fetchAll(long[], String, AdabasFetchSink)}.
+	 * @throws Exception
+	 *
+	 * Test fetchAll issues one multifetch L1 per 100 ISNs.
+	 */
+	@Test
+	public final void testFetchAll() throws Exception {
+
+		List<long[]> calls = new ArrayList<long[]>();
+		setFetchTransport(calls);
+		try {
+			long[] isns = new long[250];
+			for (int i = 0; i < isns.length; i++)
+				isns[i] = isns.length - i;
+			Collector sink = new Collector();
+			assertEquals(250 - 35, newSession().fetchAll(isns, FB, sink));
+			assertEquals(3, calls.size());
+			assertEquals(35, sink.missing.size());
+			assertEquals(1, sink.found.get(0).longValue());
+		}
+		finally {
+			AdabasDirectCallXts.setTransport(null);
+		}
+	}
+}
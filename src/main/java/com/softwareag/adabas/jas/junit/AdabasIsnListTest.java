@@ -0,0 +1,189 @@
+package com.softwareag.adabas.jas.junit;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.softwareag.adabas.jas.AdabasBufferX;
+import com.softwareag.adabas.jas.AdabasControlBlockX;
+import com.softwareag.adabas.jas.AdabasDirectCallX;
+import com.softwareag.adabas.jas.AdabasException;
+import com.softwareag.adabas.jas.AdabasIsnArray;
+import com.softwareag.adabas.jas.AdabasIsnList;
+import com.softwareag.adabas.jas.xts.AdabasDirectCallXts;
+
+/**
+ * JUnit tests for AdabasIsnList and AdabasIsnArray
+ *
+ * @author usadva
+ */
+
+/*
+ * Copyright (c) 1998-2021 Software AG, Darmstadt, Germany and/or Software AG USA Inc., Reston, VA, USA,
+ * and/or its subsidiaries and/or its affiliates and/or their licensors. Use, reproduction, transfer,
+ * publication or disclosure is prohibited except as specifically provided for in your License Agreement
+ * with Software AG.
+ */
+
+public class AdabasIsnListTest extends JUnitCommon {
+
+	private static final int	ISQ		= 25;									// ISNs found by the stand-in search
+	private static final int	CHUNK	= 10;									// ISNs per call
+
+	/**
+	 * Set a stand-in transport answering S1 with ISNs 100, 102, ... above the ISN
+	 * lower limit and echoing RC. ISN lower limits and commands are recorded.
+	 */
+	private static void setSearchTransport(final List<Long> isls, final List<String> cmds) {
+
+		setA2Transport(reply -> {
+			String cmd = reply.getCommand();
+			cmds.add(cmd);
+			if (cmd.equals("RC"))												// rc 0
+				return;
+			ByteBuffer	acbx	= reply.getRequestACBX();
+			assertEquals("ISN1", new String(acbx.array(), acbx.arrayOffset() + 0x0C, 4));
+			long isl		= acbx.getLong(0x20);
+			int	 isnSize	= reply.getSize(AdabasBufferX.IB) / CHUNK;
+			isls.add(isl);
+
+			ByteBuffer ib = ByteBuffer.allocate(CHUNK * isnSize);
+			for (int i = 0; i < ISQ && ib.hasRemaining(); i++) {
+				long isn = 100 + 2 * i;
+				if (isn <= isl)
+					continue;
+				if (isnSize == 4)
+					ib.putInt((int) isn);
+				else
+					ib.putLong(isn);
+			}
+			reply.setISQ(ISQ).setRECV(AdabasBufferX.IB, Arrays.copyOf(ib.array(), ib.position()));
+		});
+	}
+
+	/**
+	 * Direct call prepared for S1 with CID ISN1.
+	 */
+	private static AdabasDirectCallX newSearch() throws AdabasException {
+
+		AdabasControlBlockX acbx = new AdabasControlBlockX();
+		acbx.setAcbDBID(1);
+		acbx.setAcbCMD("S1");
+		acbx.setAcbFNR(1);
+		acbx.setAcbCID("ISN1");
+		AdabasDirectCallX adcx = new AdabasDirectCallX(acbx);
+		adcx.setSB(new AdabasBufferX("AE.", AdabasBufferX.SB));
+		return adcx;
+	}
+
+	/**
+	 * Test method for {@link com.softwareag.adabas.jas.AdabasIsnList#nextIsn()}.
+	 * @throws Exception
+	 *
+	 * Test ISNs are paged in chunks with the ISN lower limit set to the last ISN returned.
+	 */
+	@Test
+	public final void testNextIsn() throws Exception {
+
+		List<Long>		isls	= new ArrayList<Long>();
+		List<String>	cmds	= new ArrayList<String>();
+		setSearchTransport(isls, cmds);
+		try {
+			AdabasDirectCallX	adcx	= newSearch();
+			AdabasBufferX		ib		= new AdabasBufferX(8, AdabasBufferX.IB);
+			adcx.setIB(ib);
+
+			try (AdabasIsnList isns = new AdabasIsnList(adcx, CHUNK, 4)) {
+				assertEquals(-1, isns.getQuantity());
+				int i = 0;
+				while (isns.hasNext()) {
+					assertEquals(100 + 2 * i, isns.nextIsn());
+					i++;
+				}
+				assertEquals(ISQ, i);
+				assertEquals(ISQ, isns.getQuantity());
+				assertEquals(3, isns.getCalls());
+			}
+			assertEquals(3, isls.size());
+			assertEquals(0, isls.get(0).longValue());
+			assertEquals(118, isls.get(1).longValue());
+			assertEquals(138, isls.get(2).longValue());
+			assertFalse(cmds.contains("RC"));									// list read to the end
+			assertSame(ib, adcx.getIB());										// caller ISN buffer restored
+			assertEquals(0, adcx.getAcbX().getAcbISL());
+
+			try {
+				adcx.getAcbX().setAcbCID("    ");
+				new AdabasIsnList(adcx);
+				fail("AdabasIsnList() with blank CID did not generate AdabasException");
+			}
+			catch (AdabasException e) {
+				assertTrue(e.getMessage().contains("requires a command ID"));
+			}
+		}
+		finally {
+			AdabasDirectCallXts.setTransport(null);
+		}
+	}
+
+	/**
+	 * Test method for {@link com.softwareag.adabas.jas.AdabasIsnList#readAll(long)}.
+	 * @throws Exception
+	 *
+	 * Test 8 byte ISNs collected into a memory mapped array without a spill file left behind
+	 * and RC on early close.
+	 */
+	@Test
+	public final void testReadAll() throws Exception {
+
+		int spillFiles = spillFiles();
+
+		List<Long>		isls	= new ArrayList<Long>();
+		List<String>	cmds	= new ArrayList<String>();
+		setSearchTransport(isls, cmds);
+		try {
+			AdabasDirectCallX adcx = newSearch();
+			try (AdabasIsnList isns = new AdabasIsnList(adcx, CHUNK, 8)) {
+				assertEquals(100, isns.nextIsn());
+				try (AdabasIsnArray array = isns.readAll(0)) {
+					assertTrue(array.isMapped());
+					assertEquals(spillFiles, spillFiles());							// deleted once mapped
+					assertEquals(ISQ - 1, array.size());
+					for (int i = 0; i < array.size(); i++)
+						assertEquals(102 + 2 * i, array.get(i));
+				}
+			}
+
+			try (AdabasIsnArray array = new AdabasIsnList(adcx, CHUNK, 4).readAll(AdabasIsnArray.DEFAULT_SPILL_BYTES)) {
+				assertFalse(array.isMapped());
+				assertEquals(ISQ, array.size());
+				assertEquals(148, array.get(ISQ - 1));
+			}
+			assertFalse(cmds.contains("RC"));
+
+			try (AdabasIsnList isns = new AdabasIsnList(adcx, CHUNK, 4)) {
+				assertEquals(100, isns.nextIsn());
+			}
+			assertEquals("RC", cmds.get(cmds.size() - 1));						// rest of list released
+			assertEquals("S1", adcx.getAcbX().getAcbCMD());
+		}
+		finally {
+			AdabasDirectCallXts.setTransport(null);
+		}
+	}
+
+	/**
+	 * Count ISN array spill files in the temporary directory.
+	 */
+	private static int spillFiles() {
+
+		String[] names = new File(System.getProperty("java.io.tmpdir")).list((dir, name) -> name.startsWith("jasisn"));
+		return names == null ? 0 : names.length;
+	}
+}
@@ -0,0 +1,128 @@
+package com.softwareag.adabas.jas.junit;
+
+import static org.junit.Assert.*;
+
+import java.util.Iterator;
+import java.util.Random;
+import java.util.TreeSet;
+
+import org.junit.Test;
+
+import com.softwareag.adabas.jas.AdabasBufferX;
+import com.softwareag.adabas.jas.AdabasIsnSet;
+
+/**
+ * JUnit tests for AdabasIsnSet
+ *
+ * @author usadva
+ */
+
+/*
+ * Copyright (c) 1998-2021 Software AG, Darmstadt, Germany and/or Software AG USA Inc., Reston, VA, USA,
+ * and/or its subsidiaries and/or its affiliates and/or their licensors. Use, reproduction, transfer,
+ * publication or disclosure is prohibited except as specifically provided for in your License Agreement
+ * with Software AG.
+ */
+
+public class AdabasIsnSetTest extends JUnitCommon {
+
+	/**
+	 * Fill a set and a reference set with a dense range and sparse ISNs.
+	 */
+	private static AdabasIsnSet fill(Random rnd, long denseFrom, int dense, TreeSet<Long> ref) {
+
+		AdabasIsnSet set = new AdabasIsnSet();
+		for (int i = 0; i < dense; i++) {
+			long isn = denseFrom + rnd.nextInt(70000);
+			set.add(isn);
+			ref.add(isn);
+		}
+		for (int i = 0; i < 3000; i++) {
+			long isn = rnd.nextInt(Integer.MAX_VALUE) + (rnd.nextBoolean() ? 0 : 0x100000000L);
+			set.add(isn);
+			ref.add(isn);
+		}
+		return set;
+	}
+
+	/**
+	 * Check a set holds exactly the reference ISNs in ascending order.
+	 */
+	private static void check(TreeSet<Long> ref, AdabasIsnSet set) {
+
+		assertEquals(ref.size(), set.cardinality());
+		AdabasIsnSet.IsnIterator	it	= set.iterator();
+		Iterator<Long>				ri	= ref.iterator();
+		while (ri.hasNext()) {
+			assertTrue(it.hasNext());
+			assertEquals(ri.next().longValue(), it.next());
+		}
+		assertFalse(it.hasNext());
+	}
+
+	/**
+	 * Test method for {@link com.softwareag.adabas.jas.AdabasIsnSet#and(AdabasIsnSet)}.
+	 * @throws Exception
+	 *
+	 * Test and, or and andNot of array and bitmap containers against java.util sets.
+	 */
+	@Test
+	public final void testOperations() throws Exception {
+
+		Random			rnd	= new Random(4711);
+		TreeSet<Long>	ra	= new TreeSet<Long>();
+		TreeSet<Long>	rb	= new TreeSet<Long>();
+		AdabasIsnSet	a	= fill(rnd, 0, 50000, ra);							// bitmap containers
+		AdabasIsnSet	b	= fill(rnd, 30000, 2000, rb);						// array containers
+		check(ra, a);
+		check(rb, b);
+
+		TreeSet<Long> r = new TreeSet<Long>(ra);
+		r.retainAll(rb);
+		check(r, a.and(b));
+		check(r, b.and(a));
+
+		r = new TreeSet<Long>(ra);
+		r.addAll(rb);
+		check(r, a.or(b));
+
+		r = new TreeSet<Long>(ra);
+		r.removeAll(rb);
+		check(r, a.andNot(b));
+
+		r = new TreeSet<Long>(rb);
+		r.removeAll(ra);
+		check(r, b.andNot(a));
+
+		check(ra, a);															// operands unchanged
+		check(rb, b);
+		assertTrue(a.contains(ra.first()));
+		assertFalse(a.contains(ra.last() + 1));
+		assertTrue(a.and(new AdabasIsnSet()).isEmpty());
+	}
+
+	/**
+	 * Test method for {@link com.softwareag.adabas.jas.AdabasIsnSet#fromIB(AdabasBufferX, int)}.
+	 * @throws Exception
+	 *
+	 * Test 4 and 8 byte ISN buffers decode into sets.
+	 */
+	@Test
+	public final void testFromIB() throws Exception {
+
+		AdabasBufferX ib = new AdabasBufferX(40, AdabasBufferX.IB);
+		for (int i = 0; i < 5; i++)
+			ib.getDataBuffer().putInt(i * 4, 0xFFFFFFF0 + 5 - i);				// unsigned, descending
+		ib.setAbdRECV(20);
+		AdabasIsnSet set = AdabasIsnSet.fromIB(ib, 4);
+		assertEquals(5, set.cardinality());
+		assertEquals(0xFFFFFFF1L, set.iterator().next());
+
+		for (int i = 0; i < 5; i++)
+			ib.getDataBuffer().putLong(i * 8, (1L << 40) + i);
+		ib.setAbdRECV(40);
+		set = AdabasIsnSet.fromIB(ib, 8);
+		assertEquals(5, set.cardinality());
+		assertTrue(set.contains((1L << 40) + 4));
+	}
+}
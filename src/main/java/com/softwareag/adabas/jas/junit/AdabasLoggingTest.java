@@ -0,0 +1,138 @@
+package com.softwareag.adabas.jas.junit;
+
+import static org.junit.Assert.*;
+
+import java.lang.management.ManagementFactory;
+
+import org.apache.logging.log4j.Level;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.core.config.Configurator;
+import org.junit.Test;
+
+import com.softwareag.adabas.jas.AdabasBufferX;
+import com.softwareag.adabas.jas.AdabasControlBlock;
+import com.softwareag.adabas.jas.AdabasControlBlockX;
+import com.softwareag.adabas.jas.AdabasDirectCall;
+import com.softwareag.adabas.jas.AdabasDirectCallX;
+import com.softwareag.adabas.jas.xts.AdabasDirectCallXts;
+
+/**
+ * JUnit tests for logging on the direct call path
+ *
+ * @author usadva
+ */
+
+/*
+ * Copyright (c) 1998-2021 Software AG, Darmstadt, Germany and/or Software AG USA Inc., Reston, VA, USA,
+ * and/or its subsidiaries and/or its affiliates and/or their licensors. Use, reproduction, transfer,
+ * publication or disclosure is prohibited except as specifically provided for in your License Agreement
+ * with Software AG.
+ */
+
+public class AdabasLoggingTest extends JUnitCommon {
+
+	private static final String[]	LOGGERS	= { "com.softwareag.adabas.jas.AdabasDirectCall",
+												"com.softwareag.adabas.jas.AdabasDirectCallX",
+												"com.softwareag.adabas.jas.xts.AdabasDirectCallXts",
+												"com.softwareag.adabas.jas.xts.CommandTableMF" };
+
+	/**
+	 * One call of the measured loop.
+	 */
+	private interface Call {
+		void call() throws Exception;
+	}
+
+	/**
+	 * Test method for {@link com.softwareag.adabas.jas.AdabasDirectCallX#callAdabas()}.
+	 * @throws Exception
+	 *
+	 * Test calls with info, debug and trace off build no log text: a call allocates less than
+	 * 1 KB, below the control block text or a dump of any of its buffers.
+	 */
+	@Test
+	public final void testCallAdabasLevelOff() throws Exception {
+
+		AdabasControlBlockX acbx = new AdabasControlBlockX();
+		acbx.setAcbDBID(1);
+		acbx.setAcbFNR(9);
+		acbx.setAcbCMD("S1");
+		AdabasDirectCallX	adcx	= new AdabasDirectCallX(acbx);
+		AdabasBufferX		fb		= new AdabasBufferX(4096, AdabasBufferX.FB);
+		AdabasBufferX		sb		= new AdabasBufferX(4096, AdabasBufferX.SB);
+		AdabasBufferX		vb		= new AdabasBufferX(4096, AdabasBufferX.VB);
+		adcx.setFB(fb);
+		adcx.setSB(sb);
+		adcx.setVB(vb);
+		for (int i = 0; i < 4096; i++)												// no folded lines in dumps
+			fb.getDataBytes()[i] = sb.getDataBytes()[i] = vb.getDataBytes()[i] = (byte) i;
+
+		long perCall = allocatedPerCall(() -> {
+			acbx.setAcbRSP((short) 0);
+			adcx.callAdabas();
+		});
+		assertTrue(String.format("%d bytes allocated per call", perCall), perCall < 1024);
+	}
+
+	/**
+	 * Test method for {@link com.softwareag.adabas.jas.AdabasDirectCall#callAdabas()}.
+	 * @throws Exception
+	 *
+	 * Test A1 calls with info, debug and trace off build no log text: a call allocates less
+	 * than 1 KB, below the control block text or a dump of any of its buffers.
+	 */
+	@Test
+	public final void testCallAdabasA1LevelOff() throws Exception {
+
+		AdabasControlBlock acb = new AdabasControlBlock();
+		acb.setAcbDBID(1);
+		acb.setAcbFNR(9);
+		acb.setAcbCMD("S1");
+		AdabasDirectCall	adc		= new AdabasDirectCall(acb);
+		byte[]				fb		= new byte[4096];
+		byte[]				sb		= new byte[4096];
+		byte[]				vb		= new byte[4096];
+		for (int i = 0; i < 4096; i++)												// no folded lines in dumps
+			fb[i] = sb[i] = vb[i] = (byte) i;
+		adc.setFB(fb);
+		adc.setSB(sb);
+		adc.setVB(vb);
+
+		long perCall = allocatedPerCall(() -> {
+			acb.setAcbRSP((short) 0);
+			adc.callAdabas();
+		});
+		assertTrue(String.format("%d bytes allocated per call", perCall), perCall < 1024);
+	}
+
+	/**
+	 * Run a call through the echo transport with info, debug and trace off and
+	 * measure the bytes it allocates.
+	 */
+	private static long allocatedPerCall(Call call) throws Exception {
+
+		Level[] levels = new Level[LOGGERS.length];
+		for (int i = 0; i < LOGGERS.length; i++) {
+			levels[i] = LogManager.getLogger(LOGGERS[i]).getLevel();
+			Configurator.setLevel(LOGGERS[i], Level.WARN);
+		}
+
+		AdabasDirectCallXts.setTransport((xsp, msg) -> msg);						// echo: control block comes back with rc 0
+		try {
+			com.sun.management.ThreadMXBean tmx = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+			long	id		= Thread.currentThread().getId();
+			for (int i = 0; i < 20000; i++)											// warm up
+				call.call();
+			long	before	= tmx.getThreadAllocatedBytes(id);
+			for (int i = 0; i < 1000; i++)
+				call.call();
+			long	after	= tmx.getThreadAllocatedBytes(id);
+			return (after - before) / 1000;
+		}
+		finally {
+			AdabasDirectCallXts.setTransport(null);
+			for (int i = 0; i < LOGGERS.length; i++)
+				Configurator.setLevel(LOGGERS[i], levels[i]);
+		}
+	}
+}
@@ -0,0 +1,263 @@
+package com.softwareag.adabas.jas.junit;
+
+import static org.junit.Assert.*;
+
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import com.softwareag.adabas.jas.AdabasBufferX;
+import com.softwareag.adabas.jas.AdabasControlBlockX;
+import com.softwareag.adabas.jas.AdabasDirectCallX;
+import com.softwareag.adabas.jas.AdabasException;
+import com.softwareag.adabas.jas.AdabasMultiCall;
+import com.softwareag.adabas.jas.xts.AdabasDirectCallXts;
+import com.softwareag.adabas.xts.Message;
+
+/**
+ * JUnit tests for AdabasMultiCall
+ *
+ * @author usadva
+ */
+
+/*
+ * Copyright (c) 1998-2021 Software AG, Darmstadt, Germany and/or Software AG USA Inc., Reston, VA, USA,
+ * and/or its subsidiaries and/or its affiliates and/or their licensors. Use, reproduction, transfer,
+ * publication or disclosure is prohibited except as specifically provided for in your License Agreement
+ * with Software AG.
+ */
+
+public class AdabasMultiCallTest extends JUnitCommon {
+
+	/**
+	 * Test method for {@link com.softwareag.adabas.jas.AdabasMultiCall#add(AdabasControlBlockX, AdabasBufferX, AdabasBufferX, AdabasBufferX, AdabasBufferX, AdabasBufferX)}.
+	 * @throws Exception
+	 *
+	 * Test subcommand DBID check and call without subcommands.
+	 */
+	@Test
+	public final void testAdd() throws Exception {
+
+		AdabasControlBlockX acbx = new AdabasControlBlockX();
+		acbx.setAcbDBID(1);
+		AdabasMultiCall mc = new AdabasMultiCall(new AdabasDirectCallX(acbx));
+
+		try {
+			mc.call();
+			fail("call() without subcommands did not generate AdabasException");
+		}
+		catch (AdabasException e) {
+			if (!e.getMessage().contains("No MC subcommands added"))
+				fail("call() without subcommands did not generate AdabasException No MC subcommands added");
+		}
+
+		AdabasControlBlockX sub = new AdabasControlBlockX();
+		sub.setAcbDBID(2);
+		try {
+			mc.add(sub, null, null, null, null, null);
+			fail("add() with other DBID did not generate AdabasException");
+		}
+		catch (AdabasException e) {
+			if (!e.getMessage().contains("differs from session DBID"))
+				fail("add() with other DBID did not generate AdabasException differs from session DBID");
+		}
+
+		sub.setAcbDBID(1);
+		assertEquals(0, mc.add(sub, null, null, null, null, null));
+		assertEquals(1, mc.size());
+		mc.clear();
+		assertEquals(0, mc.size());
+	}
+
+	/**
+	 * Test method for {@link com.softwareag.adabas.jas.AdabasMultiCall#call()}.
+	 * @throws Exception
+	 *
+	 * Test packing of 3 L1 subcommands and per subcommand results of a simulated
+	 * reply where the second fails with rc 113 and the MC call gets rc 16.
+	 */
+	@Test
+	public final void testCall() throws Exception {
+
+		final int	ENTRY	= AdabasMultiCall.ENTRY_HDR_LENGTH + AdabasControlBlockX.ACBX_LENGTH + 2 * AdabasBufferX.ABD_LENGTH + 3 + 10;
+		final int	RB_ABD	= AdabasMultiCall.ENTRY_HDR_LENGTH + AdabasControlBlockX.ACBX_LENGTH + AdabasBufferX.ABD_LENGTH + 3;
+
+		setA2Transport(reply -> {
+			assertEquals("MC", reply.getCommand());								// MC with 3 subcommands
+			assertEquals(3, reply.getRequestACBX().getLong(0x28));
+			byte[] sent = reply.getSent(AdabasBufferX.RB);
+			assertEquals(3 * ENTRY, sent.length);
+			ByteBuffer req = ByteBuffer.wrap(sent);
+			for (int i = 0; i < 3; i++)
+				assertEquals(ENTRY, req.getInt(i * ENTRY));
+
+			ByteBuffer rb = ByteBuffer.wrap(Arrays.copyOf(sent, 2 * ENTRY));		// 2 entries returned
+			rb.putLong(RB_ABD + 0x20, 5);										// entry 0: RB RECV 5
+			System.arraycopy("SMITH".getBytes(), 0, rb.array(), RB_ABD + AdabasBufferX.ABD_LENGTH, 5);
+			rb.putShort(ENTRY + AdabasMultiCall.ENTRY_HDR_LENGTH + 0x0A, (short) 113);	// entry 1: rc 113
+			rb.putLong(ENTRY + RB_ABD + 0x20, 0);
+			reply.setRSP(16).setRECV(AdabasBufferX.RB, rb.array());				// MC rc 16
+		});
+
+		try {
+			AdabasControlBlockX acbx = new AdabasControlBlockX();
+			acbx.setAcbDBID(1);
+			AdabasDirectCallX	adcx	= new AdabasDirectCallX(acbx);
+			AdabasMultiCall		mc		= new AdabasMultiCall(adcx);
+
+			AdabasControlBlockX[]	subs	= new AdabasControlBlockX[3];
+			AdabasBufferX[]			rbs		= new AdabasBufferX[3];
+			for (int i = 0; i < 3; i++) {
+				subs[i] = new AdabasControlBlockX();
+				subs[i].setAcbDBID(1);
+				subs[i].setAcbCMD("L1");
+				subs[i].setAcbFNR(1);
+				subs[i].setAcbISN(i + 1);
+				rbs[i] = new AdabasBufferX(10, AdabasBufferX.RB);
+				mc.add(subs[i], new AdabasBufferX("AE.", AdabasBufferX.FB), rbs[i], null, null, null);
+			}
+
+			assertEquals(2, mc.call());
+			assertEquals(2, mc.getExecuted());
+			assertSame(acbx, adcx.getAcbX());									// session call settings restored
+			assertNull(adcx.getRB());
+
+			assertEquals(0, mc.getResponse(0));
+			assertNull(mc.getException(0));
+			assertEquals(5, rbs[0].getAbdRECV());
+			assertEquals("SMITH", new String(rbs[0].getDataBytes(), 0, 5));
+
+			assertEquals(113, mc.getResponse(1));
+			assertEquals(113, subs[1].getAcbRSP());
+			assertEquals(113, mc.getException(1).getResponseCode());
+
+			assertEquals(AdabasMultiCall.NOT_EXECUTED, mc.getResponse(2));
+			assertNotNull(mc.getException(2));
+			assertTrue(mc.hasErrors());
+		}
+		finally {
+			AdabasDirectCallXts.setTransport(null);
+		}
+	}
+
+	/**
+	 * Test method for {@link com.softwareag.adabas.jas.AdabasMultiCall#call()}.
+	 * @throws Exception
+	 *
+	 * Test repeated calls reuse the MC record buffer, which only grows for a larger batch,
+	 * and a subcommand failing with MC rc 16 builds no exception: less than 1 KB allocated
+	 * per call besides building the stand-in replies.
+	 */
+	@Test
+	public final void testRepeatCall() throws Exception {
+
+		final int	ENTRY	= AdabasMultiCall.ENTRY_HDR_LENGTH + AdabasControlBlockX.ACBX_LENGTH + 2 * AdabasBufferX.ABD_LENGTH + 3 + 10;
+		final long[]	sizes	= new long[2];										// MC RB SIZE and SEND of last call
+		final Message[]	request	= new Message[1];									// last MC request
+		final A2Handler	handler	= reply -> {
+			request[0] = reply.getRequest();
+			byte[] sent = reply.getSent(AdabasBufferX.RB);
+			sizes[0] = reply.getSize(AdabasBufferX.RB);
+			sizes[1] = sent.length;
+			ByteBuffer.wrap(sent).putShort(AdabasMultiCall.ENTRY_HDR_LENGTH + 0x0A, (short) 113);	// entry 0: rc 113
+			reply.setRSP(16).setRECV(AdabasBufferX.RB, Arrays.copyOf(sent, ENTRY));	// MC rc 16, 1 entry returned
+		};
+
+		setA2Transport(handler);
+
+		try {
+			AdabasControlBlockX acbx = new AdabasControlBlockX();
+			acbx.setAcbDBID(1);
+			AdabasMultiCall mc = new AdabasMultiCall(new AdabasDirectCallX(acbx));
+			for (int i = 0; i < 3; i++)
+				mc.add(newL1(i + 1), new AdabasBufferX("AE.", AdabasBufferX.FB), new AdabasBufferX(10, AdabasBufferX.RB), null, null, null);
+			assertEquals(1, mc.call());
+			assertEquals(3 * ENTRY, sizes[0]);
+			assertEquals(3 * ENTRY, sizes[1]);
+
+			mc.clear();
+			AdabasControlBlockX sub = newL1(1);
+			mc.add(sub, new AdabasBufferX("AE.", AdabasBufferX.FB), new AdabasBufferX(10, AdabasBufferX.RB), null, null, null);
+			assertEquals(1, mc.call());
+			assertEquals(3 * ENTRY, sizes[0]);										// same record buffer
+			assertEquals(ENTRY, sizes[1]);
+			assertEquals(113, mc.getResponse(0));
+
+			com.sun.management.ThreadMXBean tmx = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+			long	id		= Thread.currentThread().getId();
+			for (int i = 0; i < 20000; i++) {										// warm up
+				sub.setAcbRSP((short) 0);
+				mc.call();
+			}
+			long	before	= tmx.getThreadAllocatedBytes(id);
+			for (int i = 0; i < 1000; i++) {
+				sub.setAcbRSP((short) 0);
+				mc.call();
+			}
+			long	after	= tmx.getThreadAllocatedBytes(id);
+			for (int i = 0; i < 1000; i++)											// stand-in replies alone
+				a2Reply(request[0], handler);
+			long	replies	= tmx.getThreadAllocatedBytes(id) - after;
+			long	perCall	= (after - before - replies) / 1000;
+			assertTrue(String.format("%d bytes allocated per call", perCall), perCall < 1024);
+			assertEquals(113, mc.getResponse(0));
+		}
+		finally {
+			AdabasDirectCallXts.setTransport(null);
+		}
+	}
+
+	/**
+	 * L1 control block for DBID 1, file 1.
+	 */
+	private static AdabasControlBlockX newL1(long isn) throws Exception {
+
+		AdabasControlBlockX sub = new AdabasControlBlockX();
+		sub.setAcbDBID(1);
+		sub.setAcbCMD("L1");
+		sub.setAcbFNR(1);
+		sub.setAcbISN(isn);
+		return sub;
+	}
+
+	/**
+	 * Test method for {@link com.softwareag.adabas.jas.AdabasMultiCall#call()}.
+	 * @throws Exception
+	 *
+	 * Test OP/MC(L1,L1)/CL read Employees sequence.
+	 */
+	@Test
+	public final void testReadEmployeesMultiCall() throws Exception {
+
+		AdabasControlBlockX acbx = new AdabasControlBlockX();
+		AdabasDirectCallX	adcx = new AdabasDirectCallX(acbx);
+		acbx.setAcbDBID(dbid);														// default in JUnitCommon
+		acbx.setAcbCMD("OP");
+		adcx.setFB(new AdabasBufferX(".", AdabasBufferX.FB));
+		adcx.setRB(new AdabasBufferX("UPD=9.", AdabasBufferX.RB));
+		adcx.callAdabas();
+
+		AdabasMultiCall mc = new AdabasMultiCall(adcx);
+		for (int isn = 1; isn <= 2; isn++) {
+			AdabasControlBlockX sub = new AdabasControlBlockX();
+			sub.setAcbDBID(dbid);
+			sub.setAcbCMD("L1");
+			sub.setAcbFNR(1);
+			sub.setAcbISN(isn);
+			mc.add(sub, new AdabasBufferX("AA,AC,AE.", AdabasBufferX.FB), new AdabasBufferX(48, AdabasBufferX.RB), null, null, null);
+		}
+		mc.call();
+		for (int i = 0; i < mc.size(); i++) {
+			if (mc.getException(i) != null)
+				System.out.println(mc.getException(i).getMessage());
+		}
+		assertFalse(mc.hasErrors());
+
+		acbx.setAcbCMD("CL");
+		adcx.setFB(null);
+		adcx.setRB(null);
+		adcx.callAdabas();
+	}
+}
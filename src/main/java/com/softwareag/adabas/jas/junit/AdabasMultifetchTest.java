@@ -0,0 +1,150 @@
+package com.softwareag.adabas.jas.junit;
+
+import static org.junit.Assert.*;
+
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+
+import org.junit.Test;
+
+import com.softwareag.adabas.jas.AdabasBufferX;
+import com.softwareag.adabas.jas.AdabasControlBlockX;
+import com.softwareag.adabas.jas.AdabasDirectCallX;
+import com.softwareag.adabas.jas.AdabasException;
+import com.softwareag.adabas.jas.AdabasMultifetch;
+
+/**
+ * JUnit tests for AdabasMultifetch
+ *
+ * @author usadva
+ */
+
+/*
+ * Copyright (c) 1998-2021 Software AG, Darmstadt, Germany and/or Software AG USA Inc., Reston, VA, USA,
+ * and/or its subsidiaries and/or its affiliates and/or their licensors. Use, reproduction, transfer,
+ * publication or disclosure is prohibited except as specifically provided for in your License Agreement
+ * with Software AG.
+ */
+
+public class AdabasMultifetchTest extends JUnitCommon {
+
+	/**
+	 * Test method for {@link com.softwareag.adabas.jas.AdabasMultifetch#AdabasMultifetch(AdabasDirectCallX, int, int)}.
+	 * @throws Exception
+	 *
+	 * Test buffer setup and invalid settings.
+	 */
+	@Test
+	public final void testAdabasMultifetch() throws Exception {
+
+		AdabasControlBlockX acbx = new AdabasControlBlockX();
+		AdabasDirectCallX	adcx = new AdabasDirectCallX(acbx);
+
+		AdabasMultifetch mf = new AdabasMultifetch(adcx, 10, 20);
+		assertSame(mf.getRB(), adcx.getRB());
+		assertSame(mf.getMB(), adcx.getMB());
+		assertEquals(200, mf.getRB().getAbdSIZE());
+		assertEquals(AdabasMultifetch.MB_HDR_LENGTH + 10 * AdabasMultifetch.MB_ENTRY_LENGTH, mf.getMB().getAbdSIZE());
+		assertEquals('M', acbx.getAcbCOP1());
+		assertEquals(10, acbx.getAcbISL());
+
+		mf.detach();
+		assertNull(adcx.getMB());
+
+		try {
+			new AdabasMultifetch(adcx, 0, 20);
+			fail("AdabasMultifetch(adcx, 0, 20) did not generate AdabasException");
+		}
+		catch (AdabasException e) {
+			if (!e.getMessage().contains("Invalid multifetch settings"))
+				fail("AdabasMultifetch(adcx, 0, 20) did not generate AdabasException Invalid multifetch settings");
+		}
+	}
+
+	/**
+	 * Test method for {@link com.softwareag.adabas.jas.AdabasMultifetch#iterator()}.
+	 * @throws Exception
+	 *
+	 * Test MB header decode and record positions on a simulated reply.
+	 */
+	@Test
+	public final void testIterator() throws Exception {
+
+		AdabasControlBlockX acbx = new AdabasControlBlockX();
+		AdabasDirectCallX	adcx = new AdabasDirectCallX(acbx);
+		AdabasMultifetch	mf	 = new AdabasMultifetch(adcx, 4, 8);
+
+		ByteBuffer mbb = mf.getMB().getDataBuffer();								// 3 records of length 8, 5, 8
+		mbb.putInt(0, 3);
+		int[] lengths	= { 8, 5, 8 };
+		for (int i = 0; i < 3; i++) {
+			mbb.putInt(4 + i * 16, lengths[i]);
+			mbb.putInt(4 + i * 16 + 4, 0);
+			mbb.putInt(4 + i * 16 + 8, 100 + i);
+		}
+		mf.getMB().setAbdRECV(4 + 3 * 16);
+		mf.getRB().setAbdRECV(21);
+		acbx.setAcbRSP((short) 0);
+
+		assertEquals(3, mf.getCount());
+
+		Iterator<AdabasMultifetch.Record> it = mf.iterator();
+		int offset = 0;
+		for (int i = 0; i < 3; i++) {
+			assertTrue(it.hasNext());
+			AdabasMultifetch.Record rec = it.next();
+			assertEquals(i, rec.getIndex());
+			assertEquals(offset, rec.getOffset());
+			assertEquals(lengths[i], rec.getLength());
+			assertEquals(100 + i, rec.getIsn());
+			offset += lengths[i];
+		}
+		assertFalse(it.hasNext());
+
+		acbx.setAcbRSP((short) 3);													// EOF - no records
+		assertEquals(0, mf.getCount());
+	}
+
+	/**
+	 * Test method for {@link com.softwareag.adabas.jas.AdabasMultifetch#iterator()}.
+	 * @throws Exception
+	 *
+	 * Test OP/L2/CL read Employees sequence with 10 records per call.
+	 */
+	@Test
+	public final void testReadEmployeesMultifetch() throws Exception {
+
+		AdabasControlBlockX acbx = new AdabasControlBlockX();
+		AdabasDirectCallX	adcx = new AdabasDirectCallX(acbx);
+		acbx.setAcbDBID(dbid);														// default in JUnitCommon
+		acbx.setAcbCMD("OP");
+		adcx.setFB(new AdabasBufferX(".", AdabasBufferX.FB));
+		adcx.setRB(new AdabasBufferX("UPD=9.", AdabasBufferX.RB));
+		adcx.callAdabas();
+
+		acbx.setAcbCMD("L2");
+		acbx.setAcbCID("JASM");
+		acbx.setAcbFNR(1);
+		adcx.setFB(new AdabasBufferX("AA,AC,AE.", AdabasBufferX.FB));
+		AdabasMultifetch mf = new AdabasMultifetch(adcx, 10, 48);
+
+		int records = 0;
+		for (int i = 0; i < 5; i++) {
+			adcx.callAdabas();
+			if (acbx.getAcbRSP() == 3)
+				break;
+			assertTrue(mf.getCount() > 0);
+			for (AdabasMultifetch.Record rec : mf) {
+				assertEquals(0, rec.getResponse());
+				records++;
+			}
+		}
+		System.out.println(String.format("multifetch records read = %d", records));
+
+		mf.detach();
+		acbx.setAcbCMD("CL");
+		adcx.setFB(null);
+		adcx.setRB(null);
+		adcx.callAdabas();
+	}
+}
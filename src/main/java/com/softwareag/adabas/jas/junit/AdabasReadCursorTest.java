@@ -0,0 +1,332 @@
+package com.softwareag.adabas.jas.junit;
+
+import static org.junit.Assert.*;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import com.softwareag.adabas.jas.AdabasBufferX;
+import com.softwareag.adabas.jas.AdabasControlBlockX;
+import com.softwareag.adabas.jas.AdabasDirectCallX;
+import com.softwareag.adabas.jas.AdabasException;
+import com.softwareag.adabas.jas.AdabasReadCursor;
+import com.softwareag.adabas.jas.xts.AdabasDirectCallXts;
+
+/**
+ * JUnit tests for AdabasReadCursor
+ *
+ * @author usadva
+ */
+
+/*
+ * Copyright (c) 1998-2021 Software AG, Darmstadt, Germany and/or Software AG USA Inc., Reston, VA, USA,
+ * and/or its subsidiaries and/or its affiliates and/or their licensors. Use, reproduction, transfer,
+ * publication or disclosure is prohibited except as specifically provided for in your License Agreement
+ * with Software AG.
+ */
+
+public class AdabasReadCursorTest extends JUnitCommon {
+
+	/**
+	 * Test method for {@link com.softwareag.adabas.jas.AdabasReadCursor#AdabasReadCursor(AdabasDirectCallX, int, int)}.
+	 * @throws Exception
+	 *
+	 * Test invalid settings.
+	 */
+	@Test
+	public final void testAdabasReadCursor() throws Exception {
+
+		AdabasDirectCallX adcx = new AdabasDirectCallX(new AdabasControlBlockX());
+		try {
+			new AdabasReadCursor(adcx, 0, 20);
+			fail("AdabasReadCursor(adcx, 0, 20) did not generate AdabasException");
+		}
+		catch (AdabasException e) {
+			if (!e.getMessage().contains("Invalid read cursor settings"))
+				fail("AdabasReadCursor(adcx, 0, 20) did not generate AdabasException Invalid read cursor settings");
+		}
+	}
+
+	/**
+	 * Test method for {@link com.softwareag.adabas.jas.AdabasReadCursor#next()}.
+	 * @throws Exception
+	 *
+	 * Test records are returned in order up to rc 3 and reads overlap with record
+	 * processing, using a stand-in transport with a fixed round trip time.
+	 */
+	@Test
+	public final void testReadAhead() throws Exception {
+
+		final int			RECORDS		= 40;								// records before rc 3
+		final int			RTT			= 10;								// round trip time in ms
+		final int			WORK		= 10;								// processing time per record in ms
+		final int			LEN			= 8;								// RB length
+		final AtomicInteger	calls		= new AtomicInteger(0);
+
+		List<String>		rcs			= Collections.synchronizedList(new ArrayList<String>());
+		setReadTransport(RECORDS, RTT, calls, rcs, 0);
+
+		try {
+			AdabasControlBlockX acbx = new AdabasControlBlockX();
+			AdabasDirectCallX	adcx = new AdabasDirectCallX(acbx);
+			acbx.setAcbDBID(1);
+			acbx.setAcbCMD("L2");
+			acbx.setAcbCID("JASC");
+			acbx.setAcbFNR(1);
+			adcx.setFB(new AdabasBufferX("AA.", AdabasBufferX.FB));
+
+			long start = System.nanoTime();
+			for (int isn = 1; isn <= RECORDS; isn++) {							// serial reads for comparison
+				adcx.setRB(new AdabasBufferX(LEN, AdabasBufferX.RB));
+				adcx.callAdabas();
+				assertEquals(isn, acbx.getAcbISN());
+				Thread.sleep(WORK);												// process record
+			}
+			long serial = (System.nanoTime() - start) / 1000000;
+			calls.set(0);
+
+			start = System.nanoTime();
+			int records = 0;
+			try (AdabasReadCursor cursor = new AdabasReadCursor(adcx, 2, LEN)) {
+				while (cursor.next()) {
+					records++;
+					assertEquals(records, cursor.getIsn());
+					assertEquals(LEN, cursor.getRB().getAbdRECV());
+					assertEquals((byte) records, cursor.getRB().getDataBytes()[LEN - 1]);
+					Thread.sleep(WORK);											// process record
+				}
+				assertFalse(cursor.next());
+				assertNull(cursor.getRB());
+			}
+			long elapsed = (System.nanoTime() - start) / 1000000;
+			System.out.println(String.format("read cursor %d records in %d ms (serial %d ms)", records, elapsed, serial));
+
+			assertEquals(RECORDS, records);
+			assertEquals(RECORDS + 1, calls.get());							// no read after rc 3
+			assertEquals(0, rcs.size());										// sequence ended, no RC
+			assertTrue(elapsed < serial * 3 / 4);								// reads overlap processing
+		}
+		finally {
+			AdabasDirectCallXts.setTransport(null);
+		}
+	}
+
+	/**
+	 * Test method for {@link com.softwareag.adabas.jas.AdabasReadCursor#AdabasReadCursor(AdabasDirectCallX, int, int)}.
+	 * @throws Exception
+	 *
+	 * Test hold commands are rejected.
+	 */
+	@Test
+	public final void testHoldCommand() throws Exception {
+
+		for (String cmd : new String[] { "L4", "L5", "L6" }) {
+			AdabasControlBlockX acbx = new AdabasControlBlockX();
+			acbx.setAcbCMD(cmd);
+			try {
+				new AdabasReadCursor(new AdabasDirectCallX(acbx), 1, 20);
+				fail("AdabasReadCursor() " + cmd + " did not generate AdabasException");
+			}
+			catch (AdabasException e) {
+				if (!e.getMessage().contains("Read cursor does not support hold command " + cmd))
+					fail("AdabasReadCursor() " + cmd + " did not generate AdabasException Read cursor does not support hold command");
+			}
+		}
+	}
+
+	/**
+	 * Test method for {@link com.softwareag.adabas.jas.AdabasReadCursor#close()}.
+	 * @throws Exception
+	 *
+	 * Test closing before EOF releases the CID with RC and restores command and record
+	 * buffer of the direct call.
+	 */
+	@Test
+	public final void testCloseRestores() throws Exception {
+
+		AtomicInteger	calls	= new AtomicInteger(0);
+		List<String>	rcs		= Collections.synchronizedList(new ArrayList<String>());
+		setReadTransport(100, 0, calls, rcs, 0);
+		try {
+			AdabasDirectCallX	adcx	= newReadCall();
+			AdabasBufferX		rb		= adcx.getRB();
+			try (AdabasReadCursor cursor = new AdabasReadCursor(adcx, 2, 8)) {
+				assertTrue(cursor.next());
+				assertTrue(cursor.next());
+			}
+			assertEquals(Collections.singletonList("JASC"), rcs);
+			assertEquals("L2", adcx.getAcbX().getAcbCMD());
+			assertSame(rb, adcx.getRB());
+		}
+		finally {
+			AdabasDirectCallXts.setTransport(null);
+		}
+	}
+
+	/**
+	 * Test method for {@link com.softwareag.adabas.jas.AdabasReadCursor#next()}.
+	 * @throws Exception
+	 *
+	 * Test next() ends with an AdabasException instead of blocking when the reader
+	 * dies from an Error.
+	 */
+	@Test
+	public final void testReaderError() throws Exception {
+
+		AtomicInteger	calls	= new AtomicInteger(0);
+		List<String>	rcs		= Collections.synchronizedList(new ArrayList<String>());
+		setReadTransport(100, 0, calls, rcs, 3);
+		try {
+			int records = 0;
+			try (AdabasReadCursor cursor = new AdabasReadCursor(newReadCall(), 1, 8)) {
+				try {
+					while (cursor.next())
+						records++;
+					fail("next() did not generate AdabasException after reader Error");
+				}
+				catch (AdabasException e) {
+					if (!e.getMessage().contains("Read cursor reader ended unexpectedly"))
+						fail("next() did not generate AdabasException Read cursor reader ended unexpectedly");
+				}
+				assertFalse(cursor.next());
+			}
+			assertEquals(2, records);
+			assertEquals(1, rcs.size());
+		}
+		finally {
+			AdabasDirectCallXts.setTransport(null);
+		}
+	}
+
+	/**
+	 * Test method for {@link com.softwareag.adabas.jas.AdabasReadCursor#close()}.
+	 * @throws Exception
+	 *
+	 * Test close() throws when the read in progress does not end in time, and the reader
+	 * releases the CID and restores the direct call once it ends.
+	 */
+	@Test
+	public final void testCloseTimeout() throws Exception {
+
+		AtomicInteger	calls	= new AtomicInteger(0);
+		List<String>	rcs		= Collections.synchronizedList(new ArrayList<String>());
+		setReadTransport(100, 300, calls, rcs, 0);
+		try {
+			AdabasDirectCallX	adcx	= newReadCall();
+			AdabasBufferX		rb		= adcx.getRB();
+			adcx.setXtsLockTimeout(20);
+			adcx.setXtsSendTimeout(20);
+			AdabasReadCursor	cursor	= new AdabasReadCursor(adcx, 1, 8);
+			Thread.sleep(50);													// first read in progress
+			try {
+				cursor.close();
+				fail("close() did not generate AdabasException while read in progress");
+			}
+			catch (AdabasException e) {
+				if (!e.getMessage().contains("Read cursor not closed within 40 ms"))
+					fail("close() did not generate AdabasException Read cursor not closed within 40 ms");
+			}
+			for (int i = 0; i < 100 && rcs.isEmpty(); i++)
+				Thread.sleep(10);
+			assertEquals(Collections.singletonList("JASC"), rcs);
+			assertEquals(1, calls.get());
+			assertEquals("L2", adcx.getAcbX().getAcbCMD());
+			assertSame(rb, adcx.getRB());
+		}
+		finally {
+			AdabasDirectCallXts.setTransport(null);
+		}
+	}
+
+	/**
+	 * Direct call L2 with CID JASC on file 1 and its own RB.
+	 */
+	private static AdabasDirectCallX newReadCall() throws Exception {
+
+		AdabasControlBlockX acbx = new AdabasControlBlockX();
+		AdabasDirectCallX	adcx = new AdabasDirectCallX(acbx);
+		acbx.setAcbDBID(1);
+		acbx.setAcbCMD("L2");
+		acbx.setAcbCID("JASC");
+		acbx.setAcbFNR(1);
+		adcx.setFB(new AdabasBufferX("AA.", AdabasBufferX.FB));
+		adcx.setRB(new AdabasBufferX(8, AdabasBufferX.RB));
+		return adcx;
+	}
+
+	/**
+	 * Install stand-in transport returning records with ISN 1, 2, .. and 8 RB bytes of the
+	 * ISN, then rc 3. RC calls are echoed and their CIDs collected.
+	 *
+	 * @param records	Records before rc 3.
+	 * @param rtt		Round trip time of a read in ms.
+	 * @param calls		Counter of reads.
+	 * @param rcs		CIDs of RC calls.
+	 * @param errorAt	Read throwing an AssertionError, 0 for none.
+	 */
+	private static void setReadTransport(int records, int rtt, AtomicInteger calls, List<String> rcs, int errorAt) {
+
+		setA2Transport(reply -> {
+			if (reply.getCommand().equals("RC")) {
+				ByteBuffer acbx = reply.getRequestACBX();
+				rcs.add(new String(acbx.array(), acbx.arrayOffset() + 0x0C, 4));
+				return;															// rc 0
+			}
+			try {
+				Thread.sleep(rtt);
+			}
+			catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			int	isn	= calls.incrementAndGet();
+			if (isn == errorAt)
+				throw new AssertionError("reader killed");
+			byte[] rb = new byte[8];
+			Arrays.fill(rb, (byte) isn);
+			reply.setRSP((isn > records) ? 3 : 0).setISN(isn).setRECV(AdabasBufferX.RB, rb);
+		});
+	}
+
+	/**
+	 * Test method for {@link com.softwareag.adabas.jas.AdabasReadCursor#next()}.
+	 * @throws Exception
+	 *
+	 * Test OP/L2/CL read Employees sequence with read ahead.
+	 */
+	@Test
+	public final void testReadEmployeesCursor() throws Exception {
+
+		AdabasControlBlockX acbx = new AdabasControlBlockX();
+		AdabasDirectCallX	adcx = new AdabasDirectCallX(acbx);
+		acbx.setAcbDBID(dbid);														// default in JUnitCommon
+		acbx.setAcbCMD("OP");
+		adcx.setFB(new AdabasBufferX(".", AdabasBufferX.FB));
+		adcx.setRB(new AdabasBufferX("UPD=9.", AdabasBufferX.RB));
+		adcx.callAdabas();
+
+		acbx.setAcbCMD("L2");
+		acbx.setAcbCID("JASC");
+		acbx.setAcbFNR(1);
+		adcx.setFB(new AdabasBufferX("AA,AC,AE.", AdabasBufferX.FB));
+
+		int records = 0;
+		try (AdabasReadCursor cursor = new AdabasReadCursor(adcx, AdabasReadCursor.DEFAULT_DEPTH, 48)) {
+			while (cursor.next() && records < 50) {
+				assertTrue(cursor.getIsn() > 0);
+				records++;
+			}
+		}
+		System.out.println(String.format("read cursor records read = %d", records));
+
+		acbx.setAcbCMD("CL");
+		adcx.setFB(null);
+		adcx.setRB(null);
+		adcx.callAdabas();
+	}
+}
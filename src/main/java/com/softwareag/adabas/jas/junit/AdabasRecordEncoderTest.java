@@ -0,0 +1,117 @@
+package com.softwareag.adabas.jas.junit;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import com.softwareag.adabas.jas.AdabasBufferX;
+import com.softwareag.adabas.jas.AdabasException;
+import com.softwareag.adabas.jas.AdabasFormatLayout;
+import com.softwareag.adabas.jas.AdabasRecordEncoder;
+import com.softwareag.adabas.jas.AdabasRecordView;
+
+/**
+ * JUnit tests for AdabasRecordEncoder
+ *
+ * @author usadva
+ */
+
+/*
+ * Copyright (c) 1998-2021 Software AG, Darmstadt, Germany and/or Software AG USA Inc., Reston, VA, USA,
+ * and/or its subsidiaries and/or its affiliates and/or their licensors. Use, reproduction, transfer,
+ * publication or disclosure is prohibited except as specifically provided for in your License Agreement
+ * with Software AG.
+ */
+
+public class AdabasRecordEncoderTest {
+
+	/**
+	 * Test method for {@link com.softwareag.adabas.jas.AdabasRecordEncoder#finish()}.
+	 * @throws Exception
+	 *
+	 * Test values written are read back by AdabasRecordView and SEND is set.
+	 */
+	@Test
+	public final void testEncode() throws Exception {
+
+		AdabasFormatLayout	layout	= AdabasFormatLayout.compile("AA,8,A,1X,AB,2,B,AC,4,F,AD,4,P,AE,3,U,AF,8,G,AG,6,W.");
+		AdabasBufferX		rb		= new AdabasBufferX(64, AdabasBufferX.RB);
+		AdabasRecordEncoder	enc		= new AdabasRecordEncoder(layout);
+
+		enc.wrap(rb).putString(0, "ABC").putLong(2, 65535).putLong(3, -7).putLong(4, -1234567)
+			.putLong(5, -42).putDouble(6, 2.25).putString(7, "\u00e4b\u20ac");
+		assertEquals(layout.getRecordLength(), enc.finish());
+		assertEquals(layout.getRecordLength(), rb.getAbdSEND());
+		assertEquals(0x20, rb.getDataBytes()[7]);								// blank padded
+		assertEquals(0x7D, rb.getDataBytes()[15 + 3]);							// packed sign D
+
+		rb.setAbdRECV(layout.getRecordLength());
+		AdabasRecordView view = new AdabasRecordView(layout).wrap(rb);
+		assertEquals("ABC", view.getString(0));
+		assertEquals(65535, view.getLong(2));
+		assertEquals(-7, view.getLong(3));
+		assertEquals(-1234567, view.getLong(4));
+		assertEquals(-42, view.getLong(5));
+		assertEquals(2.25, view.getDouble(6), 0.0);
+		assertEquals("\u00e4b\u20ac", view.getString(7));
+
+		AdabasBufferX ebcdic = new AdabasBufferX(64, AdabasBufferX.RB, true);
+		new AdabasRecordEncoder(AdabasFormatLayout.compile("AA,3,A,AE,2,U.")).wrap(ebcdic).putString(0, "A1").putLong(1, 9).finish();
+		assertArrayEquals(new byte[] { (byte) 0xC1, (byte) 0xF1, 0x40, (byte) 0xF0, (byte) 0xF9 }, Arrays.copyOf(ebcdic.getDataBytes(), 5));
+	}
+
+	/**
+	 * Test method for {@link com.softwareag.adabas.jas.AdabasRecordEncoder#putLong(int, long)}.
+	 * @throws Exception
+	 *
+	 * Test values not fitting their fields and missing fields are rejected before a call.
+	 */
+	@Test
+	public final void testValidate() throws Exception {
+
+		AdabasFormatLayout	layout	= AdabasFormatLayout.compile("AA,4,A,AB,1,B,AC,2,P,AD,2,F.");
+		AdabasRecordEncoder	enc		= new AdabasRecordEncoder(layout).wrap(new AdabasBufferX(16, AdabasBufferX.RB));
+
+		String[]	what	= { "alpha too long", "binary too large", "packed too large", "fixed too small", "not numeric", "not written" };
+		for (int i = 0; i < what.length; i++) {
+			try {
+				switch (i) {
+					case 0:	enc.putString(0, "ABCDE");	break;
+					case 1:	enc.putLong(1, 256);		break;
+					case 2:	enc.putLong(2, 1000);		break;
+					case 3:	enc.putLong(3, -32769);		break;
+					case 4:	enc.putLong(0, 1);			break;
+					default:
+						enc.putString(0, "ABCD").putLong(1, 255).putLong(2, -999);
+						enc.finish();
+						break;
+				}
+				fail(what[i] + " did not generate AdabasException");
+			}
+			catch (AdabasException e) {
+				assertTrue(e.getMessage().contains("FB field"));
+			}
+		}
+
+		try {
+			new AdabasRecordEncoder(layout).wrap(new AdabasBufferX(4, AdabasBufferX.RB));
+			fail("RB too small did not generate AdabasException");
+		}
+		catch (AdabasException e) {
+			assertTrue(e.getMessage().contains("less than FB record length"));
+		}
+
+		AdabasBufferX rb = new AdabasBufferX(16, AdabasBufferX.RB);
+		enc = new AdabasRecordEncoder(layout).wrap(rb).putString(0, "WXYZ");
+		try {
+			enc.putString(0, "AB\u20ac");
+			fail("alpha not representable did not generate AdabasException");
+		}
+		catch (AdabasException e) {
+			assertTrue(e.getMessage().contains("character U+20AC not in ISO-8859-1"));
+		}
+		assertArrayEquals("WXYZ".getBytes("ISO-8859-1"), Arrays.copyOf(rb.getDataBytes(), 4));	// not partly overwritten
+	}
+}
@@ -0,0 +1,121 @@
+package com.softwareag.adabas.jas.junit;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import com.softwareag.adabas.jas.AdabasControlBlockX;
+import com.softwareag.adabas.jas.AdabasDirectCallX;
+import com.softwareag.adabas.jas.AdabasException;
+import com.softwareag.adabas.jas.AdabasResult;
+import com.softwareag.adabas.jas.xts.AdabasDirectCallXts;
+
+/**
+ * JUnit tests for AdabasResult
+ *
+ * @author usadva
+ */
+
+/*
+ * Copyright (c) 1998-2021 Software AG, Darmstadt, Germany and/or Software AG USA Inc., Reston, VA, USA,
+ * and/or its subsidiaries and/or its affiliates and/or their licensors. Use, reproduction, transfer,
+ * publication or disclosure is prohibited except as specifically provided for in your License Agreement
+ * with Software AG.
+ */
+
+public class AdabasResultTest extends JUnitCommon {
+
+	/**
+	 * Set a stand-in transport replying with rc, subcode, subcomponent rc and ERRB "AA".
+	 */
+	private static void setResponseTransport(final short rc, final short sc) {
+
+		setA2Transport(reply -> reply.setRSP(rc).setError("AA", sc, 7));
+	}
+
+	/**
+	 * Test method for {@link com.softwareag.adabas.jas.AdabasDirectCallX#tryCallAdabas()}.
+	 * @throws Exception
+	 *
+	 * Test response codes above 3 are returned in the reused result, not thrown, while callAdabas() still throws.
+	 */
+	@Test
+	public final void testTryCallAdabas() throws Exception {
+
+		AdabasControlBlockX acbx = new AdabasControlBlockX();
+		acbx.setAcbDBID(1);
+		acbx.setAcbFNR(9);
+		acbx.setAcbCMD("L1");
+		acbx.setAcbISN(5);
+		AdabasDirectCallX adcx = new AdabasDirectCallX(acbx);
+
+		setResponseTransport(AdabasException.ADA_113, (short) 5);
+		try {
+			AdabasResult r = adcx.tryCallAdabas();
+			assertTrue(r.isError());
+			assertFalse(r.isSuccess());
+			assertEquals(AdabasException.ADA_113, r.getResponseCode());
+			assertEquals(5, r.getSubCode());
+			assertEquals(7, r.getSubCompRC());
+			assertEquals(1, r.getDBID());
+			assertEquals("L1", r.getCommand());
+			assertEquals("AA", r.getErrorField());
+			assertEquals(AdabasException.getRCShortText(113, 5), r.getText());
+			assertEquals(AdabasException.ADA_113, r.getException().getResponseCode());
+
+			try {
+				adcx.callAdabas();
+				fail("callAdabas() rc 113 did not generate AdabasException");
+			}
+			catch (AdabasException e) {
+				assertEquals(AdabasException.ADA_113, e.getResponseCode());
+				assertEquals(5, e.getSubCode());
+			}
+
+			setResponseTransport(AdabasException.ADA_003, (short) 0);
+			assertSame(r, adcx.tryCallAdabas());									// result reused
+			assertTrue(r.isEndOfFile());
+			assertFalse(r.isError());
+
+			AdabasResult own = new AdabasResult();
+			assertSame(own, adcx.tryCallAdabas(own));
+
+			setA2Transport(reply -> {
+				throw new IllegalStateException("connection lost");
+			});
+			try {
+				adcx.tryCallAdabas();
+				fail("tryCallAdabas() transport failure did not generate exception");
+			}
+			catch (IllegalStateException e) {
+				assertEquals("connection lost", e.getMessage());
+			}
+		}
+		finally {
+			AdabasDirectCallXts.setTransport(null);
+		}
+	}
+
+	/**
+	 * Test method for {@link com.softwareag.adabas.jas.AdabasException#getStackless(short)}.
+	 * @throws Exception
+	 *
+	 * Test stackless exceptions are shared per response code and carry the response code text.
+	 */
+	@Test
+	public final void testGetStackless() throws Exception {
+
+		AdabasException e = AdabasException.getStackless(AdabasException.ADA_145);
+		assertSame(e, AdabasException.getStackless(AdabasException.ADA_145));
+		assertEquals(0, e.getStackTrace().length);
+		assertEquals(AdabasException.ADA_145, e.getResponseCode());
+		assertTrue(e.getMessage().contains("rc = 145"));
+		assertEquals(AdabasException.getRCShortText(145), e.getShortMessage());
+		e.addSuppressed(new Exception());
+		assertEquals(0, e.getSuppressed().length);
+
+		AdabasException n = AdabasException.getStackless((short) -1);
+		assertNotSame(n, AdabasException.getStackless((short) -1));
+		assertEquals("AdabasException: Unknown", n.getMessage());
+	}
+}
@@ -0,0 +1,167 @@
+package com.softwareag.adabas.jas.junit;
+
+import static org.junit.Assert.*;
+import static com.softwareag.adabas.jas.AdabasSearchQuery.*;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import com.softwareag.adabas.jas.AdabasBufferX;
+import com.softwareag.adabas.jas.AdabasControlBlockX;
+import com.softwareag.adabas.jas.AdabasDirectCallX;
+import com.softwareag.adabas.jas.AdabasException;
+import com.softwareag.adabas.jas.AdabasSearchQuery;
+
+/**
+ * JUnit tests for AdabasSearchQuery
+ *
+ * @author usadva
+ */
+
+/*
+ * Copyright (c) 1998-2021 Software AG, Darmstadt, Germany and/or Software AG USA Inc., Reston, VA, USA,
+ * and/or its subsidiaries and/or its affiliates and/or their licensors. Use, reproduction, transfer,
+ * publication or disclosure is prohibited except as specifically provided for in your License Agreement
+ * with Software AG.
+ */
+
+public class AdabasSearchQueryTest extends JUnitCommon {
+
+	/**
+	 * Test method for {@link com.softwareag.adabas.jas.AdabasSearchQuery#compile(AdabasSearchQuery.Node)}.
+	 * @throws Exception
+	 *
+	 * Test SB text and VB layout per tree shape, caching and trees without SB form.
+	 */
+	@Test
+	public final void testCompile() throws Exception {
+
+		AdabasSearchQuery q = AdabasSearchQuery.compile(eq("AE", 20, 'A'));
+		assertEquals("AE,20,A.", q.getSearchBuffer());
+		assertEquals(1, q.getValueCount());
+
+		q = AdabasSearchQuery.compile(and(eq("AE", 20, 'A'), or(eq("AJ", 3, 'A'), eq("AJ", 3, 'A'))));
+		assertEquals("AE,20,A,D,AJ,3,A,R,AJ,3,A.", q.getSearchBuffer());
+		assertEquals(26, q.getValueLayout().getRecordLength());
+
+		q = AdabasSearchQuery.compile(or(and(range("AA", 8, 'A'), gt("AN", 4, 'P')), ne("AE", 20, 'A')));
+		assertEquals("AA,8,A,S,AA,8,A,D,AN,4,P,GT,O,AE,20,A,NE.", q.getSearchBuffer());
+		assertEquals(4, q.getValueCount());
+
+		assertSame(q, AdabasSearchQuery.compile(or(and(range("AA", 8, 'A'), gt("AN", 4, 'P')), ne("AE", 20, 'A'))));
+		assertNotSame(q, AdabasSearchQuery.compile(or(and(range("AA", 8, 'A'), gt("AN", 4, 'P')), ne("AE", 19, 'A'))));
+
+		try {
+			AdabasSearchQuery.compile(and(eq("AE", 20, 'A'), or(eq("AJ", 3, 'A'), eq("AN", 4, 'P'))));
+			fail("and with or of different fields did not generate AdabasException");
+		}
+		catch (AdabasException e) {
+			assertTrue(e.getMessage().contains("not expressible as SB"));
+		}
+	}
+
+	/**
+	 * Test method for {@link com.softwareag.adabas.jas.AdabasSearchQuery#acquire()}.
+	 * @throws Exception
+	 *
+	 * Test values are encoded into the VB, buffers set on the call and executions pooled.
+	 */
+	@Test
+	public final void testExecution() throws Exception {
+
+		AdabasSearchQuery	q		= AdabasSearchQuery.compile(and(eq("AE", 6, 'A'), le("AN", 2, 'P')));
+		AdabasDirectCallX	adcx	= new AdabasDirectCallX(new AdabasControlBlockX());
+
+		AdabasSearchQuery.Execution ex = q.acquire();
+		ex.putString(0, "SMITH").putLong(1, 120).apply(adcx);
+		assertSame(ex.getSB(), adcx.getSB());
+		assertSame(ex.getVB(), adcx.getVB());
+		assertEquals(8, adcx.getVB().getAbdSEND());
+		assertArrayEquals(new byte[] { 'S', 'M', 'I', 'T', 'H', ' ', 0x12, 0x0C }, Arrays.copyOf(adcx.getVB().getDataBytes(), 8));
+		ex.close();
+
+		AdabasSearchQuery.Execution ex2 = q.acquire();
+		assertSame(ex, ex2);
+		ex2.putString(0, "JONES");
+		try {
+			ex2.apply(adcx);
+			fail("apply() with unbound value did not generate AdabasException");
+		}
+		catch (AdabasException e) {
+			assertTrue(e.getMessage().contains("no value written"));
+		}
+		ex2.close();
+	}
+
+	/**
+	 * Test method for {@link com.softwareag.adabas.jas.AdabasSearchQuery#acquire(boolean)}.
+	 * @throws Exception
+	 *
+	 * Test EBCDIC executions encode SB and VB in EBCDIC, are pooled apart and only apply to EBCDIC sessions.
+	 */
+	@Test
+	public final void testExecutionEbcdic() throws Exception {
+
+		AdabasSearchQuery	q		= AdabasSearchQuery.compile(eq("AE", 3, 'A'));
+		AdabasDirectCallX	ascii	= new AdabasDirectCallX(new AdabasControlBlockX());
+		AdabasDirectCallX	ebcdic	= new AdabasDirectCallX(new AdabasControlBlockX(true), true);
+
+		AdabasSearchQuery.Execution ex = q.acquire(ebcdic.isXtsEBCDIC());
+		assertTrue(ex.isEbcdic());
+		ex.putString(0, "ABC");
+		try {
+			ex.apply(ascii);
+			fail("apply() of EBCDIC execution to ASCII session did not generate AdabasException");
+		}
+		catch (AdabasException e) {
+			assertTrue(e.getMessage().contains("Search query execution is EBCDIC, direct call is ASCII"));
+		}
+		ex.apply(ebcdic);
+		assertSame(ex.getSB(), ebcdic.getSB());
+		assertArrayEquals(new byte[] { (byte) 0xC1, (byte) 0xC2, (byte) 0xC3 }, Arrays.copyOf(ebcdic.getVB().getDataBytes(), 3));
+		assertArrayEquals("AE,3,A.".getBytes("cp037"), Arrays.copyOf(ex.getSB().getDataBytes(), 7));
+		ex.close();
+
+		AdabasSearchQuery.Execution ex2 = q.acquire();
+		assertNotSame(ex, ex2);
+		assertFalse(ex2.isEbcdic());
+		ex2.close();
+		assertSame(ex, q.acquire(true));
+	}
+
+	/**
+	 * Test method for {@link com.softwareag.adabas.jas.AdabasSearchQuery.Execution#apply(AdabasDirectCallX)}.
+	 * @throws Exception
+	 *
+	 * Test OP/S1/CL search Employees by name.
+	 */
+	@Test
+	public final void testSearchEmployees() throws Exception {
+
+		AdabasControlBlockX acbx = new AdabasControlBlockX();
+		AdabasDirectCallX	adcx = new AdabasDirectCallX(acbx);
+		acbx.setAcbDBID(dbid);														// default in JUnitCommon
+		acbx.setAcbCMD("OP");
+		adcx.setFB(new AdabasBufferX(".", AdabasBufferX.FB));
+		adcx.setRB(new AdabasBufferX("UPD=9.", AdabasBufferX.RB));
+		adcx.callAdabas();
+
+		acbx.setAcbCMD("S1");
+		acbx.setAcbFNR(1);
+		adcx.setFB(null);
+		adcx.setRB(null);
+		adcx.setIB(new AdabasBufferX(40, AdabasBufferX.IB));
+		try (AdabasSearchQuery.Execution ex = AdabasSearchQuery.compile(eq("AE", 20, 'A')).acquire()) {
+			ex.putString(0, "SMITH").apply(adcx);
+			adcx.callAdabas();
+			System.out.println(String.format("S1 AE = SMITH ISN quantity = %d", acbx.getAcbISQ()));
+		}
+
+		acbx.setAcbCMD("CL");
+		adcx.setSB(null);
+		adcx.setVB(null);
+		adcx.setIB(null);
+		adcx.callAdabas();
+	}
+}
@@ -0,0 +1,85 @@
+package com.softwareag.adabas.jas.junit;
+
+import static org.junit.Assert.*;
+
+import java.io.StringWriter;
+
+import org.junit.Test;
+
+import com.softwareag.adabas.jas.AdabasTrace;
+
+/**
+ * JUnit tests for AdabasTrace
+ *
+ * @author usadva
+ */
+
+/*
+ * Copyright (c) 1998-2021 Software AG, Darmstadt, Germany and/or Software AG USA Inc., Reston, VA, USA,
+ * and/or its subsidiaries and/or its affiliates and/or their licensors. Use, reproduction, transfer,
+ * publication or disclosure is prohibited except as specifically provided for in your License Agreement
+ * with Software AG.
+ */
+
+public class AdabasTraceTest {
+
+	private static final String LINE0	= "\n0x00000000  C1 C2 C3 C4 C5 C6 C7 C8   C9 C1 C2 C3 C4 C5 C6 C7   {........ ........}    {ABCDEFGH IABCDEFG}";
+	private static final String LINE1	= "\n0x00000010  00 00 00 00 00 00 00 00   00 00 00 00 00 00 00 00   {........ ........}    {........ ........}";
+	private static final String SAME1	= "\n            1 lines same as above ..";
+	private static final String LINE3	= "\n0x00000030  4A 41 53 F1                                         {JAS.             }    {\u00A2..1 }";
+
+	/**
+	 * 52 byte test buffer: EBCDIC letters, 2 lines of zeros, partial line.
+	 */
+	private static byte[] newBuffer() {
+
+		byte[] b = new byte[52];
+		for (int i = 0; i < 16; i++)
+			b[i] = (byte) (0xC1 + (i % 9));
+		b[48] = 'J';
+		b[49] = 'A';
+		b[50] = 'S';
+		b[51] = (byte) 0xF1;
+		return b;
+	}
+
+	/**
+	 * Test method for {@link com.softwareag.adabas.jas.AdabasTrace#dumpBuffer(String, byte[])}.
+	 * @throws Exception
+	 *
+	 * Test layout with ASCII and EBCDIC display, duplicate line folding and partial last line.
+	 */
+	@Test
+	public final void testDumpBuffer() throws Exception {
+
+		assertEquals("b =" + LINE0 + LINE1 + SAME1 + LINE3, AdabasTrace.dumpBuffer("b =", newBuffer()));
+		assertEquals("empty =", AdabasTrace.dumpBuffer("empty =", new byte[0]));
+		assertEquals("zeros =" + LINE1.replace("0x00000010", "0x00000000") + "\n            2 lines same as above ..",
+					 AdabasTrace.dumpBuffer("zeros =", new byte[48]));
+	}
+
+	/**
+	 * Test method for {@link com.softwareag.adabas.jas.AdabasTrace#dumpBuffer(StringBuilder, String, byte[], int, int, int)}.
+	 * @throws Exception
+	 *
+	 * Test slices keep buffer addresses, the byte cap, and appending to a reused builder and a Writer.
+	 */
+	@Test
+	public final void testDumpBufferSlice() throws Exception {
+
+		byte[]			b	= newBuffer();
+		StringBuilder	sb	= new StringBuilder("x");
+
+		assertSame(sb, AdabasTrace.dumpBuffer(sb, null, b, 16, 36, Integer.MAX_VALUE));
+		assertEquals("x" + LINE1 + SAME1 + LINE3, sb.toString());
+
+		sb.setLength(0);
+		AdabasTrace.dumpBuffer(sb, "b =", b, 0, b.length, 20);
+		assertEquals("b =" + LINE0 + "\n0x00000010  00 00 00 00                                         {....             }    {.... }"
+				   + "\n            32 more bytes not shown ..", sb.toString());
+
+		StringWriter w = new StringWriter();
+		AdabasTrace.dumpBuffer(w, "b =", b, 0, b.length, Integer.MAX_VALUE);
+		assertEquals(AdabasTrace.dumpBuffer("b =", b), w.toString());
+	}
+}
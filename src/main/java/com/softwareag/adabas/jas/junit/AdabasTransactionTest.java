@@ -0,0 +1,156 @@
+package com.softwareag.adabas.jas.junit;
+
+import static org.junit.Assert.*;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import com.softwareag.adabas.jas.AdabasBufferX;
+import com.softwareag.adabas.jas.AdabasControlBlockX;
+import com.softwareag.adabas.jas.AdabasDirectCallX;
+import com.softwareag.adabas.jas.AdabasException;
+import com.softwareag.adabas.jas.AdabasTransaction;
+import com.softwareag.adabas.jas.xts.AdabasDirectCallXts;
+
+/**
+ * JUnit tests for AdabasTransaction
+ *
+ * @author usadva
+ */
+
+/*
+ * Copyright (c) 1998-2021 Software AG, Darmstadt, Germany and/or Software AG USA Inc., Reston, VA, USA,
+ * and/or its subsidiaries and/or its affiliates and/or their licensors. Use, reproduction, transfer,
+ * publication or disclosure is prohibited except as specifically provided for in your License Agreement
+ * with Software AG.
+ */
+
+public class AdabasTransactionTest extends JUnitCommon {
+
+	/**
+	 * Set a stand-in transport counting ETs and returning rc 47 for N1 when the
+	 * hold queue already holds holdQueue ISNs.
+	 */
+	private static void setUpdateTransport(final AtomicInteger ets, final int holdQueue) {
+
+		final AtomicInteger held = new AtomicInteger(0);
+
+		setA2Transport(reply -> {												// rc 0, nothing received
+			String cmd = reply.getCommand();
+			if (cmd.equals("ET")) {
+				ets.incrementAndGet();
+				held.set(0);
+			}
+			if (cmd.equals("N1") && held.get() >= holdQueue)
+				reply.setRSP(AdabasException.ADA_047);
+			else if (cmd.equals("N1"))
+				held.incrementAndGet();
+		});
+	}
+
+	/**
+	 * Direct call set up for N1 with a 10 byte record.
+	 */
+	private static AdabasDirectCallX newUpdate() throws AdabasException {
+
+		AdabasControlBlockX acbx = new AdabasControlBlockX();
+		acbx.setAcbDBID(1);
+		acbx.setAcbFNR(9);
+		acbx.setAcbCMD("N1");
+		AdabasDirectCallX adcx = new AdabasDirectCallX(acbx);
+		adcx.setFB(new AdabasBufferX("AA,10,A.", AdabasBufferX.FB));
+		adcx.setRB(new AdabasBufferX("0123456789", AdabasBufferX.RB));
+		return adcx;
+	}
+
+	/**
+	 * Test method for {@link com.softwareag.adabas.jas.AdabasTransaction#call()}.
+	 * @throws Exception
+	 *
+	 * Test ET by update count and byte volume, and close committing the rest.
+	 */
+	@Test
+	public final void testCall() throws Exception {
+
+		AtomicInteger ets = new AtomicInteger(0);
+		setUpdateTransport(ets, 1000);
+		try {
+			AdabasDirectCallX adcx = newUpdate();
+			try (AdabasTransaction tx = new AdabasTransaction(adcx)) {
+				tx.setMaxUpdates(10);
+				for (int i = 0; i < 25; i++)
+					tx.call();
+				assertEquals(2, ets.get());
+				assertEquals(5, tx.getUncommitted());
+				assertEquals(20, tx.getCommitted());
+				assertTrue(tx.getMaxCommitNanos() >= tx.getAverageCommitNanos());
+				assertEquals("N1", adcx.getAcbX().getAcbCMD());				// session call settings restored
+
+				tx.commit();
+				assertEquals(3, ets.get());
+				tx.setMaxUpdates(1000);
+				tx.setMaxBytes(30);												// 3 records of 10 bytes
+				tx.call();
+				tx.call();
+				assertEquals(3, ets.get());
+				tx.call();
+				assertEquals(4, ets.get());
+
+				adcx.getAcbX().setAcbCMD("OP");									// not an update
+				tx.call();
+				assertEquals(0, tx.getUncommitted());
+				adcx.getAcbX().setAcbCMD("N1");
+				tx.call();
+			}
+			assertEquals(5, ets.get());
+		}
+		finally {
+			AdabasDirectCallXts.setTransport(null);
+		}
+	}
+
+	/**
+	 * Test method for {@link com.softwareag.adabas.jas.AdabasTransaction#commitIfDue()}.
+	 * @throws Exception
+	 *
+	 * Test ET and retry on rc 47 lowers the update limit, and ET by transaction age.
+	 */
+	@Test
+	public final void testHoldQueue() throws Exception {
+
+		AtomicInteger ets = new AtomicInteger(0);
+		setUpdateTransport(ets, 4);
+		try {
+			AdabasTransaction tx = new AdabasTransaction(newUpdate());
+			tx.setMaxUpdates(10);
+			for (int i = 0; i < 5; i++)
+				tx.call();														// 5th gets rc 47, ET, retried
+			assertEquals(1, ets.get());
+			assertEquals(1, tx.getHoldQueueFull());
+			assertEquals(4, tx.getMaxUpdates());
+			assertEquals(1, tx.getUncommitted());
+			for (int i = 0; i < 3; i++)
+				tx.call();
+			assertEquals(2, ets.get());											// ET at 4 updates
+
+			tx.setMaxMillis(1);
+			tx.setMaxUpdates(100);
+			assertFalse(tx.commitIfDue());
+			tx.call();
+			Thread.sleep(5);
+			assertTrue(tx.commitIfDue());
+			assertEquals(3, ets.get());
+
+			tx.call();
+			tx.setMaxMillis(AdabasTransaction.DEFAULT_MAX_MILLIS);
+			tx.rollback();
+			assertEquals(0, tx.getUncommitted());
+			tx.close();
+			assertEquals(3, ets.get());
+		}
+		finally {
+			AdabasDirectCallXts.setTransport(null);
+		}
+	}
+}
@@ -0,0 +1,181 @@
+package com.softwareag.adabas.jas.junit;
+
+import static org.junit.Assert.*;
+
+import java.util.Iterator;
+
+import org.junit.Test;
+
+import com.softwareag.adabas.jas.AdabasBufferX;
+import com.softwareag.adabas.jas.AdabasControlBlockX;
+import com.softwareag.adabas.jas.AdabasDirectCallX;
+import com.softwareag.adabas.jas.xts.CommandTableMF;
+import com.softwareag.adabas.jas.xts.CommandTableMF.CommandMF;
+
+/**
+ * JUnit tests for CommandTableMF
+ *
+ * @author usadva
+ */
+
+/*
+ * Copyright (c) 1998-2021 Software AG, Darmstadt, Germany and/or Software AG USA Inc., Reston, VA, USA,
+ * and/or its subsidiaries and/or its affiliates and/or their licensors. Use, reproduction, transfer,
+ * publication or disclosure is prohibited except as specifically provided for in your License Agreement
+ * with Software AG.
+ */
+
+public class CommandTableMFTest {
+
+	/**
+	 * Test method for {@link com.softwareag.adabas.jas.xts.CommandTableMF#getCommand(byte, byte)}.
+	 * @throws Exception
+	 *
+	 * Test commands are found by ASCII and EBCDIC code, unknown codes are not, and the table cannot be changed.
+	 */
+	@Test
+	public final void testGetCommand() throws Exception {
+
+		for (CommandMF cmd : CommandTableMF.getCommands()) {
+			assertSame(cmd, CommandTableMF.getCommand(cmd.commandCode));
+			byte[] e = cmd.commandCode.getBytes("cp037");
+			assertSame(cmd, CommandTableMF.getCommand(e[0], e[1]));
+		}
+		assertEquals("L1", CommandTableMF.getCommand((byte) 0xD3, (byte) 0xF1).commandCode);
+		assertNull(CommandTableMF.getCommand("ZZ"));
+		assertNull(CommandTableMF.getCommand("L"));
+		assertNull(CommandTableMF.getCommand("l1"));
+		assertNull(CommandTableMF.getCommand((byte) 0x00, (byte) 0x00));
+		assertSame(CommandTableMF.getInstance(), CommandTableMF.getInstance());
+		try {
+			CommandTableMF.getCommands().add(new CommandMF("ZZ", (byte) 0, (byte) 0, (byte) 0, (byte) 0));
+			fail("getCommands().add() did not generate UnsupportedOperationException");
+		}
+		catch (UnsupportedOperationException e) {
+		}
+	}
+
+	/**
+	 * Test method for {@link com.softwareag.adabas.jas.xts.CommandTableMF#cmdTable}.
+	 * @throws Exception
+	 *
+	 * Test the deprecated table holds the commands in table order and refuses changes.
+	 */
+	@Test
+	@SuppressWarnings("deprecation")
+	public final void testCmdTable() throws Exception {
+
+		assertEquals(CommandTableMF.getCommands(), CommandTableMF.cmdTable);
+		try {
+			CommandTableMF.cmdTable.clear();
+			fail("cmdTable.clear() did not generate UnsupportedOperationException");
+		}
+		catch (UnsupportedOperationException e) {
+		}
+		try {
+			Iterator<CommandMF> it = CommandTableMF.cmdTable.iterator();
+			it.next();
+			it.remove();
+			fail("cmdTable.iterator().remove() did not generate UnsupportedOperationException");
+		}
+		catch (UnsupportedOperationException e) {
+		}
+		try {
+			CommandTableMF.cmdTable.subList(0, 1).set(0, null);
+			fail("cmdTable.subList().set() did not generate UnsupportedOperationException");
+		}
+		catch (UnsupportedOperationException e) {
+		}
+		assertEquals(CommandTableMF.getCommands(), CommandTableMF.cmdTable);
+	}
+
+	/**
+	 * Test method for {@link com.softwareag.adabas.jas.xts.CommandTableMF#setBufferUsageFlags(AdabasDirectCallX)}.
+	 * @throws Exception
+	 *
+	 * Test the precomputed flags match the Legal Command Table rules for all commands and option cases.
+	 */
+	@Test
+	public final void testSetBufferUsageFlags() throws Exception {
+
+		byte[]		cop1s	= { ' ', 'P', 'M', 'O', 'X' };
+		byte[]		cop2s	= { ' ', 'E', 'V', 'X' };
+		String[]	add4s	= { "        ", "A       " };
+		byte[]		types	= { AdabasBufferX.FB, AdabasBufferX.RB, AdabasBufferX.SB, AdabasBufferX.VB, AdabasBufferX.IB, AdabasBufferX.MB };
+
+		for (boolean ebcdic : new boolean[] { false, true }) {
+			AdabasControlBlockX	acbx	= new AdabasControlBlockX(ebcdic);
+			AdabasDirectCallX	adcx	= new AdabasDirectCallX(acbx);
+			AdabasBufferX[]		bufs	= new AdabasBufferX[types.length];
+			for (int i = 0; i < types.length; i++)
+				bufs[i] = new AdabasBufferX(10, types[i]);
+			adcx.setFB(bufs[0]);
+			adcx.setRB(bufs[1]);
+			adcx.setSB(bufs[2]);
+			adcx.setVB(bufs[3]);
+			adcx.setIB(bufs[4]);
+			adcx.setMB(bufs[5]);
+
+			for (CommandMF cmd : CommandTableMF.getCommands()) {
+				acbx.setAcbCMD(cmd.commandCode);
+				for (byte cop1 : cop1s) {
+					for (byte cop2 : cop2s) {
+						for (String add4 : add4s) {
+							acbx.setAcbCOP1(cop1);
+							acbx.setAcbCOP2(cop2);
+							acbx.setAcbADD4(add4);
+							CommandTableMF.getInstance().setBufferUsageFlags(adcx);
+							for (int i = 0; i < types.length; i++) {
+								byte expected = expected(cmd, types[i], cop1, cop2, add4.equals("        "));
+								String what = cmd.commandCode + " " + (char) cop1 + (char) cop2 + " buffer " + (char) types[i];
+								assertEquals(what, expected, bufs[i].getAbdBUF());
+								assertEquals(what, expected, cmd.getBufferFlags(types[i], cop1, cop2, add4.getBytes()));
+							}
+						}
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Buffer flags per the Legal Command Table rules, evaluated per call.
+	 */
+	private static byte expected(CommandMF cmd, byte type, byte cop1, byte cop2, boolean add4Blank) {
+
+		boolean	pmo	= cop1 == 'P' || cop1 == 'M' || cop1 == 'O';
+		byte	m	= 0;
+		int		f	= 0;
+		switch (type) {
+			case AdabasBufferX.FB:	m = CommandTableMF.MF;	break;
+			case AdabasBufferX.RB:	m = CommandTableMF.MR;	break;
+			case AdabasBufferX.SB:	m = CommandTableMF.MS;	break;
+			case AdabasBufferX.VB:	m = CommandTableMF.MV;	break;
+			case AdabasBufferX.IB:	m = CommandTableMF.MI;	break;
+			default:				break;
+		}
+		if ((cmd.buffersIn  & m) != 0)	f |= AdabasBufferX.IN;
+		if ((cmd.buffersOut & m) != 0)	f |= AdabasBufferX.OUT;
+		switch (type) {
+			case AdabasBufferX.RB:
+				if ((cmd.specialIn  & CommandTableMF.SP2) != 0 && cop2 == 'E')	f |= AdabasBufferX.IN;
+				if ((cmd.specialOut & CommandTableMF.SP3) != 0 && cop2 == 'E')	f |= AdabasBufferX.OUT;
+				break;
+			case AdabasBufferX.SB:
+			case AdabasBufferX.VB:
+				if ((cmd.specialIn  & CommandTableMF.SP1) != 0 && cop2 == 'V')	f |= AdabasBufferX.IN;
+				break;
+			case AdabasBufferX.IB:
+				if ((cmd.specialIn  & CommandTableMF.SP3) != 0 && add4Blank)	f |= AdabasBufferX.IN;
+				if ((cmd.specialIn  & (CommandTableMF.SP4 | CommandTableMF.SP6)) != 0 && pmo)	f |= AdabasBufferX.IN;
+				if ((cmd.specialOut & (CommandTableMF.SP4 | CommandTableMF.SP6)) != 0 && pmo)	f |= AdabasBufferX.OUT;
+				break;
+			case AdabasBufferX.MB:
+				if ((cmd.specialOut & CommandTableMF.SP6) != 0 && (cop1 == 'M' || cop1 == 'O'))	f |= AdabasBufferX.OUT;
+				break;
+			default:
+				break;
+		}
+		return (byte) f;
+	}
+}
@@ -2,10 +2,15 @@ package com.softwareag.adabas.jas.junit;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 
 import org.junit.BeforeClass;
 
+import com.softwareag.adabas.jas.AdabasBufferX;
+import com.softwareag.adabas.jas.AdabasControlBlockX;
+import com.softwareag.adabas.jas.xts.AdabasDirectCallXts;
 import com.softwareag.adabas.jas.xts.XtsDefinitions;
+import com.softwareag.adabas.xts.Message;
 import com.softwareag.adabas.xts.XTS;
 import com.softwareag.adabas.xts.directory.Directory;
 
@@ -93,4 +98,265 @@ public class JUnitCommon extends XtsDefinitions {
 //		System.setProperty("XTSDIR", "/tmp");
 	}
 
+	/**
+	 * Set a stand-in transport answering A2 requests through a handler. A1 establish
+	 * and destroy context requests are echoed. Reset with
+	 * {@link AdabasDirectCallXts#setTransport(com.softwareag.adabas.jas.xts.XtsTransport)} null.
+	 * 
+	 * @param handler	Fills in the reply to each A2 request.
+	 */
+	protected static void setA2Transport(final A2Handler handler) {
+		
+		AdabasDirectCallXts.setTransport((xsp, msg) -> {
+			if (msg.body[0] == 'A' && msg.body[1] == '1') {						// echo A1 establish/destroy context
+				Message rpl = Message.newMessage(msg.length);
+				System.arraycopy(msg.body, 0, rpl.body, 0, msg.length);
+				return rpl;
+			}
+			return a2Reply(msg, handler);
+		});
+	}
+	
+	/**
+	 * Answer an A2 request as the stand-in transport set with {@link #setA2Transport(A2Handler)} does.
+	 * 
+	 * @param request	A2 request message.
+	 * @param handler	Fills in the reply.
+	 * @return			A2 reply message.
+	 */
+	protected static Message a2Reply(Message request, A2Handler handler) {
+		
+		A2Reply reply = new A2Reply(request);
+		handler.reply(reply);
+		return reply.toMessage();
+	}
+	
+	/**
+	 * Stand-in answer to an A2 request.
+	 */
+	public interface A2Handler {
+		
+		/**
+		 * Fill in the reply to an A2 request.
+		 * 
+		 * @param reply	Reply, initially rc 0 with nothing received.
+		 */
+		void reply(A2Reply reply);
+	}
+	
+	/**
+	 * Reply to an A2 request for stand-in transports. The reply starts as the request
+	 * ACBX with rc 0 and RECV 0 for all buffers; the named setters change the returned
+	 * ACBX fields and buffer data. The request ACBX and buffers sent are available to
+	 * check the call.
+	 */
+	public static final class A2Reply {
+		
+		private final Message		request;									// A2 request
+		private final ByteBuffer	acbx;										// reply ACBX
+		private final int			buffers;									// ABDs in request
+		private final int[]			sent;										// offset of data sent per ABD
+		private final byte[][]		recv;										// data received per ABD
+		
+		/**
+		 * Constructor.
+		 * 
+		 * @param request	A2 request message.
+		 */
+		public A2Reply(Message request) {
+			
+			ByteBuffer	bb		= ByteBuffer.wrap(request.body);
+			this.request		= request;
+			this.acbx			= ByteBuffer.wrap(new byte[AdabasControlBlockX.ACBX_LENGTH]);
+			this.buffers		= bb.getInt(0x1C);								// A2 num variable buffs
+			this.sent			= new int[buffers];
+			this.recv			= new byte[buffers][];
+			System.arraycopy(request.body, A2_HDR_LENGTH, acbx.array(), 0, AdabasControlBlockX.ACBX_LENGTH);
+			acbx.putShort(0x0A, (short) 0);										// RSP 0
+			int data = abd(buffers);
+			for (int i = 0; i < buffers; i++) {
+				sent[i]	= data;
+				data	+= (int) bb.getLong(abd(i) + 0x18);						// ABD SEND
+			}
+		}
+		
+		/**
+		 * @return A2 request message.
+		 */
+		public Message getRequest() {
+			
+			return request;
+		}
+		
+		/**
+		 * @return command code of the request.
+		 */
+		public String getCommand() {
+			
+			return new String(request.body, A2_HDR_LENGTH + 0x06, 2);
+		}
+		
+		/**
+		 * @return request ACBX; offsets as in the ACBX.
+		 */
+		public ByteBuffer getRequestACBX() {
+			
+			return ByteBuffer.wrap(request.body, A2_HDR_LENGTH, AdabasControlBlockX.ACBX_LENGTH).slice();
+		}
+		
+		/**
+		 * @param type	Buffer type, e.g. {@link AdabasBufferX#RB}.
+		 * @return		true if the buffer is part of the request.
+		 */
+		public boolean hasBuffer(byte type) {
+			
+			return index(type) >= 0;
+		}
+		
+		/**
+		 * @param type	Buffer type, e.g. {@link AdabasBufferX#IB}.
+		 * @return		ABD SIZE of the buffer in the request.
+		 */
+		public int getSize(byte type) {
+			
+			return (int) ByteBuffer.wrap(request.body).getLong(abd(find(type)) + 0x10);
+		}
+		
+		/**
+		 * @param type	Buffer type, e.g. {@link AdabasBufferX#FB}.
+		 * @return		copy of the data sent for the buffer.
+		 */
+		public byte[] getSent(byte type) {
+			
+			int		i		= find(type);
+			byte[]	data	= new byte[(int) ByteBuffer.wrap(request.body).getLong(abd(i) + 0x18)];
+			System.arraycopy(request.body, sent[i], data, 0, data.length);
+			return data;
+		}
+		
+		/**
+		 * Set response code.
+		 * 
+		 * @param rsp	Response code.
+		 * @return		this reply.
+		 */
+		public A2Reply setRSP(int rsp) {
+			
+			acbx.putShort(0x0A, (short) rsp);
+			return this;
+		}
+		
+		/**
+		 * Set ISN.
+		 * 
+		 * @param isn	ISN.
+		 * @return		this reply.
+		 */
+		public A2Reply setISN(long isn) {
+			
+			acbx.putLong(0x18, isn);
+			return this;
+		}
+		
+		/**
+		 * Set ISN quantity.
+		 * 
+		 * @param isq	ISN quantity.
+		 * @return		this reply.
+		 */
+		public A2Reply setISQ(long isq) {
+			
+			acbx.putLong(0x28, isq);
+			return this;
+		}
+		
+		/**
+		 * Set error field short name, subcode and subcomponent response code.
+		 * 
+		 * @param errb	Field short name (2 characters).
+		 * @param errc	Subcode.
+		 * @param subr	Subcomponent response code.
+		 * @return		this reply.
+		 */
+		public A2Reply setError(String errb, int errc, int subr) {
+			
+			acbx.put(0x70, (byte) errb.charAt(0));
+			acbx.put(0x71, (byte) errb.charAt(1));
+			acbx.putShort(0x72, (short) errc);
+			acbx.putShort(0x78, (short) subr);
+			return this;
+		}
+		
+		/**
+		 * Set data received for a buffer; RECV is its length.
+		 * 
+		 * @param type	Buffer type, e.g. {@link AdabasBufferX#RB}.
+		 * @param data	Data received.
+		 * @return		this reply.
+		 */
+		public A2Reply setRECV(byte type, byte[] data) {
+			
+			recv[find(type)] = data;
+			return this;
+		}
+		
+		/**
+		 * Build the reply message.
+		 * 
+		 * @return	A2 reply: header as sent, ACBX, ABDs with RECV and data received.
+		 */
+		public Message toMessage() {
+			
+			int length = abd(buffers);
+			for (byte[] data : recv) {
+				if (data != null)
+					length += data.length;
+			}
+			Message		rpl	= Message.newMessage(length);
+			ByteBuffer	bb	= ByteBuffer.wrap(rpl.body);
+			System.arraycopy(request.body, 0, rpl.body, 0, A2_HDR_LENGTH);
+			System.arraycopy(acbx.array(), 0, rpl.body, A2_HDR_LENGTH, AdabasControlBlockX.ACBX_LENGTH);
+			int offset = abd(buffers);
+			for (int i = 0; i < buffers; i++) {
+				System.arraycopy(request.body, abd(i), rpl.body, abd(i), AdabasBufferX.ABD_LENGTH);
+				int n = (recv[i] == null) ? 0 : recv[i].length;
+				bb.putLong(abd(i) + 0x20, n);									// ABD RECV
+				if (n > 0)
+					System.arraycopy(recv[i], 0, rpl.body, offset, n);
+				offset += n;
+			}
+			return rpl;
+		}
+		
+		/**
+		 * Offset of ABD i in the message.
+		 */
+		private static int abd(int i) {
+			
+			return A2_HDR_LENGTH + AdabasControlBlockX.ACBX_LENGTH + i * AdabasBufferX.ABD_LENGTH;
+		}
+		
+		/**
+		 * ABD index of a buffer type or -1.
+		 */
+		private int index(byte type) {
+			
+			for (int i = 0; i < buffers; i++) {
+				if (request.body[abd(i) + 0x04] == type)						// ASCII ABD ID
+					return i;
+			}
+			return -1;
+		}
+		
+		/**
+		 * ABD index of a buffer type.
+		 */
+		private int find(byte type) {
+			
+			int i = index(type);
+			if (i < 0)
+				throw new IllegalArgumentException("no buffer " + (char) type + "B in request");
+			return i;
+		}
+	}
 }
@@ -0,0 +1,214 @@
+package com.softwareag.adabas.jas.junit;
+
+import static org.junit.Assert.*;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import com.softwareag.adabas.jas.AdabasBufferX;
+import com.softwareag.adabas.jas.AdabasControlBlockX;
+import com.softwareag.adabas.jas.AdabasDirectCallX;
+import com.softwareag.adabas.jas.AdabasException;
+import com.softwareag.adabas.jas.xts.AdabasDirectCallXts;
+import com.softwareag.adabas.jas.xts.XtsContextPool;
+
+/**
+ * JUnit tests for XtsContextPool
+ *
+ * @author usadva
+ */
+
+/*
+ * Copyright (c) 1998-2021 Software AG, Darmstadt, Germany and/or Software AG USA Inc., Reston, VA, USA,
+ * and/or its subsidiaries and/or its affiliates and/or their licensors. Use, reproduction, transfer,
+ * publication or disclosure is prohibited except as specifically provided for in your License Agreement
+ * with Software AG.
+ */
+
+public class XtsContextPoolTest extends JUnitCommon {
+
+	/**
+	 * Test method for {@link com.softwareag.adabas.jas.xts.XtsContextPool#XtsContextPool(int, int, long)}.
+	 *
+	 * Test invalid pool settings.
+	 */
+	@Test
+	public final void testXtsContextPool() {
+
+		try {
+			new XtsContextPool(2, 1, 1000);
+			fail("XtsContextPool(2, 1, 1000) did not generate AdabasException");
+		}
+		catch (AdabasException e) {
+			if (!e.getMessage().contains("Invalid XTS context pool settings"))
+				fail("XtsContextPool(2, 1, 1000) did not generate AdabasException Invalid XTS context pool settings");
+		}
+	}
+
+	/**
+	 * Test method for {@link com.softwareag.adabas.jas.xts.XtsContextPool#returnContext(AdabasDirectCallXts)}.
+	 *
+	 * Test returning a context not borrowed from the pool is ignored.
+	 */
+	@Test
+	public final void testReturnForeignContext() throws Exception {
+
+		XtsContextPool pool = new XtsContextPool(0, 1, 1000);
+		pool.returnContext(new AdabasDirectCallXts());
+		assertEquals(0, pool.getLentCount());
+		assertEquals(0, pool.getIdleCount(dbid, null, false));
+		pool.close();
+	}
+
+	/**
+	 * Test method for {@link com.softwareag.adabas.jas.AdabasDirectCallX#setXtsContextPool(XtsContextPool)}.
+	 * @throws Exception
+	 *
+	 * Test OP/CL sessions reuse one pooled context.
+	 */
+	@Test
+	public final void testPooledSessions() throws Exception {
+
+		XtsContextPool pool = new XtsContextPool(1, 2, 60000);
+
+		for (int i = 0; i < 5; i++) {
+			AdabasControlBlockX acbx = new AdabasControlBlockX();
+			AdabasDirectCallX	adcx = new AdabasDirectCallX(acbx);
+			adcx.setXtsContextPool(pool);
+			acbx.setAcbDBID(dbid);									// default in JUnitCommon
+			acbx.setAcbCMD("OP");
+			adcx.setFB(new AdabasBufferX(".", AdabasBufferX.FB));
+			adcx.setRB(new AdabasBufferX("UPD=9.", AdabasBufferX.RB));
+			adcx.callAdabas();
+			assertEquals(1, pool.getLentCount());
+
+			acbx.setAcbCMD("CL");
+			adcx.setFB(null);
+			adcx.setRB(null);
+			adcx.callAdabas();
+			assertEquals(0, pool.getLentCount());
+			assertEquals(1, pool.getIdleCount(dbid, null, false));
+		}
+		pool.close();
+	}
+
+	/**
+	 * Open a session on a pooled context through a stand-in transport counting A1 destroy
+	 * context requests.
+	 *
+	 * @param pool		XTS context pool.
+	 * @param destroys	Counter of A1 destroy context requests.
+	 * @param fail		A2 calls fail with this exception if not null.
+	 * @return			direct call after OP.
+	 */
+	private static AdabasDirectCallX openSession(XtsContextPool pool, AtomicInteger destroys, RuntimeException[] fail) throws Exception {
+
+		AdabasDirectCallXts.setTransport((xsp, msg) -> {
+			if (msg.body[0] == 'A' && msg.body[1] == '1') {						// echo A1 establish/destroy context
+				if (msg.body[3] == A1_DESTROY)
+					destroys.incrementAndGet();
+				return msg;
+			}
+			if (fail[0] != null)
+				throw fail[0];
+			return msg;															// echo: ACBX comes back with rc 0
+		});
+		AdabasControlBlockX acbx = new AdabasControlBlockX();
+		AdabasDirectCallX	adcx = new AdabasDirectCallX(acbx);
+		adcx.setXtsContextPool(pool);
+		acbx.setAcbDBID(1);
+		acbx.setAcbCMD("OP");
+		adcx.setRB(new AdabasBufferX("UPD=9.", AdabasBufferX.RB));
+		adcx.callAdabas();
+		assertEquals(1, pool.getLentCount());
+		return adcx;
+	}
+
+	/**
+	 * Test method for {@link com.softwareag.adabas.jas.xts.XtsContextPool#returnContext(AdabasDirectCallXts)}.
+	 * @throws Exception
+	 *
+	 * Test a context goes back to the pool after a successful CL. No database needed.
+	 */
+	@Test
+	public final void testReturnAfterCL() throws Exception {
+
+		XtsContextPool	pool		= new XtsContextPool(0, 1, 60000);
+		AtomicInteger	destroys	= new AtomicInteger(0);
+		try {
+			AdabasDirectCallX adcx = openSession(pool, destroys, new RuntimeException[1]);
+			adcx.getAcbX().setAcbCMD("CL");
+			adcx.setRB(null);
+			adcx.callAdabas();
+			assertEquals(0, pool.getLentCount());
+			assertEquals(1, pool.getIdleCount(1, null, false));
+			assertEquals(0, destroys.get());
+		}
+		finally {
+			pool.close();
+			AdabasDirectCallXts.setTransport(null);
+		}
+		assertEquals(1, destroys.get());
+	}
+
+	/**
+	 * Test method for {@link com.softwareag.adabas.jas.xts.XtsContextPool#invalidateContext(AdabasDirectCallXts)}.
+	 * @throws Exception
+	 *
+	 * Test a context is destroyed, not pooled, when a call on it fails. No database needed.
+	 */
+	@Test
+	public final void testInvalidateOnError() throws Exception {
+
+		XtsContextPool		pool		= new XtsContextPool(0, 1, 60000);
+		AtomicInteger		destroys	= new AtomicInteger(0);
+		RuntimeException[]	fail		= new RuntimeException[1];
+		try {
+			AdabasDirectCallX adcx = openSession(pool, destroys, fail);
+			fail[0] = new IllegalStateException("connection lost");
+			adcx.getAcbX().setAcbCMD("L1");
+			try {
+				adcx.callAdabas();
+				fail("callAdabas() transport failure did not generate exception");
+			}
+			catch (IllegalStateException e) {
+			}
+			assertEquals(0, pool.getLentCount());
+			assertEquals(0, pool.getIdleCount(1, null, false));
+			assertEquals(1, destroys.get());
+		}
+		finally {
+			pool.close();
+			AdabasDirectCallXts.setTransport(null);
+		}
+	}
+
+	/**
+	 * Test method for {@link com.softwareag.adabas.jas.AdabasDirectCallX#releaseXtsContext()}.
+	 * @throws Exception
+	 *
+	 * Test a context given up without CL is destroyed, not pooled. No database needed.
+	 */
+	@Test
+	public final void testReleaseWithoutCL() throws Exception {
+
+		XtsContextPool	pool		= new XtsContextPool(0, 1, 60000);
+		AtomicInteger	destroys	= new AtomicInteger(0);
+		try {
+			AdabasDirectCallX adcx = openSession(pool, destroys, new RuntimeException[1]);
+			adcx.releaseXtsContext();
+			assertEquals(0, pool.getLentCount());
+			assertEquals(0, pool.getIdleCount(1, null, false));
+			assertEquals(1, destroys.get());
+
+			adcx = openSession(pool, destroys, new RuntimeException[1]);		// permit given back
+			adcx.releaseXtsContext();
+			assertEquals(2, destroys.get());
+		}
+		finally {
+			pool.close();
+			AdabasDirectCallXts.setTransport(null);
+		}
+	}
+}
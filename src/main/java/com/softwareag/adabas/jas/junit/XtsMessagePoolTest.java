@@ -0,0 +1,100 @@
+package com.softwareag.adabas.jas.junit;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import com.softwareag.adabas.jas.xts.XtsMessagePool;
+import com.softwareag.adabas.xts.Message;
+
+/**
+ * JUnit tests for XtsMessagePool
+ *
+ * @author usadva
+ */
+
+/*
+ * Copyright (c) 1998-2021 Software AG, Darmstadt, Germany and/or Software AG USA Inc., Reston, VA, USA,
+ * and/or its subsidiaries and/or its affiliates and/or their licensors. Use, reproduction, transfer,
+ * publication or disclosure is prohibited except as specifically provided for in your License Agreement
+ * with Software AG.
+ */
+
+public class XtsMessagePoolTest {
+
+	/**
+	 * Test method for {@link com.softwareag.adabas.jas.xts.XtsMessagePool#acquire(int)}.
+	 *
+	 * Test messages come from the smallest fitting size class and are reused after release.
+	 */
+	@Test
+	public final void testAcquireRelease() {
+
+		XtsMessagePool pool = new XtsMessagePool(2);
+
+		Message msg = pool.acquire(300);
+		assertEquals(512, msg.body.length);
+		assertEquals(300, msg.length);
+		pool.release(msg);
+		assertEquals(1, pool.getIdleCount(300));
+
+		Message msg2 = pool.acquire(400);
+		assertSame(msg, msg2);
+		assertEquals(400, msg2.length);
+		assertEquals(0, pool.getIdleCount(400));
+
+		assertEquals(256, pool.acquire(1).body.length);
+		assertEquals(XtsMessagePool.MAX_CLASS_SIZE, pool.acquire(XtsMessagePool.MAX_CLASS_SIZE).body.length);
+	}
+
+	/**
+	 * Test method for {@link com.softwareag.adabas.jas.xts.XtsMessagePool#release(Message)}.
+	 *
+	 * Test idle limit and messages not from the pool are dropped.
+	 */
+	@Test
+	public final void testRelease() {
+
+		XtsMessagePool pool = new XtsMessagePool(2);
+
+		pool.release(pool.acquire(100));
+		pool.release(pool.acquire(100));
+		pool.release(Message.newMessage(256));
+		pool.release(Message.newMessage(256));
+		assertEquals(2, pool.getIdleCount(100));
+
+		pool.release(Message.newMessage(1000));									// not a size class
+		assertEquals(0, pool.getIdleCount(1000));
+
+		Message big = pool.acquire(XtsMessagePool.MAX_CLASS_SIZE + 1);			// not pooled
+		assertEquals(XtsMessagePool.MAX_CLASS_SIZE + 1, big.body.length);
+		pool.release(big);
+		pool.release(null);
+	}
+
+	/**
+	 * Test method for {@link com.softwareag.adabas.jas.xts.XtsMessagePool#release(Message)}.
+	 *
+	 * Test idle messages of all size classes hold at most the retained bytes limit.
+	 */
+	@Test
+	public final void testMaxRetained() {
+
+		XtsMessagePool pool = new XtsMessagePool(4, 2048);
+
+		pool.release(pool.acquire(1000));										// 1024 byte class
+		pool.release(Message.newMessage(1024));
+		pool.release(Message.newMessage(1024));									// above 2048 bytes
+		assertEquals(2, pool.getIdleCount(1000));
+		assertEquals(2048, pool.getRetainedBytes());
+
+		pool.release(Message.newMessage(256));									// above 2048 bytes
+		assertEquals(0, pool.getIdleCount(256));
+
+		pool.acquire(1000);
+		assertEquals(1024, pool.getRetainedBytes());
+		pool.release(Message.newMessage(256));
+		assertEquals(1, pool.getIdleCount(256));
+		assertEquals(1280, pool.getRetainedBytes());
+	}
+}
@@ -3,8 +3,12 @@ package com.softwareag.adabas.jas.xts;
 import java.lang.management.ManagementFactory;
 import java.net.UnknownHostException;
 import java.nio.ByteBuffer;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import org.apache.logging.log4j.Logger;
 
@@ -14,6 +18,7 @@ import com.softwareag.adabas.jas.AdabasControlBlockX;
 import com.softwareag.adabas.jas.AdabasDirectCall;
 import com.softwareag.adabas.jas.AdabasDirectCallX;
 import com.softwareag.adabas.jas.AdabasException;
+import com.softwareag.adabas.jas.AdabasFlightRecorder;
 import com.softwareag.adabas.jas.AdabasTrace;
 import com.softwareag.adabas.jas.N1Exception;
 
@@ -27,6 +32,10 @@ import com.softwareag.adabas.xts.directory.Directory;
 
 /**
  * Contains methods related to making Adabas direct calls via XTS.
+ * <p>
+ * Each instance owns one XTS context. Calls on the same instance are serialized
+ * by a per-instance lock with a bounded wait; calls on different instances run
+ * in parallel.
  *
  * @author usadva
  */
@@ -45,8 +54,9 @@ import com.softwareag.adabas.xts.directory.Directory;
 
 public class AdabasDirectCallXts extends XtsDefinitions {
 	
-	private static boolean 			initDs			= false;					// directory server init flag
-	private boolean					connectedXts	= false;					// connected to XTS server flag
+	private static volatile boolean	initDs			= false;					// directory server init flag
+	private volatile boolean		connectedXts	= false;					// connected to XTS server flag
+	private boolean					pooled			= false;					// context owned by XtsContextPool flag
 	private byte[] 					xtsBufs 		= new byte[2];				// XTS message buffer in/out array
 	private int						xtsCtxId		= 0;						// XTS context ID
 	private int						xtsCtxIdVerify	= 0;						// XTS context ID verifier
@@ -56,9 +66,21 @@ public class AdabasDirectCallXts extends XtsDefinitions {
 	private byte[]					pidBA			= new byte[8];				// process ID byte array for XTS context
 	private byte[]					timestampBA		= new byte[8];				// timestamp  byte array for XTS context
 	
-	private static final ReentrantLock	callLock	= new ReentrantLock();		// lock to single thread XTS calls
+	private final ReentrantLock			callLock		= new ReentrantLock();		// lock to single thread calls on this XTS context
+	private static final ReentrantReadWriteLock directoryLock = new ReentrantReadWriteLock();	// shared by calls, exclusive for directory partition switch
+	private static final ReentrantLock	initLock		= new ReentrantLock();		// lock for one time directory server init
+	private static volatile XtsTransport transport		= null;						// stand-in transport (null = XTS)
 	private	boolean						A2RetryDone	= false;					// flag for SendAndWait() one time retry done
 	
+	private XTSSendParameters			cachedXsp		= null;						// XTS send parameters of last A1/A2 call
+	private Message						cachedXspMsg	= null;						// message of cached send parameters
+	private int							cachedXspDbid	= 0;						// DBID    of cached send parameters
+	private long						cachedXspTimeout = 0;						// timeout of cached send parameters
+	private String						cachedXspHost	= null;						// host    of cached send parameters
+	
+	private final AdabasFlightRecorder	recorder		= new AdabasFlightRecorder(AdabasFlightRecorder.DEFAULT_CALLS,
+																				   AdabasFlightRecorder.DEFAULT_BYTES);	// last A2 calls on this context
+	
 	final static Logger logger = AdabasTrace.getLogger("com.softwareag.adabas.jas.xts.AdabasDirectCallXts");
 	
 	/**
@@ -80,17 +102,25 @@ public class AdabasDirectCallXts extends XtsDefinitions {
 	 */
 	public static void initDsUrl() throws AdabasException {
 	
-		String method = "initDsUrl(): ";
+		final String method = "initDsUrl(): ";
 		
 		logger.trace(method + "> entered");
 		
-		if (!initDs) {
-			Directory adi = XTS.getDirectory();									// get dirserver from XTS
-			if (adi == null) {													// if none error
-				throw new AdabasException(AdabasException.XTS_NODIRSERVER);
+		if (!initDs && transport == null) {										// stand-in transport needs no dirserver
+			initLock.lock();													// only first caller looks up dirserver
+			try {
+				if (!initDs) {
+					Directory adi = XTS.getDirectory();							// get dirserver from XTS
+					if (adi == null) {											// if none error
+						throw new AdabasException(AdabasException.XTS_NODIRSERVER);
+					}
+					if (logger.isDebugEnabled())	logger.debug(method + "ADI URL = " + adi.getUrl());
+					initDs = true;
+				}
+			}
+			finally {
+				initLock.unlock();
 			}
-			logger.debug(method + "ADI URL = " + adi.getUrl());
-			initDs = true;
 		}	
 		logger.trace(method + "< exited");
 	}
@@ -105,14 +135,21 @@ public class AdabasDirectCallXts extends XtsDefinitions {
 	public void callAdabasXtsA1(AdabasDirectCall adc) throws Exception {
 		
 		XTSSendParameters	xsp;												// XTS send parameters
+		XtsMessagePool		msgPool	= XtsMessagePool.getInstance();				// send message pool
+		Message				msg		= null;										// XTS send    message
+		Message				rcvMsg	= null;										// XTS receive message
+		boolean				sent	= false;									// send completed flag
 
 		final String method = "callAdabasXtsA1(): ";
 		
 		logger.trace(method + "> entered");
-		logger.trace(method + "attempting callLock.lock() ..");		
+		logger.trace(method + "attempting callLock.tryLock() ..");		
+
+		lockContext(adc.getAcb().getAcbDBID(),									// get single thread XTS context lock using DBID
+					adc.getXtsLockTimeout(),									// XTS lock timeout
+					method);
+		logger.trace(method + "callLock: lock obtained");
 
-		callLock.lock();														// get single thread XTS call lock
-																				// TODO determine if this is necessary
 		try {
 			initDsUrl();														// init directory server
 			if (connectedXts == false) {										// connect to Adabas if not yet connected
@@ -151,7 +188,7 @@ public class AdabasDirectCallXts extends XtsDefinitions {
 				xtsBufs[BUFOUT]	|= IB;											// always add IB to buffers out
 			}
 
-			Message msg = Message.newMessage(msgLength);						// make a new XTS message
+			msg = msgPool.acquire(msgLength);									// get XTS message from pool
 			msg.putBytes(A1_EYECATCHER);										// write the A1 eyecatcher
 			msg.put(xtsBufs[BUFIN]);											// write buffer in bits
 			msg.put(xtsBufs[BUFOUT]);											// write buffer out  bits
@@ -172,12 +209,13 @@ public class AdabasDirectCallXts extends XtsDefinitions {
 //			logger.trace(AdabasTrace.dumpBuffer(method + "send XTS A1 direct call message = ", msg.body));
 			logger.trace(method + "send XTS A1 direct call message");
 
-			xsp = new XTSSendParameters(adc.getAcb().getAcbDBID(),				// make XTS send parms using DBID
-										msg,									// message
-										adc.getXtsSendTimeout(),				// XTS timeout
-										adc.getAcb().getHostName());			// host name
+			xsp = sendParameters(adc.getAcb().getAcbDBID(),						// get XTS send parms using DBID
+								 msg,											// message
+								 adc.getXtsSendTimeout(),						// XTS timeout
+								 adc.getAcb().getHostName());					// host name
 			
-			Message rcvMsg = XTS.sendAndWait(xsp); 								// send message to server
+			rcvMsg	= sendAndWait(xsp, msg);									// send message to server
+			sent	= true;
 
 //			logger.trace(AdabasTrace.dumpBuffer(method + "receieved XTS A1 direct call reply = ", rcvMsg.body));
 			logger.trace("receieved XTS A1 direct call reply");
@@ -199,7 +237,7 @@ public class AdabasDirectCallXts extends XtsDefinitions {
 			if (testXtsCtxId != xtsCtxId || testXtsCtxIdVerify != xtsCtxIdVerify) {			// not equal to ones we sent?
 				String errmsg = String.format("context ID and/or verifier changed by XTS during A1 send! sent ID = 0x%08X; received ID = 0x%08X; sent verifier = 0x%08X; received verifier = 0x%08X", xtsCtxId, testXtsCtxId, xtsCtxIdVerify, testXtsCtxIdVerify);
 				logger.error(method + errmsg);
-				logger.debug(String.format(method + AdabasTrace.dumpBuffer("rcvMsg", rcvMsg.body)));
+				if (logger.isDebugEnabled())	logger.debug(method + AdabasTrace.dumpBuffer("rcvMsg", rcvMsg.body));
 				throw new AdabasException(adc.getAcb().getAcbDBID(), errmsg);				// throw exception
 			}
 
@@ -255,22 +293,22 @@ public class AdabasDirectCallXts extends XtsDefinitions {
 					rcvOffset += adc.getIBL();
 				}
 
-				if (adc.getAcb().getAcbCMD().compareTo("CL") == 0) {			// if successful CL command
+				if (adc.getAcb().getAcbCMD().compareTo("CL") == 0 && !pooled) {	// if successful CL command and context not pooled
 					disconnectXts(adc.getAcb().getAcbDBID(),					// disconnect from XTS using DBID
 								  adc.getAcb().getHostName(),					// host name
 								  adc.getXtsSendTimeout());						// XTS timeout
 				}
 			
 			}																	// end of rsp = 0 block
-			rcvMsg.free(method);												// free return message
 		}
 		catch (XTSException xe) {												// XTSException thrown?
-			logger.trace(method + "XTSException caught: " + xe.getMessage());
+			if (logger.isTraceEnabled())	logger.trace(method + "XTSException caught: " + xe.getMessage());
 			logger.trace(method + "re-throwing XTSException ");
 			throw xe;															// re-throw XTSException
 		}
 		finally {
-			callLock.unlock();													// TODO determine necessary XTS lock granularity
+			releaseMessages(msgPool, msg, rcvMsg, sent, method);				// free reply and return send message
+			unlockContext();													// release XTS context lock
 			logger.trace(method + "callLock: lock released");
 			logger.trace(method + "< exited");
 		}
@@ -289,114 +327,123 @@ public class AdabasDirectCallXts extends XtsDefinitions {
 	private void connectXts (int dbid, String hostName, long sendTimeout, int connectTimeout, boolean isEBCDIC) throws Exception {
 		
 		XTSSendParameters	xsp;												// XTS send parameters
+		XtsMessagePool		msgPool	= XtsMessagePool.getInstance();				// send message pool
+		Message				msg		= null;										// XTS send    message
+		Message				rcvMsg	= null;										// XTS receive message
+		boolean				sent	= false;									// send completed flag
 		
 		final String method = "connectXts(): ";
 		
 		logger.trace(method + "> entered");
 		
 		if (connectedXts == false) {
+			try {
 			
-			XTS.useOnlyOneConnection = true;									// TODO - revisit per Rich Cole
+				XTS.useOnlyOneConnection = true;									// TODO - revisit per Rich Cole
 			
-			Message msg = Message.newMessage(93);								// 4  - A1_ESTAB_CONTEXT 							+
-																				// 4  - XTS context ID 								+
-																				// 4  - XTS context ID verifier 					+
-																				// 12 - "ENDIAN  " + length + "BIG" 				+
-																				// 15 - "CHARSET " + length + "ASCII" or "EBCDIC"	+
-																				// 13 - "FPFORMAT" + length + "IEEE" 				+
-																				// 41 - "USERID  " + length + node + user name + PID
+				msg = msgPool.acquire(93);											// 4  - A1_ESTAB_CONTEXT 							+
+																					// 4  - XTS context ID 								+
+																					// 4  - XTS context ID verifier 					+
+																					// 12 - "ENDIAN  " + length + "BIG" 				+
+																					// 15 - "CHARSET " + length + "ASCII" or "EBCDIC"	+
+																					// 13 - "FPFORMAT" + length + "IEEE" 				+
+																					// 41 - "USERID  " + length + node + user name + PID
 			
-			msg.putBytes(A1_ESTAB_CONTEXT);										// write 4 byte establish context
+				msg.putBytes(A1_ESTAB_CONTEXT);										// write 4 byte establish context
 
-			xtsCtxId = 0;
-			msg.putInt(xtsCtxId);												// write 0 XTS context ID
-			xtsCtxIdVerify = xtsCtxIdVerGen.incrementAndGet();					// get next available XTS context ID verifier
-			if (xtsCtxIdVerify == 0x7fffffff)									// if max verifier reached reset to 0
-				xtsCtxIdVerGen.set(0);
-			msg.putInt(xtsCtxIdVerify);											// write XTS context ID verifier
-			
-			msg.putBytes("ENDIAN  ".getBytes("ISO-8859-1")); 					// write string "ENDIAN  "
-			msg.put((byte) 0x04);												// write inclusive length byte for following string
-			msg.putBytes("BIG".getBytes("ISO-8859-1")); 						// write string "BIG"
-			
-			msg.putBytes("CHARSET ".getBytes("ISO-8859-1")); 					// write string "CHARSET "
-			if (isEBCDIC == true) {
-				msg.put((byte) 0x07); 											// write inclusive length byte for following string
-				msg.putBytes("EBCDIC".getBytes("ISO-8859-1")); 					// write string "EBCDIC"				
-			}
-			else {
-				msg.put((byte) 0x06); 											// write inclusive length byte for following string
-				msg.putBytes("ASCII".getBytes("ISO-8859-1")); 					// write string "ASCII"
-			}
+				xtsCtxId = 0;
+				msg.putInt(xtsCtxId);												// write 0 XTS context ID
+				xtsCtxIdVerify = xtsCtxIdVerGen.updateAndGet(						// get next available XTS context ID verifier
+									v -> (v == 0x7fffffff) ? 1 : v + 1);			// if max verifier reached wrap to 1
+				msg.putInt(xtsCtxIdVerify);											// write XTS context ID verifier
 			
-			msg.putBytes("FPFORMAT".getBytes("ISO-8859-1")); 					// write string "FPFORMAT"
-			msg.put((byte) 0x05);												// write inclusive length byte for following string
-			msg.putBytes("IEEE".getBytes("ISO-8859-1")); 						// write string "IEEE"
+				msg.putBytes("ENDIAN  ".getBytes("ISO-8859-1")); 					// write string "ENDIAN  "
+				msg.put((byte) 0x04);												// write inclusive length byte for following string
+				msg.putBytes("BIG".getBytes("ISO-8859-1")); 						// write string "BIG"
 			
-			pidBA 		= getPID();												// get PID for USERID
-			timestampBA = getTimestamp();										// get timestamp for USERID
+				msg.putBytes("CHARSET ".getBytes("ISO-8859-1")); 					// write string "CHARSET "
+				if (isEBCDIC == true) {
+					msg.put((byte) 0x07); 											// write inclusive length byte for following string
+					msg.putBytes("EBCDIC".getBytes("ISO-8859-1")); 					// write string "EBCDIC"				
+				}
+				else {
+					msg.put((byte) 0x06); 											// write inclusive length byte for following string
+					msg.putBytes("ASCII".getBytes("ISO-8859-1")); 					// write string "ASCII"
+				}
 			
-			msg.putBytes("USERID  ".getBytes("ISO-8859-1")); 					// write string "USERID  "
-			msg.put((byte) 0x21); 												// write inclusive length byte for following string
-			msg.putBytes(getNodeName()); 										// write 8 byte node name
-			msg.putBytes(getUserName());										// write 8 byte user name
-			msg.putBytes(pidBA);												// write 8 byte PID
-			msg.putBytes(timestampBA);											// write 8 byte timestamp
+				msg.putBytes("FPFORMAT".getBytes("ISO-8859-1")); 					// write string "FPFORMAT"
+				msg.put((byte) 0x05);												// write inclusive length byte for following string
+				msg.putBytes("IEEE".getBytes("ISO-8859-1")); 						// write string "IEEE"
+			
+				pidBA 		= getPID();												// get PID for USERID
+				timestampBA = getTimestamp();										// get timestamp for USERID
+			
+				msg.putBytes("USERID  ".getBytes("ISO-8859-1")); 					// write string "USERID  "
+				msg.put((byte) 0x21); 												// write inclusive length byte for following string
+				msg.putBytes(getNodeName()); 										// write 8 byte node name
+				msg.putBytes(getUserName());										// write 8 byte user name
+				msg.putBytes(pidBA);												// write 8 byte PID
+				msg.putBytes(timestampBA);											// write 8 byte timestamp
+			
+				if (logger.isDebugEnabled())	logger.debug(method + "send XTS A1 establish context request: target = " + dbid);
+				if (logger.isTraceEnabled()) {
+					logger.trace(method + "ENDIAN              = BIG");
+					if (isEBCDIC == true) {
+						logger.trace(method + "CHARSET             = EBCDIC");					
+					}
+					else {
+						logger.trace(method + "CHARSET             = ASCII");
+					}
+					logger.trace(method + "FPFORMAT            = IEEE");
+					logger.trace(method + "USERID              = " + new String(getNodeName()) + new String(getUserName()) + 
+	                                                                         String.format("%016x", ByteBuffer.wrap(pidBA).getLong()) + String.format("%016x", ByteBuffer.wrap(timestampBA).getLong()));
+					logger.trace(method + "send timeout        = " + sendTimeout);
+					logger.trace(method + "connect timeout     = " + connectTimeout);
+					logger.trace(method + "context ID verifier = " + String.format("0x%08x", xtsCtxIdVerify));
+				}
+//				logger.trace(AdabasTrace.dumpBuffer(method + "send XTS A1 establish context message = ", msg.body));
+				logger.trace(method + "send XTS A1 establish context message");
 			
-			logger.debug(method + "send XTS A1 establish context request: target = " + dbid);
-			logger.trace(method + "ENDIAN              = BIG");
-			if (isEBCDIC == true) {
-				logger.trace(method + "CHARSET             = EBCDIC");					
-			}
-			else {
-				logger.trace(method + "CHARSET             = ASCII");
-			}
-			logger.trace(method + "FPFORMAT            = IEEE");
-			logger.trace(method + "USERID              = " + new String(getNodeName()) + new String(getUserName()) + 
-                                                                     String.format("%016x", ByteBuffer.wrap(pidBA).getLong()) + String.format("%016x", ByteBuffer.wrap(timestampBA).getLong()));
-			logger.trace(method + "send timeout        = " + sendTimeout);
-			logger.trace(method + "connect timeout     = " + connectTimeout);
-			logger.trace(method + "context ID verifier = " + String.format("0x%08x", xtsCtxIdVerify));
-//			logger.trace(AdabasTrace.dumpBuffer(method + "send XTS A1 establish context message = ", msg.body));
-			logger.trace(method + "send XTS A1 establish context message");
-			
-			xsp = new XTSSendParameters(dbid,									// make XTS send parms with DBID	
-										msg,									// message
-										sendTimeout,							// send timeout
-										hostName,								// host name
-										connectTimeout);						// connect timeout
-
-			Message rcvMsg = XTS.sendAndWait(xsp); 								// send connect to server
-
-//			logger.trace(AdabasTrace.dumpBuffer(method + "receieved XTS A1 establish context reply = ", rcvMsg.body));
-			logger.trace("receieved XTS A1 establish context reply");
+				xsp = new XTSSendParameters(dbid,									// make XTS send parms with DBID	
+											msg,									// message
+											sendTimeout,							// send timeout
+											hostName,								// host name
+											connectTimeout);						// connect timeout
+
+				rcvMsg	= sendAndWait(xsp, msg);									// send connect to server
+				sent	= true;
+
+//				logger.trace(AdabasTrace.dumpBuffer(method + "receieved XTS A1 establish context reply = ", rcvMsg.body));
+				logger.trace("receieved XTS A1 establish context reply");
 					
-			ByteBuffer 	rcvBB 			= ByteBuffer.wrap(rcvMsg.body);			// wrap received msg as a byte buffer
-			byte		rcvType			= rcvBB.get(3);							// get the message TYPE byte to check for error
-			if ((rcvType & A1_ERRORREPLY) == A1_ERRORREPLY) {					// some error occurred													// error occurred during establish context
-				short rcvRspCode = rcvBB.getShort(12);							// get response code
-				short rcvSubCode = rcvBB.getShort(14);							// get sub      code
+				ByteBuffer 	rcvBB 			= ByteBuffer.wrap(rcvMsg.body);			// wrap received msg as a byte buffer
+				byte		rcvType			= rcvBB.get(3);							// get the message TYPE byte to check for error
+				if ((rcvType & A1_ERRORREPLY) == A1_ERRORREPLY) {					// some error occurred													// error occurred during establish context
+					short rcvRspCode = rcvBB.getShort(12);							// get response code
+					short rcvSubCode = rcvBB.getShort(14);							// get sub      code
 				
-				throw new AdabasException(dbid, "XTS A1 establish context", rcvType);	// throw exception
-			}
+					throw new AdabasException(dbid, "XTS A1 establish context", rcvType);	// throw exception
+				}
 			
-			xtsCtxId 				= rcvBB.getInt(4);							// get the context ID generated by XTS
+				xtsCtxId 				= rcvBB.getInt(4);							// get the context ID generated by XTS
 			
-			int testXtsCtxIdVerify	= rcvBB.getInt(8);							// get context ID verifier
-			if (testXtsCtxIdVerify != xtsCtxIdVerify) {							// not equal to one we sent?
-				String errmsg = String.format("context ID verifier changed by XTS during connect! sent = 0x%08X; received = 0x%08X", xtsCtxIdVerify, testXtsCtxIdVerify);
-				logger.error(method + errmsg);
-				logger.debug(String.format(method + AdabasTrace.dumpBuffer("rcvMsg", rcvMsg.body)));
-				throw new AdabasException(dbid, errmsg);						// throw exception
-			}
+				int testXtsCtxIdVerify	= rcvBB.getInt(8);							// get context ID verifier
+				if (testXtsCtxIdVerify != xtsCtxIdVerify) {							// not equal to one we sent?
+					String errmsg = String.format("context ID verifier changed by XTS during connect! sent = 0x%08X; received = 0x%08X", xtsCtxIdVerify, testXtsCtxIdVerify);
+					logger.error(method + errmsg);
+					if (logger.isDebugEnabled())	logger.debug(method + AdabasTrace.dumpBuffer("rcvMsg", rcvMsg.body));
+					throw new AdabasException(dbid, errmsg);						// throw exception
+				}
 			
-			rcvMsg.free(method);												// free return message
-
-			connectedXts = true;
+				connectedXts = true;
 			
-			logger.debug(method + "connected to XTS: " + String.format("context ID = 0x%08x; verifier = 0x%08x", xtsCtxId, xtsCtxIdVerify));
-			logger.trace(method + "< exited");
+				if (logger.isDebugEnabled())	logger.debug(method + "connected to XTS: " + String.format("context ID = 0x%08x; verifier = 0x%08x", xtsCtxId, xtsCtxIdVerify));
+				logger.trace(method + "< exited");
 			
+			}
+			finally {
+				releaseMessages(msgPool, msg, rcvMsg, sent, method);				// free reply and return send message
+			}
 		}
 	}
 	
@@ -411,60 +458,144 @@ public class AdabasDirectCallXts extends XtsDefinitions {
 	private void disconnectXts(int dbid, String hostName, long timeout) throws Exception {
 		
 		XTSSendParameters	xsp;												// XTS send parameters
+		XtsMessagePool		msgPool	= XtsMessagePool.getInstance();				// send message pool
+		Message				msg		= null;										// XTS send    message
+		Message				rcvMsg	= null;										// XTS receive message
+		boolean				sent	= false;									// send completed flag
 		
 		final String method = "disconnectXts(): ";
 		
 		logger.trace(method + "> entered");
 
 		if (connectedXts == true) {
+			try {
 
-			Message msg = Message.newMessage(12);								// 4  - A1_DESTROY_CONTEXT +
-																				// 4  - XTS context ID +
-																				// 4  - XTS context ID verifier +
+				msg = msgPool.acquire(12);											// 4  - A1_DESTROY_CONTEXT +
+																					// 4  - XTS context ID +
+																					// 4  - XTS context ID verifier +
 
-			msg.putBytes(A1_DESTROY_CONTEXT);									// write 4 byte destroy context
+				msg.putBytes(A1_DESTROY_CONTEXT);									// write 4 byte destroy context
 
-			msg.putInt(xtsCtxId);												// write current XTS context ID
-			msg.putInt(xtsCtxIdVerify);											// write XTS context ID verifier
+				msg.putInt(xtsCtxId);												// write current XTS context ID
+				msg.putInt(xtsCtxIdVerify);											// write XTS context ID verifier
 
-			logger.debug(method + "send XTS A1 destroy context request: target = " + dbid);
-			logger.trace(method + "timeout  = " + timeout);
-			logger.trace(method + "context ID          = " + String.format("0x%08x", xtsCtxId));
-			logger.trace(method + "context ID verifier = " + String.format("0x%08x", xtsCtxIdVerify));
-//			logger.trace(AdabasTrace.dumpBuffer(method + "send XTS A1 destroy context message = ", msg.body));			
-			logger.trace(method + "send XTS A1 destroy context message");			
+				if (logger.isDebugEnabled())	logger.debug(method + "send XTS A1 destroy context request: target = " + dbid);
+				if (logger.isTraceEnabled()) {
+					logger.trace(method + "timeout  = " + timeout);
+					logger.trace(method + "context ID          = " + String.format("0x%08x", xtsCtxId));
+					logger.trace(method + "context ID verifier = " + String.format("0x%08x", xtsCtxIdVerify));
+				}
+//				logger.trace(AdabasTrace.dumpBuffer(method + "send XTS A1 destroy context message = ", msg.body));			
+				logger.trace(method + "send XTS A1 destroy context message");			
 		
 
-			xsp = new XTSSendParameters(dbid,									// make XTS send parms using DBID
-										msg,									// message
-										timeout,								// XTS timeout
-										hostName);								// host name
+				xsp = new XTSSendParameters(dbid,									// make XTS send parms using DBID
+											msg,									// message
+											timeout,								// XTS timeout
+											hostName);								// host name
 			
-			Message rcvMsg = XTS.sendAndWait(xsp); 								// send disconnect to server
+				rcvMsg	= sendAndWait(xsp, msg);									// send disconnect to server
+				sent	= true;
 
-//			logger.trace(AdabasTrace.dumpBuffer(method + "receieved XTS A1 destroy context reply = ", rcvMsg.body));
-			logger.trace("receieved XTS A1 destroy context reply");
+//				logger.trace(AdabasTrace.dumpBuffer(method + "receieved XTS A1 destroy context reply = ", rcvMsg.body));
+				logger.trace("receieved XTS A1 destroy context reply");
 		
 			
-			ByteBuffer 	rcvBB 	= ByteBuffer.wrap(rcvMsg.body);					// wrap received msg as a byte buffer
-			byte		rcvType	= rcvBB.get(3);									// get the message TYPE byte to check for error
-			if ((rcvType & A1_ERRORREPLY) == A1_ERRORREPLY) {					// some error occurred													// error occurred during establish context
-				short rcvRspCode = rcvBB.getShort(12);							// get response code
-				short rcvSubCode = rcvBB.getShort(14);							// get sub      code
+				ByteBuffer 	rcvBB 	= ByteBuffer.wrap(rcvMsg.body);					// wrap received msg as a byte buffer
+				byte		rcvType	= rcvBB.get(3);									// get the message TYPE byte to check for error
+				if ((rcvType & A1_ERRORREPLY) == A1_ERRORREPLY) {					// some error occurred													// error occurred during establish context
+					short rcvRspCode = rcvBB.getShort(12);							// get response code
+					short rcvSubCode = rcvBB.getShort(14);							// get sub      code
 				
-				throw new AdabasException(dbid, "XTS A1 destroy context", rcvType);	// throw exception
-			}
+					throw new AdabasException(dbid, "XTS A1 destroy context", rcvType);	// throw exception
+				}
 						
-			rcvMsg.free(method);												// free return message
-			
-			logger.debug(method + "disconnected from XTS");
+				logger.debug(method + "disconnected from XTS");
 
-			connectedXts = false;
+				connectedXts = false;
+			}
+			finally {
+				releaseMessages(msgPool, msg, rcvMsg, sent, method);				// free reply and return send message
+			}
 		}
 		
 		logger.trace(method + "< exited");
 	}
 	
+	/**
+	 * Establish XTS context ahead of first call. Used by {@link XtsContextPool}.
+	 * 
+	 * @param dbid 				Database ID target.
+	 * @param hostName 			Host Name of target.
+	 * @param sendTimeout		XTS timeout in milliseconds.
+	 * @param connectTimeout	XTS connect timeout in milliseconds.
+	 * @param isEBCDIC			EBCDIC encoding flag
+	 * @param lockTimeout		XTS context lock timeout in milliseconds.
+	 * @throws Exception
+	 */
+	void openContext(int dbid, String hostName, long sendTimeout, int connectTimeout, boolean isEBCDIC, long lockTimeout) throws Exception {
+		
+		lockContext(dbid, lockTimeout, "openContext(): ");						// get single thread XTS context lock
+		try {
+			initDsUrl();														// init directory server
+			connectXts(dbid, hostName, sendTimeout, connectTimeout, isEBCDIC);	// connect if not yet connected
+		}
+		finally {
+			unlockContext();													// release XTS context lock
+		}
+	}
+	
+	/**
+	 * Destroy XTS context. Used by {@link XtsContextPool}.
+	 * 
+	 * @param dbid 			Database ID.
+	 * @param hostName		Host Name.
+	 * @param timeout		XTS timeout in milliseconds.
+	 * @param lockTimeout	XTS context lock timeout in milliseconds.
+	 * @throws Exception
+	 */
+	void closeContext(int dbid, String hostName, long timeout, long lockTimeout) throws Exception {
+		
+		lockContext(dbid, lockTimeout, "closeContext(): ");						// get single thread XTS context lock
+		try {
+			disconnectXts(dbid, hostName, timeout);								// disconnect if connected
+		}
+		finally {
+			unlockContext();													// release XTS context lock
+		}
+	}
+	
+	/**
+	 * Get XTS context connected flag.
+	 * 
+	 * @return	true if XTS context established.
+	 */
+	public boolean isConnectedXts() {
+		
+		return connectedXts;
+	}
+	
+	/**
+	 * Get flight recorder of the last A2 calls on this XTS context.
+	 * 
+	 * @return	flight recorder.
+	 */
+	public AdabasFlightRecorder getFlightRecorder() {
+		
+		return recorder;
+	}
+	
+	/**
+	 * Set pooled flag. A pooled context is kept across a successful CL
+	 * so the next session on it skips the establish context round trip.
+	 * 
+	 * @param pooled	pooled flag.
+	 */
+	void setPooled(boolean pooled) {
+		
+		this.pooled = pooled;
+	}
+	
 	/**
 	 * Get node name for XTS context.
 	 * 
@@ -515,13 +646,13 @@ public class AdabasDirectCallXts extends XtsDefinitions {
 		logger.trace(method + "> entered");
 
 		vmName	= ManagementFactory.getRuntimeMXBean().getName();				// usually pid@hostname but not guaranteed   
-		logger.debug(method + "vmName = " + vmName);
+		if (logger.isDebugEnabled())	logger.debug(method + "vmName = " + vmName);
 		
 		p 		= vmName.indexOf('@');
 		if (p == -1)
 			return zeroPID;
 		sPid 	= vmName.substring(0, p);
-		logger.debug(method + "PID as String = " + sPid);
+		if (logger.isDebugEnabled())	logger.debug(method + "PID as String = " + sPid);
 		
 		try {
 			pid	= Long.parseLong(sPid);
@@ -529,10 +660,10 @@ public class AdabasDirectCallXts extends XtsDefinitions {
 		catch (NumberFormatException e) {
 			return zeroPID;
 		}
-		logger.debug(method + "PID as long = " + pid);
+		if (logger.isDebugEnabled())	logger.debug(method + "PID as long = " + pid);
 	
 		hsPid = String.format("%08X", pid);							
-		logger.debug(method + "PID as hex string = " + hsPid);
+		if (logger.isDebugEnabled())	logger.debug(method + "PID as hex string = " + hsPid);
 		
 		pidBA = hsPid.getBytes();
 		
@@ -556,15 +687,15 @@ public class AdabasDirectCallXts extends XtsDefinitions {
 		
 		lTime = System.currentTimeMillis();
 		lTime *= 1000;
-		logger.debug(method + "Timestamp as long = " + lTime);
+		if (logger.isDebugEnabled())	logger.debug(method + "Timestamp as long = " + lTime);
 		
 		ByteBuffer.wrap(timestampBA).putLong(lTime);
-		logger.debug(method + AdabasTrace.dumpBuffer("Timestamp as byte array = ", timestampBA));
+		if (logger.isDebugEnabled())	logger.debug(method + AdabasTrace.dumpBuffer("Timestamp as byte array = ", timestampBA));
 		
 		// Timestamp byte swap here requires ACL fix from RGHADA-4474. usadva 2014.05.30
 		
 		timestampBA = byteSwap(timestampBA);
-		logger.debug(method + AdabasTrace.dumpBuffer("Timestamp as byte array after byte swap = ", timestampBA));
+		if (logger.isDebugEnabled())	logger.debug(method + AdabasTrace.dumpBuffer("Timestamp as byte array after byte swap = ", timestampBA));
 
 
 		logger.trace(method + "< exited");
@@ -589,14 +720,19 @@ public class AdabasDirectCallXts extends XtsDefinitions {
 		int		streamReqFlag		= 0;										// streaming request flag
 		
 		XTSSendParameters	xsp;												// XTS send parameters
+		XtsMessagePool		msgPool	= XtsMessagePool.getInstance();				// send message pool
+		Message				msg		= null;										// XTS send    message
+		Message				rcvMsg	= null;										// XTS receive message
+		boolean				sent	= false;									// send completed flag
 		
 		final String method = "callAdabasXtsA2(): ";
 		
 		logger.trace(method + "> entered");
 
-		logger.trace(method + "attempting callLock.lock() ..");
-		callLock.lock();														// get single thread XTS call lock
-																				// TODO determine if this is necessary
+		logger.trace(method + "attempting callLock.tryLock() ..");
+		lockContext(adcx.getAcbX().getAcbDBID(),								// get single thread XTS context lock using DBID
+					adcx.getXtsLockTimeout(),									// XTS lock timeout
+					method);
 		logger.trace(method + "callLock: lock obtained");
 
 		try {
@@ -610,34 +746,37 @@ public class AdabasDirectCallXts extends XtsDefinitions {
 						   adcx.isXtsEBCDIC());									// XTS encoding flag
 			}
 			
-			int msgLength = A2_HDR_LENGTH + AdabasControlBlockX.ACBX_LENGTH;	// A2 header + ACBX
+			CommandTableMF ctmf = CommandTableMF.getInstance();
+			ctmf.setBufferUsageFlags(adcx);										// set buffer in/out flags in buffer headers using Legal Command Table
+			
+			int		dbid		= adcx.getAcbX().getAcbDBID();
+			int		msgLength	= A2_HDR_LENGTH + AdabasControlBlockX.ACBX_LENGTH;	// A2 header + ACBX
 
 			xtsBufs[BUFIN] 	= 0;												// buffers in/out not used for A2 message
 			xtsBufs[BUFOUT]	= 0;
 			
 			if (adcx.getFB() != null) {											// for each possible buffer present
-				msgLength += AdabasBufferX.ABD_LENGTH + 						// bump msg length by buffer header length
-							 adcx.getFB().getDataBuffer().capacity();			// plus user data length
+				msgLength += a2SendLength(adcx.getFB(), dbid);					// bump msg length by buffer header plus send length
 				numVariableBuffs++;												// bump number variable buffers
 			}
 			if (adcx.getRB() != null) {
-				msgLength += AdabasBufferX.ABD_LENGTH +
-							 adcx.getRB().getDataBuffer().capacity();
+				msgLength += a2SendLength(adcx.getRB(), dbid);
 				numVariableBuffs++;
 			}
 			if (adcx.getSB() != null) {
-				msgLength += AdabasBufferX.ABD_LENGTH +
-							 adcx.getSB().getDataBuffer().capacity();
+				msgLength += a2SendLength(adcx.getSB(), dbid);
 				numVariableBuffs++;
 			}
 			if (adcx.getVB() != null) {
-				msgLength += AdabasBufferX.ABD_LENGTH +
-							 adcx.getVB().getDataBuffer().capacity();
+				msgLength += a2SendLength(adcx.getVB(), dbid);
 				numVariableBuffs++;
 			}
 			if (adcx.getIB() != null) {
-				msgLength += AdabasBufferX.ABD_LENGTH +
-							 adcx.getIB().getDataBuffer().capacity();
+				msgLength += a2SendLength(adcx.getIB(), dbid);
+				numVariableBuffs++;
+			}
+			if (adcx.getMB() != null) {
+				msgLength += a2SendLength(adcx.getMB(), dbid);
 				numVariableBuffs++;
 			}
 			
@@ -646,7 +785,9 @@ public class AdabasDirectCallXts extends XtsDefinitions {
 			offsetACBX		= A2_HDR_LENGTH;									// ACBX starts right after A2 header
 			totalLength		= (long) msgLength;									// total length is calculated msg length
 			
-			Message msg = Message.newMessage(msgLength);						// allocate new message
+			msg = msgPool.acquire(msgLength);									// get XTS message from pool
+			
+			byte[]	acbxBA	= adcx.getAcbX().getACBArray();
 			
 			msg.putBytes(A2_EYECATCHER);										// write A2 eyecatcher				0x00
 			msg.putShort(A2_HDR_LENGTH);										// write A2 header length			0x02
@@ -667,8 +808,9 @@ public class AdabasDirectCallXts extends XtsDefinitions {
 				msg.put((byte) (A2_BIGENDIAN|A2_ASCII7|A2_IEEE));				// write architecture				0x0E
 			}
 			msg.put((byte) 0x00);												// write A2 response code 0			0x0F
-			msg.putInt(adcx.getAcbX().getAcbDBID());							// write A2 DBID					0x10
-			msg.putBytes(adcx.getAcbX().getAcbCMD().getBytes());				// write A2 command					0x14
+			msg.putInt(dbid);													// write A2 DBID					0x10
+			msg.put(acbxBA[0x06]);												// write A2 command from ACBX		0x14
+			msg.put(acbxBA[0x07]);
 			msg.put(xtsBufs[BUFIN]);											// write A2 buffers in  flags		0x16
 			msg.put(xtsBufs[BUFOUT]);											// write A2 buffers out flags		0x17
 			msg.putInt(numCallersBuffs);										// write A2 num callers  buffs		0x18
@@ -678,77 +820,41 @@ public class AdabasDirectCallXts extends XtsDefinitions {
 			msg.putLong(totalLength);											// write A2 total msg length		0x28
 			msg.putInt(streamReqFlag);											// write A2 stream flag (off)		0x30
 			
-			msg.putBytes(adcx.getAcbX().getACBArray());							// write A2 ACBX					0x34
+			msg.putBytes(acbxBA);												// write A2 ACBX					0x34
 			
-			CommandTableMF ctmf = CommandTableMF.getInstance();
-			ctmf.setBufferUsageFlags(adcx);										// set buffer in/out flags in buffer headers using Legal Command Table
-			
-			if (adcx.getFB() != null) {											// for each possible buffer present
-				if ((adcx.getFB().getAbdBUF() & AdabasBufferX.IN) == 0) {		// if in/out bits from LCT say don't send
-					adcx.getFB().setAbdSEND(0);									// clear send length
-				}
+			if (adcx.getFB() != null)											// for each possible buffer present
 				msg.putBytes(adcx.getFB().getABDBytes());						// write A2 buffer description header
-			}
-			if (adcx.getRB() != null) {
-				if ((adcx.getRB().getAbdBUF() & AdabasBufferX.IN) == 0) {
-					adcx.getRB().setAbdSEND(0);
-				}
+			if (adcx.getRB() != null)
 				msg.putBytes(adcx.getRB().getABDBytes());
-			}
-			if (adcx.getSB() != null) {
-				if ((adcx.getSB().getAbdBUF() & AdabasBufferX.IN) == 0) {
-					adcx.getSB().setAbdSEND(0);
-				}
+			if (adcx.getSB() != null)
 				msg.putBytes(adcx.getSB().getABDBytes());
-			}
-			if (adcx.getVB() != null) {
-				if ((adcx.getVB().getAbdBUF() & AdabasBufferX.IN) == 0) {
-					adcx.getVB().setAbdSEND(0);
-				}
+			if (adcx.getVB() != null)
 				msg.putBytes(adcx.getVB().getABDBytes());
-			}
-			if (adcx.getIB() != null) {
-				if ((adcx.getIB().getAbdBUF() & AdabasBufferX.IN) == 0) {
-					adcx.getIB().setAbdSEND(0);
-				}
+			if (adcx.getIB() != null)
 				msg.putBytes(adcx.getIB().getABDBytes());
-			}
+			if (adcx.getMB() != null)
+				msg.putBytes(adcx.getMB().getABDBytes());
 			
-			if (adcx.getFB() != null) {											// for each possible buffer present
-				if ((adcx.getFB().getAbdBUF() & AdabasBufferX.IN) != 0) {		// if in/out bits from LCT say send it
-					msg.putBytes(adcx.getFB().getDataBytes());					// write A2 user data buffer
-				}
-			}
-			if (adcx.getRB() != null) {
-				if ((adcx.getRB().getAbdBUF() & AdabasBufferX.IN) != 0) {
-					msg.putBytes(adcx.getRB().getDataBytes());
-				}
-			}
-			if (adcx.getSB() != null) {
-				if ((adcx.getSB().getAbdBUF() & AdabasBufferX.IN) != 0) {
-					msg.putBytes(adcx.getSB().getDataBytes());
-				}
-			}
-			if (adcx.getVB() != null) {
-				if ((adcx.getVB().getAbdBUF() & AdabasBufferX.IN) != 0) {
-					msg.putBytes(adcx.getVB().getDataBytes());
-				}
-			}
-			if (adcx.getIB() != null) {
-				if ((adcx.getIB().getAbdBUF() & AdabasBufferX.IN) != 0) {
-					msg.putBytes(adcx.getIB().getDataBytes());
-				}
-			}
+			int sndOffset = A2_HDR_LENGTH + AdabasControlBlockX.ACBX_LENGTH + numVariableBuffs * AdabasBufferX.ABD_LENGTH;
+			
+			sndOffset = a2PutData(msg, sndOffset, adcx.getFB());				// for each possible buffer present write send data
+			sndOffset = a2PutData(msg, sndOffset, adcx.getRB());
+			sndOffset = a2PutData(msg, sndOffset, adcx.getSB());
+			sndOffset = a2PutData(msg, sndOffset, adcx.getVB());
+			sndOffset = a2PutData(msg, sndOffset, adcx.getIB());
+			sndOffset = a2PutData(msg, sndOffset, adcx.getMB());
 			
 //			logger.trace(AdabasTrace.dumpBuffer(method + "send XTS A2 direct call message = ", msg.body));
 			logger.trace(method + "send XTS A2 direct call message ");
+			recorder.begin(adcx);												// record call as sent
 			
-			xsp = new XTSSendParameters(adcx.getAcbX().getAcbDBID(),			// make XTS send parms with DBID	
-										msg,									// message
-										adcx.getXtsSendTimeout(),				// XTS timeout
-										adcx.getAcbX().getHostName());			// host name
+			xsp = sendParameters(dbid,											// get XTS send parms with DBID	
+								 msg,											// message
+								 adcx.getXtsSendTimeout(),						// XTS timeout
+								 adcx.getAcbX().getHostName());					// host name
 
-			Message rcvMsg = XTS.sendAndWait(xsp); 								// send message to server
+			rcvMsg	= sendAndWait(xsp, msg);									// send message to server
+			sent	= true;
 			
 //			logger.trace(AdabasTrace.dumpBuffer(method + "receieved XTS A2 direct call reply = ", rcvMsg.body));
 			logger.trace("receieved XTS A2 direct call reply");
@@ -758,86 +864,69 @@ public class AdabasDirectCallXts extends XtsDefinitions {
 			byte		rcvRsp			= rcvBB.get(0x0F);						// get the A2 response byte to check for error
 			if ((rcvRsp & A2_ERRORREPLY) == A2_ERRORREPLY) {					// some error occurred
 
-				String logMsg = String.format("XTS.sendAndWait() to DBID: %d returned ERRORREPLY! rcvRsp = 0x%02X", adcx.getAcbX().getAcbDBID(), rcvRsp);
+				String logMsg = String.format("XTS.sendAndWait() to DBID: %d returned ERRORREPLY! rcvRsp = 0x%02X", dbid, rcvRsp);
 				logger.error(logMsg); 
-				disconnectXts(adcx.getAcbX().getAcbDBID(),						// disconnect from XTS using DBID
+				disconnectXts(dbid,												// disconnect from XTS using DBID
 						  	  adcx.getAcbX().getHostName(),						// host name
 						  	  adcx.getXtsSendTimeout());						// XTS timeout
 				String expMsg = String.format("XTS.sendAndWait() returned ERRORREPLY! rcvRsp = 0x%02X", rcvRsp);
-				throw new AdabasException(adcx.getAcbX().getAcbDBID(), expMsg);	// throw exception
+				throw new AdabasException(dbid, expMsg);						// throw exception
 			}
 			int testXtsCtxId		= rcvBB.getInt(0x04);							// get context ID
 			int testXtsCtxIdVerify	= rcvBB.getInt(0x08);							// get context ID verifier
 			if (testXtsCtxId != xtsCtxId || testXtsCtxIdVerify != xtsCtxIdVerify) {	// not equal to ones we sent?
 				String errmsg = String.format("context ID and/or verifier changed by XTS during A2 send! sent ID = 0x%08X; received ID = 0x%08X; sent verifier = 0x%08X; received verifier = 0x%08X", xtsCtxId, testXtsCtxId, xtsCtxIdVerify, testXtsCtxIdVerify);
 				logger.error(method + errmsg);
-				logger.debug(String.format(method + AdabasTrace.dumpBuffer("rcvMsg", rcvMsg.body)));
+				if (logger.isDebugEnabled())	logger.debug(method + AdabasTrace.dumpBuffer("rcvMsg", rcvMsg.body));
 
-				throw new AdabasException(adcx.getAcbX().getAcbDBID(), errmsg);		// throw exception
+				throw new AdabasException(dbid, errmsg);						// throw exception
 			}
 
 			// TODO add return A2 header validation
 			
-			rcvMsg.reset();														// point to beginning of A2 message
-			rcvMsg.skip(A2_HDR_LENGTH);											// point past A2 header
-			rcvMsg.getBytes(adcx.getAcbX().getACBArray());						// copy ACBX
+			int rcvOffset = A2_HDR_LENGTH;										// start running offset past A2 header
 			
-			if (adcx.getAcbX().getAcbRSP() == 0) {								// if command successful (rsp = 0)
+			System.arraycopy(rcvMsg.body,										// copy from received message 
+							 rcvOffset,											// offset after A2 header
+							 acbxBA,											// to ACBX byte array
+							 0,													// offset 0
+							 AdabasControlBlockX.ACBX_LENGTH);					// for length of ACBX
+			rcvOffset += AdabasControlBlockX.ACBX_LENGTH;						// bump offset
+			recorder.end(acbxBA);												// record returned ACBX
+			
+			short rsp = adcx.getAcbX().getAcbRSP();
+			if (rsp == 0 ||														// if command successful (rsp = 0)
+				(rsp == AdabasException.ADA_016 && adcx.getAcbX().getAcbCMD().equals("MC"))) {	// or MC with subcommand results
 				
-				if (adcx.getFB() != null)										// for each possible buffer present
-					rcvMsg.getBytes(adcx.getFB().getABDBytes());				// copy A2 buffer header
-				if (adcx.getRB() != null)
-					rcvMsg.getBytes(adcx.getRB().getABDBytes());
-				if (adcx.getSB() != null)
-					rcvMsg.getBytes(adcx.getSB().getABDBytes());
-				if (adcx.getVB() != null)
-					rcvMsg.getBytes(adcx.getVB().getABDBytes());
-				if (adcx.getIB() != null)
-					rcvMsg.getBytes(adcx.getIB().getABDBytes());
-
-				if (adcx.getFB() != null) {										// for each possible buffer present
-					byte[] ba = rcvMsg.getBytes(adcx.getFB().getAbdRECV());		// get A2 received data as byte array 
-					adcx.getFB().getDataBuffer().rewind();						// rewind user data buffer
-					adcx.getFB().getDataBuffer().put(ba);						// copy byte array into buffer user data
-				}
-				if (adcx.getRB() != null) {
-					byte[] ba = rcvMsg.getBytes(adcx.getRB().getAbdRECV()); 
-					adcx.getRB().getDataBuffer().rewind();
-					adcx.getRB().getDataBuffer().put(ba);
-				}
-				if (adcx.getSB() != null) {
-					byte[] ba = rcvMsg.getBytes(adcx.getSB().getAbdRECV()); 
-					adcx.getSB().getDataBuffer().rewind();
-					adcx.getSB().getDataBuffer().put(ba);
-				}
-				if (adcx.getVB() != null) {
-					byte[] ba = rcvMsg.getBytes(adcx.getVB().getAbdRECV()); 
-					adcx.getVB().getDataBuffer().rewind();
-					adcx.getVB().getDataBuffer().put(ba);
-				}
-				if (adcx.getIB() != null) {
-					byte[] ba = rcvMsg.getBytes(adcx.getIB().getAbdRECV()); 
-					adcx.getIB().getDataBuffer().rewind();
-					adcx.getIB().getDataBuffer().put(ba);
-				}
-
-				if (adcx.getAcbX().getAcbCMD().compareTo("CL") == 0) {			// if successful CL command
-					disconnectXts(adcx.getAcbX().getAcbDBID(),					// disconnect from XTS using DBID
+				rcvOffset = a2GetABD(rcvMsg, rcvOffset, adcx.getFB());			// for each possible buffer present copy A2 buffer header
+				rcvOffset = a2GetABD(rcvMsg, rcvOffset, adcx.getRB());
+				rcvOffset = a2GetABD(rcvMsg, rcvOffset, adcx.getSB());
+				rcvOffset = a2GetABD(rcvMsg, rcvOffset, adcx.getVB());
+				rcvOffset = a2GetABD(rcvMsg, rcvOffset, adcx.getIB());
+				rcvOffset = a2GetABD(rcvMsg, rcvOffset, adcx.getMB());
+
+				rcvOffset = a2GetData(rcvMsg, rcvOffset, adcx.getFB(), dbid);	// for each possible buffer present copy received
+				rcvOffset = a2GetData(rcvMsg, rcvOffset, adcx.getRB(), dbid);	// data directly into user data buffer
+				rcvOffset = a2GetData(rcvMsg, rcvOffset, adcx.getSB(), dbid);
+				rcvOffset = a2GetData(rcvMsg, rcvOffset, adcx.getVB(), dbid);
+				rcvOffset = a2GetData(rcvMsg, rcvOffset, adcx.getIB(), dbid);
+				rcvOffset = a2GetData(rcvMsg, rcvOffset, adcx.getMB(), dbid);
+
+				if (adcx.getAcbX().getAcbCMD().compareTo("CL") == 0 && !pooled) {	// if successful CL command and context not pooled
+					disconnectXts(dbid,											// disconnect from XTS using DBID
 								  adcx.getAcbX().getHostName(),					// host name
 								  adcx.getXtsSendTimeout());					// XTS timeout
 				}
 				
 			}																	// end of rsp = 0 block
-
-			rcvMsg.free(method);												// free return message
 		}
 		catch (XTSException xe) {												// XTSException thrown?
 			
-			logger.debug(method + "XTSException caught: " + xe.getMessage());
+			if (logger.isDebugEnabled())	logger.debug(method + "XTSException caught: " + xe.getMessage());
 			
 			if (xe.xtsResponseCode == XTSException.XTS_TIMEOUT || xe.xtsResponseCode == XTSException.XTS_SEND_RECV_TIMEOUT) {
 				
-				logger.debug(method + "TIMEOUT Exception rc = " + xe.xtsResponseCode);
+				if (logger.isDebugEnabled())	logger.debug(method + "TIMEOUT Exception rc = " + xe.xtsResponseCode);
 				if (A2RetryDone == false) {
 					
 					logger.debug(method + "Clearing XTS URL cache..");
@@ -860,13 +949,146 @@ public class AdabasDirectCallXts extends XtsDefinitions {
 			}
 		}
 		finally {
+			releaseMessages(msgPool, msg, rcvMsg, sent, method);				// free reply and return send message
 			if (logger.isTraceEnabled())	logger.trace(method + "attempting callLock.unlock() ..");
-			callLock.unlock();													// TODO determine necessary XTS lock granularity
+			unlockContext();													// release XTS context lock
 			if (logger.isTraceEnabled())	logger.trace(method + "callLock: lock released");
 			logger.trace(method + "< exited");
 		}
 	}
 
+	/**
+	 * Get XTS send parameters for an A1/A2 call. The parameters of the previous call
+	 * on this context are reused when message and target are unchanged, which is the
+	 * normal case as the message pool hands back the message last returned.
+	 * 
+	 * @param dbid		Database ID.
+	 * @param msg		Send message.
+	 * @param timeout	XTS timeout in milliseconds.
+	 * @param hostName	Host name.
+	 * @return			XTS send parameters.
+	 */
+	private XTSSendParameters sendParameters(int dbid, Message msg, long timeout, String hostName) {
+		
+		if (cachedXsp == null || cachedXspMsg != msg || cachedXspDbid != dbid || 
+			cachedXspTimeout != timeout || !Objects.equals(cachedXspHost, hostName)) {
+			cachedXsp			= new XTSSendParameters(dbid, msg, timeout, hostName);
+			cachedXspMsg		= msg;
+			cachedXspDbid		= dbid;
+			cachedXspTimeout	= timeout;
+			cachedXspHost		= hostName;
+		}
+		return cachedXsp;
+	}
+	
+	/**
+	 * Free reply message and return send message to pool. A send message is only
+	 * pooled after XTS.sendAndWait() returned, otherwise XTS may still hold it.
+	 * 
+	 * @param msgPool	Send message pool.
+	 * @param msg		Send message or null.
+	 * @param rcvMsg	Reply message or null.
+	 * @param sent		Send completed flag.
+	 * @param method	Caller for XTS free trace.
+	 */
+	private static void releaseMessages(XtsMessagePool msgPool, Message msg, Message rcvMsg, boolean sent, String method) {
+		
+		if (rcvMsg != null && rcvMsg != msg)
+			rcvMsg.free(method);												// free return message
+		if (sent)
+			msgPool.release(msg);												// return send message to pool
+	}
+	
+	/**
+	 * Get A2 message length needed for a buffer: header plus data to send. Buffers
+	 * the LCT says are not sent get their send length cleared.
+	 * 
+	 * @param abx	Buffer.
+	 * @param dbid	Database ID for exception.
+	 * @return		ABD length plus send length.
+	 * @throws AdabasException	if send length exceeds buffer size.
+	 */
+	private static int a2SendLength(AdabasBufferX abx, int dbid) throws AdabasException {
+		
+		if ((abx.getAbdBUF() & AdabasBufferX.IN) == 0) {						// if in/out bits from LCT say don't send
+			abx.setAbdSEND(0);													// clear send length
+			return AdabasBufferX.ABD_LENGTH;
+		}
+		int send = abx.getAbdSEND();
+		if (send < 0 || send > abx.getDataBytes().length) {
+			String errmsg = String.format("ABD SEND length %d exceeds buffer size %d", send, abx.getDataBytes().length);
+			logger.error("a2SendLength(): " + errmsg);
+			throw new AdabasException(dbid, errmsg);
+		}
+		return AdabasBufferX.ABD_LENGTH + send;
+	}
+	
+	/**
+	 * Write send data of a buffer into an A2 message.
+	 * 
+	 * @param msg		Message positioned at offset.
+	 * @param offset	Current message offset.
+	 * @param abx		Buffer or null.
+	 * @return			Offset after data written.
+	 */
+	private static int a2PutData(Message msg, int offset, AdabasBufferX abx) {
+		
+		if (abx == null || (abx.getAbdBUF() & AdabasBufferX.IN) == 0)			// not present or LCT says don't send
+			return offset;
+		byte[]	data	= abx.getDataBytes();
+		int		send	= abx.getAbdSEND();
+		if (send == data.length) {
+			msg.putBytes(data);													// send whole buffer
+		}
+		else if (send > 0) {
+			System.arraycopy(data, 0, msg.body, offset, send);					// send leading part only
+			msg.skip(send);
+		}
+		return offset + send;
+	}
+	
+	/**
+	 * Copy an A2 reply buffer header into a buffer.
+	 * 
+	 * @param rcvMsg	Received message.
+	 * @param offset	Current message offset.
+	 * @param abx		Buffer or null.
+	 * @return			Offset after header.
+	 */
+	private static int a2GetABD(Message rcvMsg, int offset, AdabasBufferX abx) {
+		
+		if (abx == null)
+			return offset;
+		System.arraycopy(rcvMsg.body, offset, abx.getABDBytes(), 0, AdabasBufferX.ABD_LENGTH);
+		return offset + AdabasBufferX.ABD_LENGTH;
+	}
+	
+	/**
+	 * Copy A2 reply data directly into a buffer's user data.
+	 * 
+	 * @param rcvMsg	Received message.
+	 * @param offset	Current message offset.
+	 * @param abx		Buffer or null.
+	 * @param dbid		Database ID for exception.
+	 * @return			Offset after data.
+	 * @throws AdabasException	if received length exceeds buffer size.
+	 */
+	private static int a2GetData(Message rcvMsg, int offset, AdabasBufferX abx, int dbid) throws AdabasException {
+		
+		if (abx == null)
+			return offset;
+		int		recv	= abx.getAbdRECV();
+		byte[]	data	= abx.getDataBytes();
+		if (recv < 0 || recv > data.length || offset + recv > rcvMsg.body.length) {
+			String errmsg = String.format("ABD RECV length %d exceeds buffer size %d or reply length %d", recv, data.length, rcvMsg.body.length - offset);
+			logger.error("a2GetData(): " + errmsg);
+			throw new AdabasException(dbid, errmsg);
+		}
+		System.arraycopy(rcvMsg.body, offset, data, 0, recv);					// copy into user data
+		abx.getDataBuffer().position(recv);										// position as after relative put
+		return offset + recv;
+	}
+
 	/**
 	 * Byte swap a byte array.
 	 * 
@@ -883,6 +1105,106 @@ public class AdabasDirectCallXts extends XtsDefinitions {
 		return out;
 	}
 
+	/**
+	 * Set transport for direct call round trips. Intended for a local stand-in
+	 * transport in benchmarks and tests; the directory server is not used then.
+	 * 
+	 * @param xtsTransport	Transport or null to use XTS.
+	 */
+	public static void setTransport(XtsTransport xtsTransport) {
+		
+		transport = xtsTransport;
+	}
+	
+	/**
+	 * Send message via transport and wait for reply.
+	 * 
+	 * @param xsp	XTS send parameters.
+	 * @param msg	Message contained in the send parameters.
+	 * @return		reply message.
+	 * @throws XTSException	XTS specific exception.
+	 */
+	private static Message sendAndWait(XTSSendParameters xsp, Message msg) throws XTSException {
+		
+		XtsTransport t = transport;
+		return (t == null) ? XTS.sendAndWait(xsp) : t.sendAndWait(xsp, msg);
+	}
+	
+	/**
+	 * Acquire the XTS context lock, then the shared side of the directory lock so
+	 * no directory partition switch overlaps the call or connect.
+	 * 
+	 * @param dbid			Database ID for exception.
+	 * @param lockTimeout	Maximum wait in milliseconds for each lock.
+	 * @param method		Calling method name for logging.
+	 * 
+	 * @throws AdabasException	if a lock is not obtained within timeout or wait interrupted.
+	 */
+	private void lockContext(int dbid, long lockTimeout, String method) throws AdabasException {
+		
+		acquireLock(callLock, dbid, lockTimeout, method);						// get single thread XTS context lock
+		try {
+			acquireLock(directoryLock.readLock(), dbid, lockTimeout, method);	// keep directory partition while calling
+		}
+		catch (AdabasException e) {
+			callLock.unlock();
+			throw e;
+		}
+	}
+	
+	/**
+	 * Release the locks taken by {@link #lockContext(int, long, String)}.
+	 */
+	private void unlockContext() {
+		
+		directoryLock.readLock().unlock();
+		callLock.unlock();
+	}
+	
+	/**
+	 * Acquire the exclusive side of the directory lock before switching the partition
+	 * of the shared XTS directory. Waits for A1/A2 calls and connects in progress.
+	 * 
+	 * @param dbid		Database ID for exception, 0 if the request has none.
+	 * @param method	Calling method name for logging.
+	 * 
+	 * @throws AdabasException	if lock not obtained within {@link #LOCK_TIMEOUT} or wait interrupted.
+	 */
+	private static void lockDirectory(int dbid, String method) throws AdabasException {
+		
+		acquireLock(directoryLock.writeLock(), dbid, LOCK_TIMEOUT, method);
+	}
+	
+	/**
+	 * Acquire a lock waiting at most the given time.
+	 * 
+	 * @param lock		Lock to acquire.
+	 * @param dbid		Database ID for exception.
+	 * @param timeout	Maximum wait in milliseconds.
+	 * @param method	Calling method name for logging.
+	 * 
+	 * @throws AdabasException	if lock not obtained within timeout or wait interrupted.
+	 */
+	private static void acquireLock(Lock lock, int dbid, long timeout, String method) throws AdabasException {
+		
+		boolean	locked	= false;
+		String	errmsg	= null;
+		
+		try {
+			locked = lock.tryLock(timeout, TimeUnit.MILLISECONDS);				// wait bounded time for lock
+			if (!locked)
+				errmsg = String.format("XTS lock not obtained within %d ms", timeout);
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();									// preserve interrupt status
+			errmsg = "XTS lock wait interrupted";
+		}
+		if (!locked) {
+			logger.error(method + errmsg);
+			throw new AdabasException(dbid, errmsg);							// throw exception
+		}
+	}
+
 	/**
 	 * Send N1 message to AAS to create a database.
 	 * 
@@ -899,8 +1221,10 @@ public class AdabasDirectCallXts extends XtsDefinitions {
 		final byte[]	CREATE_DB	= { (byte) 0x8C, 0x00, 0x00, 0x00 };		// XTS N1 create DB request
 		Directory	directory	= null;											// XTS dir server directory
 		String		oldPartition	= null;										// previous dir server partition
+		XtsMessagePool msgPool	= XtsMessagePool.getInstance();					// send message pool
 		Message		msg		= null;												// XTS send    message
 		Message		rcvMsg		= null;											// XTS receive message
+		boolean		sent		= false;										// send completed flag
 		String		targetname	= null;											// saved AAS URL
 		boolean		AASFound	= false;										// AAS found flag
 		
@@ -908,14 +1232,13 @@ public class AdabasDirectCallXts extends XtsDefinitions {
 		
 		if (logger.isTraceEnabled())	logger.trace(method + "> entered");
 
-		callLock.lock();														// get single thread XTS call lock
-																				// TODO determine if this is necessary
-		if (logger.isTraceEnabled())	logger.trace(method + "callLock: lock obtained");
+		lockDirectory(dbid, method);											// get exclusive directory partition lock
+		if (logger.isTraceEnabled())	logger.trace(method + "directoryLock: lock obtained");
 
 		try {
 			int msgLength = N1_HDR_LENGTH + N1_SEGHDR_LENGTH + 20 + parms.length();
 
-			msg = Message.newMessage(msgLength);								// allocate new message
+			msg = msgPool.acquire(msgLength);									// get XTS message from pool
 			
 			msg.putBytes(N1_EYECATCHER);										// write N1 eyecatcher				0x00
 			msg.putShort(0x00);													// write XTS return code 0			0x02
@@ -970,6 +1293,7 @@ public class AdabasDirectCallXts extends XtsDefinitions {
 							if (logger.isDebugEnabled()) logger.debug(method + "XTSException: " + xe.getMessage() + ": retrying N1 call ..");
 							rcvMsg = XTS.sendAndWait(xsp);
 						}
+						sent = true;
 						if (logger.isTraceEnabled())	logger.trace(AdabasTrace.dumpBuffer(method + "N1 message response = ", rcvMsg.body));
 //						if (logger.isTraceEnabled())	logger.trace("N1 message response");
 						break;
@@ -1015,9 +1339,10 @@ public class AdabasDirectCallXts extends XtsDefinitions {
 			}
 		}
 		finally {
+			releaseMessages(msgPool, msg, rcvMsg, sent, method);				// free reply and return send message
 			directory.setPartition(oldPartition);					// restore previous partition
-			if (logger.isTraceEnabled())	logger.trace(method + "attempting callLock.unlock() ..");
-			callLock.unlock();										// TODO determine necessary XTS lock granularity
+			if (logger.isTraceEnabled())	logger.trace(method + "attempting directoryLock.unlock() ..");
+			directoryLock.writeLock().unlock();									// release directory partition lock
 			if (logger.isTraceEnabled())	logger.trace(method + "< exited");
 		}
 	}
@@ -1047,8 +1372,7 @@ public class AdabasDirectCallXts extends XtsDefinitions {
 		final String aasprefix = "AAS_SMH_";
 		final String method = "makeAASN1Request(): ";
 		
-		callLock.lock();														// get single thread XTS call lock
-																				// TODO determine if this is necessary
+		lockDirectory(0, method);												// get exclusive directory partition lock (no DBID)
 		try {			
 			if (logger.isTraceEnabled()) {
 					logger.trace(method + "> entered");			
@@ -1095,7 +1419,7 @@ public class AdabasDirectCallXts extends XtsDefinitions {
 		}
 		finally {
 			directory.setPartition(oldPartition);								// restore previous partition
-			callLock.unlock();													// TODO determine necessary XTS lock granularity
+			directoryLock.writeLock().unlock();									// release directory partition lock
 			if (logger.isTraceEnabled()) logger.trace(method + "< exited");
 		}
 	}
@@ -1113,8 +1437,7 @@ public class AdabasDirectCallXts extends XtsDefinitions {
 		final String aasprefix = "AAS_SMH_";
 		final String method = "makeAASN1Request(): ";
 		
-		callLock.lock();														// get single thread XTS call lock
-																				// TODO determine if this is necessary
+		lockDirectory(0, method);												// get exclusive directory partition lock (no DBID)
 		try {			
 			if (logger.isTraceEnabled()) {
 					logger.trace(method + "> entered");			
@@ -1164,7 +1487,7 @@ public class AdabasDirectCallXts extends XtsDefinitions {
 		}
 		finally {
 			directory.setPartition(oldPartition);								// restore previous partition
-			callLock.unlock();													// TODO determine necessary XTS lock granularity
+			directoryLock.writeLock().unlock();									// release directory partition lock
 			if (logger.isTraceEnabled()) logger.trace(method + "< exited");
 		}
 	}
@@ -1179,8 +1502,7 @@ public class AdabasDirectCallXts extends XtsDefinitions {
 		
 		final String method = "makeAASN1RequestbyHostName(): ";
 		
-		callLock.lock();														// get single thread XTS call lock
-																				// TODO determine if this is necessary
+		lockDirectory(0, method);												// get exclusive directory partition lock (no DBID)
 		try {
 			
 			if (logger.isTraceEnabled()) {
@@ -1227,8 +1549,8 @@ public class AdabasDirectCallXts extends XtsDefinitions {
 		}
 		finally {
 			directory.setPartition(oldPartition);								// restore previous partition
-			callLock.unlock();													// TODO determine necessary XTS lock granularity
-			if (logger.isTraceEnabled()) logger.trace(method + "callLock: lock released");
+			directoryLock.writeLock().unlock();									// release directory partition lock
+			if (logger.isTraceEnabled()) logger.trace(method + "directoryLock: lock released");
 			if (logger.isTraceEnabled()) logger.trace(method + "< exited");
 		}
 	}
@@ -1265,8 +1587,7 @@ public class AdabasDirectCallXts extends XtsDefinitions {
 		final String network75 = "NETWORK75_SMH_";
 		final String method = "makeWCPServiceN1Request(): ";
 		
-		callLock.lock();														// get single thread XTS call lock
-																				// TODO determine if this is necessary
+		lockDirectory(0, method);												// get exclusive directory partition lock (no DBID)
 		fullname = network75 + nodeName;
 		if (logger.isTraceEnabled()) {
 			logger.trace(method + "> entered");			
@@ -1333,7 +1654,7 @@ public class AdabasDirectCallXts extends XtsDefinitions {
 			
 		}
 		finally {
-			callLock.unlock();							// TODO determine necessary XTS lock granularity
+			directoryLock.writeLock().unlock();									// release directory partition lock
 			if (logger.isTraceEnabled()) logger.trace(method + "< exited");
 		}
 	}
@@ -1368,8 +1689,7 @@ public class AdabasDirectCallXts extends XtsDefinitions {
 		final String network75 = "NETWORK75_SMH_";
 		final String method = "makeWCLServiceN1Request(): ";
 		
-		callLock.lock();														// get single thread XTS call lock
-																				// TODO determine if this is necessary
+		lockDirectory(0, method);												// get exclusive directory partition lock (no DBID)
 		fullname = network75 + nodeName;
 		if (logger.isTraceEnabled()) {
 			logger.trace(method + "> entered");			
@@ -1436,7 +1756,7 @@ public class AdabasDirectCallXts extends XtsDefinitions {
                         return rcvMsg;			
 		}
 		finally {
-			callLock.unlock();							// TODO determine necessary XTS lock granularity
+			directoryLock.writeLock().unlock();									// release directory partition lock
 			if (logger.isTraceEnabled()) logger.trace(method + "< exited");
 		}
 	}
@@ -1473,8 +1793,7 @@ public class AdabasDirectCallXts extends XtsDefinitions {
 		final String network75 = "NETWORK75_SMH_";
 		final String method = "makeKernelN1Request(): ";
 		
-		callLock.lock();														// get single thread XTS call lock
-																				// TODO determine if this is necessary
+		lockDirectory(0, method);												// get exclusive directory partition lock (no DBID)
 		fullname = network75 + nodeName; 
 		if (logger.isTraceEnabled()) {
 			logger.trace(method + "> entered");			
@@ -1544,7 +1863,7 @@ public class AdabasDirectCallXts extends XtsDefinitions {
                         return rcvMsg;			
 		}
 		finally {
-			callLock.unlock();						// TODO determine necessary XTS lock granularity
+			directoryLock.writeLock().unlock();									// release directory partition lock
 			if (logger.isTraceEnabled()) logger.trace(method + "< exited");
 		}
 	}
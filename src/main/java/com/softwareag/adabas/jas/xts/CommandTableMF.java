@@ -4,6 +4,12 @@
 package com.softwareag.adabas.jas.xts;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
 
 import org.apache.logging.log4j.Logger;
 
@@ -23,14 +29,16 @@ import com.softwareag.adabas.jas.AdabasTrace;
  * 
  * Contains all possible command codes and associated buffers in/out.
  * 
+ * The table is built once when the class is loaded and cannot be changed. Commands
+ * are indexed by the two command code bytes of the ACBX, ASCII or EBCDIC, and carry
+ * the buffer in/out flags precomputed for every command option case, so a lookup
+ * does not create strings or scan the table.
+ * 
  * @author usadva
  */
 public class CommandTableMF {
 	
-	private	static CommandTableMF	instance	= null;
 
-	public static ArrayList<CommandMF> cmdTable = new ArrayList<CommandMF>();
-	
 	// The following definitions are taken from 'ADABAS.SRC.W.MACLIB(UB)'.
 	
 	public static final byte	MM	= (byte) 0x80;		// move multifetch  buffer
@@ -61,85 +69,138 @@ public class CommandTableMF {
 	public static final byte	SP7	= (byte) 0x02;		// reserved
 	public static final byte	SP8	= (byte) 0x01;		// reserved
 	
-	final static Logger logger = AdabasTrace.getLogger("com.softwareag.adabas.jas.xts.CommandTableMF");
-
+	private static final int	FB_X		= 0;		// buffer index in precomputed flags
+	private static final int	RB_X		= 1;
+	private static final int	SB_X		= 2;
+	private static final int	VB_X		= 3;
+	private static final int	IB_X		= 4;
+	private static final int	MB_X		= 5;
+	private static final int	BUFFERS		= 6;
+	
+	private static final int	COP1_CASES	= 3;		// COP1 other, 'P', 'M|O'
+	private static final int	COP2_CASES	= 3;		// COP2 other, 'E', 'V'
+	private static final int	ADD4_CASES	= 2;		// ADD4 not blank, blank
+	private static final int	CASES		= COP1_CASES * COP2_CASES * ADD4_CASES;
+	
+	private static final int	CHARS		= 37;		// command code characters 0-9 A-Z + 1 invalid
+	private static final byte[]	CODE_CHAR	= new byte[256];	// ASCII/EBCDIC byte -> 1-36, 0 invalid
+	private static final CommandMF[] index	= new CommandMF[CHARS * CHARS];	// commands by code characters
+	
+	private static final List<CommandMF> commands;							// all legal commands, not modifiable
+	
 	/**
-	 * Constructor.
+	 * All legal commands in table order. Kept as ArrayList for existing callers;
+	 * changes throw UnsupportedOperationException because lookups use the table
+	 * as built.
 	 * 
-	 * Private contructor makes this a singleton class.
+	 * @deprecated	Use {@link #getCommands()}.
 	 */
-	private CommandTableMF() {
+	@Deprecated
+	public static final ArrayList<CommandMF> cmdTable;
+	
+	final static Logger logger = AdabasTrace.getLogger("com.softwareag.adabas.jas.xts.CommandTableMF");
+
+	static {
 		
-		String method = "CommandTableMF(): ";
+		for (int i = 0; i < 10; i++) {
+			CODE_CHAR['0' + i]			= (byte) (1 + i);						// ASCII  digits
+			CODE_CHAR[0xF0 + i]			= (byte) (1 + i);						// EBCDIC digits
+		}
+		for (int i = 0; i < 26; i++) {
+			CODE_CHAR['A' + i]			= (byte) (11 + i);						// ASCII  letters
+			CODE_CHAR[ebcdicLetter(i)]	= (byte) (11 + i);						// EBCDIC letters
+		}
 		
-		if (logger.isTraceEnabled())	logger.trace(method + "> entered");
+		List<CommandMF> table = new ArrayList<CommandMF>();
 		
-		// The following definitions are taken from 'ADABAS.SRC.W.MACLIB.DEP(LCT)'.
+		// The following definitions are taken from 'ADABAS.SRC.W.MACLIB.DEP(LCT)', except
+		// the entries marked "not in LCT". L1/L4 with COP1 = 'M' take an ISN list in the IB
+		// (SP4 in, used by AdabasIsnFetch) and S1 with COP1 = 'M' returns IB+MB (SP6 out,
+		// used by AdabasMultifetch); the LCT copied here predates both.
 		
-		cmdTable.add(new CommandMF("L1", (byte) (MF), 				(byte) (MR),				(byte) (0x00),		(byte) (SP6)));
-		cmdTable.add(new CommandMF("S1", (byte) (MF+MS+MV),			(byte) (MR+MI),				(byte) (0x00),		(byte) (0x00)));
-		cmdTable.add(new CommandMF("S4", (byte) (MF+MS+MV), 		(byte) (MR+MI),				(byte) (0x00),		(byte) (0x00)));
-		cmdTable.add(new CommandMF("L2", (byte) (MF), 				(byte) (MR),				(byte) (0x00),		(byte) (SP6)));
-		cmdTable.add(new CommandMF("L4", (byte) (MF), 				(byte) (MR),				(byte) (0x00),		(byte) (SP6)));
-		cmdTable.add(new CommandMF("L5", (byte) (MF), 				(byte) (MR),				(byte) (0x00),		(byte) (SP6)));
-		cmdTable.add(new CommandMF("L3", (byte) (MF), 				(byte) (MR),				(byte) (SP1),		(byte) (SP6)));
-		cmdTable.add(new CommandMF("L6", (byte) (MF), 				(byte) (MR),				(byte) (SP1),		(byte) (SP6)));
-		cmdTable.add(new CommandMF("N1", (byte) (MF+MR), 			(byte) (0x00),				(byte) (0x00),		(byte) (0x00)));
-		cmdTable.add(new CommandMF("N2", (byte) (MF+MR), 			(byte) (0x00),				(byte) (0x00),		(byte) (0x00)));
-		cmdTable.add(new CommandMF("A1", (byte) (MF+MR), 			(byte) (0x00),				(byte) (0x00),		(byte) (0x00)));
-		cmdTable.add(new CommandMF("S9", (byte) (0x00), 			(byte) (MI),				(byte) (SP3),		(byte) (0x00)));
-		cmdTable.add(new CommandMF("A4", (byte) (MF+MR), 			(byte) (0x00),				(byte) (0x00),		(byte) (0x00)));
-		cmdTable.add(new CommandMF("RC", (byte) (0x00), 			(byte) (0x00),				(byte) (0x00),		(byte) (0x00)));
-		cmdTable.add(new CommandMF("E1", (byte) (0x00), 			(byte) (0x00),				(byte) (0x00),		(byte) (0x00)));
-		cmdTable.add(new CommandMF("E4", (byte) (0x00), 			(byte) (0x00),				(byte) (0x00),		(byte) (0x00)));
-		cmdTable.add(new CommandMF("ET", (byte) (0x00), 			(byte) (0x00),				(byte) (SP2+SP4),	(byte) (0x00)));
-		cmdTable.add(new CommandMF("HI", (byte) (0x00), 			(byte) (0x00),				(byte) (0x00),		(byte) (0x00)));
-		cmdTable.add(new CommandMF("RI", (byte) (0x00), 			(byte) (0x00),				(byte) (0x00),		(byte) (0x00)));
-		cmdTable.add(new CommandMF("OP", (byte) (MR), 				(byte) (0x00),				(byte) (0x00),		(byte) (SP3)));
-		cmdTable.add(new CommandMF("CL", (byte) (0x00), 			(byte) (0x00),				(byte) (SP2+SP4),	(byte) (0x00)));
-		cmdTable.add(new CommandMF("A9", (byte) (0x00), 			(byte) (0x00),				(byte) (0x00),		(byte) (0x00)));
-		cmdTable.add(new CommandMF("LC", (byte) (MF), 				(byte) (MR),				(byte) (0x00),		(byte) (SP4)));
-		cmdTable.add(new CommandMF("L7", (byte) (0x00), 			(byte) (MR),				(byte) (0x00),		(byte) (SP4)));
-		cmdTable.add(new CommandMF("L8", (byte) (0x00), 			(byte) (MR),				(byte) (0x00),		(byte) (SP4)));
-		cmdTable.add(new CommandMF("LA", (byte) (0x00), 			(byte) (MR),				(byte) (0x00),		(byte) (0x00)));
-		cmdTable.add(new CommandMF("LB", (byte) (0x00), 			(byte) (MR),				(byte) (0x00),		(byte) (0x00)));
-		cmdTable.add(new CommandMF("LD", (byte) (0x00), 			(byte) (MR),				(byte) (0x00),		(byte) (SP4)));
-		cmdTable.add(new CommandMF("SP", (byte) (MR), 				(byte) (MR),				(byte) (0x00),		(byte) (0x00)));
-		cmdTable.add(new CommandMF("LF", (byte) (0x00), 			(byte) (MR),				(byte) (0x00),		(byte) (0x00)));
-		cmdTable.add(new CommandMF("L9", (byte) (MF+MS+MV), 		(byte) (MR),				(byte) (0x00),		(byte) (SP6)));
-		cmdTable.add(new CommandMF("S2", (byte) (MF+MS+MV), 		(byte) (MR+MI),				(byte) (0x00),		(byte) (0x00)));
-		cmdTable.add(new CommandMF("S5", (byte) (0x00), 			(byte) (MI),				(byte) (0x00),		(byte) (0x00)));
-		cmdTable.add(new CommandMF("S8", (byte) (0x00), 			(byte) (MI),				(byte) (0x00),		(byte) (0x00)));
-		cmdTable.add(new CommandMF("C1", (byte) (0x00), 			(byte) (0x00),				(byte) (0x00),		(byte) (0x00)));
-		cmdTable.add(new CommandMF("C2", (byte) (0x00), 			(byte) (0x00),				(byte) (0x00),		(byte) (0x00)));
-		cmdTable.add(new CommandMF("C3", (byte) (0x00), 			(byte) (0x00),				(byte) (SP2+SP4),	(byte) (0x00)));
-		cmdTable.add(new CommandMF("BT", (byte) (0x00), 			(byte) (0x00),				(byte) (SP4),		(byte) (0x00)));
-		cmdTable.add(new CommandMF("C5", (byte) (MR), 				(byte) (0x00),				(byte) (0x00),		(byte) (0x00)));
-		cmdTable.add(new CommandMF("RE", (byte) (0x00), 			(byte) (MR),				(byte) (0x00),		(byte) (0x00)));
-		cmdTable.add(new CommandMF("U0", (byte) (0x00), 			(byte) (0x00),				(byte) (0x00),		(byte) (0x00)));
-		cmdTable.add(new CommandMF("U1", (byte) (0x00), 			(byte) (MR),				(byte) (0x00),		(byte) (0x00)));
-		cmdTable.add(new CommandMF("U2", (byte) (MR), 				(byte) (0x00),				(byte) (0x00),		(byte) (0x00)));
-		cmdTable.add(new CommandMF("U3", (byte) (MR), 				(byte) (MR),				(byte) (0x00),		(byte) (0x00)));
-		cmdTable.add(new CommandMF("X0", (byte) (0x00), 			(byte) (0x00),				(byte) (0x00),		(byte) (0x00)));
-		cmdTable.add(new CommandMF("X1", (byte) (0x00), 			(byte) (MR),				(byte) (0x00),		(byte) (0x00)));
-		cmdTable.add(new CommandMF("X2", (byte) (MF), 				(byte) (0x00),				(byte) (0x00),		(byte) (0x00)));
-		cmdTable.add(new CommandMF("X3", (byte) (MF), 				(byte) (MR),				(byte) (0x00),		(byte) (0x00)));
-		cmdTable.add(new CommandMF("NQ", (byte) (MF), 				(byte) (MR),				(byte) (0x00),		(byte) (SP4)));
-		cmdTable.add(new CommandMF("PC", (byte) (MF+MR), 			(byte) (MR),				(byte) (0x00),		(byte) (0x00)));
-		cmdTable.add(new CommandMF("YA", (byte) (MR+MV), 			(byte) (0x00),				(byte) (0x00),		(byte) (0x00)));
-		cmdTable.add(new CommandMF("YB", (byte) (MV+MI), 			(byte) (0x00),				(byte) (0x00),		(byte) (0x00)));
-		cmdTable.add(new CommandMF("YD", (byte) (MV), 				(byte) (0x00),				(byte) (0x00),		(byte) (0x00)));
-		cmdTable.add(new CommandMF("YE", (byte) (MV), 				(byte) (0x00),				(byte) (0x00),		(byte) (0x00)));
-		cmdTable.add(new CommandMF("YF", (byte) (MR+MV+MI), 		(byte) (0x00),				(byte) (0x00),		(byte) (0x00)));
-		cmdTable.add(new CommandMF("YP", (byte) (MV), 				(byte) (0x00),				(byte) (0x00),		(byte) (0x00)));
-		cmdTable.add(new CommandMF("YR", (byte) (MV), 				(byte) (MR),				(byte) (0x00),		(byte) (0x00)));
-		cmdTable.add(new CommandMF("V1", (byte) (MR+MS+MV+MI), 		(byte) (MR+MI),				(byte) (0x00),		(byte) (0x00)));
-		cmdTable.add(new CommandMF("V2", (byte) (MR+MS+MV+MF+MI),	(byte) (MR+MS+MV+MF+MI),	(byte) (0x00),		(byte) (0x00)));
-		cmdTable.add(new CommandMF("V3", (byte) (MR+MS+MV+MF+MI),	(byte) (MR+MS+MV+MF+MI),	(byte) (0x00),		(byte) (0x00)));
-		cmdTable.add(new CommandMF("V4", (byte) (MR+MS+MV+MF+MI),	(byte) (MR+MV+MI),			(byte) (0x00),		(byte) (0x00)));
-		cmdTable.add(new CommandMF("MC", (byte) (MR),				(byte) (MR),				(byte) (0x00),		(byte) (0x00)));
+		add(table, new CommandMF("L1", (byte) (MF), 				(byte) (MR),				(byte) (SP4),		(byte) (SP6)));	// not in LCT: SP4 in
+		add(table, new CommandMF("S1", (byte) (MF+MS+MV),			(byte) (MR+MI),				(byte) (0x00),		(byte) (SP6)));	// not in LCT: SP6 out
+		add(table, new CommandMF("S4", (byte) (MF+MS+MV), 		(byte) (MR+MI),				(byte) (0x00),		(byte) (0x00)));
+		add(table, new CommandMF("L2", (byte) (MF), 				(byte) (MR),				(byte) (0x00),		(byte) (SP6)));
+		add(table, new CommandMF("L4", (byte) (MF), 				(byte) (MR),				(byte) (SP4),		(byte) (SP6)));	// not in LCT: SP4 in
+		add(table, new CommandMF("L5", (byte) (MF), 				(byte) (MR),				(byte) (0x00),		(byte) (SP6)));
+		add(table, new CommandMF("L3", (byte) (MF), 				(byte) (MR),				(byte) (SP1),		(byte) (SP6)));
+		add(table, new CommandMF("L6", (byte) (MF), 				(byte) (MR),				(byte) (SP1),		(byte) (SP6)));
+		add(table, new CommandMF("N1", (byte) (MF+MR), 			(byte) (0x00),				(byte) (0x00),		(byte) (0x00)));
+		add(table, new CommandMF("N2", (byte) (MF+MR), 			(byte) (0x00),				(byte) (0x00),		(byte) (0x00)));
+		add(table, new CommandMF("A1", (byte) (MF+MR), 			(byte) (0x00),				(byte) (0x00),		(byte) (0x00)));
+		add(table, new CommandMF("S9", (byte) (0x00), 			(byte) (MI),				(byte) (SP3),		(byte) (0x00)));
+		add(table, new CommandMF("A4", (byte) (MF+MR), 			(byte) (0x00),				(byte) (0x00),		(byte) (0x00)));
+		add(table, new CommandMF("RC", (byte) (0x00), 			(byte) (0x00),				(byte) (0x00),		(byte) (0x00)));
+		add(table, new CommandMF("E1", (byte) (0x00), 			(byte) (0x00),				(byte) (0x00),		(byte) (0x00)));
+		add(table, new CommandMF("E4", (byte) (0x00), 			(byte) (0x00),				(byte) (0x00),		(byte) (0x00)));
+		add(table, new CommandMF("ET", (byte) (0x00), 			(byte) (0x00),				(byte) (SP2+SP4),	(byte) (0x00)));
+		add(table, new CommandMF("HI", (byte) (0x00), 			(byte) (0x00),				(byte) (0x00),		(byte) (0x00)));
+		add(table, new CommandMF("RI", (byte) (0x00), 			(byte) (0x00),				(byte) (0x00),		(byte) (0x00)));
+		add(table, new CommandMF("OP", (byte) (MR), 				(byte) (0x00),				(byte) (0x00),		(byte) (SP3)));
+		add(table, new CommandMF("CL", (byte) (0x00), 			(byte) (0x00),				(byte) (SP2+SP4),	(byte) (0x00)));
+		add(table, new CommandMF("A9", (byte) (0x00), 			(byte) (0x00),				(byte) (0x00),		(byte) (0x00)));
+		add(table, new CommandMF("LC", (byte) (MF), 				(byte) (MR),				(byte) (0x00),		(byte) (SP4)));
+		add(table, new CommandMF("L7", (byte) (0x00), 			(byte) (MR),				(byte) (0x00),		(byte) (SP4)));
+		add(table, new CommandMF("L8", (byte) (0x00), 			(byte) (MR),				(byte) (0x00),		(byte) (SP4)));
+		add(table, new CommandMF("LA", (byte) (0x00), 			(byte) (MR),				(byte) (0x00),		(byte) (0x00)));
+		add(table, new CommandMF("LB", (byte) (0x00), 			(byte) (MR),				(byte) (0x00),		(byte) (0x00)));
+		add(table, new CommandMF("LD", (byte) (0x00), 			(byte) (MR),				(byte) (0x00),		(byte) (SP4)));
+		add(table, new CommandMF("SP", (byte) (MR), 				(byte) (MR),				(byte) (0x00),		(byte) (0x00)));
+		add(table, new CommandMF("LF", (byte) (0x00), 			(byte) (MR),				(byte) (0x00),		(byte) (0x00)));
+		add(table, new CommandMF("L9", (byte) (MF+MS+MV), 		(byte) (MR),				(byte) (0x00),		(byte) (SP6)));
+		add(table, new CommandMF("S2", (byte) (MF+MS+MV), 		(byte) (MR+MI),				(byte) (0x00),		(byte) (0x00)));
+		add(table, new CommandMF("S5", (byte) (0x00), 			(byte) (MI),				(byte) (0x00),		(byte) (0x00)));
+		add(table, new CommandMF("S8", (byte) (0x00), 			(byte) (MI),				(byte) (0x00),		(byte) (0x00)));
+		add(table, new CommandMF("C1", (byte) (0x00), 			(byte) (0x00),				(byte) (0x00),		(byte) (0x00)));
+		add(table, new CommandMF("C2", (byte) (0x00), 			(byte) (0x00),				(byte) (0x00),		(byte) (0x00)));
+		add(table, new CommandMF("C3", (byte) (0x00), 			(byte) (0x00),				(byte) (SP2+SP4),	(byte) (0x00)));
+		add(table, new CommandMF("BT", (byte) (0x00), 			(byte) (0x00),				(byte) (SP4),		(byte) (0x00)));
+		add(table, new CommandMF("C5", (byte) (MR), 				(byte) (0x00),				(byte) (0x00),		(byte) (0x00)));
+		add(table, new CommandMF("RE", (byte) (0x00), 			(byte) (MR),				(byte) (0x00),		(byte) (0x00)));
+		add(table, new CommandMF("U0", (byte) (0x00), 			(byte) (0x00),				(byte) (0x00),		(byte) (0x00)));
+		add(table, new CommandMF("U1", (byte) (0x00), 			(byte) (MR),				(byte) (0x00),		(byte) (0x00)));
+		add(table, new CommandMF("U2", (byte) (MR), 				(byte) (0x00),				(byte) (0x00),		(byte) (0x00)));
+		add(table, new CommandMF("U3", (byte) (MR), 				(byte) (MR),				(byte) (0x00),		(byte) (0x00)));
+		add(table, new CommandMF("X0", (byte) (0x00), 			(byte) (0x00),				(byte) (0x00),		(byte) (0x00)));
+		add(table, new CommandMF("X1", (byte) (0x00), 			(byte) (MR),				(byte) (0x00),		(byte) (0x00)));
+		add(table, new CommandMF("X2", (byte) (MF), 				(byte) (0x00),				(byte) (0x00),		(byte) (0x00)));
+		add(table, new CommandMF("X3", (byte) (MF), 				(byte) (MR),				(byte) (0x00),		(byte) (0x00)));
+		add(table, new CommandMF("NQ", (byte) (MF), 				(byte) (MR),				(byte) (0x00),		(byte) (SP4)));
+		add(table, new CommandMF("PC", (byte) (MF+MR), 			(byte) (MR),				(byte) (0x00),		(byte) (0x00)));
+		add(table, new CommandMF("YA", (byte) (MR+MV), 			(byte) (0x00),				(byte) (0x00),		(byte) (0x00)));
+		add(table, new CommandMF("YB", (byte) (MV+MI), 			(byte) (0x00),				(byte) (0x00),		(byte) (0x00)));
+		add(table, new CommandMF("YD", (byte) (MV), 				(byte) (0x00),				(byte) (0x00),		(byte) (0x00)));
+		add(table, new CommandMF("YE", (byte) (MV), 				(byte) (0x00),				(byte) (0x00),		(byte) (0x00)));
+		add(table, new CommandMF("YF", (byte) (MR+MV+MI), 		(byte) (0x00),				(byte) (0x00),		(byte) (0x00)));
+		add(table, new CommandMF("YP", (byte) (MV), 				(byte) (0x00),				(byte) (0x00),		(byte) (0x00)));
+		add(table, new CommandMF("YR", (byte) (MV), 				(byte) (MR),				(byte) (0x00),		(byte) (0x00)));
+		add(table, new CommandMF("V1", (byte) (MR+MS+MV+MI), 		(byte) (MR+MI),				(byte) (0x00),		(byte) (0x00)));
+		add(table, new CommandMF("V2", (byte) (MR+MS+MV+MF+MI),	(byte) (MR+MS+MV+MF+MI),	(byte) (0x00),		(byte) (0x00)));
+		add(table, new CommandMF("V3", (byte) (MR+MS+MV+MF+MI),	(byte) (MR+MS+MV+MF+MI),	(byte) (0x00),		(byte) (0x00)));
+		add(table, new CommandMF("V4", (byte) (MR+MS+MV+MF+MI),	(byte) (MR+MV+MI),			(byte) (0x00),		(byte) (0x00)));
+		add(table, new CommandMF("MC", (byte) (MR),				(byte) (MR),				(byte) (0x00),		(byte) (0x00)));
+		
+		commands = Collections.unmodifiableList(table);
+		cmdTable = new ReadOnlyList(table);
+	}
 	
-		if (logger.isTraceEnabled())	logger.trace(method + "< exited");
+	/**
+	 * Get all legal commands in table order.
+	 * 
+	 * @return	commands, not modifiable.
+	 */
+	public static List<CommandMF> getCommands() {
+		
+		return commands;
+	}
+	
+	/**
+	 * Constructor.
+	 * 
+	 * Private contructor makes this a singleton class.
+	 */
+	private CommandTableMF() {
 	}
 	
 	/**
@@ -149,27 +210,61 @@ public class CommandTableMF {
 	 */
 	public static CommandTableMF getInstance() {
 		
-		if (instance == null) {
-			instance = new CommandTableMF();
+		return Holder.instance;													// created once on first use, thread safe
+	}
+
+	/**
+	 * Lazy holder for the singleton instance.
+	 */
+	private static class Holder {
+		
+		private static final CommandTableMF	instance	= new CommandTableMF();
+	}
+
+	/**
+	 * ArrayList refusing changes, for {@link #cmdTable}.
+	 */
+	@SuppressWarnings("serial")
+	private static final class ReadOnlyList extends ArrayList<CommandMF> {
+		
+		ReadOnlyList(List<CommandMF> table) {
+			super(table);
 		}
 		
-		return instance;
+		@Override public boolean add(CommandMF e)										{ throw new UnsupportedOperationException(); }
+		@Override public void add(int index, CommandMF e)								{ throw new UnsupportedOperationException(); }
+		@Override public boolean addAll(Collection<? extends CommandMF> c)				{ throw new UnsupportedOperationException(); }
+		@Override public boolean addAll(int index, Collection<? extends CommandMF> c)	{ throw new UnsupportedOperationException(); }
+		@Override public CommandMF set(int index, CommandMF e)							{ throw new UnsupportedOperationException(); }
+		@Override public CommandMF remove(int index)									{ throw new UnsupportedOperationException(); }
+		@Override public boolean remove(Object o)										{ throw new UnsupportedOperationException(); }
+		@Override public boolean removeAll(Collection<?> c)								{ throw new UnsupportedOperationException(); }
+		@Override public boolean retainAll(Collection<?> c)								{ throw new UnsupportedOperationException(); }
+		@Override public boolean removeIf(Predicate<? super CommandMF> filter)			{ throw new UnsupportedOperationException(); }
+		@Override public void replaceAll(UnaryOperator<CommandMF> operator)				{ throw new UnsupportedOperationException(); }
+		@Override public void sort(Comparator<? super CommandMF> c)						{ throw new UnsupportedOperationException(); }
+		@Override public void clear()													{ throw new UnsupportedOperationException(); }
+		@Override protected void removeRange(int fromIndex, int toIndex)				{ throw new UnsupportedOperationException(); }
+		@Override public List<CommandMF> subList(int fromIndex, int toIndex)			{ return Collections.unmodifiableList(super.subList(fromIndex, toIndex)); }
 	}
 
 	/**
-	 * Inner class describing a single legal command.
+	 * Class describing a single legal command.
 	 * 
 	 * @author usadva
 	 *
 	 */
-	public class CommandMF {
+	public static final class CommandMF {
+		
+		public final String	commandCode;
 		
-		public String	commandCode;
+		public final byte	buffersIn;
+		public final byte	buffersOut;
+		public final byte	specialIn;
+		public final byte	specialOut;
 		
-		public byte	buffersIn;
-		public byte	buffersOut;
-		public byte	specialIn;
-		public byte	specialOut;
+		private final byte[]	flags	= new byte[CASES * BUFFERS];		// buffer in/out flags per option case
+		private final boolean	options;									// flags depend on COP1/COP2/ADD4
 		
 		/**
 		 * Constructor.
@@ -187,7 +282,127 @@ public class CommandTableMF {
 			this.buffersOut		= buffersOut;
 			this.specialIn		= specialIn;
 			this.specialOut		= specialOut;
+			this.options		= specialIn != 0 || specialOut != 0;
+			
+			for (int cop1 = 0; cop1 < COP1_CASES; cop1++)
+				for (int cop2 = 0; cop2 < COP2_CASES; cop2++)
+					for (int add4 = 0; add4 < ADD4_CASES; add4++)
+						setFlags((cop1 * COP2_CASES + cop2) * ADD4_CASES + add4, cop1, cop2, add4 == 1);
+		}
+		
+		/**
+		 * Get buffer in/out flags (AdabasBufferX.IN/OUT) of the command.
+		 * 
+		 * @param buffer	Buffer type, AdabasBufferX.FB to AdabasBufferX.MB.
+		 * @param cop1		Command option 1.
+		 * @param cop2		Command option 2.
+		 * @param add4		Additions 4 (8 bytes).
+		 * @return			IN/OUT flags for the buffer, 0 if the buffer is not used.
+		 */
+		public byte getBufferFlags(byte buffer, byte cop1, byte cop2, byte[] add4) {
+			
+			int x;
+			switch (buffer) {
+				case AdabasBufferX.FB:	x = FB_X;	break;
+				case AdabasBufferX.RB:	x = RB_X;	break;
+				case AdabasBufferX.SB:	x = SB_X;	break;
+				case AdabasBufferX.VB:	x = VB_X;	break;
+				case AdabasBufferX.IB:	x = IB_X;	break;
+				case AdabasBufferX.MB:	x = MB_X;	break;
+				default:				return 0;
+			}
+			return flags[optionCase(cop1, cop2, add4, 0) + x];
 		}
+		
+		/**
+		 * Offset of the flags for the command options in {@link #flags}.
+		 */
+		private int optionCase(byte cop1, byte cop2, byte[] add4, int add4Offset) {
+			
+			if (!options)
+				return 0;
+			int c1 = cop1 == 'P' ? 1 : (cop1 == 'M' || cop1 == 'O') ? 2 : 0;
+			int c2 = cop2 == 'E' ? 1 : cop2 == 'V' ? 2 : 0;
+			int a4 = 0;
+			if ((specialIn & SP3) != 0 && add4 != null) {							// ADD4 only checked if it matters
+				a4 = 1;
+				for (int i = add4Offset; i < add4Offset + 8; i++) {
+					if (add4[i] != ' ' && add4[i] != 0x40) {							// ASCII or EBCDIC blank
+						a4 = 0;
+						break;
+					}
+				}
+			}
+			return ((c1 * COP2_CASES + c2) * ADD4_CASES + a4) * BUFFERS;
+		}
+		
+		/**
+		 * Precompute the buffer flags of one option case.
+		 * 
+		 * @param c				Option case.
+		 * @param cop1			COP1 case: 0 other, 1 'P', 2 'M|O'.
+		 * @param cop2			COP2 case: 0 other, 1 'E', 2 'V'.
+		 * @param add4Blank		ADD4 blank.
+		 */
+		private void setFlags(int c, int cop1, int cop2, boolean add4Blank) {
+			
+			byte[]	f		= new byte[BUFFERS];
+			boolean	pmo		= cop1 != 0;
+			boolean	mo		= cop1 == 2;
+			
+			f[FB_X] = inOut(buffersIn  & MF, buffersOut & MF);
+			
+			f[RB_X] = inOut(buffersIn  & MR, buffersOut & MR);
+			if (((specialIn  & SP2) != 0) && cop2 == 1) f[RB_X] |= AdabasBufferX.IN;
+			if (((specialOut & SP3) != 0) && cop2 == 1) f[RB_X] |= AdabasBufferX.OUT;
+			
+			f[SB_X] = inOut(buffersIn  & MS, buffersOut & MS);
+			if (((specialIn  & SP1) != 0) && cop2 == 2) f[SB_X] |= AdabasBufferX.IN;
+			
+			f[VB_X] = inOut(buffersIn  & MV, buffersOut & MV);
+			if (((specialIn  & SP1) != 0) && cop2 == 2) f[VB_X] |= AdabasBufferX.IN;
+			
+			f[IB_X] = inOut(buffersIn  & MI, buffersOut & MI);
+			if (((specialIn  & SP3) != 0) && add4Blank)	f[IB_X] |= AdabasBufferX.IN;
+			if (((specialIn  & SP4) != 0) && pmo)		f[IB_X] |= AdabasBufferX.IN;
+			if (((specialOut & SP4) != 0) && pmo)		f[IB_X] |= AdabasBufferX.OUT;
+			if (((specialIn  & SP6) != 0) && pmo)		f[IB_X] |= AdabasBufferX.IN;
+			if (((specialOut & SP6) != 0) && pmo)		f[IB_X] |= AdabasBufferX.OUT;
+			
+			if (((specialOut & SP6) != 0) && mo)		f[MB_X] |= AdabasBufferX.OUT;
+			
+			System.arraycopy(f, 0, flags, c * BUFFERS, BUFFERS);
+		}
+		
+		private static byte inOut(int in, int out) {
+			
+			return (byte) ((in != 0 ? AdabasBufferX.IN : 0) | (out != 0 ? AdabasBufferX.OUT : 0));
+		}
+	}
+	
+	/**
+	 * Get a legal command by command code.
+	 * 
+	 * @param commandCode	Two character command code.
+	 * @return				Command, null if not a legal command.
+	 */
+	public static CommandMF getCommand(String commandCode) {
+		
+		if (commandCode == null || commandCode.length() != 2 || commandCode.charAt(0) > 0xFF || commandCode.charAt(1) > 0xFF)
+			return null;
+		return getCommand((byte) commandCode.charAt(0), (byte) commandCode.charAt(1));
+	}
+	
+	/**
+	 * Get a legal command by the command code bytes of an ACBX, ASCII or EBCDIC.
+	 * 
+	 * @param c0	First command code byte.
+	 * @param c1	Second command code byte.
+	 * @return		Command, null if not a legal command.
+	 */
+	public static CommandMF getCommand(byte c0, byte c1) {
+		
+		return index[CODE_CHAR[c0 & 0xFF] * CHARS + CODE_CHAR[c1 & 0xFF]];
 	}
 	
 	/**
@@ -201,83 +416,62 @@ public class CommandTableMF {
 		
 		if (logger.isTraceEnabled())	logger.trace(method + "> entered");
 		
-		String cmdCode	= adcx.getAcbX().getAcbCMD();
+		byte[]		acb	= adcx.getAcbX().getACBArray();
+		CommandMF	cmd	= getCommand(acb[0x06], acb[0x07]);						// command code is	offset x06	length 2
 		
-		for (CommandMF cmd : cmdTable) {
+		if (cmd != null) {
 			
-			if (cmd.commandCode.compareTo(cmdCode) == 0) {
-				
-				if (logger.isDebugEnabled())	
-					logger.debug(method + String.format("command found: code = %s; in = 0x%02X out = 0x%02X; spin = 0x%02X; spout = 0x%02X", 
-							     cmd.commandCode, cmd.buffersIn, cmd.buffersOut, cmd.specialIn, cmd.specialOut));
-				
-				byte	bufInOut = 0x00;
-				
-				if (adcx.getFB() != null) {
-					if ((cmd.buffersIn  & MF) != 0) bufInOut = (byte) (bufInOut | AdabasBufferX.IN);
-					if ((cmd.buffersOut & MF) != 0) bufInOut = (byte) (bufInOut | AdabasBufferX.OUT);
-					adcx.getFB().setAbdBUF(bufInOut);
-					if (logger.isTraceEnabled())	logger.trace(AdabasTrace.dumpBuffer("format buffer header =", adcx.getFB().getABDBytes()));
-				}
-				bufInOut = 0x00;
-				if (adcx.getRB() != null) {
-					if ((cmd.buffersIn   & MR) != 0) bufInOut = (byte) (bufInOut | AdabasBufferX.IN); 
-					if ((cmd.buffersOut  & MR) != 0) bufInOut = (byte) (bufInOut | AdabasBufferX.OUT);
-					if (((cmd.specialIn  & SP2) != 0) && (adcx.getAcbX().getAcbCOP2() == 'E')) bufInOut = (byte) (bufInOut | AdabasBufferX.IN); 
-					if (((cmd.specialOut & SP3) != 0) && (adcx.getAcbX().getAcbCOP2() == 'E')) bufInOut = (byte) (bufInOut | AdabasBufferX.OUT); 
-					adcx.getRB().setAbdBUF(bufInOut);
-					if (logger.isTraceEnabled())	logger.trace(AdabasTrace.dumpBuffer("record buffer header =", adcx.getRB().getABDBytes()));
-				}
-				bufInOut = 0x00;
-				if (adcx.getSB() != null) {
-					if ((cmd.buffersIn  & MS) != 0) bufInOut = (byte) (bufInOut | AdabasBufferX.IN); 
-					if ((cmd.buffersOut & MS) != 0) bufInOut = (byte) (bufInOut | AdabasBufferX.OUT);
-					if (((cmd.specialIn & SP1) != 0) && (adcx.getAcbX().getAcbCOP2() == 'V')) bufInOut = (byte) (bufInOut | AdabasBufferX.IN); 
-					adcx.getSB().setAbdBUF(bufInOut);
-					if (logger.isTraceEnabled())	logger.trace(AdabasTrace.dumpBuffer("search buffer header =", adcx.getSB().getABDBytes()));
-				}
-				bufInOut = 0x00;
-				if (adcx.getVB() != null) {
-					if ((cmd.buffersIn  & MV) != 0) bufInOut = (byte) (bufInOut | AdabasBufferX.IN); 
-					if ((cmd.buffersOut & MV) != 0) bufInOut = (byte) (bufInOut | AdabasBufferX.OUT);
-					if (((cmd.specialIn & SP1) != 0) && (adcx.getAcbX().getAcbCOP2() == 'V')) bufInOut = (byte) (bufInOut | AdabasBufferX.IN); 
-					adcx.getVB().setAbdBUF(bufInOut);
-					if (logger.isTraceEnabled())	logger.trace(AdabasTrace.dumpBuffer("value buffer header =", adcx.getVB().getABDBytes()));
-				}
-				bufInOut = 0x00;
-				if (adcx.getIB() != null) {
-					if ((cmd.buffersIn  & MI) != 0) bufInOut = (byte) (bufInOut | AdabasBufferX.IN); 
-					if ((cmd.buffersOut & MI) != 0) bufInOut = (byte) (bufInOut | AdabasBufferX.OUT);
-					if ((cmd.specialIn  & SP3) != 0) {
-						String sADD4 = new String(adcx.getAcbX().getAcbADD4());
-						if (sADD4.compareTo("        ") == 0) bufInOut = (byte) (bufInOut | AdabasBufferX.IN); 
-					}
-					if ((cmd.specialIn  & SP4) != 0) {
-						byte cop1 = adcx.getAcbX().getAcbCOP1();
-						if (cop1 == 'P' || cop1 == 'M' || cop1 == 'O') bufInOut = (byte) (bufInOut | AdabasBufferX.IN);
-					}
-					if ((cmd.specialOut & SP4) != 0) {
-						byte cop1 = adcx.getAcbX().getAcbCOP1();
-						if (cop1 == 'P' || cop1 == 'M' || cop1 == 'O') bufInOut = (byte) (bufInOut | AdabasBufferX.OUT);
-					}
-					if ((cmd.specialIn  & SP6) != 0) {
-						byte cop1 = adcx.getAcbX().getAcbCOP1();
-						if (cop1 == 'P' || cop1 == 'M' || cop1 == 'O') bufInOut = (byte) (bufInOut | AdabasBufferX.IN);
-					}
-					if ((cmd.specialOut & SP6) != 0) {
-						byte cop1 = adcx.getAcbX().getAcbCOP1();
-						if (cop1 == 'P' || cop1 == 'M' || cop1 == 'O') bufInOut = (byte) (bufInOut | AdabasBufferX.OUT);
-					}
-					adcx.getIB().setAbdBUF(bufInOut);
-					if (logger.isTraceEnabled())	logger.trace(AdabasTrace.dumpBuffer("ISN buffer header =", adcx.getIB().getABDBytes()));
-				}
-				
-				break;
+			if (logger.isDebugEnabled())	
+				logger.debug(method + String.format("command found: code = %s; in = 0x%02X out = 0x%02X; spin = 0x%02X; spout = 0x%02X", 
+						     cmd.commandCode, cmd.buffersIn, cmd.buffersOut, cmd.specialIn, cmd.specialOut));
+			
+			byte[]	f	= cmd.flags;
+			int		c	= cmd.optionCase(acb[0x30], acb[0x31], acb, 0x4C);		// COP1 x30, COP2 x31, ADD4 x4C
+			
+			if (adcx.getFB() != null) {
+				adcx.getFB().setAbdBUF(f[c + FB_X]);
+				if (logger.isTraceEnabled())	logger.trace(AdabasTrace.dumpBuffer("format buffer header =", adcx.getFB().getABDBytes()));
+			}
+			if (adcx.getRB() != null) {
+				adcx.getRB().setAbdBUF(f[c + RB_X]);
+				if (logger.isTraceEnabled())	logger.trace(AdabasTrace.dumpBuffer("record buffer header =", adcx.getRB().getABDBytes()));
+			}
+			if (adcx.getSB() != null) {
+				adcx.getSB().setAbdBUF(f[c + SB_X]);
+				if (logger.isTraceEnabled())	logger.trace(AdabasTrace.dumpBuffer("search buffer header =", adcx.getSB().getABDBytes()));
+			}
+			if (adcx.getVB() != null) {
+				adcx.getVB().setAbdBUF(f[c + VB_X]);
+				if (logger.isTraceEnabled())	logger.trace(AdabasTrace.dumpBuffer("value buffer header =", adcx.getVB().getABDBytes()));
+			}
+			if (adcx.getIB() != null) {
+				adcx.getIB().setAbdBUF(f[c + IB_X]);
+				if (logger.isTraceEnabled())	logger.trace(AdabasTrace.dumpBuffer("ISN buffer header =", adcx.getIB().getABDBytes()));
+			}
+			if (adcx.getMB() != null) {
+				adcx.getMB().setAbdBUF(f[c + MB_X]);
+				if (logger.isTraceEnabled())	logger.trace(AdabasTrace.dumpBuffer("multifetch buffer header =", adcx.getMB().getABDBytes()));
 			}
 		}
 
 		if (logger.isTraceEnabled())	logger.trace(method + "< exited");
 	}
 	
+	/**
+	 * Add a command to the table and index it by its ASCII and EBCDIC code.
+	 */
+	private static void add(List<CommandMF> table, CommandMF cmd) {
+		
+		table.add(cmd);
+		index[CODE_CHAR[cmd.commandCode.charAt(0)] * CHARS + CODE_CHAR[cmd.commandCode.charAt(1)]] = cmd;
+	}
+	
+	/**
+	 * EBCDIC code of letter A-Z by number 0-25.
+	 */
+	private static int ebcdicLetter(int i) {
+		
+		return i < 9 ? 0xC1 + i : i < 18 ? 0xD1 + i - 9 : 0xE2 + i - 18;
+	}
 }
 
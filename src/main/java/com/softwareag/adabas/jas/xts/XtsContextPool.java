@@ -0,0 +1,388 @@
+package com.softwareag.adabas.jas.xts;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.logging.log4j.Logger;
+
+import com.softwareag.adabas.jas.AdabasException;
+import com.softwareag.adabas.jas.AdabasTrace;
+
+/**
+ * Pool of established XTS contexts keyed by DBID, host name and encoding.
+ *
+ * Contexts are lent already connected so callers skip the A1 establish context
+ * round trip. A context is returned to the pool only after its Adabas session
+ * ended with a successful CL. After any error, or when the caller gives up a
+ * session without CL, the context is invalidated: it is destroyed so no session
+ * state or late reply is carried over to the next borrower. Idle contexts above
+ * the minimum are destroyed by a background reaper once unused for the idle timeout.
+ *
+ * @author usadva
+ */
+
+/*
+ * Copyright (c) 1998-2021 Software AG, Darmstadt, Germany and/or Software AG USA Inc., Reston, VA, USA,
+ * and/or its subsidiaries and/or its affiliates and/or their licensors. Use, reproduction, transfer,
+ * publication or disclosure is prohibited except as specifically provided for in your License Agreement
+ * with Software AG.
+ */
+
+public class XtsContextPool extends XtsDefinitions {
+
+	public static final int		DEFAULT_MIN_IDLE		= 0;				// default minimum idle contexts per key
+	public static final int		DEFAULT_MAX_TOTAL		= 16;				// default maximum contexts lent per key
+	public static final long	DEFAULT_IDLE_TIMEOUT	= 300000;			// default idle time before reaping (ms)
+
+	private static volatile XtsContextPool	instance	= null;				// shared default pool
+
+	private final int			minIdle;										// minimum idle contexts per key
+	private final int			maxTotal;										// maximum contexts lent per key
+	private final long			idleTimeout;									// idle time before reaping (ms)
+
+	private final ConcurrentHashMap<String, Partition>				partitions	= new ConcurrentHashMap<String, Partition>();
+	private final ConcurrentHashMap<AdabasDirectCallXts, Partition>	lent		= new ConcurrentHashMap<AdabasDirectCallXts, Partition>();
+	private final ScheduledExecutorService							reaper;
+	private volatile boolean										closed		= false;
+
+	final static Logger logger = AdabasTrace.getLogger("com.softwareag.adabas.jas.xts.XtsContextPool");
+
+	/**
+	 * Constructor.
+	 *
+	 * @param minIdle		Minimum idle contexts kept per key.
+	 * @param maxTotal		Maximum contexts lent at one time per key.
+	 * @param idleTimeout	Idle time in milliseconds after which contexts above minIdle are destroyed.
+	 *
+	 * @throws AdabasException	Invalid pool configuration.
+	 */
+	public XtsContextPool(int minIdle, int maxTotal, long idleTimeout) throws AdabasException {
+
+		if (minIdle < 0 || maxTotal < 1 || minIdle > maxTotal || idleTimeout <= 0) {
+			throw new AdabasException(String.format("Invalid XTS context pool settings: minIdle = %d; maxTotal = %d; idleTimeout = %d", minIdle, maxTotal, idleTimeout));
+		}
+		this.minIdle		= minIdle;
+		this.maxTotal		= maxTotal;
+		this.idleTimeout	= idleTimeout;
+
+		this.reaper = Executors.newSingleThreadScheduledExecutor(r -> {
+			Thread t = new Thread(r, "XtsContextPool-reaper");
+			t.setDaemon(true);
+			return t;
+		});
+		long period = Math.max(1000, idleTimeout / 2);
+		this.reaper.scheduleWithFixedDelay(this::reapIdle, period, period, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Get shared pool with default settings.
+	 *
+	 * @return shared XTS context pool.
+	 *
+	 * @throws AdabasException	Invalid pool configuration.
+	 */
+	public static XtsContextPool getInstance() throws AdabasException {
+
+		if (instance == null) {
+			synchronized (XtsContextPool.class) {
+				if (instance == null) {
+					instance = new XtsContextPool(DEFAULT_MIN_IDLE, DEFAULT_MAX_TOTAL, DEFAULT_IDLE_TIMEOUT);
+				}
+			}
+		}
+		return instance;
+	}
+
+	/**
+	 * Borrow an established XTS context. Waits up to waitTimeout when maxTotal contexts
+	 * for the key are already lent.
+	 *
+	 * @param dbid				Database ID.
+	 * @param hostName			Host name (may be null).
+	 * @param sendTimeout		XTS send timeout in milliseconds.
+	 * @param connectTimeout	XTS connect timeout in milliseconds.
+	 * @param isEBCDIC			EBCDIC encoding flag.
+	 * @param waitTimeout		Maximum wait for a free context in milliseconds.
+	 *
+	 * @return connected XTS context.
+	 *
+	 * @throws Exception	No context available in time or establish context failed.
+	 */
+	public AdabasDirectCallXts borrowContext(int dbid, String hostName, long sendTimeout, int connectTimeout, boolean isEBCDIC, long waitTimeout) throws Exception {
+
+		final String method = "borrowContext(): ";
+
+		if (closed) {
+			throw new AdabasException(dbid, "XTS context pool closed");
+		}
+
+		Partition p = partitions.computeIfAbsent(makeKey(dbid, hostName, isEBCDIC),
+												 k -> new Partition(dbid, hostName, sendTimeout, connectTimeout, isEBCDIC));
+
+		boolean permit = false;
+		try {
+			permit = p.permits.tryAcquire(waitTimeout, TimeUnit.MILLISECONDS);	// wait for free slot
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		if (!permit) {
+			String errmsg = String.format("No XTS context available within %d ms: maxTotal = %d", waitTimeout, maxTotal);
+			logger.error(method + errmsg);
+			throw new AdabasException(dbid, errmsg);
+		}
+
+		try {
+			Idle idle;
+			while ((idle = p.idle.pollFirst()) != null) {						// most recently used first
+				if (idle.ctx.isConnectedXts()) {
+					lent.put(idle.ctx, p);
+					if (logger.isTraceEnabled())	logger.trace(method + "reusing context for " + p);
+					return idle.ctx;
+				}
+			}
+			AdabasDirectCallXts ctx = new AdabasDirectCallXts();				// none idle - establish new one
+			ctx.setPooled(true);
+			ctx.openContext(dbid, hostName, sendTimeout, connectTimeout, isEBCDIC, waitTimeout);
+			lent.put(ctx, p);
+			if (logger.isDebugEnabled())	logger.debug(method + "new context for " + p);
+			return ctx;
+		}
+		catch (Exception e) {
+			p.permits.release();
+			throw e;
+		}
+	}
+
+	/**
+	 * Return a borrowed XTS context after its Adabas session ended with a successful CL.
+	 * Contexts no longer connected are discarded.
+	 *
+	 * @param ctx	XTS context from {@link #borrowContext}.
+	 */
+	public void returnContext(AdabasDirectCallXts ctx) {
+
+		Partition p = lent.remove(ctx);
+		if (p == null) {
+			return;																// not ours or already returned
+		}
+		if (ctx.isConnectedXts()) {
+			if (closed) {
+				destroy(p, ctx);
+			}
+			else {
+				p.idle.offerFirst(new Idle(ctx, System.currentTimeMillis()));
+			}
+		}
+		p.permits.release();
+	}
+
+	/**
+	 * Destroy a borrowed XTS context instead of returning it. Used after a call failed
+	 * (XTS error reply, timeout, lock timeout) or when a session is given up without CL.
+	 *
+	 * @param ctx	XTS context from {@link #borrowContext}.
+	 */
+	public void invalidateContext(AdabasDirectCallXts ctx) {
+
+		final String method = "invalidateContext(): ";
+
+		Partition p = lent.remove(ctx);
+		if (p == null) {
+			return;																// not ours or already returned
+		}
+		try {
+			if (logger.isDebugEnabled())	logger.debug(method + "destroying context for " + p);
+			destroy(p, ctx);
+		}
+		finally {
+			p.permits.release();
+		}
+	}
+
+	/**
+	 * Establish contexts until minIdle are available for the key.
+	 *
+	 * @param dbid				Database ID.
+	 * @param hostName			Host name (may be null).
+	 * @param sendTimeout		XTS send timeout in milliseconds.
+	 * @param connectTimeout	XTS connect timeout in milliseconds.
+	 * @param isEBCDIC			EBCDIC encoding flag.
+	 *
+	 * @throws Exception	Establish context failed.
+	 */
+	public void prestart(int dbid, String hostName, long sendTimeout, int connectTimeout, boolean isEBCDIC) throws Exception {
+
+		Partition p = partitions.computeIfAbsent(makeKey(dbid, hostName, isEBCDIC),
+												 k -> new Partition(dbid, hostName, sendTimeout, connectTimeout, isEBCDIC));
+		fill(p);
+	}
+
+	/**
+	 * Destroy contexts idle longer than the idle timeout, keeping minIdle per key,
+	 * then re-establish contexts up to minIdle. Run periodically by the reaper.
+	 */
+	public void reapIdle() {
+
+		final String method = "reapIdle(): ";
+
+		long	now	= System.currentTimeMillis();
+		for (Partition p : partitions.values()) {
+			while (p.idle.size() > minIdle) {
+				Idle oldest = p.idle.pollLast();								// least recently used last
+				if (oldest == null) {
+					break;
+				}
+				if (now - oldest.lastUsed < idleTimeout) {						// still fresh - put back
+					p.idle.offerLast(oldest);
+					break;
+				}
+				if (logger.isDebugEnabled())	logger.debug(method + "reaping idle context for " + p);
+				destroy(p, oldest.ctx);
+			}
+			try {
+				fill(p);
+			}
+			catch (Exception e) {
+				logger.error(method + "prestart failed for " + p + ": " + e.getMessage());
+			}
+		}
+	}
+
+	/**
+	 * Close pool. Destroys all idle contexts; lent contexts are destroyed when returned.
+	 */
+	public void close() {
+
+		closed = true;
+		reaper.shutdownNow();
+		for (Partition p : partitions.values()) {
+			Idle idle;
+			while ((idle = p.idle.pollFirst()) != null) {
+				destroy(p, idle.ctx);
+			}
+		}
+		synchronized (XtsContextPool.class) {
+			if (instance == this) {
+				instance = null;
+			}
+		}
+	}
+
+	/**
+	 * Get number of idle contexts for a key.
+	 *
+	 * @param dbid		Database ID.
+	 * @param hostName	Host name (may be null).
+	 * @param isEBCDIC	EBCDIC encoding flag.
+	 *
+	 * @return number of idle contexts.
+	 */
+	public int getIdleCount(int dbid, String hostName, boolean isEBCDIC) {
+
+		Partition p = partitions.get(makeKey(dbid, hostName, isEBCDIC));
+		return (p == null) ? 0 : p.idle.size();
+	}
+
+	/**
+	 * Get number of lent contexts over all keys.
+	 *
+	 * @return number of lent contexts.
+	 */
+	public int getLentCount() {
+
+		return lent.size();
+	}
+
+	/**
+	 * Establish contexts until minIdle are idle for the partition.
+	 *
+	 * @param p	Partition.
+	 * @throws Exception
+	 */
+	private void fill(Partition p) throws Exception {
+
+		while (!closed && p.idle.size() < minIdle && p.permits.tryAcquire()) {
+			try {
+				AdabasDirectCallXts ctx = new AdabasDirectCallXts();
+				ctx.setPooled(true);
+				ctx.openContext(p.dbid, p.hostName, p.sendTimeout, p.connectTimeout, p.isEBCDIC, p.sendTimeout);
+				p.idle.offerLast(new Idle(ctx, System.currentTimeMillis()));
+			}
+			finally {
+				p.permits.release();
+			}
+		}
+	}
+
+	/**
+	 * Destroy a context, logging failures.
+	 *
+	 * @param p		Partition the context belongs to.
+	 * @param ctx	XTS context.
+	 */
+	private void destroy(Partition p, AdabasDirectCallXts ctx) {
+
+		try {
+			ctx.closeContext(p.dbid, p.hostName, p.sendTimeout, p.sendTimeout);
+		}
+		catch (Exception e) {
+			logger.error("destroy(): disconnect failed for " + p + ": " + e.getMessage());
+		}
+	}
+
+	/**
+	 * Make pool key.
+	 *
+	 * @return key string.
+	 */
+	private static String makeKey(int dbid, String hostName, boolean isEBCDIC) {
+
+		return dbid + "@" + ((hostName == null) ? "" : hostName) + (isEBCDIC ? ":E" : ":A");
+	}
+
+	/**
+	 * Contexts for one DBID / host name / encoding.
+	 */
+	private final class Partition {
+
+		final int							dbid;
+		final String						hostName;
+		final long							sendTimeout;
+		final int							connectTimeout;
+		final boolean						isEBCDIC;
+		final Semaphore						permits	= new Semaphore(maxTotal);		// lent contexts limit
+		final ConcurrentLinkedDeque<Idle>	idle	= new ConcurrentLinkedDeque<Idle>();
+
+		Partition(int dbid, String hostName, long sendTimeout, int connectTimeout, boolean isEBCDIC) {
+			this.dbid			= dbid;
+			this.hostName		= hostName;
+			this.sendTimeout	= sendTimeout;
+			this.connectTimeout	= connectTimeout;
+			this.isEBCDIC		= isEBCDIC;
+		}
+
+		@Override
+		public String toString() {
+			return makeKey(dbid, hostName, isEBCDIC);
+		}
+	}
+
+	/**
+	 * Idle context with last use time.
+	 */
+	private static final class Idle {
+
+		final AdabasDirectCallXts	ctx;
+		final long					lastUsed;
+
+		Idle(AdabasDirectCallXts ctx, long lastUsed) {
+			this.ctx		= ctx;
+			this.lastUsed	= lastUsed;
+		}
+	}
+}
@@ -87,6 +87,7 @@ public class XtsDefinitions {
 	public static final byte	ARCH_FLOATIEEE		= 0x20;				// platform architecture floating point IEEE
 	
 	public static final long	SEND_TIMEOUT		= 30000;			// timeout for sendAndWait()
+	public static final long	LOCK_TIMEOUT		= 60000;			// timeout waiting for XTS context lock
 	
 	public static final String	ADI_ADMIN			= "SAGADMIN";		// ADI attribute string for admin partition
 	public static final String	ADI_ACTIVE			= "ACTIVE";			// ADI attribute string for database active
@@ -0,0 +1,195 @@
+package com.softwareag.adabas.jas.xts;
+
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.logging.log4j.Logger;
+
+import com.softwareag.adabas.jas.AdabasTrace;
+import com.softwareag.adabas.xts.Message;
+
+/**
+ * Size-classed pool of XTS send messages.
+ *
+ * Send messages are taken from the smallest size class (powers of two from
+ * MIN_CLASS_SIZE to MAX_CLASS_SIZE) that fits the request and returned once
+ * XTS.sendAndWait() completed. The message length is set to the requested
+ * length; bytes beyond it are not sent. Requests above MAX_CLASS_SIZE get an
+ * unpooled message. Idle messages of all classes together hold at most
+ * maxRetained bytes; messages released beyond that are dropped. Reply messages
+ * belong to XTS and are freed, not pooled.
+ *
+ * @author usadva
+ */
+
+/*
+ * Copyright (c) 1998-2021 Software AG, Darmstadt, Germany and/or Software AG USA Inc., Reston, VA, USA,
+ * and/or its subsidiaries and/or its affiliates and/or their licensors. Use, reproduction, transfer,
+ * publication or disclosure is prohibited except as specifically provided for in your License Agreement
+ * with Software AG.
+ */
+
+public class XtsMessagePool extends XtsDefinitions {
+
+	public static final int		MIN_CLASS_SIZE			= 256;				// smallest size class
+	public static final int		MAX_CLASS_SIZE			= 0x100000;			// largest size class (1 MB)
+	public static final int		DEFAULT_MAX_IDLE		= 64;				// default idle messages kept per size class
+	public static final long	DEFAULT_MAX_RETAINED	= 0x800000;			// default idle bytes kept in all classes (8 MB)
+
+	private static volatile XtsMessagePool	instance	= null;				// shared default pool
+
+	private final int			maxIdle;										// idle messages kept per size class
+	private final long			maxRetained;									// idle bytes kept in all classes
+	private final AtomicLong	retained	= new AtomicLong(0);				// idle bytes in all classes
+	private final SizeClass[]	classes;										// size classes smallest first
+
+	final static Logger logger = AdabasTrace.getLogger("com.softwareag.adabas.jas.xts.XtsMessagePool");
+
+	/**
+	 * Constructor keeping at most DEFAULT_MAX_RETAINED idle bytes.
+	 *
+	 * @param maxIdle	Idle messages kept per size class (0 disables pooling).
+	 */
+	public XtsMessagePool(int maxIdle) {
+
+		this(maxIdle, DEFAULT_MAX_RETAINED);
+	}
+
+	/**
+	 * Constructor.
+	 *
+	 * @param maxIdle		Idle messages kept per size class (0 disables pooling).
+	 * @param maxRetained	Idle bytes kept in all size classes together.
+	 */
+	public XtsMessagePool(int maxIdle, long maxRetained) {
+
+		this.maxIdle		= Math.max(0, maxIdle);
+		this.maxRetained	= Math.max(0, maxRetained);
+		int numClasses	= Integer.numberOfTrailingZeros(MAX_CLASS_SIZE) - Integer.numberOfTrailingZeros(MIN_CLASS_SIZE) + 1;
+		this.classes	= new SizeClass[numClasses];
+		for (int i = 0; i < numClasses; i++) {
+			classes[i] = new SizeClass(MIN_CLASS_SIZE << i);
+		}
+	}
+
+	/**
+	 * Get shared pool with default settings.
+	 *
+	 * @return shared XTS message pool.
+	 */
+	public static XtsMessagePool getInstance() {
+
+		if (instance == null) {
+			synchronized (XtsMessagePool.class) {
+				if (instance == null) {
+					instance = new XtsMessagePool(DEFAULT_MAX_IDLE);
+				}
+			}
+		}
+		return instance;
+	}
+
+	/**
+	 * Get a send message of at least length bytes positioned at offset 0.
+	 *
+	 * @param length	Message length.
+	 * @return			message with length set.
+	 */
+	public Message acquire(int length) {
+
+		SizeClass sc = sizeClass(length);
+		if (sc == null) {														// too large to pool
+			return Message.newMessage(length);
+		}
+		Message msg = sc.idle.pollFirst();										// most recently used first
+		if (msg == null) {
+			msg = Message.newMessage(sc.size);
+		}
+		else {
+			sc.count.decrementAndGet();
+			retained.addAndGet(-sc.size);
+			msg.reset();														// position to start
+		}
+		msg.length = length;													// only send requested length
+		return msg;
+	}
+
+	/**
+	 * Return a send message got from {@link #acquire(int)}. Messages not matching a
+	 * size class, above the idle limit of the class or above the retained bytes
+	 * limit are dropped.
+	 *
+	 * @param msg	Message or null.
+	 */
+	public void release(Message msg) {
+
+		if (msg == null || msg.body == null)
+			return;
+		SizeClass sc = sizeClass(msg.body.length);
+		if (sc == null || sc.size != msg.body.length)							// not one of ours
+			return;
+		if (sc.count.incrementAndGet() > maxIdle) {								// enough idle already
+			sc.count.decrementAndGet();
+			return;
+		}
+		if (retained.addAndGet(sc.size) > maxRetained) {						// enough idle bytes already
+			retained.addAndGet(-sc.size);
+			sc.count.decrementAndGet();
+			return;
+		}
+		sc.idle.offerFirst(msg);
+	}
+
+	/**
+	 * Get number of idle messages in the size class fitting length.
+	 *
+	 * @param length	Message length.
+	 * @return			idle messages or 0 if length is not pooled.
+	 */
+	public int getIdleCount(int length) {
+
+		SizeClass sc = sizeClass(length);
+		return (sc == null) ? 0 : sc.count.get();
+	}
+
+	/**
+	 * Get number of idle bytes in all size classes.
+	 *
+	 * @return			idle bytes.
+	 */
+	public long getRetainedBytes() {
+
+		return retained.get();
+	}
+
+	/**
+	 * Get smallest size class for length.
+	 *
+	 * @param length	Message length.
+	 * @return			size class or null if above MAX_CLASS_SIZE.
+	 */
+	private SizeClass sizeClass(int length) {
+
+		if (length > MAX_CLASS_SIZE || maxIdle == 0)
+			return null;
+		if (length <= MIN_CLASS_SIZE)
+			return classes[0];
+		int index = (32 - Integer.numberOfLeadingZeros(length - 1)) - Integer.numberOfTrailingZeros(MIN_CLASS_SIZE);
+		return classes[index];
+	}
+
+	/**
+	 * Idle messages of one size.
+	 */
+	private static final class SizeClass {
+
+		final int							size;								// message body size
+		final ConcurrentLinkedDeque<Message>	idle	= new ConcurrentLinkedDeque<Message>();
+		final AtomicInteger					count	= new AtomicInteger(0);		// idle message count
+
+		SizeClass(int size) {
+			this.size = size;
+		}
+	}
+}
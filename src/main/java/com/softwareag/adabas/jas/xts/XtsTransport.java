@@ -0,0 +1,36 @@
+package com.softwareag.adabas.jas.xts;
+
+import com.softwareag.adabas.xts.Message;
+import com.softwareag.adabas.xts.XTSException;
+import com.softwareag.adabas.xts.XTSSendParameters;
+
+/**
+ * Transport used by {@link AdabasDirectCallXts} for direct call round trips.
+ * 
+ * The default is XTS itself. A stand-in transport (e.g. for benchmarks or tests
+ * without a database) can be set with {@link AdabasDirectCallXts#setTransport(XtsTransport)}.
+ *
+ * @author usadva
+ */
+
+/* 
+ * Copyright (c) 1998-2021 Software AG, Darmstadt, Germany and/or Software AG USA Inc., Reston, VA, USA, 
+ * and/or its subsidiaries and/or its affiliates and/or their licensors. Use, reproduction, transfer, 
+ * publication or disclosure is prohibited except as specifically provided for in your License Agreement 
+ * with Software AG.
+ */
+
+public interface XtsTransport {
+
+	/**
+	 * Send message and wait for reply.
+	 * 
+	 * @param xsp	XTS send parameters.
+	 * @param msg	Message contained in the send parameters.
+	 * 
+	 * @return	reply message.
+	 * 
+	 * @throws XTSException	XTS specific exception.
+	 */
+	Message sendAndWait(XTSSendParameters xsp, Message msg) throws XTSException;
+}
@@ -0,0 +1,132 @@
+package com.softwareag.adabas.jas.junit;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.softwareag.adabas.jas.AdabasBufferX;
+import com.softwareag.adabas.jas.AdabasControlBlockX;
+import com.softwareag.adabas.jas.AdabasDirectCallX;
+import com.softwareag.adabas.jas.AdabasExecutor;
+import com.softwareag.adabas.jas.xts.AdabasDirectCallXts;
+import com.softwareag.adabas.jas.xts.XtsTransport;
+import com.softwareag.adabas.xts.Message;
+
+/**
+ * Benchmark of 10k concurrent direct call callers on virtual threads (Java 21 layer).
+ *
+ * Uses a local stand-in transport that parks for a fixed latency and echoes the
+ * request, so no database is needed. Run with -Djdk.tracePinnedThreads=full to
+ * confirm the call path does not pin carrier threads.
+ *
+ * @author usadva
+ */
+
+/*
+ * Copyright (c) 1998-2021 Software AG, Darmstadt, Germany and/or Software AG USA Inc., Reston, VA, USA,
+ * and/or its subsidiaries and/or its affiliates and/or their licensors. Use, reproduction, transfer,
+ * publication or disclosure is prohibited except as specifically provided for in your License Agreement
+ * with Software AG.
+ */
+
+public class VirtualThreadCallBenchmark {
+
+	private static final int	CALLERS			= 10000;				// concurrent callers
+	private static final int	CALLS_PER_CALLER	= 2;					// calls per caller
+	private static final long	LATENCY_MS		= 20;					// stand-in round trip latency
+	private static final int	REPLY_DATA		= 64;					// room for reply data not sent
+
+	private static final AtomicInteger	roundTrips	= new AtomicInteger(0);
+
+	/**
+	 * Stand-in transport: park for LATENCY_MS and echo the request as reply, with
+	 * room for output buffers the request did not carry.
+	 */
+	private static final XtsTransport	echo		= (xsp, msg) -> {
+		try {
+			Thread.sleep(LATENCY_MS);										// parks a virtual thread
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		roundTrips.incrementAndGet();
+		Message rpl = Message.newMessage(msg.body.length + REPLY_DATA);
+		rpl.putBytes(msg.body);
+		return rpl;
+	};
+
+	@BeforeClass
+	public static void prepare() {
+
+		AdabasDirectCallXts.setTransport(echo);
+	}
+
+	@AfterClass
+	public static void cleanup() {
+
+		AdabasDirectCallXts.setTransport(null);
+	}
+
+	/**
+	 * Run CALLERS concurrent sessions on virtual threads, each with its own XTS context.
+	 * @throws Exception
+	 */
+	@Test
+	public final void testVirtualThreadCallers() throws Exception {
+
+		assertTrue(AdabasExecutor.isVirtualThreadCapable());
+
+		try (ExecutorService executor = AdabasExecutor.newVirtualThreadExecutor()) {
+			long	elapsedTime	= run(executor);
+			long	calls		= (long) CALLERS * CALLS_PER_CALLER;
+			System.out.println(String.format("virtual threads: callers = %d: calls = %d: elapsed = %d ms: calls/sec = %d",
+											 CALLERS, calls, elapsedTime, (calls * 1000) / Math.max(1, elapsedTime)));
+			// serial time would be calls * LATENCY_MS; parked callers must overlap
+			assertTrue("callers did not run concurrently", elapsedTime < (calls * LATENCY_MS) / 10);
+		}
+	}
+
+	/**
+	 * Run all callers on the executor and wait for completion.
+	 *
+	 * @param executor	Executor for callers.
+	 * @return			elapsed time in milliseconds.
+	 * @throws Exception
+	 */
+	private long run(ExecutorService executor) throws Exception {
+
+		ArrayList<CompletableFuture<AdabasControlBlockX>>	futures	= new ArrayList<>(CALLERS);
+
+		long	startTime	= System.currentTimeMillis();
+		for (int i = 0; i < CALLERS; i++) {
+			AdabasControlBlockX acbx = new AdabasControlBlockX();
+			AdabasDirectCallX	adcx = new AdabasDirectCallX(acbx);
+			acbx.setAcbDBID(1);
+			acbx.setAcbCMD("L1");
+			acbx.setAcbFNR(1);
+			adcx.setFB(new AdabasBufferX("AA.", AdabasBufferX.FB));
+			adcx.setRB(new AdabasBufferX(8, AdabasBufferX.RB));
+			adcx.setAsyncExecutor(executor);
+			futures.add(CompletableFuture.supplyAsync(() -> {
+				try {
+					for (int c = 0; c < CALLS_PER_CALLER; c++) {
+						adcx.callAdabas();
+					}
+					return acbx;
+				}
+				catch (Exception e) {
+					throw new RuntimeException(e);
+				}
+			}, executor));
+		}
+		CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).get();
+		return System.currentTimeMillis() - startTime;
+	}
+}